@@ -6,6 +6,9 @@ config = {
     'SQLITE_FILE': os.getenv('ESCHER_CONVERTER_DB_FILE', '/temp/escher.db'),
     'JAR_PATH': os.getenv('ESCHER_CONVERTER_PATH', '/temp/EscherConverter.jar'),
     'FILE_STORE': os.getenv('ESCHER_CONVERTER_FILE_STORE', '/temp/escher_converter/files/'),
+    'SERVER_URL': os.getenv('ESCHER_CONVERTER_SERVER_URL'),
+    'SERVER_POLL_INTERVAL': float(os.getenv('ESCHER_CONVERTER_SERVER_POLL_INTERVAL', 0.5)),
+    'JOB_TIMEOUT': os.getenv('ESCHER_CONVERTER_JOB_TIMEOUT'),
     'DEBUG': True,
     'TEST_CONFIG': {
         'SQLITE_FILE': '/temp/test/escher.db'
@@ -1,8 +1,11 @@
 import glob
+import json
 import os
 import shutil
 import subprocess
 import time
+import urllib.error
+import urllib.request
 from threading import Thread
 
 from config import config
@@ -84,15 +87,71 @@ class EscherConverter(object):
         db = Database(config['SQLITE_FILE'], config['DEBUG'])
         db.renew()
         options = db.retrieve(id)
-        status_code = subprocess.call(self.command)
+        succeeded = self._run(options, db)
         req_id = options.id
         for file in glob.glob(config['FILE_STORE'] + str(req_id) + '/output/input/*'):
             shutil.move(file, config['FILE_STORE'] + str(req_id) + '/output/')
         os.rmdir(config['FILE_STORE'] + str(req_id) + '/output/input/')
-        if status_code == 0:
+        if succeeded:
             options.status = ConversionStatus.completed
         else:
             options.status = ConversionStatus.failed
         options.completion_date = int(time.time())
         db.update()
         db.finalize()
+
+    def _run(self, options, db):
+        """
+        Runs the conversion in the resident converter server if one is configured, otherwise
+        in a new JVM. While the server processes the job, the status of the conversion follows
+        the state of the job.
+        :param options: the conversion request.
+        :param db: the database that holds the request.
+        :return: True if the conversion succeeded.
+        """
+        if config['SERVER_URL'] is None:
+            return subprocess.call(self.command) == 0
+        arguments = [argument for argument in self.command if argument.startswith('--')]
+        if config['JOB_TIMEOUT'] is not None:
+            arguments.append('--job-timeout=' + str(config['JOB_TIMEOUT']))
+        try:
+            job = EscherConverter._submit(arguments)
+            while job['state'] in ('QUEUED', 'RUNNING'):
+                status = ConversionStatus.waiting if job['state'] == 'QUEUED' else ConversionStatus.running
+                if options.status != status:
+                    options.status = status
+                    db.update()
+                time.sleep(config['SERVER_POLL_INTERVAL'])
+                job = EscherConverter._request(config['SERVER_URL'] + '/jobs/' + job['id'])
+        except urllib.error.URLError:
+            return False
+        return job['state'] == 'DONE' and job['failed'] == 0
+
+    @staticmethod
+    def _submit(arguments):
+        """
+        Submits a job to the converter server. While the queue of the server is full, the
+        submission is repeated after the time that the server asks for.
+        :param arguments: command-line arguments of the job.
+        :return: the status of the job.
+        """
+        while True:
+            try:
+                return EscherConverter._request(config['SERVER_URL'] + '/jobs', arguments)
+            except urllib.error.HTTPError as error:
+                if error.code != 503:
+                    raise
+                time.sleep(float(error.headers.get('Retry-After', config['SERVER_POLL_INTERVAL'])))
+
+    @staticmethod
+    def _request(url, arguments=None):
+        """
+        Sends a request to the converter server.
+        :param url:
+        :param arguments: command-line arguments of a new job, None to request the status of a job.
+        :return: the status of the job.
+        """
+        data = None if arguments is None else json.dumps(arguments).encode('utf-8')
+        request = urllib.request.Request(url, data=data, headers={'Content-Type': 'application/json'})
+        with urllib.request.urlopen(request) as response:
+            return json.loads(response.read().decode('utf-8'))
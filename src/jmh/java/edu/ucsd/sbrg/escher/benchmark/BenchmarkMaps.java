@@ -0,0 +1,185 @@
+/* ---------------------------------------------------------------------
+ * This file is part of the program EscherConverter.
+ *
+ * Copyright (C) 2013-2017 by the University of California, San Diego.
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation. A copy of the license
+ * agreement is provided in the file named "LICENSE.txt" included with
+ * this software distribution and also available online as
+ * <http://www.gnu.org/licenses/lgpl-3.0-standalone.html>.
+ * ---------------------------------------------------------------------
+ */
+package edu.ucsd.sbrg.escher.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import de.zbit.util.prefs.SBPreferences;
+import de.zbit.util.prefs.SBProperties;
+import edu.ucsd.sbrg.escher.EscherConverter;
+import edu.ucsd.sbrg.escher.util.Utils;
+import edu.ucsd.sbrg.escher.util.Validator;
+
+/**
+ * Provides the input for the benchmarks: the Escher maps in the
+ * {@code data} directory, optionally enlarged by a scale factor.
+ * <p>
+ * A map is scaled by placing copies of it next to each other on a grid, as
+ * in tiled genome-scale maps. Every copy gets its own node, reaction,
+ * segment and text label identifiers, whereas the BiGG identifiers of
+ * metabolites and reactions are shared among all copies.
+ *
+ * @author Andreas Dr&auml;ger
+ */
+public class BenchmarkMaps {
+
+  /**
+   * Directory with the example maps, relative to the project directory.
+   */
+  public static final String DATA_DIR = "data";
+  /**
+   * Name of the map that is created by {@link MapGenerator} instead of being
+   * read from {@link #DATA_DIR}.
+   */
+  public static final String SYNTHETIC = "synthetic";
+  /**
+   * Number of reactions of the synthetic map at scale one.
+   */
+  public static final int SYNTHETIC_REACTIONS = 1000;
+
+
+  /**
+   * Reads the Escher map with the given name from {@link #DATA_DIR} and
+   * scales it. The map {@value #SYNTHETIC} is generated with
+   * {@value #SYNTHETIC_REACTIONS} reactions per scale unit instead.
+   *
+   * @param name name of the map without the extension
+   *        {@code .escher.json}, e.g., {@code e_coli_core_metabolism}.
+   * @param scale number of copies of the map, at least one.
+   * @return the Escher JSON document.
+   * @throws IOException
+   */
+  public static byte[] load(String name, int scale) throws IOException {
+    if (name.equals(SYNTHETIC)) {
+      MapGenerator generator = new MapGenerator();
+      generator.setReactionCount(SYNTHETIC_REACTIONS * scale);
+      return generator.toJson();
+    }
+    JsonNode document = Validator.readEscherTree(new File(DATA_DIR, name + ".escher.json"));
+    if (scale > 1) {
+      document = tile(document, scale);
+    }
+    return Utils.getObjectWriter().writeValueAsBytes(document);
+  }
+
+
+  /**
+   * Places {@code scale} copies of the given map on a grid.
+   *
+   * @param document an Escher JSON document.
+   * @param scale number of copies.
+   * @return a new document.
+   */
+  public static JsonNode tile(JsonNode document, int scale) {
+    ArrayNode result = (ArrayNode) document.deepCopy();
+    ObjectNode layout = (ObjectNode) result.get(1);
+    ObjectNode original = layout.deepCopy();
+    JsonNode canvas = original.get("canvas");
+    double width = canvas.get("width").asDouble();
+    double height = canvas.get("height").asDouble();
+    int columns = (int) Math.ceil(Math.sqrt(scale));
+    int rows = (int) Math.ceil(scale / (double) columns);
+
+    for (int copy = 1; copy < scale; copy++) {
+      String suffix = "_" + copy;
+      double dx = (copy % columns) * width;
+      double dy = (copy / columns) * height;
+      addCopies((ObjectNode) layout.get("nodes"), original.get("nodes"), suffix, dx, dy);
+      addCopies((ObjectNode) layout.get("reactions"), original.get("reactions"), suffix, dx, dy);
+      addCopies((ObjectNode) layout.get("text_labels"), original.get("text_labels"), suffix, dx, dy);
+    }
+    ((ObjectNode) layout.get("canvas")).put("width", width * columns);
+    ((ObjectNode) layout.get("canvas")).put("height", height * rows);
+    return result;
+  }
+
+
+  /**
+   * @param target
+   * @param source
+   * @param suffix
+   * @param dx
+   * @param dy
+   */
+  private static void addCopies(ObjectNode target, JsonNode source, String suffix, double dx,
+    double dy) {
+    if ((target == null) || (source == null)) {
+      return;
+    }
+    Iterator<Map.Entry<String, JsonNode>> iterator = source.fields();
+    while (iterator.hasNext()) {
+      Map.Entry<String, JsonNode> entry = iterator.next();
+      ObjectNode copy = entry.getValue().deepCopy();
+      move(copy, dx, dy);
+      JsonNode segments = copy.get("segments");
+      if (segments != null) {
+        ObjectNode renamed = copy.objectNode();
+        Iterator<Map.Entry<String, JsonNode>> segmentIterator = segments.fields();
+        while (segmentIterator.hasNext()) {
+          Map.Entry<String, JsonNode> segment = segmentIterator.next();
+          ObjectNode value = (ObjectNode) segment.getValue();
+          value.put("from_node_id", value.get("from_node_id").asText() + suffix);
+          value.put("to_node_id", value.get("to_node_id").asText() + suffix);
+          move(value.get("b1"), dx, dy);
+          move(value.get("b2"), dx, dy);
+          renamed.put(segment.getKey() + suffix, value);
+        }
+        copy.put("segments", renamed);
+      }
+      target.put(entry.getKey() + suffix, copy);
+    }
+  }
+
+
+  /**
+   * Shifts all coordinates of the given element.
+   *
+   * @param element
+   * @param dx
+   * @param dy
+   */
+  private static void move(JsonNode element, double dx, double dy) {
+    if ((element == null) || !element.isObject()) {
+      return;
+    }
+    ObjectNode object = (ObjectNode) element;
+    for (String field : new String[] {"x", "label_x"}) {
+      if (object.has(field)) {
+        object.put(field, object.get(field).asDouble() + dx);
+      }
+    }
+    for (String field : new String[] {"y", "label_y"}) {
+      if (object.has(field)) {
+        object.put(field, object.get(field).asDouble() + dy);
+      }
+    }
+  }
+
+
+  /**
+   * @return the default values of all conversion options.
+   */
+  public static SBProperties defaultProperties() {
+    return SBPreferences.analyzeCommandLineArguments(new EscherConverter().getCmdLineOptions(),
+      new String[0]);
+  }
+
+}
@@ -0,0 +1,112 @@
+/* ---------------------------------------------------------------------
+ * This file is part of the program EscherConverter.
+ *
+ * Copyright (C) 2013-2017 by the University of California, San Diego.
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation. A copy of the license
+ * agreement is provided in the file named "LICENSE.txt" included with
+ * this software distribution and also available online as
+ * <http://www.gnu.org/licenses/lgpl-3.0-standalone.html>.
+ * ---------------------------------------------------------------------
+ */
+package edu.ucsd.sbrg.escher.benchmark;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sbgn.bindings.Sbgn;
+import org.sbml.jsbml.SBMLDocument;
+
+import edu.ucsd.sbrg.escher.EscherConverter;
+import edu.ucsd.sbrg.escher.converter.Escher2SBML;
+import edu.ucsd.sbrg.escher.converter.Escher2Standard;
+import edu.ucsd.sbrg.escher.model.EscherMap;
+
+/**
+ * Measures the conversion stages separately: the pre-processing of Escher
+ * maps, the conversion of Escher maps to SBML and SBGN-ML, and the
+ * conversion of SBML and SBGN-ML documents to Escher maps.
+ *
+ * @author Andreas Dr&auml;ger
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ConvertBenchmark {
+
+  /**
+   * A new copy of the map for every invocation, because the conversion of
+   * Escher maps modifies them. Parsing the copy is not measured.
+   *
+   * @author Andreas Dr&auml;ger
+   */
+  @State(Scope.Thread)
+  public static class MapCopy {
+
+    /**
+     * The copy.
+     */
+    public EscherMap map;
+
+
+    /**
+     * @param state
+     * @throws IOException
+     */
+    @Setup(Level.Invocation)
+    public void setUp(MapState state) throws IOException {
+      map = state.parse();
+    }
+
+  }
+
+
+  @Benchmark
+  public EscherMap preprocessDataStructure(MapState state, MapCopy copy) {
+    Escher2Standard<SBMLDocument> converter = EscherConverter.configure(new Escher2SBML(),
+      state.properties);
+    converter.preprocessDataStructure(copy.map);
+    return copy.map;
+  }
+
+
+  @Benchmark
+  public SBMLDocument escher2SBML(MapState state, MapCopy copy) {
+    return EscherConverter.convert(copy.map, SBMLDocument.class, state.properties);
+  }
+
+
+  @Benchmark
+  public Sbgn escher2SBGN(MapState state, MapCopy copy) {
+    return EscherConverter.convert(copy.map, Sbgn.class, state.properties);
+  }
+
+
+  @Benchmark
+  public List<EscherMap> sbml2Escher(MapState state) {
+    return EscherConverter.convert(state.sbml, state.properties);
+  }
+
+
+  @Benchmark
+  public EscherMap sbgn2Escher(MapState state) {
+    return EscherConverter.convert(state.sbgn, state.properties);
+  }
+
+}
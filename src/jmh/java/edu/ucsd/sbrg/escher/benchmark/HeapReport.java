@@ -0,0 +1,78 @@
+/* ---------------------------------------------------------------------
+ * This file is part of the program EscherConverter.
+ *
+ * Copyright (C) 2013-2017 by the University of California, San Diego.
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation. A copy of the license
+ * agreement is provided in the file named "LICENSE.txt" included with
+ * this software distribution and also available online as
+ * <http://www.gnu.org/licenses/lgpl-3.0-standalone.html>.
+ * ---------------------------------------------------------------------
+ */
+package edu.ucsd.sbrg.escher.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Locale;
+import java.util.Map;
+
+import edu.ucsd.sbrg.escher.EscherConverter;
+import edu.ucsd.sbrg.escher.converter.Escher2SBML;
+import edu.ucsd.sbrg.escher.model.EscherMap;
+import edu.ucsd.sbrg.escher.model.EscherReaction;
+
+/**
+ * Reports how much heap memory a parsed synthetic map occupies. The memory
+ * in use is measured after garbage collection before and after parsing, so
+ * that the report also covers all reactions, segments and text labels of the
+ * map, but no temporary objects of the parser. A second measurement after the
+ * pre-processing of a conversion adds the connected segments of all nodes.
+ *
+ * @author Andreas Dr&auml;ger
+ */
+public class HeapReport {
+
+  /**
+   * @param args optionally, the number of reactions of the synthetic map.
+   * @throws IOException
+   */
+  public static void main(String[] args) throws IOException {
+    MapGenerator generator = new MapGenerator();
+    generator.setReactionCount(args.length > 0 ? Integer.parseInt(args[0]) : 20000);
+    byte[] json = generator.toJson();
+
+    long before = usedHeap();
+    EscherMap map = EscherConverter.parseEscherJson(new ByteArrayInputStream(json));
+    long after = usedHeap();
+    new Escher2SBML().preprocessDataStructure(map);
+    long preprocessed = usedHeap();
+
+    int segments = 0;
+    for (Map.Entry<String, EscherReaction> entry : map.reactions()) {
+      segments += entry.getValue().getSegmentCount();
+    }
+    long bytes = after - before;
+    long adjacency = preprocessed - after;
+    System.out.printf(Locale.ENGLISH,
+      "%s: %d nodes, %d reactions, %d segments, %.1f MB heap, %.0f bytes per node,"
+      + " %.1f MB connected segments, %.0f bytes per node%n",
+      generator.getName(), map.getNodesCount(), map.getReactionCount(), segments,
+      bytes / 1024d / 1024d, bytes / (double) map.getNodesCount(),
+      adjacency / 1024d / 1024d, adjacency / (double) map.getNodesCount());
+  }
+
+
+  /**
+   * @return the number of bytes in use after garbage collection.
+   */
+  private static long usedHeap() {
+    Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < 5; i++) {
+      System.gc();
+    }
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+
+}
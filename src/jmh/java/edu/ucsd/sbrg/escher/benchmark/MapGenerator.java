@@ -0,0 +1,637 @@
+/* ---------------------------------------------------------------------
+ * This file is part of the program EscherConverter.
+ *
+ * Copyright (C) 2013-2017 by the University of California, San Diego.
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation. A copy of the license
+ * agreement is provided in the file named "LICENSE.txt" included with
+ * this software distribution and also available online as
+ * <http://www.gnu.org/licenses/lgpl-3.0-standalone.html>.
+ * ---------------------------------------------------------------------
+ */
+package edu.ucsd.sbrg.escher.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import javax.xml.bind.JAXBException;
+import javax.xml.stream.XMLStreamException;
+
+import org.sbgn.bindings.Sbgn;
+import org.sbml.jsbml.SBMLDocument;
+import org.sbml.jsbml.TidySBMLWriter;
+
+import edu.ucsd.sbrg.escher.EscherConverter;
+import edu.ucsd.sbrg.escher.model.Canvas;
+import edu.ucsd.sbrg.escher.model.EscherMap;
+import edu.ucsd.sbrg.escher.model.EscherReaction;
+import edu.ucsd.sbrg.escher.model.Gene;
+import edu.ucsd.sbrg.escher.model.Metabolite;
+import edu.ucsd.sbrg.escher.model.Node;
+import edu.ucsd.sbrg.escher.model.Point;
+import edu.ucsd.sbrg.escher.model.Segment;
+import edu.ucsd.sbrg.escher.model.TextLabel;
+import edu.ucsd.sbrg.escher.util.Compression;
+import edu.ucsd.sbrg.escher.util.EscherJsonWriter;
+
+/**
+ * Generates Escher maps of arbitrary size that resemble tiled genome-scale
+ * maps, for benchmarks and profiling.
+ * <p>
+ * The reactions are arranged in linear pathways, which are placed on a
+ * grid. Within a pathway, the primary product of every reaction is the
+ * primary reactant of the next reaction, i.e., both reactions share the same
+ * node. In addition, every reaction has secondary metabolites, which are
+ * drawn from the same pool of BiGG identifiers with a strong preference for
+ * the first identifiers, so that, as with cofactors such as ATP or water,
+ * some metabolites appear in many places of the map. Every side of a
+ * reaction consists of a chain of multimarkers that starts at the midmarker,
+ * and metabolites are connected to the last multimarker by curved segments.
+ * <p>
+ * The same settings, including the seed, always yield the same map. It can
+ * be written as Escher JSON, SBML and SBGN-ML document by running this class,
+ * e.g., with
+ * <pre>
+ * mvn -P benchmark test-compile exec:java -Dexec.classpathScope=test
+ *   -Dexec.mainClass=edu.ucsd.sbrg.escher.benchmark.MapGenerator
+ *   -Dexec.args="target/synthetic 20000"
+ * </pre>
+ *
+ * @author Andreas Dr&auml;ger
+ */
+public class MapGenerator {
+
+  /**
+   * Compartment codes of the metabolites (cytosol, periplasm and
+   * extracellular space), where the first one is the most frequent one.
+   */
+  private static final String COMPARTMENTS[] = {"c", "c", "c", "c", "c", "c", "c", "c", "p", "e"};
+  /**
+   * Distance between two primary metabolites in a pathway.
+   */
+  private static final double REACTION_SPACING = 260d;
+  /**
+   * Distance of the secondary metabolites from the axis of a pathway.
+   */
+  private static final double SECONDARY_OFFSET = 90d;
+  /**
+   * Height of the band that is occupied by a pathway.
+   */
+  private static final double PATHWAY_HEIGHT = 420d;
+  /**
+   * Distance between two multimarkers.
+   */
+  private static final double MARKER_SPACING = 12d;
+  /**
+   * Margin around the drawing.
+   */
+  private static final double MARGIN = 200d;
+
+  /**
+   * Number of reactions in the map.
+   */
+  private int reactionCount = 1000;
+  /**
+   * Number of distinct metabolite BiGG identifiers.
+   */
+  private int metaboliteCount = 400;
+  /**
+   * Number of secondary metabolites per reaction.
+   */
+  private int secondaryMetabolites = 2;
+  /**
+   * Number of multimarkers on each side of a reaction.
+   */
+  private int multimarkers = 1;
+  /**
+   * Number of reactions in a pathway.
+   */
+  private int pathwayLength = 12;
+  /**
+   * Seed of the random number generator.
+   */
+  private long seed = 0L;
+
+
+  /**
+   * Generates a map with the default settings and the given number of
+   * reactions.
+   *
+   * @param reactionCount
+   * @return a post-processed map, as returned by
+   *         {@link EscherConverter#parseEscherJson(File)}.
+   */
+  public static EscherMap generate(int reactionCount) {
+    MapGenerator generator = new MapGenerator();
+    generator.setReactionCount(reactionCount);
+    return generator.generate();
+  }
+
+
+  /**
+   * Writes a generated map in all supported formats.
+   *
+   * @param args output directory, number of reactions and, optionally,
+   *        number of distinct metabolites, number of secondary metabolites
+   *        per reaction, number of multimarkers per side, and seed.
+   * @throws IOException
+   * @throws JAXBException
+   * @throws XMLStreamException
+   */
+  public static void main(String[] args) throws IOException, JAXBException, XMLStreamException {
+    if (args.length < 2) {
+      System.err.println("Usage: MapGenerator <output directory> <reactions> [<metabolites> "
+          + "[<secondary metabolites per reaction> [<multimarkers per side> [<seed>]]]]");
+      System.exit(1);
+    }
+    MapGenerator generator = new MapGenerator();
+    generator.setReactionCount(Integer.parseInt(args[1]));
+    if (args.length > 2) {
+      generator.setMetaboliteCount(Integer.parseInt(args[2]));
+    }
+    if (args.length > 3) {
+      generator.setSecondaryMetabolites(Integer.parseInt(args[3]));
+    }
+    if (args.length > 4) {
+      generator.setMultimarkers(Integer.parseInt(args[4]));
+    }
+    if (args.length > 5) {
+      generator.setSeed(Long.parseLong(args[5]));
+    }
+    File directory = new File(args[0]);
+    directory.mkdirs();
+    generator.write(directory);
+  }
+
+
+  /**
+   * Generates a new map. Conversions modify maps, so every call creates a new
+   * one.
+   *
+   * @return a post-processed map, as returned by
+   *         {@link EscherConverter#parseEscherJson(File)}.
+   */
+  public EscherMap generate() {
+    return new Generation().run();
+  }
+
+
+  /**
+   * @return the name of generated maps, which contains the settings.
+   */
+  public String getName() {
+    return "synthetic_" + reactionCount + "_" + metaboliteCount + "_" + secondaryMetabolites + "_"
+        + multimarkers + "_" + seed;
+  }
+
+
+  /**
+   * @return the Escher JSON document of a generated map.
+   * @throws IOException
+   */
+  public byte[] toJson() throws IOException {
+    ByteArrayOutputStream stream = new ByteArrayOutputStream();
+    new EscherJsonWriter().write(generate(), getName() + ".escher.json", stream);
+    return stream.toByteArray();
+  }
+
+
+  /**
+   * Writes a generated map as Escher JSON, SBML and SBGN-ML document to the
+   * given directory.
+   *
+   * @param directory
+   * @throws IOException
+   * @throws JAXBException
+   * @throws XMLStreamException
+   */
+  public void write(File directory) throws IOException, JAXBException, XMLStreamException {
+    new EscherJsonWriter().write(generate(), new File(directory, getName() + ".escher.json"));
+    SBMLDocument doc = EscherConverter.convert(generate(), SBMLDocument.class,
+      BenchmarkMaps.defaultProperties());
+    try (OutputStream stream = Compression.openOutput(new File(directory, getName() + ".sbml.xml"))) {
+      TidySBMLWriter.write(doc, stream, getClass().getSimpleName(), "", ' ', (short) 2);
+    }
+    Sbgn sbgn = EscherConverter.convert(generate(), Sbgn.class, BenchmarkMaps.defaultProperties());
+    try (OutputStream stream = Compression.openOutput(new File(directory, getName() + ".sbgn.xml"))) {
+      EscherConverter.writeSBGNML(sbgn, stream);
+    }
+  }
+
+
+  /**
+   * The state of the generation of one map.
+   *
+   * @author Andreas Dr&auml;ger
+   */
+  private class Generation {
+
+    /**
+     * The map that is generated.
+     */
+    private EscherMap map    = new EscherMap();
+    /**
+     * Creates reproducible maps.
+     */
+    private Random    random = new Random(seed);
+    /**
+     * Next identifier of nodes, reactions and text labels.
+     */
+    private int       nextId;
+    /**
+     * Next identifier of segments.
+     */
+    private int       nextSegmentId;
+
+
+    /**
+     * @return the map.
+     */
+    public EscherMap run() {
+      int pathways = (reactionCount + pathwayLength - 1) / pathwayLength;
+      int columns = Math.max(1, (int) Math.ceil(Math.sqrt(pathways / 4d)));
+      double pathwayWidth = (pathwayLength + 1) * REACTION_SPACING;
+
+      for (int pathway = 0; pathway < pathways; pathway++) {
+        double x = MARGIN + (pathway % columns) * pathwayWidth;
+        double y = MARGIN + (pathway / columns) * PATHWAY_HEIGHT + PATHWAY_HEIGHT / 2d;
+        int length = Math.min(pathwayLength, reactionCount - pathway * pathwayLength);
+        addPathway(pathway, length, x, y);
+      }
+
+      Canvas canvas = new Canvas();
+      canvas.setX(0d);
+      canvas.setY(0d);
+      canvas.setWidth(2 * MARGIN + columns * pathwayWidth);
+      canvas.setHeight(2 * MARGIN + Math.ceil(pathways / (double) columns) * PATHWAY_HEIGHT);
+      map.setCanvas(canvas);
+      map.setId(getName());
+      map.setName(getName());
+      map.setDescription("Synthetic map with " + reactionCount + " reactions");
+      map.setSchema("https://escher.github.io/escher/jsonschema/1-0-0#");
+      map.setURL("https://escher.github.io");
+      map.postprocessMap();
+      return map;
+    }
+
+
+    /**
+     * Adds a linear pathway, whose primary metabolites lie on a horizontal
+     * line that starts at the given position.
+     *
+     * @param pathway
+     * @param length
+     * @param x
+     * @param y
+     */
+    private void addPathway(int pathway, int length, double x, double y) {
+      TextLabel label = new TextLabel();
+      label.setId(Integer.toString(nextId++));
+      label.setText("Pathway " + (pathway + 1));
+      label.setX(x);
+      label.setY(y - PATHWAY_HEIGHT / 2d + 40d);
+      map.addTextLabel(label);
+
+      String biggId = primaryMetabolite();
+      Node reactant = addMetabolite(biggId, true, jitter(x, 10d), jitter(y, 10d));
+      for (int i = 0; i < length; i++) {
+        String productId;
+        do {
+          productId = primaryMetabolite();
+        } while (productId.equals(reactant.getBiggId()));
+        Node product = addMetabolite(productId, true,
+          jitter(x + (i + 1) * REACTION_SPACING, 10d), jitter(y, 10d));
+        addReaction(reactant, product);
+        reactant = product;
+      }
+    }
+
+
+    /**
+     * Adds a reaction between the given primary metabolites together with
+     * its secondary metabolites.
+     *
+     * @param reactant
+     * @param product
+     */
+    private void addReaction(Node reactant, Node product) {
+      EscherReaction reaction = new EscherReaction();
+      reaction.setId(Integer.toString(nextId++));
+      int number = map.getReactionCount();
+      reaction.setBiggId(String.format("RXN%05d", number));
+      reaction.setName("Reaction " + number);
+      reaction.setReversibility(random.nextInt(3) == 0);
+
+      List<Gene> genes = new ArrayList<Gene>();
+      int geneCount = 1 + random.nextInt(2);
+      StringBuilder rule = new StringBuilder();
+      for (int i = 0; i < geneCount; i++) {
+        String geneId = String.format("g%05d", 2 * number + i);
+        genes.add(new Gene(geneId, "gene" + (2 * number + i)));
+        if (i > 0) {
+          rule.append(" and ");
+        }
+        rule.append(geneId);
+      }
+      reaction.setGeneList(genes);
+      reaction.setGeneReactionRule(rule.toString());
+
+      double midX = (reactant.getX() + product.getX()) / 2d;
+      double midY = (reactant.getY() + product.getY()) / 2d;
+      reaction.setLabelX(midX + 10d);
+      reaction.setLabelY(midY - 30d);
+      Node midmarker = addMarker(Node.Type.midmarker, midX, midY);
+      // In the same order as in parsed maps, because the converters depend on it.
+      Map<String, Segment> segments = new LinkedHashMap<String, Segment>();
+
+      // Chains of multimarkers from the midmarker towards both sides.
+      Node reactantSide = midmarker;
+      Node productSide = midmarker;
+      for (int i = 1; i <= multimarkers; i++) {
+        Node marker = addMarker(Node.Type.multimarker, midX - i * MARKER_SPACING, midY);
+        addSegment(segments, marker, reactantSide, false);
+        reactantSide = marker;
+        marker = addMarker(Node.Type.multimarker, midX + i * MARKER_SPACING, midY);
+        addSegment(segments, productSide, marker, false);
+        productSide = marker;
+      }
+
+      Set<String> biggIds = new HashSet<String>();
+      biggIds.add(reactant.getBiggId());
+      biggIds.add(product.getBiggId());
+      List<Metabolite> metabolites = new ArrayList<Metabolite>();
+      metabolites.add(metabolite(reactant.getBiggId(), -1d));
+      addSegment(segments, reactant, reactantSide, true);
+      for (int i = 0; i < secondaryMetabolites; i++) {
+        String biggId;
+        do {
+          biggId = secondaryMetabolite();
+        } while (!biggIds.add(biggId));
+        boolean isReactant = (i % 2) == 0;
+        double x = isReactant ? midX - REACTION_SPACING / 4d : midX + REACTION_SPACING / 4d;
+        double y = midY + ((i / 2) % 2 == 0 ? -1 : 1) * SECONDARY_OFFSET;
+        Node node = addMetabolite(biggId, false, jitter(x, 20d), jitter(y, 15d));
+        if (isReactant) {
+          metabolites.add(metabolite(biggId, -(1d + random.nextInt(2))));
+          addSegment(segments, node, reactantSide, true);
+        } else {
+          metabolites.add(metabolite(biggId, 1d + random.nextInt(2)));
+          addSegment(segments, productSide, node, true);
+        }
+      }
+      metabolites.add(metabolite(product.getBiggId(), 1d));
+      addSegment(segments, productSide, product, true);
+      reaction.setMetaboliteList(metabolites);
+      reaction.setSegments(segments);
+
+      map.addReaction(reaction);
+    }
+
+
+    /**
+     * @param type
+     * @param x
+     * @param y
+     * @return a new midmarker or multimarker.
+     */
+    private Node addMarker(Node.Type type, double x, double y) {
+      Node node = new Node();
+      node.setId(Integer.toString(nextId++));
+      node.setType(type);
+      node.setX(x);
+      node.setY(y);
+      map.addNode(node);
+      return node;
+    }
+
+
+    /**
+     * @param biggId
+     * @param primary
+     * @param x
+     * @param y
+     * @return a new metabolite node.
+     */
+    private Node addMetabolite(String biggId, boolean primary, double x, double y) {
+      Node node = new Node();
+      node.setId(Integer.toString(nextId++));
+      node.setType(Node.Type.metabolite);
+      node.setBiggId(biggId);
+      node.setName("Metabolite " + biggId.substring(3, biggId.indexOf('_')));
+      node.setPrimary(primary);
+      node.setX(x);
+      node.setY(y);
+      node.setLabelX(x + 15d);
+      node.setLabelY(y + (primary ? 40d : -15d));
+      map.addNode(node);
+      return node;
+    }
+
+
+    /**
+     * Connects the given nodes. Segments to metabolites are drawn as curves
+     * with two base points.
+     *
+     * @param segments
+     * @param from
+     * @param to
+     * @param curved
+     */
+    private void addSegment(Map<String, Segment> segments, Node from, Node to, boolean curved) {
+      Segment segment = new Segment();
+      segment.setId(Integer.toString(nextSegmentId++));
+      segment.setFromNodeId(from.getId());
+      segment.setToNodeId(to.getId());
+      if (curved) {
+        double dx = to.getX() - from.getX();
+        double dy = to.getY() - from.getY();
+        segment.setBasePoint1(new Point(jitter(from.getX() + dx / 3d, 8d),
+          jitter(from.getY() + dy / 3d, 8d)));
+        segment.setBasePoint2(new Point(jitter(from.getX() + 2d * dx / 3d, 8d),
+          jitter(from.getY() + 2d * dy / 3d, 8d)));
+      }
+      segments.put(segment.getId(), segment);
+    }
+
+
+    /**
+     * @param biggId
+     * @param coefficient
+     * @return
+     */
+    private Metabolite metabolite(String biggId, double coefficient) {
+      Metabolite metabolite = new Metabolite();
+      metabolite.setId(biggId);
+      metabolite.setCoefficient(coefficient);
+      return metabolite;
+    }
+
+
+    /**
+     * @return a BiGG identifier that is drawn uniformly from the pool.
+     */
+    private String primaryMetabolite() {
+      return metaboliteId(random.nextInt(metaboliteCount));
+    }
+
+
+    /**
+     * @return a BiGG identifier from the pool, where the first identifiers
+     *         are much more likely than the last ones.
+     */
+    private String secondaryMetabolite() {
+      double r = random.nextDouble();
+      return metaboliteId((int) (metaboliteCount * r * r * r));
+    }
+
+
+    /**
+     * @param index
+     * @return
+     */
+    private String metaboliteId(int index) {
+      return String.format("met%05d_%s", index, COMPARTMENTS[index % COMPARTMENTS.length]);
+    }
+
+
+    /**
+     * @param value
+     * @param amount
+     * @return the value with a uniformly distributed deviation of at most
+     *         the given amount.
+     */
+    private double jitter(double value, double amount) {
+      return value + (2d * random.nextDouble() - 1d) * amount;
+    }
+
+  }
+
+
+  /**
+   * @return the number of distinct metabolite BiGG identifiers.
+   */
+  public int getMetaboliteCount() {
+    return metaboliteCount;
+  }
+
+
+  /**
+   * @return the number of multimarkers on each side of a reaction.
+   */
+  public int getMultimarkers() {
+    return multimarkers;
+  }
+
+
+  /**
+   * @return the number of reactions in a pathway.
+   */
+  public int getPathwayLength() {
+    return pathwayLength;
+  }
+
+
+  /**
+   * @return the number of reactions in the map.
+   */
+  public int getReactionCount() {
+    return reactionCount;
+  }
+
+
+  /**
+   * @return the number of secondary metabolites per reaction.
+   */
+  public int getSecondaryMetabolites() {
+    return secondaryMetabolites;
+  }
+
+
+  /**
+   * @return the seed of the random number generator.
+   */
+  public long getSeed() {
+    return seed;
+  }
+
+
+  /**
+   * @param metaboliteCount the number of distinct metabolite BiGG
+   *        identifiers, which must be larger than the number of metabolites
+   *        per reaction.
+   */
+  public void setMetaboliteCount(int metaboliteCount) {
+    if (metaboliteCount < secondaryMetabolites + 2) {
+      throw new IllegalArgumentException(
+        "Too few metabolites for " + secondaryMetabolites + " secondary metabolites per reaction");
+    }
+    this.metaboliteCount = metaboliteCount;
+  }
+
+
+  /**
+   * @param multimarkers the number of multimarkers on each side of a
+   *        reaction, at least one.
+   */
+  public void setMultimarkers(int multimarkers) {
+    if (multimarkers < 1) {
+      throw new IllegalArgumentException("At least one multimarker per side is required");
+    }
+    this.multimarkers = multimarkers;
+  }
+
+
+  /**
+   * @param pathwayLength the number of reactions in a pathway, at least one.
+   */
+  public void setPathwayLength(int pathwayLength) {
+    if (pathwayLength < 1) {
+      throw new IllegalArgumentException("A pathway needs at least one reaction");
+    }
+    this.pathwayLength = pathwayLength;
+  }
+
+
+  /**
+   * @param reactionCount the number of reactions in the map.
+   */
+  public void setReactionCount(int reactionCount) {
+    if (reactionCount < 0) {
+      throw new IllegalArgumentException("Negative number of reactions");
+    }
+    this.reactionCount = reactionCount;
+  }
+
+
+  /**
+   * @param secondaryMetabolites the number of secondary metabolites per
+   *        reaction.
+   */
+  public void setSecondaryMetabolites(int secondaryMetabolites) {
+    if ((secondaryMetabolites < 0) || (secondaryMetabolites + 2 > metaboliteCount)) {
+      throw new IllegalArgumentException(
+        "Invalid number of secondary metabolites: " + secondaryMetabolites);
+    }
+    this.secondaryMetabolites = secondaryMetabolites;
+  }
+
+
+  /**
+   * @param seed the seed of the random number generator.
+   */
+  public void setSeed(long seed) {
+    this.seed = seed;
+  }
+
+}
@@ -0,0 +1,105 @@
+/* ---------------------------------------------------------------------
+ * This file is part of the program EscherConverter.
+ *
+ * Copyright (C) 2013-2017 by the University of California, San Diego.
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation. A copy of the license
+ * agreement is provided in the file named "LICENSE.txt" included with
+ * this software distribution and also available online as
+ * <http://www.gnu.org/licenses/lgpl-3.0-standalone.html>.
+ * ---------------------------------------------------------------------
+ */
+package edu.ucsd.sbrg.escher.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.logging.Logger;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.sbgn.bindings.Sbgn;
+import org.sbml.jsbml.SBMLDocument;
+
+import de.zbit.util.prefs.SBProperties;
+import edu.ucsd.sbrg.escher.EscherConverter;
+import edu.ucsd.sbrg.escher.model.EscherMap;
+
+/**
+ * The input of all benchmarks for one map at one scale: the Escher JSON
+ * document as well as the map, the SBML document and the SBGN-ML document
+ * created from it. None of these objects must be modified by a benchmark.
+ *
+ * @author Andreas Dr&auml;ger
+ */
+@State(Scope.Benchmark)
+public class MapState {
+
+  /**
+   * Strong reference, so that the reduced log level is not lost.
+   */
+  private static final Logger packageLogger = Logger.getLogger("edu.ucsd.sbrg");
+
+  /**
+   * Name of a map in {@link BenchmarkMaps#DATA_DIR} or
+   * {@link BenchmarkMaps#SYNTHETIC}.
+   */
+  @Param({"e_coli_core_metabolism", "iJO1366.central.metabolism", "RECON1_amino_acid_metabolism",
+      BenchmarkMaps.SYNTHETIC})
+  public String map;
+  /**
+   * Number of copies of the map, see {@link BenchmarkMaps#load(String, int)}.
+   */
+  @Param({"1", "4", "16"})
+  public int scale;
+
+  /**
+   * The Escher JSON document.
+   */
+  public byte[]       json;
+  /**
+   * The parsed and post-processed map.
+   */
+  public EscherMap    escherMap;
+  /**
+   * Default conversion options.
+   */
+  public SBProperties properties;
+  /**
+   * The map converted to SBML.
+   */
+  public SBMLDocument sbml;
+  /**
+   * The map converted to SBGN-ML.
+   */
+  public Sbgn         sbgn;
+
+
+  /**
+   * @throws IOException
+   */
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    // Converters log every inconsistency in the maps, which would dominate the measurements.
+    packageLogger.setLevel(java.util.logging.Level.OFF);
+    properties = BenchmarkMaps.defaultProperties();
+    json = BenchmarkMaps.load(map, scale);
+    escherMap = parse();
+    sbml = EscherConverter.convert(parse(), SBMLDocument.class, properties);
+    sbgn = EscherConverter.convert(parse(), Sbgn.class, properties);
+  }
+
+
+  /**
+   * @return a new copy of the map, because conversions modify the map.
+   * @throws IOException
+   */
+  public EscherMap parse() throws IOException {
+    return EscherConverter.parseEscherJson(new ByteArrayInputStream(json));
+  }
+
+}
@@ -0,0 +1,65 @@
+/* ---------------------------------------------------------------------
+ * This file is part of the program EscherConverter.
+ *
+ * Copyright (C) 2013-2017 by the University of California, San Diego.
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation. A copy of the license
+ * agreement is provided in the file named "LICENSE.txt" included with
+ * this software distribution and also available online as
+ * <http://www.gnu.org/licenses/lgpl-3.0-standalone.html>.
+ * ---------------------------------------------------------------------
+ */
+package edu.ucsd.sbrg.escher.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import edu.ucsd.sbrg.escher.model.EscherMap;
+import edu.ucsd.sbrg.escher.util.Utils;
+
+/**
+ * Measures the per-file overhead of creating and configuring a new
+ * {@link ObjectMapper} for every map, as opposed to using the shared
+ * {@link Utils#getObjectReader()} and {@link Utils#getObjectWriter()}.
+ * Each invocation reads and writes one map, which is what a batch
+ * conversion of many small files does.
+ *
+ * @author Andreas Dr&auml;ger
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ObjectMapperBenchmark {
+
+  @Benchmark
+  public byte[] newMapperPerFile(MapState state) throws IOException {
+    ObjectMapper mapper = Utils.getObjectMapper();
+    JsonNode tree = mapper.readTree(state.json);
+    EscherMap map = mapper.treeToValue(tree.get(1), EscherMap.class);
+    return mapper.writeValueAsBytes(map);
+  }
+
+
+  @Benchmark
+  public byte[] sharedReaderAndWriter(MapState state) throws IOException {
+    JsonNode tree = Utils.getObjectReader().withType(JsonNode.class).readValue(state.json);
+    EscherMap map = Utils.getObjectReader().readValue(tree.get(1));
+    return Utils.getObjectWriter().writeValueAsBytes(map);
+  }
+
+}
@@ -0,0 +1,113 @@
+/* ---------------------------------------------------------------------
+ * This file is part of the program EscherConverter.
+ *
+ * Copyright (C) 2013-2017 by the University of California, San Diego.
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation. A copy of the license
+ * agreement is provided in the file named "LICENSE.txt" included with
+ * this software distribution and also available online as
+ * <http://www.gnu.org/licenses/lgpl-3.0-standalone.html>.
+ * ---------------------------------------------------------------------
+ */
+package edu.ucsd.sbrg.escher.benchmark;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.bind.JAXBException;
+import javax.xml.stream.XMLStreamException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sbml.jsbml.SBMLException;
+import org.sbml.jsbml.TidySBMLWriter;
+
+import edu.ucsd.sbrg.escher.EscherConverter;
+import edu.ucsd.sbrg.escher.util.EscherJsonWriter;
+
+/**
+ * Measures writing Escher JSON, SBML and SBGN-ML documents. The output is
+ * only counted, so that the file system does not influence the results.
+ *
+ * @author Andreas Dr&auml;ger
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class WriteBenchmark {
+
+  /**
+   * Discards all data and counts the bytes.
+   *
+   * @author Andreas Dr&auml;ger
+   */
+  private static class CountingOutputStream extends OutputStream {
+
+    /**
+     * Number of bytes written.
+     */
+    private long count;
+
+
+    /* (non-Javadoc)
+     * @see java.io.OutputStream#write(int)
+     */
+    @Override
+    public void write(int b) {
+      count++;
+    }
+
+
+    /* (non-Javadoc)
+     * @see java.io.OutputStream#write(byte[], int, int)
+     */
+    @Override
+    public void write(byte[] b, int off, int len) {
+      count += len;
+    }
+
+  }
+
+
+  @Benchmark
+  public long writeEscherJson(MapState state) throws IOException {
+    CountingOutputStream stream = new CountingOutputStream();
+    new EscherJsonWriter().write(state.escherMap, state.map, stream);
+    return stream.count;
+  }
+
+
+  @Benchmark
+  public long writeCompactEscherJson(MapState state) throws IOException {
+    CountingOutputStream stream = new CountingOutputStream();
+    new EscherJsonWriter(true).write(state.escherMap, state.map, stream);
+    return stream.count;
+  }
+
+
+  @Benchmark
+  public long writeSBML(MapState state) throws SBMLException, XMLStreamException {
+    CountingOutputStream stream = new CountingOutputStream();
+    TidySBMLWriter.write(state.sbml, stream, ' ', (short) 2);
+    return stream.count;
+  }
+
+
+  @Benchmark
+  public long writeSBGNML(MapState state) throws JAXBException {
+    CountingOutputStream stream = new CountingOutputStream();
+    EscherConverter.writeSBGNML(state.sbgn, stream);
+    return stream.count;
+  }
+
+}
@@ -0,0 +1,25 @@
+/* ---------------------------------------------------------------------
+ * This file is part of the program EscherConverter.
+ *
+ * Copyright (C) 2013-2017 by the University of California, San Diego.
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation. A copy of the license
+ * agreement is provided in the file named "LICENSE.txt" included with
+ * this software distribution and also available online as
+ * <http://www.gnu.org/licenses/lgpl-3.0-standalone.html>.
+ * ---------------------------------------------------------------------
+ */
+
+/**
+ * JMH benchmarks for the stages of the conversion: parsing, pre-processing,
+ * converting and writing. They are compiled and run with the Maven profile
+ * {@code benchmark}, e.g.,
+ * {@code mvn -P benchmark verify -Djmh.args="-p scale=1,4 ConvertBenchmark"}.
+ * Besides the maps in the {@code data} directory, they use maps of any size
+ * that are created by {@link edu.ucsd.sbrg.escher.benchmark.MapGenerator}.
+ *
+ * @author Andreas Dr&auml;ger
+ */
+package edu.ucsd.sbrg.escher.benchmark;
@@ -0,0 +1,165 @@
+/* ---------------------------------------------------------------------
+ * This file is part of the program EscherConverter.
+ *
+ * Copyright (C) 2013-2017 by the University of California, San Diego.
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation. A copy of the license
+ * agreement is provided in the file named "LICENSE.txt" included with
+ * this software distribution and also available online as
+ * <http://www.gnu.org/licenses/lgpl-3.0-standalone.html>.
+ * ---------------------------------------------------------------------
+ */
+package edu.ucsd.sbrg.escher;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Collects the outcome of a batch conversion, i.e., which input files have
+ * been converted, which could not be converted and why, and which have been
+ * skipped because their format could not be recognized. Instances can be
+ * updated concurrently by several workers. All getters return the files in
+ * their natural order, independent of the order in which the workers
+ * finished.
+ *
+ * @author Andreas Dr&auml;ger
+ * @see EscherConverter#batchProcess(File, File, de.zbit.util.prefs.SBProperties)
+ */
+public class BatchResult {
+
+  /**
+   * Successfully converted input files.
+   */
+  private final List<File>           converted;
+  /**
+   * Input files that could not be converted together with the cause, which
+   * is {@code null} if the conversion was rejected without an exception,
+   * e.g., because the file is invalid.
+   */
+  private final Map<File, Throwable> failed;
+  /**
+   * Input files of unknown format.
+   */
+  private final List<File>           skipped;
+
+
+  /**
+   * Creates an empty result.
+   */
+  public BatchResult() {
+    converted = new ArrayList<File>();
+    failed = new TreeMap<File, Throwable>();
+    skipped = new ArrayList<File>();
+  }
+
+
+  /**
+   * @param input a successfully converted file.
+   */
+  public synchronized void addConverted(File input) {
+    converted.add(input);
+  }
+
+
+  /**
+   * @param input a file that could not be converted.
+   * @param cause the reason, can be {@code null}.
+   */
+  public synchronized void addFailure(File input, Throwable cause) {
+    failed.put(input, cause);
+  }
+
+
+  /**
+   * @param input a file whose format could not be detected.
+   */
+  public synchronized void addSkipped(File input) {
+    skipped.add(input);
+  }
+
+
+  /**
+   * @return the successfully converted files.
+   */
+  public synchronized List<File> getConverted() {
+    List<File> list = new ArrayList<File>(converted);
+    Collections.sort(list);
+    return list;
+  }
+
+
+  /**
+   * @return the files that could not be converted, mapped to the cause of
+   *         the failure if any.
+   */
+  public synchronized Map<File, Throwable> getFailed() {
+    return new TreeMap<File, Throwable>(failed);
+  }
+
+
+  /**
+   * @return the files whose format could not be detected.
+   */
+  public synchronized List<File> getSkipped() {
+    List<File> list = new ArrayList<File>(skipped);
+    Collections.sort(list);
+    return list;
+  }
+
+
+  /**
+   * @return the number of successfully converted files.
+   */
+  public synchronized int getConvertedCount() {
+    return converted.size();
+  }
+
+
+  /**
+   * @return the number of files that could not be converted.
+   */
+  public synchronized int getFailureCount() {
+    return failed.size();
+  }
+
+
+  /**
+   * @return the number of skipped files.
+   */
+  public synchronized int getSkippedCount() {
+    return skipped.size();
+  }
+
+
+  /**
+   * @return {@code true} if no file failed to convert.
+   */
+  public synchronized boolean isSuccessful() {
+    return failed.isEmpty();
+  }
+
+
+  /* (non-Javadoc)
+   * @see java.lang.Object#toString()
+   */
+  @Override
+  public synchronized String toString() {
+    StringBuilder builder = new StringBuilder();
+    builder.append(getClass().getSimpleName());
+    builder.append(" [converted=");
+    builder.append(converted.size());
+    builder.append(", failed=");
+    builder.append(failed.keySet());
+    builder.append(", skipped=");
+    builder.append(skipped);
+    builder.append("]");
+    return builder.toString();
+  }
+
+}
@@ -0,0 +1,281 @@
+/* ---------------------------------------------------------------------
+ * This file is part of the program EscherConverter.
+ *
+ * Copyright (C) 2013-2017 by the University of California, San Diego.
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation. A copy of the license
+ * agreement is provided in the file named "LICENSE.txt" included with
+ * this software distribution and also available online as
+ * <http://www.gnu.org/licenses/lgpl-3.0-standalone.html>.
+ * ---------------------------------------------------------------------
+ */
+package edu.ucsd.sbrg.escher;
+
+import java.util.concurrent.Future;
+
+import de.zbit.util.prefs.SBProperties;
+
+/**
+ * A conversion that has been submitted to a {@link ConversionScheduler}. Each
+ * job has its own copy of the options and passes through the states
+ * {@link State#QUEUED}, {@link State#RUNNING} and finally one of the other
+ * states. A job is done as soon as the batch has been processed, even if some
+ * of its files could not be converted; these are listed in the
+ * {@link #getResult() result}. A job fails only if the batch could not be
+ * processed at all. All state transitions are atomic, so that a job that is
+ * cancelled at the same time as it starts either never runs or is stopped.
+ *
+ * @author Andreas Dr&auml;ger
+ */
+public class ConversionJob {
+
+  /**
+   * The life cycle of a job.
+   */
+  public enum State {
+    /**
+     * Waiting for a free worker.
+     */
+    QUEUED,
+    /**
+     * Being converted.
+     */
+    RUNNING,
+    /**
+     * All files have been processed.
+     */
+    DONE,
+    /**
+     * The batch could not be processed.
+     */
+    FAILED,
+    /**
+     * The job has been cancelled before it was done.
+     */
+    CANCELLED,
+    /**
+     * The deadline of the job has passed before it was done.
+     */
+    TIMED_OUT;
+  }
+
+  /**
+   * Identifies the job within its server.
+   */
+  private final String         id;
+  /**
+   * The options of this job, including input and output.
+   */
+  private final SBProperties   properties;
+  /**
+   * The current state, changed only while holding the lock of this job.
+   */
+  private volatile State       state;
+  /**
+   * The task that processes this job.
+   */
+  private volatile Future<?>   task;
+  /**
+   * The task that stops this job when its deadline has passed.
+   */
+  private volatile Future<?>   deadline;
+  /**
+   * The outcome of the batch once the job is done.
+   */
+  private volatile BatchResult result;
+  /**
+   * The reason why the job failed.
+   */
+  private volatile Throwable   error;
+  /**
+   * Points in time in milliseconds.
+   */
+  private final long           submitted;
+  private volatile long        started, finished;
+
+
+  /**
+   * @param id
+   * @param properties
+   */
+  public ConversionJob(String id, SBProperties properties) {
+    this.id = id;
+    this.properties = properties;
+    state = State.QUEUED;
+    submitted = System.currentTimeMillis();
+  }
+
+
+  /**
+   * Marks this job as running unless it has been stopped before.
+   *
+   * @return {@code true} if the job was queued and can now be processed.
+   */
+  synchronized boolean start() {
+    if (state != State.QUEUED) {
+      return false;
+    }
+    started = System.currentTimeMillis();
+    state = State.RUNNING;
+    return true;
+  }
+
+
+  /**
+   * Marks this job as done unless it has been stopped in the meantime. The
+   * result is kept in both cases.
+   *
+   * @param result the outcome of the batch.
+   */
+  synchronized void finish(BatchResult result) {
+    this.result = result;
+    if (state == State.RUNNING) {
+      finished = System.currentTimeMillis();
+      state = State.DONE;
+    }
+  }
+
+
+  /**
+   * Marks this job as failed unless it has been stopped in the meantime.
+   *
+   * @param error the reason why the batch could not be processed.
+   */
+  synchronized void fail(Throwable error) {
+    this.error = error;
+    if (state == State.RUNNING) {
+      finished = System.currentTimeMillis();
+      state = State.FAILED;
+    }
+  }
+
+
+  /**
+   * Stops this job and interrupts its task if it is running.
+   *
+   * @param reason either {@link State#CANCELLED} or {@link State#TIMED_OUT}.
+   * @return the state before the job was stopped or {@code null} if it had
+   *         already finished.
+   */
+  synchronized State stop(State reason) {
+    if (isFinished()) {
+      return null;
+    }
+    State previous = state;
+    finished = System.currentTimeMillis();
+    state = reason;
+    if (task != null) {
+      task.cancel(previous == State.RUNNING);
+    }
+    return previous;
+  }
+
+
+  /**
+   * @return the task that stops this job when its deadline has passed, or
+   *         {@code null}.
+   */
+  Future<?> getDeadline() {
+    return deadline;
+  }
+
+
+  /**
+   * @param deadline the task that stops this job when its deadline has passed.
+   */
+  void setDeadline(Future<?> deadline) {
+    this.deadline = deadline;
+  }
+
+
+  /**
+   * @param task the task that processes this job.
+   */
+  synchronized void setTask(Future<?> task) {
+    this.task = task;
+  }
+
+
+  /**
+   * @return the reason why this job failed or {@code null}.
+   */
+  public Throwable getError() {
+    return error;
+  }
+
+
+  /**
+   * @return the time when this job has finished, or zero.
+   */
+  public long getFinished() {
+    return finished;
+  }
+
+
+  /**
+   * @return the identifier of this job.
+   */
+  public String getId() {
+    return id;
+  }
+
+
+  /**
+   * @return the options of this job.
+   */
+  public SBProperties getProperties() {
+    return properties;
+  }
+
+
+  /**
+   * @return the outcome of the batch or {@code null} if this job is not done.
+   */
+  public BatchResult getResult() {
+    return result;
+  }
+
+
+  /**
+   * @return the time when this job has been started, or zero.
+   */
+  public long getStarted() {
+    return started;
+  }
+
+
+  /**
+   * @return the current state.
+   */
+  public State getState() {
+    return state;
+  }
+
+
+  /**
+   * @return the time when this job has been submitted.
+   */
+  public long getSubmitted() {
+    return submitted;
+  }
+
+
+  /**
+   * @return {@code true} if this job will not change its state anymore.
+   */
+  public boolean isFinished() {
+    return (state != State.QUEUED) && (state != State.RUNNING);
+  }
+
+
+  /* (non-Javadoc)
+   * @see java.lang.Object#toString()
+   */
+  @Override
+  public String toString() {
+    return getClass().getSimpleName() + " [id=" + id + ", state=" + state + "]";
+  }
+
+}
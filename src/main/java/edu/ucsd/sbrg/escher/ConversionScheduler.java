@@ -0,0 +1,394 @@
+/* ---------------------------------------------------------------------
+ * This file is part of the program EscherConverter.
+ *
+ * Copyright (C) 2013-2017 by the University of California, San Diego.
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation. A copy of the license
+ * agreement is provided in the file named "LICENSE.txt" included with
+ * this software distribution and also available online as
+ * <http://www.gnu.org/licenses/lgpl-3.0-standalone.html>.
+ * ---------------------------------------------------------------------
+ */
+package edu.ucsd.sbrg.escher;
+
+import static java.text.MessageFormat.format;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Queue;
+import java.util.ResourceBundle;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.FileHandler;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import de.zbit.gui.GUIOptions;
+import de.zbit.util.ResourceManager;
+import de.zbit.util.logging.OneLineFormatter;
+import de.zbit.util.prefs.SBProperties;
+import edu.ucsd.sbrg.escher.ConversionJob.State;
+import edu.ucsd.sbrg.escher.util.EscherIOOptions;
+import edu.ucsd.sbrg.escher.util.LogContext;
+
+/**
+ * Processes {@link ConversionJob}s with a fixed number of worker threads.
+ * Jobs that find all workers busy wait in a queue of limited capacity; if the
+ * queue is full, further jobs are rejected instead of piling up, so that the
+ * memory required for the conversions stays bounded. Jobs can be cancelled,
+ * and a job whose {@link EscherIOOptions#JOB_TIMEOUT} has passed since its
+ * submission is stopped, no matter whether it is still queued or running.
+ * <p>
+ * Running jobs are stopped by interrupting their worker, which does not
+ * start any further file of the job. The file that is being converted is
+ * finished, because the conversion itself cannot be interrupted; until then,
+ * the worker remains busy.
+ * <p>
+ * Only the most recent finished jobs are kept, so that the status of jobs
+ * does not accumulate in a long-running server.
+ *
+ * @author Andreas Dr&auml;ger
+ */
+public class ConversionScheduler {
+
+  /**
+   * Localization support.
+   */
+  private static final ResourceBundle bundle = ResourceManager.getBundle("edu.ucsd.sbrg.escher.Messages");
+  /**
+   * A {@link Logger} for this class.
+   */
+  private static final Logger logger = Logger.getLogger(ConversionScheduler.class.getName());
+
+  /**
+   * The number of finished jobs that are kept unless specified otherwise.
+   */
+  public static final int DEFAULT_FINISHED_JOB_LIMIT = 1000;
+
+  /**
+   * Performs the actual conversions.
+   */
+  private final EscherConverter converter;
+  /**
+   * The number of jobs that can wait for a worker.
+   */
+  private final int capacity;
+  /**
+   * The number of finished jobs that are kept.
+   */
+  private final int finishedJobLimit;
+  /**
+   * All unfinished and the most recent finished jobs, by their identifier.
+   */
+  private final Map<String, ConversionJob> jobs = new ConcurrentHashMap<String, ConversionJob>();
+  /**
+   * The identifiers of the finished jobs that are kept, oldest first.
+   */
+  private final Queue<String> finished = new ArrayDeque<String>();
+  /**
+   * Number of jobs that have been accepted.
+   */
+  private final AtomicLong submitted = new AtomicLong();
+  /**
+   * Source of job identifiers.
+   */
+  private final AtomicLong nextId = new AtomicLong();
+  /**
+   * The workers and the queue of waiting jobs.
+   */
+  private final ThreadPoolExecutor executor;
+  /**
+   * Stops jobs whose deadline has passed.
+   */
+  private final ScheduledExecutorService timer;
+  /**
+   * Number of jobs that wait for a worker.
+   */
+  private final AtomicInteger queued = new AtomicInteger();
+  /**
+   * Number of workers that currently process a job.
+   */
+  private final AtomicInteger active = new AtomicInteger();
+  /**
+   * Number of jobs that have been rejected because the queue was full.
+   */
+  private final AtomicLong rejected = new AtomicLong();
+
+
+  /**
+   * Keeps the {@link #DEFAULT_FINISHED_JOB_LIMIT} most recent finished jobs.
+   *
+   * @param converter performs the conversions.
+   * @param workers the number of jobs that are processed at the same time,
+   *        zero for one per available processor.
+   * @param capacity the number of jobs that can wait for a worker, zero if
+   *        jobs are only accepted while a worker is idle.
+   */
+  public ConversionScheduler(EscherConverter converter, int workers, int capacity) {
+    this(converter, workers, capacity, DEFAULT_FINISHED_JOB_LIMIT);
+  }
+
+
+  /**
+   * @param converter performs the conversions.
+   * @param workers the number of jobs that are processed at the same time,
+   *        zero for one per available processor.
+   * @param capacity the number of jobs that can wait for a worker, zero if
+   *        jobs are only accepted while a worker is idle.
+   * @param finishedJobLimit the number of finished jobs that are kept; older
+   *        ones are forgotten, so that {@link #getJob(String)} no longer
+   *        finds them.
+   */
+  public ConversionScheduler(EscherConverter converter, int workers, int capacity, int finishedJobLimit) {
+    this.converter = converter;
+    this.capacity = capacity;
+    this.finishedJobLimit = finishedJobLimit;
+    if (workers <= 0) {
+      workers = Runtime.getRuntime().availableProcessors();
+    }
+    BlockingQueue<Runnable> queue = capacity > 0 ? new ArrayBlockingQueue<Runnable>(capacity)
+      : new SynchronousQueue<Runnable>();
+    executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS, queue);
+    timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, getClass().getSimpleName());
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+
+  /**
+   * Stops the given job if it has not yet finished.
+   *
+   * @param id the identifier of the job.
+   * @return {@code true} if the job has been cancelled, {@code false} if it
+   *         had already finished.
+   * @throws IllegalArgumentException if there is no such job or if it has
+   *         finished so long ago that it has been forgotten.
+   */
+  public boolean cancel(String id) {
+    ConversionJob job = jobs.get(id);
+    if (job == null) {
+      throw new IllegalArgumentException(format(bundle.getString("ConversionServer.unknownJob"), id));
+    }
+    return stop(job, State.CANCELLED);
+  }
+
+
+  /**
+   * @return the number of workers that currently process a job.
+   */
+  public int getActiveCount() {
+    return active.get();
+  }
+
+
+  /**
+   * @return the number of jobs that can wait for a worker.
+   */
+  public int getCapacity() {
+    return capacity;
+  }
+
+
+  /**
+   * @param id
+   * @return the job with the given identifier or {@code null} if there is no
+   *         such job or if it has finished so long ago that it has been
+   *         forgotten.
+   */
+  public ConversionJob getJob(String id) {
+    return jobs.get(id);
+  }
+
+
+  /**
+   * @return the number of jobs that wait for a worker.
+   */
+  public int getQueuedCount() {
+    return queued.get();
+  }
+
+
+  /**
+   * @return the number of jobs that have been rejected because the queue was
+   *         full.
+   */
+  public long getRejectedCount() {
+    return rejected.get();
+  }
+
+
+  /**
+   * @return the number of jobs that have been accepted.
+   */
+  public long getSubmittedCount() {
+    return submitted.get();
+  }
+
+
+  /**
+   * @return the number of jobs that are processed at the same time.
+   */
+  public int getWorkerCount() {
+    return executor.getMaximumPoolSize();
+  }
+
+
+  /**
+   * Processes all jobs that have already been submitted, but does not accept
+   * any further jobs, and waits until all workers are idle.
+   */
+  public void shutdown() {
+    executor.shutdown();
+    try {
+      executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException exc) {
+      Thread.currentThread().interrupt();
+    }
+    timer.shutdownNow();
+  }
+
+
+  /**
+   * Queues a job with the given options for conversion.
+   *
+   * @param properties must contain {@link EscherIOOptions#INPUT} and
+   *        {@link EscherIOOptions#OUTPUT}.
+   * @return the new job.
+   * @throws RejectedExecutionException if the queue is full or the scheduler
+   *         has been shut down.
+   */
+  public ConversionJob submit(SBProperties properties) {
+    final ConversionJob job = new ConversionJob(Long.toString(nextId.incrementAndGet()), properties);
+    FutureTask<Void> task = new FutureTask<Void>(() -> run(job), null);
+    job.setTask(task);
+    queued.incrementAndGet();
+    // Registered first, so that the job can be retired as soon as it is done.
+    jobs.put(job.getId(), job);
+    try {
+      executor.execute(task);
+    } catch (RejectedExecutionException exc) {
+      jobs.remove(job.getId());
+      queued.decrementAndGet();
+      rejected.incrementAndGet();
+      throw new RejectedExecutionException(format(bundle.getString("ConversionScheduler.queueFull"), capacity), exc);
+    }
+    submitted.incrementAndGet();
+    int timeout = properties.containsKey(EscherIOOptions.JOB_TIMEOUT)
+        ? properties.getIntProperty(EscherIOOptions.JOB_TIMEOUT) : 0;
+    if (timeout > 0) {
+      job.setDeadline(timer.schedule(() -> stop(job, State.TIMED_OUT), timeout, TimeUnit.SECONDS));
+    }
+    logger.fine(() -> format(bundle.getString("ConversionServer.submitted"), job.getId()));
+    return job;
+  }
+
+
+  /**
+   * @param job
+   * @param reason either {@link State#CANCELLED} or {@link State#TIMED_OUT}.
+   * @return {@code true} if the job has been stopped, {@code false} if it had
+   *         already finished.
+   */
+  private boolean stop(ConversionJob job, State reason) {
+    State previous = job.stop(reason);
+    if (previous == null) {
+      return false;
+    }
+    if (previous == State.QUEUED) {
+      queued.decrementAndGet();
+      // Removes the cancelled task, so that it does not occupy the queue.
+      executor.purge();
+      // Running jobs are retired by their worker.
+      retire(job);
+    }
+    logger.info(format(bundle.getString("ConversionScheduler.jobStopped"), job.getId(), reason));
+    return true;
+  }
+
+
+  /**
+   * Converts the files of the given job unless it has been stopped before.
+   *
+   * @param job
+   */
+  private void run(ConversionJob job) {
+    if (!job.start()) {
+      return;
+    }
+    queued.decrementAndGet();
+    active.incrementAndGet();
+    // The job's log handler only accepts messages from threads with this context.
+    LogContext.set(job);
+    Handler handler = null;
+    try {
+      handler = createLogHandler(job);
+      job.finish(converter.process(job.getProperties()));
+    } catch (Exception | Error exc) {
+      logger.log(Level.WARNING, format(bundle.getString("ConversionServer.jobFailed"), job.getId(), exc), exc);
+      job.fail(exc);
+    } finally {
+      LogContext.remove();
+      if (handler != null) {
+        Logger.getLogger("").removeHandler(handler);
+        handler.close();
+      }
+      if (job.getDeadline() != null) {
+        job.getDeadline().cancel(false);
+      }
+      active.decrementAndGet();
+      retire(job);
+    }
+  }
+
+
+  /**
+   * Remembers that the given job has finished and forgets the oldest
+   * finished jobs beyond the limit.
+   *
+   * @param job
+   */
+  private synchronized void retire(ConversionJob job) {
+    finished.add(job.getId());
+    while (finished.size() > finishedJobLimit) {
+      jobs.remove(finished.remove());
+    }
+  }
+
+
+  /**
+   * @param job
+   * @return a handler that writes all messages of the given job to its log
+   *         file, or {@code null} if the job does not have a log file.
+   * @throws IOException
+   */
+  private Handler createLogHandler(final ConversionJob job) throws IOException {
+    SBProperties properties = job.getProperties();
+    if (!properties.containsKey(GUIOptions.LOG_FILE)) {
+      return null;
+    }
+    Handler handler = new FileHandler(properties.getProperty(GUIOptions.LOG_FILE.toString()));
+    handler.setFormatter(new OneLineFormatter());
+    handler.setLevel(properties.containsKey(GUIOptions.LOG_LEVEL)
+      ? Level.parse(properties.getProperty(GUIOptions.LOG_LEVEL.toString())) : Level.ALL);
+    handler.setFilter(record -> LogContext.get() == job);
+    Logger.getLogger("").addHandler(handler);
+    return handler;
+  }
+
+}
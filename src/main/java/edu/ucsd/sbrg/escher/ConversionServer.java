@@ -0,0 +1,493 @@
+/* ---------------------------------------------------------------------
+ * This file is part of the program EscherConverter.
+ *
+ * Copyright (C) 2013-2017 by the University of California, San Diego.
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation. A copy of the license
+ * agreement is provided in the file named "LICENSE.txt" included with
+ * this software distribution and also available online as
+ * <http://www.gnu.org/licenses/lgpl-3.0-standalone.html>.
+ * ---------------------------------------------------------------------
+ */
+package edu.ucsd.sbrg.escher;
+
+import static java.text.MessageFormat.format;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.ResourceBundle;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.logging.Logger;
+
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import de.zbit.gui.GUIOptions;
+import de.zbit.util.ResourceManager;
+import de.zbit.util.prefs.KeyProvider;
+import de.zbit.util.prefs.Option;
+import de.zbit.util.prefs.Range;
+import de.zbit.util.prefs.SBPreferences;
+import de.zbit.util.prefs.SBProperties;
+import edu.ucsd.sbrg.escher.util.EscherIOOptions;
+import edu.ucsd.sbrg.escher.util.Utils;
+
+/**
+ * Keeps an {@link EscherConverter} resident and accepts conversion jobs over
+ * HTTP, so that callers do not need to start a new JVM for every conversion.
+ * The server only listens on the loopback interface and understands the
+ * following requests:
+ * <dl>
+ * <dt>{@code POST /jobs}</dt>
+ * <dd>Submits a job. The body is a JSON array of command-line arguments, e.g.,
+ * {@code ["--input=map.json", "--output=map.xml", "--format=SBML"]}, which
+ * accepts the same options as the command-line mode and overrides the
+ * options the server has been started with. Returns the status of the new
+ * job.
+ * If the queue of the server is full, the job is rejected with status 503.</dd>
+ * <dt>{@code GET /jobs/<id>}</dt>
+ * <dd>Returns the status of a job as JSON object.</dd>
+ * <dt>{@code DELETE /jobs/<id>}</dt>
+ * <dd>Cancels a job that has not yet finished.</dd>
+ * <dt>{@code GET /status}</dt>
+ * <dd>Returns the number of workers, waiting and running jobs, and the
+ * capacity of the queue.</dd>
+ * <dt>{@code POST /shutdown}</dt>
+ * <dd>Stops the server after all submitted jobs have been processed.</dd>
+ * </dl>
+ * Requests with {@code POST} must declare their body as
+ * {@code application/json}, and requests with {@code POST} or
+ * {@code DELETE} must not carry an {@code Origin} header. Web pages that
+ * are open in a browser on the same machine can hence neither submit jobs
+ * nor cancel them or stop the server.
+ * The jobs are processed by a {@link ConversionScheduler} with
+ * {@link EscherIOOptions#SERVER_WORKERS} workers; a job whose input is a
+ * directory can additionally convert several files at once with
+ * {@link EscherIOOptions#WORKERS}. If a job specifies a
+ * {@link GUIOptions#LOG_FILE}, all messages that its conversion logs on the
+ * threads of the job are also written to this file, as far as the log level
+ * of the server lets them pass.
+ *
+ * @author Andreas Dr&auml;ger
+ */
+public class ConversionServer {
+
+  /**
+   * Localization support.
+   */
+  private static final ResourceBundle bundle = ResourceManager.getBundle("edu.ucsd.sbrg.escher.Messages");
+  /**
+   * A {@link Logger} for this class.
+   */
+  private static final Logger logger = Logger.getLogger(ConversionServer.class.getName());
+
+  /**
+   * The options that apply to the whole server and cannot be given for a
+   * single job.
+   */
+  private static final Set<Option<?>> serverOptions = new HashSet<Option<?>>(Arrays.<Option<?>>asList(
+    EscherIOOptions.SERVER_PORT, EscherIOOptions.SERVER_WORKERS, EscherIOOptions.SERVER_QUEUE_CAPACITY));
+
+  /**
+   * Performs the actual conversions.
+   */
+  private final EscherConverter converter;
+  /**
+   * The options that apply to all jobs unless a job overrides them.
+   */
+  private final SBProperties defaults;
+  /**
+   * Processes the jobs.
+   */
+  private final ConversionScheduler scheduler;
+  /**
+   * Answers the requests.
+   */
+  private final HttpServer server;
+  /**
+   * Released as soon as the server has stopped.
+   */
+  private final CountDownLatch terminated = new CountDownLatch(1);
+  /**
+   * Reads the arguments of jobs.
+   */
+  private static final ObjectReader reader = Utils.getObjectReader().withType(String[].class);
+  /**
+   * Writes the responses.
+   */
+  private static final ObjectWriter writer = Utils.getObjectWriter().without(SerializationFeature.INDENT_OUTPUT);
+
+
+  /**
+   * Creates a server that listens on the loopback interface. Call
+   * {@link #start()} to accept requests.
+   *
+   * @param converter performs the conversions.
+   * @param defaults the options of the server, which also apply to all jobs
+   *        unless a job overrides them. Options that are not given have their
+   *        default value. Input, output and log file are ignored.
+   * @param port the port to listen on, zero for any free port.
+   * @throws IOException if the port is not available.
+   */
+  public ConversionServer(EscherConverter converter, SBProperties defaults, int port)
+      throws IOException {
+    this.converter = converter;
+    // Provides the default values of all options that are not given.
+    this.defaults = SBPreferences.analyzeCommandLineArguments(converter.getCmdLineOptions(), new String[0]);
+    this.defaults.putAll(defaults);
+    this.defaults.remove(EscherIOOptions.INPUT.toString());
+    this.defaults.remove(EscherIOOptions.OUTPUT.toString());
+    // Jobs log to their own files, the server log is already open.
+    this.defaults.remove(GUIOptions.LOG_FILE.toString());
+    scheduler = new ConversionScheduler(converter,
+      this.defaults.getIntProperty(EscherIOOptions.SERVER_WORKERS),
+      this.defaults.getIntProperty(EscherIOOptions.SERVER_QUEUE_CAPACITY));
+    for (Option<?> option : serverOptions) {
+      this.defaults.remove(option.toString());
+    }
+    server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+    server.createContext("/jobs", this::handleJobs);
+    server.createContext("/status", this::handleStatus);
+    server.createContext("/shutdown", this::handleShutdown);
+  }
+
+
+  /**
+   * Blocks until the server has stopped.
+   *
+   * @throws InterruptedException
+   */
+  public void awaitTermination() throws InterruptedException {
+    terminated.await();
+  }
+
+
+  /**
+   * @return the scheduler that processes the jobs of this server.
+   */
+  public ConversionScheduler getScheduler() {
+    return scheduler;
+  }
+
+
+  /**
+   * @return the port on which this server listens.
+   */
+  public int getPort() {
+    return server.getAddress().getPort();
+  }
+
+
+  /**
+   * Starts to accept requests.
+   */
+  public void start() {
+    server.start();
+    logger.info(format(bundle.getString("ConversionServer.started"), getPort()));
+  }
+
+
+  /**
+   * Stops accepting requests, processes all jobs that have already been
+   * submitted and releases all threads waiting in {@link #awaitTermination()}.
+   * Calling this method more than once has no effect.
+   */
+  public synchronized void stop() {
+    if (terminated.getCount() == 0) {
+      return;
+    }
+    server.stop(0);
+    scheduler.shutdown();
+    logger.info(bundle.getString("ConversionServer.stopped"));
+    terminated.countDown();
+  }
+
+
+  /**
+   * Creates a job with the given options and queues it for conversion.
+   *
+   * @param arguments command-line arguments of the form
+   *        {@code --option=value}, which must at least specify the input and
+   *        the output.
+   * @return the new job.
+   * @throws IllegalArgumentException if {@code arguments} or one of them is
+   *         {@code null}, if an argument is unknown or invalid, or if input or
+   *         output are missing.
+   * @throws RejectedExecutionException if the queue is full.
+   */
+  public ConversionJob submit(String... arguments) {
+    if ((arguments == null) || Arrays.asList(arguments).contains(null)) {
+      throw new IllegalArgumentException(bundle.getString("ConversionServer.noArguments"));
+    }
+    SBProperties properties = parseArguments(converter.getCmdLineOptions(), defaults, arguments);
+    if (!properties.containsKey(EscherIOOptions.INPUT) || !properties.containsKey(EscherIOOptions.OUTPUT)) {
+      throw new IllegalArgumentException(bundle.getString("EscherConverter.incompleteCMDArgs"));
+    }
+    return scheduler.submit(properties);
+  }
+
+
+  /**
+   * Parses the given command-line arguments. In contrast to the parser of
+   * the command-line mode, problems are reported as exceptions and do not
+   * terminate the program.
+   *
+   * @param keyProviders the classes that define the valid options.
+   * @param defaults the options to start with.
+   * @param arguments of the form {@code --option=value}. For Boolean options,
+   *        {@code --option} means {@code --option=true}.
+   * @return a copy of the {@code defaults} in which the given options have
+   *         been set.
+   * @throws IllegalArgumentException if an argument is unknown or has an
+   *         invalid value.
+   */
+  static SBProperties parseArguments(List<Class<? extends KeyProvider>> keyProviders,
+    SBProperties defaults, String... arguments) {
+    SBProperties properties = defaults.clone();
+    for (String argument : arguments) {
+      int split = argument.indexOf('=');
+      String key = split < 0 ? argument : argument.substring(0, split);
+      Option<?> option = findOption(keyProviders, key);
+      if ((option == null) || serverOptions.contains(option)) {
+        throw new IllegalArgumentException(format(bundle.getString("ConversionServer.unknownOption"), argument));
+      }
+      String value = split < 0 ? Boolean.TRUE.toString() : argument.substring(split + 1);
+      if (!isValid(option, value)) {
+        throw new IllegalArgumentException(format(bundle.getString("ConversionServer.invalidValue"), argument));
+      }
+      properties.put(option.toString(), value);
+    }
+    return properties;
+  }
+
+
+  /**
+   * @param keyProviders
+   * @param key e.g., {@code --input}.
+   * @return the option with the given command-line key or {@code null}.
+   */
+  private static Option<?> findOption(List<Class<? extends KeyProvider>> keyProviders, String key) {
+    for (Class<? extends KeyProvider> keyProvider : keyProviders) {
+      for (Option<?> option : KeyProvider.Tools.optionList(keyProvider)) {
+        if (option.toCommandLineOptionKey().equals(key)) {
+          return option;
+        }
+      }
+    }
+    return null;
+  }
+
+
+  /**
+   * @param option
+   * @param value
+   * @return {@code true} if the value can be parsed and is within the range
+   *         of the option.
+   */
+  @SuppressWarnings("unchecked")
+  private static <T> boolean isValid(Option<T> option, String value) {
+    try {
+      T parsed = option.parseOrCast(value);
+      Range<T> range = option.getRange();
+      return (parsed != null) && ((range == null) || range.isInRange(parsed));
+    } catch (RuntimeException exc) {
+      return false;
+    }
+  }
+
+
+  /**
+   * Answers {@code POST /jobs}, {@code GET /jobs/<id>} and
+   * {@code DELETE /jobs/<id>}.
+   *
+   * @param exchange
+   * @throws IOException
+   */
+  private void handleJobs(HttpExchange exchange) throws IOException {
+    String path = exchange.getRequestURI().getPath();
+    String method = exchange.getRequestMethod();
+    if (path.equals("/jobs") && method.equals("POST")) {
+      if (!isTrusted(exchange, true)) {
+        return;
+      }
+      String arguments[];
+      try (InputStream body = exchange.getRequestBody()) {
+        arguments = reader.readValue(body);
+      } catch (IOException exc) {
+        respond(exchange, 400, error(exc.getLocalizedMessage()));
+        return;
+      }
+      try {
+        ConversionJob job = submit(arguments);
+        exchange.getResponseHeaders().set("Location", "/jobs/" + job.getId());
+        respond(exchange, 202, status(job));
+      } catch (IllegalArgumentException exc) {
+        respond(exchange, 400, error(exc.getMessage()));
+      } catch (RejectedExecutionException exc) {
+        exchange.getResponseHeaders().set("Retry-After", "1");
+        respond(exchange, 503, error(exc.getMessage()));
+      }
+    } else if (path.startsWith("/jobs/") && (method.equals("GET") || method.equals("DELETE"))) {
+      if (method.equals("DELETE") && !isTrusted(exchange, false)) {
+        return;
+      }
+      String id = path.substring("/jobs/".length());
+      ConversionJob job = scheduler.getJob(id);
+      if (job == null) {
+        respond(exchange, 404, error(format(bundle.getString("ConversionServer.unknownJob"), id)));
+      } else if (method.equals("DELETE") && !scheduler.cancel(id)) {
+        respond(exchange, 409, error(format(bundle.getString("ConversionServer.jobFinished"), id)));
+      } else {
+        respond(exchange, 200, status(job));
+      }
+    } else {
+      respond(exchange, 405, error(method + ' ' + path));
+    }
+  }
+
+
+  /**
+   * Answers {@code GET /status}.
+   *
+   * @param exchange
+   * @throws IOException
+   */
+  private void handleStatus(HttpExchange exchange) throws IOException {
+    if (!exchange.getRequestMethod().equals("GET")) {
+      respond(exchange, 405, error(exchange.getRequestMethod() + ' ' + exchange.getRequestURI().getPath()));
+      return;
+    }
+    ObjectNode status = JsonNodeFactory.instance.objectNode();
+    status.put("workers", scheduler.getWorkerCount());
+    status.put("capacity", scheduler.getCapacity());
+    status.put("queued", scheduler.getQueuedCount());
+    status.put("running", scheduler.getActiveCount());
+    status.put("submitted", scheduler.getSubmittedCount());
+    status.put("rejected", scheduler.getRejectedCount());
+    respond(exchange, 200, status);
+  }
+
+
+  /**
+   * Answers {@code POST /shutdown}.
+   *
+   * @param exchange
+   * @throws IOException
+   */
+  private void handleShutdown(HttpExchange exchange) throws IOException {
+    if (!exchange.getRequestMethod().equals("POST")) {
+      respond(exchange, 405, error(exchange.getRequestMethod() + ' ' + exchange.getRequestURI().getPath()));
+      return;
+    }
+    if (!isTrusted(exchange, true)) {
+      return;
+    }
+    respond(exchange, 202, JsonNodeFactory.instance.objectNode());
+    // Stopping waits for the exchange to finish, so it must not block this thread.
+    new Thread(this::stop, getClass().getSimpleName()).start();
+  }
+
+
+  /**
+   * Checks that a request which changes the state of the server has not
+   * been sent by a web page: browsers add an {@code Origin} header to such
+   * requests and can only send JSON to another origin after a preflight
+   * request, which this server does not answer. If the request is not
+   * trusted, it is answered with an error.
+   *
+   * @param exchange
+   * @param json whether the request must declare its body as
+   *        {@code application/json}.
+   * @return {@code true} if the request may be processed.
+   * @throws IOException
+   */
+  private boolean isTrusted(HttpExchange exchange, boolean json) throws IOException {
+    Headers headers = exchange.getRequestHeaders();
+    if (headers.containsKey("Origin")) {
+      respond(exchange, 403, error(format(bundle.getString("ConversionServer.crossOrigin"),
+        headers.getFirst("Origin"))));
+      return false;
+    }
+    String contentType = headers.getFirst("Content-Type");
+    if (json && ((contentType == null)
+        || !contentType.split(";", 2)[0].trim().equalsIgnoreCase("application/json"))) {
+      respond(exchange, 415, error(format(bundle.getString("ConversionServer.unsupportedContentType"),
+        contentType)));
+      return false;
+    }
+    return true;
+  }
+
+
+  /**
+   * @param message
+   * @return a JSON object with the given error message.
+   */
+  private ObjectNode error(String message) {
+    return JsonNodeFactory.instance.objectNode().put("error", message);
+  }
+
+
+  /**
+   * @param job
+   * @return the status of the job as JSON object, which contains the number
+   *         of converted, failed and skipped files once the job is done and
+   *         the reason for every file that could not be converted.
+   */
+  ObjectNode status(ConversionJob job) {
+    ObjectNode status = JsonNodeFactory.instance.objectNode();
+    status.put("id", job.getId());
+    status.put("state", job.getState().toString());
+    BatchResult result = job.getResult();
+    if (result != null) {
+      status.put("converted", result.getConvertedCount());
+      status.put("failed", result.getFailureCount());
+      status.put("skipped", result.getSkippedCount());
+      ObjectNode failures = status.putObject("failures");
+      for (Map.Entry<File, Throwable> entry : result.getFailed().entrySet()) {
+        Throwable cause = entry.getValue();
+        failures.put(entry.getKey().getPath(),
+          cause != null ? cause.toString() : bundle.getString("ValidationFailed"));
+      }
+    }
+    if (job.getError() != null) {
+      status.put("error", job.getError().toString());
+    }
+    return status;
+  }
+
+
+  /**
+   * @param exchange
+   * @param code the HTTP status code.
+   * @param body
+   * @throws IOException
+   */
+  private void respond(HttpExchange exchange, int code, ObjectNode body) throws IOException {
+    byte content[] = writer.writeValueAsBytes(body);
+    exchange.getResponseHeaders().set("Content-Type", "application/json");
+    exchange.sendResponseHeaders(code, content.length);
+    try (OutputStream out = exchange.getResponseBody()) {
+      out.write(content);
+    }
+  }
+
+}
@@ -20,11 +20,15 @@ import java.io.*;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
-import javax.xml.bind.Unmarshaller;
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.transform.TransformerException;
@@ -36,11 +40,11 @@ import org.sbml.jsbml.SBMLDocument;
 import org.sbml.jsbml.SBMLException;
 import org.sbml.jsbml.SBMLReader;
 import org.sbml.jsbml.TidySBMLWriter;
+import org.w3c.dom.Document;
 import org.xml.sax.SAXException;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.github.fge.jsonschema.core.exceptions.ProcessingException;
 
 import de.zbit.AppConf;
@@ -59,11 +63,16 @@ import edu.ucsd.sbrg.escher.converter.SBGN2Escher;
 import edu.ucsd.sbrg.escher.converter.SBML2Escher;
 import edu.ucsd.sbrg.escher.gui.EscherConverterUI;
 import edu.ucsd.sbrg.escher.model.EscherMap;
+import edu.ucsd.sbrg.escher.util.Compression;
 import edu.ucsd.sbrg.escher.util.EscherIOOptions;
+import edu.ucsd.sbrg.escher.util.EscherJsonReader;
+import edu.ucsd.sbrg.escher.util.EscherJsonWriter;
 import edu.ucsd.sbrg.escher.util.EscherOptions;
+import edu.ucsd.sbrg.escher.util.FormatDetector;
 import edu.ucsd.sbrg.escher.util.Validator;
 import edu.ucsd.sbrg.escher.util.EscherOptions.InputFormat;
 import edu.ucsd.sbrg.escher.util.EscherOptions.OutputFormat;
+import edu.ucsd.sbrg.sbgn.SBGNIO;
 
 /**
  * Main class of the application.
@@ -106,6 +115,9 @@ public class EscherConverter extends Launcher {
     converter.setReactionNodeRatio(properties.getDoubleProperty(EscherOptions.REACTION_NODE_RATIO));
     converter.setSecondaryNodeRatio(properties.getDoubleProperty(EscherOptions.SECONDARY_NODE_RATIO));
     converter.setInferCompartmentBoundaries(properties.getBooleanProperty(EscherOptions.INFER_COMPARTMENT_BOUNDS));
+    if (properties.containsKey(EscherOptions.THREADS)) {
+      converter.setThreads(properties.getIntProperty(EscherOptions.THREADS));
+    }
 
     return converter;
   }
@@ -192,7 +204,8 @@ public class EscherConverter extends Launcher {
   }
 
   /**
-   * Parses given JSON file into an {@link EscherMap} instance using Jackson.
+   * Parses given JSON file into an {@link EscherMap} instance using Jackson. The file may be
+   * gzip-compressed.
    * 
    * @param input The {@link File} to parse.
    * @return The {@link EscherMap} instance.
@@ -201,7 +214,10 @@ public class EscherConverter extends Launcher {
   public static EscherMap parseEscherJson(File input) throws IOException {
     logger.info(format(bundle.getString("EscherConverter.readingFile"), input));
 
-    EscherMap map = parseEscherJson(new FileInputStream(input));
+    EscherMap map;
+    try (InputStream stream = Compression.openInput(input)) {
+      map = parseEscherJson(stream);
+    }
 
     logger.info(format(bundle.getString("EscherConverter.readingDone"), input));
 
@@ -211,7 +227,9 @@ public class EscherConverter extends Launcher {
 
   /**
    * Parses an {@link InputStream} that represents an Escher JSON file into an
-   * {@link EscherMap} instance using Jackson.
+   * {@link EscherMap} instance. The document is read token by token using
+   * {@link EscherJsonReader}, i.e., without building a {@link JsonNode} tree
+   * first. Gzip-compressed streams are decompressed on the fly.
    * 
    * @param stream
    * @return
@@ -220,28 +238,30 @@ public class EscherConverter extends Launcher {
    */
   public static EscherMap parseEscherJson(InputStream stream)
       throws IOException, JsonProcessingException {
-    ObjectMapper objectMapper = edu.ucsd.sbrg.escher.util.Utils.getObjectMapper();
     // An Escher array contains meta-info about the map as the first object and the actual map as
     // second map.
     try {
-      JsonNode escherJson = objectMapper.readTree(stream);
-
-      if(escherJson.get(0) == null) {
-        logger.severe(format(bundle.getString("EscherConverter.missingMetaInfo")));
-        throw new IOException(format(bundle.getString("EscherConverter.missingMetaInfo"))){};
-      }
-      // Meta-info.
-      EscherMap meta = objectMapper.treeToValue(escherJson.get(0), EscherMap.class);
-      // Layout map (nodes, reactions, text labels and canvas info).
-      EscherMap map = objectMapper.treeToValue(escherJson.get(1), EscherMap.class);
-
-      // Put meta-info from first to second.
-      map.setId(meta.getId());
-      map.setName(meta.getName());
-      map.setDescription(meta.getDescription());
-      map.setSchema(meta.getSchema());
-      map.setURL(meta.getURL());
+      EscherMap map = new EscherJsonReader().read(Compression.decompress(stream));
+      map.postprocessMap();
+      return map;
+    } catch(JsonProcessingException e) {
+      logger.severe(bundle.getString("EscherValidationFail.NotJson"));
+      throw e;
+    }
+  }
 
+  /**
+   * Binds an Escher JSON document that has already been read into a tree, e.g., for validation
+   * with {@link Validator#validateEscher(JsonNode)}, to an {@link EscherMap} instance without
+   * reading the file again.
+   *
+   * @param tree The {@code JSON} tree, see {@link Validator#readEscherTree(File)}.
+   * @return The {@link EscherMap} instance.
+   * @throws IOException Thrown if the tree does not describe an Escher map.
+   */
+  public static EscherMap parseEscherJson(JsonNode tree) throws IOException {
+    try {
+      EscherMap map = new EscherJsonReader().read(tree);
       map.postprocessMap();
       return map;
     } catch(JsonProcessingException e) {
@@ -256,6 +276,10 @@ public class EscherConverter extends Launcher {
    * @param args Command line options, if any.
    */
   public static void main(String args[]) {
+    if (Arrays.asList(args).contains("--gui=false") && (System.getProperty("java.awt.headless") == null)) {
+      // Keeps libraries from initializing the window system in command-line mode.
+      System.setProperty("java.awt.headless", "true");
+    }
 	new EscherConverter(args);
   }
 
@@ -270,6 +294,15 @@ public class EscherConverter extends Launcher {
   }
 
 
+  /**
+   * Creates an instance that does not evaluate any command-line arguments and
+   * does not launch anything, e.g., for a {@link ConversionServer}.
+   */
+  public EscherConverter() {
+    super();
+  }
+
+
   /* (non-Javadoc)
    * @see de.zbit.Launcher#addCopyrightToSplashScreen()
    */
@@ -289,24 +322,129 @@ public class EscherConverter extends Launcher {
 
 
   /**
-   * Convert files one by one by calling the {@link #convert(File, File, SBProperties)} recursively.
-   * Only called once if single file.
+   * Converts a single file or all files in a directory recursively by calling
+   * {@link #convert(File, File, SBProperties)} for each file. Every file is an
+   * independent job. Depending on {@link EscherIOOptions#WORKERS}, the jobs
+   * are either processed one after another on the calling thread or
+   * distributed among a pool of worker threads. Problems with individual files
+   * do not stop the batch, but are collected in the returned
+   * {@link BatchResult}. If the calling thread is interrupted, no further
+   * files are started, but the files that are being converted are completed
+   * before this method returns.
    *
    * @param input Single file or input directory to convert from.
    * @param output Single file or output directory to convert to.
    * @param properties Command line options, if any.
-   * @throws IOException Thrown if there are problems in reading the {@code input} file(s).
-   * @throws TransformerException Thrown if there are problems in parsing XML file(s).
-   * @throws ParserConfigurationException Thrown if there are problems in parsing XML file(s).
-   * @throws SAXException Thrown if there are problems in parsing XML file(s).
-   * @throws JAXBException Thrown if there are problems in parsing XML file(s).
-   * @throws XMLStreamException Thrown if there are problems in parsing XML file(s).
-   * @throws ParseException Thrown if there are problems in parsing JSON file(s).
-   * @throws SBMLException Thrown if there are problems in parsing XML file(s).
+   * @return The outcome for all files that were found.
+   * @throws IOException Thrown if {@code input} is a directory, but {@code output} is not.
    */
-  public void batchProcess(File input, File output, SBProperties properties)
-      throws ParseException, JAXBException, IOException, XMLStreamException,
-      ParserConfigurationException, SAXException, TransformerException {
+  public BatchResult batchProcess(File input, File output, SBProperties properties)
+      throws IOException {
+    BatchResult result = new BatchResult();
+    List<Runnable> jobs = new ArrayList<Runnable>();
+    createJobs(input, output, properties, result, jobs);
+
+    int workers = getWorkerCount(properties);
+    if ((workers <= 1) || (jobs.size() <= 1)) {
+      for (Runnable job : jobs) {
+        if (Thread.currentThread().isInterrupted()) {
+          // The batch has been cancelled, see ConversionScheduler.
+          break;
+        }
+        job.run();
+      }
+    } else {
+      logger.info(format(bundle.getString("EscherConverter.parallelBatch"), jobs.size(), workers));
+      ExecutorService executor = Executors.newFixedThreadPool(Math.min(workers, jobs.size()));
+      List<Future<?>> futures = new ArrayList<Future<?>>(jobs.size());
+      try {
+        for (Runnable job : jobs) {
+          futures.add(executor.submit(job));
+        }
+        for (Future<?> future : futures) {
+          // Jobs record their own failures, so there is nothing to evaluate here.
+          future.get();
+        }
+      } catch (InterruptedException exc) {
+        // The batch has been cancelled, see ConversionScheduler: only files that have not been started are dropped.
+        for (Future<?> future : futures) {
+          future.cancel(false);
+        }
+        Thread.currentThread().interrupt();
+      } catch (ExecutionException exc) {
+        logger.log(Level.SEVERE, exc.getLocalizedMessage(), exc);
+      } finally {
+        executor.shutdown();
+        awaitUninterruptibly(executor);
+      }
+    }
+
+    logger.info(format(bundle.getString("EscherConverter.batchSummary"),
+      result.getConvertedCount(), result.getFailureCount(), result.getSkippedCount()));
+    for (Map.Entry<File, Throwable> entry : result.getFailed().entrySet()) {
+      logger.severe(format(bundle.getString("EscherConverter.batchFailure"),
+        entry.getKey(), entry.getValue() != null ? entry.getValue() : bundle.getString("ValidationFailed")));
+    }
+    return result;
+  }
+
+
+  /**
+   * Waits until all tasks of the given executor have finished, so that the
+   * caller does not use more threads than the number of workers it has been
+   * given. An interruption is only recorded for the caller.
+   *
+   * @param executor must have been shut down.
+   */
+  private static void awaitUninterruptibly(ExecutorService executor) {
+    boolean interrupted = Thread.interrupted();
+    while (!executor.isTerminated()) {
+      try {
+        executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+      } catch (InterruptedException exc) {
+        interrupted = true;
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+
+  /**
+   * @param properties
+   * @return the number of worker threads for batch processing, at least one.
+   */
+  private int getWorkerCount(SBProperties properties) {
+    if (!properties.containsKey(EscherIOOptions.WORKERS)) {
+      return 1;
+    }
+    int workers = properties.getIntProperty(EscherIOOptions.WORKERS);
+    if (workers <= 0) {
+      workers = Runtime.getRuntime().availableProcessors();
+    }
+    return workers;
+  }
+
+
+  /**
+   * Walks through the given input recursively, creates all required output
+   * directories and adds one conversion job for each file to {@code jobs}.
+   * The format of each file is determined from its content with
+   * {@link FormatDetector}; files of unknown format are skipped without
+   * reading them completely. The output file names are derived from the input as follows: JSON files
+   * in a directory result in XML files with the same base name, SBGN files in
+   * JSON files, and for SBML files the output directory is passed on.
+   *
+   * @param input Single file or input directory to convert from.
+   * @param output Single file or output directory to convert to.
+   * @param properties Command line options, if any.
+   * @param result Collects the outcome of all jobs.
+   * @param jobs The list of jobs to be extended.
+   * @throws IOException Thrown if {@code input} is a directory, but {@code output} is not.
+   */
+  private void createJobs(File input, File output, SBProperties properties,
+    BatchResult result, List<Runnable> jobs) throws IOException {
     // TODO: Warn before overwriting.
 
     // Checks if output/input is directory, if it doesn't, create one.
@@ -320,36 +458,36 @@ public class EscherConverter extends Launcher {
       output.mkdir();
     }
     if (input.isFile()) {
+      // Only the beginning of the file is read, its name does not matter.
+      InputFormat inputFormat = FormatDetector.detect(input).getFormat();
+      // The name of a compressed file without .gz is the base for the output file.
+      String fName = Compression.removeCompressedExtension(input).getName();
 
-      if (SBFileFilter.isJSONFile(input)) {
+      if (inputFormat == InputFormat.Escher) {
         logger.info(bundle.getString("AutoDetectJSON"));
 
         if (output.isDirectory()) {
-          String fName = input.getName();
           fName = FileTools.removeFileExtension(fName) + ".xml";
           output = new File(Utils.ensureSlash(output.getAbsolutePath()) + fName);
         }
-        properties.put(InputFormat.class.getSimpleName(), InputFormat.Escher);
-        convert(input, output, properties);
+        jobs.add(createJob(input, output, InputFormat.Escher, properties, result));
       }
-      else if (SBFileFilter.isSBMLFile(input)) {
+      else if (inputFormat == InputFormat.SBML) {
         logger.info(bundle.getString("AutoDetectSBML"));
-        properties.put(InputFormat.class.getSimpleName(), InputFormat.SBML);
-        convert(input, output, properties);
+        jobs.add(createJob(input, output, InputFormat.SBML, properties, result));
       }
-      else if (SBFileFilter.isSBGNFile(input)) {
+      else if (inputFormat == InputFormat.SBGN) {
         logger.info(bundle.getString("AutoDetectSBGN"));
 
         if (output.isDirectory()) {
-          String fName = input.getName();
           fName = FileTools.removeFileExtension(fName) + ".json";
           output = new File(Utils.ensureSlash(output.getAbsolutePath()) + fName);
         }
-        properties.put(InputFormat.class.getSimpleName(), InputFormat.SBGN);
-        convert(input, output, properties);
+        jobs.add(createJob(input, output, InputFormat.SBGN, properties, result));
       }
       else {
         logger.severe(bundle.getString("AutoDetectFail"));
+        result.addSkipped(input);
       }
 
     } else {
@@ -361,36 +499,56 @@ public class EscherConverter extends Launcher {
       for (File file : input.listFiles()) {
         File target = new File(
           Utils.ensureSlash(output.getAbsolutePath()) + input.getName());
-        batchProcess(file, target, properties);
+        createJobs(file, target, properties, result, jobs);
       }
     }
   }
 
 
+  /**
+   * Creates a job that converts a single file with its own copy of the
+   * {@code properties}, so that jobs can run concurrently.
+   *
+   * @param input
+   * @param output
+   * @param inputFormat
+   * @param properties
+   * @param result
+   * @return
+   */
+  private Runnable createJob(final File input, final File output, InputFormat inputFormat,
+    SBProperties properties, final BatchResult result) {
+    final SBProperties jobProperties = properties.clone();
+    jobProperties.put(InputFormat.class.getSimpleName(), inputFormat);
+    return () -> {
+      try {
+        if (convert(input, output, jobProperties)) {
+          result.addConverted(input);
+        } else {
+          result.addFailure(input, null);
+        }
+      } catch (Exception | Error exc) {
+        logger.log(Level.FINE, exc.getLocalizedMessage(), exc);
+        result.addFailure(input, exc);
+      }
+    };
+  }
+
+
   /* (non-Javadoc)
    * @see de.zbit.Launcher#commandLineMode(de.zbit.AppConf)
    */
   @Override
   public void commandLineMode(AppConf appConf) {
-    if (props.containsKey(EscherIOOptions.INPUT) && props.containsKey(EscherIOOptions.OUTPUT)) {
+    if (isServerMode()) {
+      serve(props.getIntProperty(EscherIOOptions.SERVER_PORT));
+    } else if (props.containsKey(EscherIOOptions.INPUT) && props.containsKey(EscherIOOptions.OUTPUT)) {
       // TODO: Allow output to be empty, create file/directory if doesn't exists.
       try {
-        File input = replaceUnixPathAbbreviations(props.getProperty(EscherIOOptions.INPUT.toString()));
-        File output = replaceUnixPathAbbreviations(props.getProperty(EscherIOOptions.OUTPUT.toString()));
-        if (input.isDirectory()) {
-          if (output.isFile()) {
-            logger.severe(bundle.getString("BatchModeOutputNotDirectory"));
-            return;
-          }
-          logger.info(format(
-            bundle.getString("EscherConverter.launchingBatchProcessing"),
-            input.getAbsolutePath()));
-        }
-        // Can also be used if only a single file is to be converted:
-        batchProcess(input, output, props);
-      } catch (SBMLException | XMLStreamException | IOException | ParseException | JAXBException
-          | SAXException | ParserConfigurationException | TransformerException exc) {
-        exc.printStackTrace();
+        process(props);
+      } catch (IOException exc) {
+        logger.severe(exc.getLocalizedMessage());
+        logger.log(Level.FINE, exc.getLocalizedMessage(), exc);
       }
     } else {
       logger.warning(bundle.getString("EscherConverter.incompleteCMDArgs"));
@@ -398,6 +556,66 @@ public class EscherConverter extends Launcher {
   }
 
 
+  /**
+   * Converts the input to the output given in the {@code properties}, which
+   * can either be single files or directories.
+   *
+   * @param properties must contain {@link EscherIOOptions#INPUT} and
+   *        {@link EscherIOOptions#OUTPUT}.
+   * @return The outcome for all files that were found.
+   * @throws IOException if the input does not exist or if it is a directory,
+   *         but the output is not.
+   */
+  public BatchResult process(SBProperties properties) throws IOException {
+    File input = replaceUnixPathAbbreviations(properties.getProperty(EscherIOOptions.INPUT.toString()));
+    File output = replaceUnixPathAbbreviations(properties.getProperty(EscherIOOptions.OUTPUT.toString()));
+    if (!input.exists()) {
+      throw new FileNotFoundException(input.getAbsolutePath());
+    }
+    if (input.isDirectory()) {
+      if (output.isFile()) {
+        throw new IOException(bundle.getString("BatchModeOutputNotDirectory"));
+      }
+      logger.info(format(
+        bundle.getString("EscherConverter.launchingBatchProcessing"),
+        input.getAbsolutePath()));
+    }
+    // Can also be used if only a single file is to be converted:
+    return batchProcess(input, output, properties);
+  }
+
+
+  /**
+   * @return {@code true} if a {@link EscherIOOptions#SERVER_PORT} has been
+   *         given, i.e., if the program accepts jobs instead of converting
+   *         its input.
+   */
+  private boolean isServerMode() {
+    return props.containsKey(EscherIOOptions.SERVER_PORT)
+        && (props.getIntProperty(EscherIOOptions.SERVER_PORT) > 0);
+  }
+
+
+  /**
+   * Runs a {@link ConversionServer} on the given port until it receives a
+   * request to shut down or the JVM terminates.
+   *
+   * @param port
+   */
+  private void serve(int port) {
+    try {
+      final ConversionServer server = new ConversionServer(this, props, port);
+      Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
+      server.start();
+      server.awaitTermination();
+    } catch (IOException exc) {
+      logger.severe(exc.getLocalizedMessage());
+    } catch (InterruptedException exc) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+
   /**
    * Does some very basic file path interpretation.
    * 
@@ -421,6 +639,7 @@ public class EscherConverter extends Launcher {
    * @param input Input (single) {@link File}.
    * @param output Output (single) {@link File}.
    * @param properties Command line options, if any.
+   * @return {@code true} if the output has been written.
    * @throws IOException Thrown if there are problems in reading the {@code input} file(s).
    * @throws XMLStreamException Thrown if there are problems in parsing XML file(s).
    * @throws TransformerException Thrown if there are problems in parsing XML file(s).
@@ -430,7 +649,7 @@ public class EscherConverter extends Launcher {
    * @throws ParseException Thrown if there are problems in parsing JSON file(s).
    * @throws SBMLException Thrown if there are problems in parsing XML file(s).
    */
-  public void convert(File input, File output, SBProperties properties)
+  public boolean convert(File input, File output, SBProperties properties)
       throws IOException, ParseException,
       XMLStreamException, SBMLException, JAXBException, SAXException,
       ParserConfigurationException, TransformerException {
@@ -439,7 +658,20 @@ public class EscherConverter extends Launcher {
 
     logger.warning(bundle.getString("ValidationStart"));
     try {
-      if (!validateInput(input, inputFormat)) {
+      // Escher and SBGN-ML input is read only once: the same tree is validated and bound.
+      JsonNode escherTree = null;
+      Document sbgnDocument = null;
+      boolean valid;
+      if (inputFormat == InputFormat.Escher) {
+        escherTree = Validator.readEscherTree(input);
+        valid = validateInput(escherTree, properties);
+      } else if (inputFormat == InputFormat.SBGN) {
+        sbgnDocument = Validator.readSbgnDocument(input);
+        valid = validateInput(sbgnDocument, properties);
+      } else {
+        valid = validateInput(input, inputFormat, properties);
+      }
+      if (!valid) {
         logger.warning(bundle.getString("ValidationFailed"));
 
         // Unless the --ignore-validation option has been set to true, do not continue
@@ -447,7 +679,7 @@ public class EscherConverter extends Launcher {
           logger.warning(bundle.getString("ValidationSkip"));
         } else {
           logger.warning(bundle.getString("ValidationAbort"));
-          return;
+          return false;
         }
       }
 
@@ -457,15 +689,23 @@ public class EscherConverter extends Launcher {
       switch (outputFormat) {
 
         case SBML:
-          SBMLDocument doc = convert(input, SBMLDocument.class, properties);
-          TidySBMLWriter.write(doc, output, System.getProperty("app.name"),
-                  getVersionNumber(), ' ', (short) 2);
+          SBMLDocument doc = convert(escherTree != null ? parseEscherJson(escherTree)
+              : parseEscherJson(input), SBMLDocument.class, properties);
+          output = getOutputFile(output, properties);
+          try (OutputStream stream = Compression.openOutput(output)) {
+            TidySBMLWriter.write(doc, stream, System.getProperty("app.name"),
+                    getVersionNumber(), ' ', (short) 2);
+          }
           success = true;
           break;
 
         case SBGN:
-          Sbgn sbgn = convert(input, Sbgn.class, properties);
-          SbgnUtil.writeToFile(sbgn, output);
+          Sbgn sbgn = convert(escherTree != null ? parseEscherJson(escherTree)
+              : parseEscherJson(input), Sbgn.class, properties);
+          output = getOutputFile(output, properties);
+          try (OutputStream stream = Compression.openOutput(output)) {
+            writeSBGNML(sbgn, stream);
+          }
           success = true;
           break;
 
@@ -474,8 +714,10 @@ public class EscherConverter extends Launcher {
           switch (inputFormat) {
 
             case SBGN:
-              EscherMap map = parseSBGNML(input, properties);
-              writeEscherJson(map, output);
+              EscherMap map = convert(SBGNIO.read(sbgnDocument), properties);
+              output = getOutputFile(output, properties);
+              writeEscherJson(map, output,
+                properties.getBooleanProperty(EscherIOOptions.COMPACT_JSON));
               success = true;
               break;
 
@@ -483,9 +725,11 @@ public class EscherConverter extends Launcher {
               if (properties.getBooleanProperty(EscherOptions.EXTRACT_COBRA)) {
                 extractCobraModel(input);
               }
-              List<EscherMap> maps = convert(SBMLReader.read(input), properties);
-              writeEscherJson(maps, output);
-              success = true;
+              List<EscherMap> maps;
+              try (InputStream stream = Compression.openInput(input)) {
+                maps = convert(SBMLReader.read(stream), properties);
+              }
+              success = writeEscherJson(maps, output, properties);
               break;
 
             case Escher:
@@ -503,9 +747,27 @@ public class EscherConverter extends Launcher {
         logger.info(format(
                 "Output successfully written to file {0}.", output));
       }
+      return success;
     } catch(JsonProcessingException e) {
       logger.severe(bundle.getString("EscherValidationFail.NotJson"));
+      return false;
+    }
+  }
+
+
+  /**
+   * Adds {@link Compression#GZIP_EXTENSION} to the name of the given file if
+   * {@link EscherIOOptions#COMPRESS_OUTPUT} is set.
+   *
+   * @param output
+   * @param properties
+   * @return the file to write to.
+   */
+  private static File getOutputFile(File output, SBProperties properties) {
+    if (properties.getBooleanProperty(EscherIOOptions.COMPRESS_OUTPUT)) {
+      return Compression.addCompressedExtension(output);
     }
+    return output;
   }
 
 
@@ -514,29 +776,44 @@ public class EscherConverter extends Launcher {
    * @param properties
    * @return
    * @throws JAXBException
+   * @throws IOException
    */
-  public static EscherMap parseSBGNML(File input, SBProperties properties) throws JAXBException {
-    return convert(SbgnUtil.readFromFile(input), properties);
+  public static EscherMap parseSBGNML(File input, SBProperties properties)
+      throws JAXBException, IOException {
+    try (InputStream stream = Compression.openInput(input)) {
+      return parseSBGNML(stream, properties);
+    }
   }
 
   /**
    * Parses an SBGNML input and calls a convert method to {@link EscherMap}.
+   * Gzip-compressed input is decompressed on the fly.
    * @param is InputStream of the SBGNML file.
    * @param properties Command line arguments, if applicable
    * @return The file {@code is} converted to {@link EscherMap}
    * @throws JAXBException
    */
-  public static EscherMap parseSBGNML(InputStream is, SBProperties properties) throws JAXBException {
-    JAXBContext context = JAXBContext.newInstance("org.sbgn.bindings");
-    Unmarshaller unmarshaller = context.createUnmarshaller();
-
-    // Now read from "is" and put the result in "sbgn"
-    Sbgn sbgnDoc = (Sbgn) unmarshaller.unmarshal(is);
+  public static EscherMap parseSBGNML(InputStream is, SBProperties properties)
+      throws JAXBException, IOException {
+    Sbgn sbgnDoc = SBGNIO.read(Compression.decompress(is));
 
     return convert(sbgnDoc, properties);
   }
 
 
+  /**
+   * Writes an SBGN-ML document to a stream, with the same settings as
+   * {@link SbgnUtil#writeToFile(Sbgn, File)}, see {@link SBGNIO}.
+   *
+   * @param sbgn The document to write.
+   * @param stream The target, which is not closed.
+   * @throws JAXBException Thrown if the document cannot be serialized.
+   */
+  public static void writeSBGNML(Sbgn sbgn, OutputStream stream) throws JAXBException {
+    SBGNIO.write(sbgn, stream);
+  }
+
+
   /**
    * Extracts CoBRA from {@link SBMLDocument} if it is FBC compliant. cobrapy must be present for
    * this.
@@ -602,19 +879,80 @@ public class EscherConverter extends Launcher {
   }
 
 
+  /**
+   * Returns the validator for Escher files, i.e., one for {@link EscherOptions#ESCHER_SCHEMA}
+   * if given, otherwise the default one. In both cases the schema is compiled only once and
+   * then shared.
+   *
+   * @param properties Command line options, if any.
+   * @return The shared validator.
+   * @throws IOException Thrown if there are problems in reading the schema.
+   * @throws ProcessingException Thrown if the schema cannot be compiled.
+   */
+  private Validator getValidator(SBProperties properties) throws IOException, ProcessingException {
+    String schema = properties.containsKey(EscherOptions.ESCHER_SCHEMA)
+        ? properties.getProperty(EscherOptions.ESCHER_SCHEMA) : null;
+    if ((schema != null) && !schema.isEmpty()) {
+      return Validator.forSchema(new File(schema));
+    }
+    return Validator.getDefault();
+  }
+
+
+  /**
+   * Validates an Escher document that has already been parsed into a tree.
+   *
+   * @param escherTree The {@code JSON} tree of the input file.
+   * @param properties Command line options, if any.
+   * @return Result of validation.
+   * @throws IOException Thrown if there are problems in reading the schema.
+   */
+  private boolean validateInput(JsonNode escherTree, SBProperties properties) throws IOException {
+    Validator validator;
+    try {
+      validator = getValidator(properties);
+    } catch (ProcessingException e) {
+      return false;
+    }
+    logger.info(bundle.getString("ValidatingEscher"));
+    return validator.validateEscher(escherTree);
+  }
+
+
+  /**
+   * Validates an SBGN-ML document that has already been parsed into a DOM tree.
+   *
+   * @param sbgnDocument The DOM tree of the input file.
+   * @param properties Command line options, if any.
+   * @return Result of validation.
+   * @throws IOException Thrown if there are problems in creating the validator.
+   */
+  private boolean validateInput(Document sbgnDocument, SBProperties properties) throws IOException {
+    Validator validator;
+    try {
+      validator = getValidator(properties);
+    } catch (ProcessingException e) {
+      return false;
+    }
+    logger.info(bundle.getString("ValidatingSBGN"));
+    return validator.validateSbgnml(sbgnDocument);
+  }
+
+
   /**
    * Calls appropriate validator for given {@code file} using {@link InputFormat}.
    *
    * @param input Input file.
    * @param inputFormat Format of input file.
+   * @param properties Command line options, if any.
    * @return Result of validation.
    * @throws IOException Thrown if there are problems in reading the {@code input} file(s).
    */
-  private boolean validateInput(File input, InputFormat inputFormat) throws IOException {
+  private boolean validateInput(File input, InputFormat inputFormat, SBProperties properties)
+      throws IOException {
     Validator validator;
     try {
-      // TODO: Add support for custom schema file.
-      validator = new Validator();
+      validator = getValidator(properties);
     } catch (ProcessingException e) {
       return false;
     }
@@ -646,28 +984,38 @@ public class EscherConverter extends Launcher {
    * @throws IOException Thrown if there are problems in reading the {@code input} file(s).
    */
   public static void writeEscherJson(EscherMap map, File output) throws IOException {
-    // An Escher array contains meta-info about the map as the first object and the actual map as
-    // second map. That's why we need an array of size 2.
-    List<EscherMap> mapList = new ArrayList<>(2);
+    writeEscherJson(map, output, false);
+  }
 
-    // Add meta info to the new object.
-    mapList.add(new EscherMap());
-    mapList.get(0).setId(map.getId());
-    mapList.get(0).setDescription(map.getDescription());
-    mapList.get(0).setName(output.getName());
-    mapList.get(0).setSchema(map.getSchema());
-    mapList.get(0).setURL(map.getURL());
 
-    // And remove it from the other object.
-    map.setId(null);
-    map.setName(null);
-    map.setDescription(null);
-    map.setSchema(null);
-    map.setURL(null);
+  /**
+   * Serializes an {@link EscherMap} instance to JSON and writes to {@code output} file. The
+   * given map is not modified.
+   *
+   * @param map Escher map to serialize.
+   * @param output Output file to write to.
+   * @param compact whether to omit indentation and line breaks.
+   * @throws IOException Thrown if there are problems in writing the {@code output} file.
+   * @see EscherIOOptions#COMPACT_JSON
+   */
+  public static void writeEscherJson(EscherMap map, File output, boolean compact)
+    throws IOException {
+    new EscherJsonWriter(compact).write(map, output);
+  }
 
-    mapList.add(map);
 
-    edu.ucsd.sbrg.escher.util.Utils.getObjectMapper().writeValue(output, mapList);
+  /**
+   * Serializes a {@link List<EscherMap>} to JSON and writes to {@code output} directory.
+   *
+   * @param mapList List of Escher maps to serialize.
+   * @param output Directory to create files in.
+   * @return {@code true} if every map has been written.
+   */
+  public static boolean writeEscherJson(List<EscherMap> mapList, File output) {
+    SBProperties properties = new SBProperties();
+    properties.put(EscherIOOptions.COMPACT_JSON, Boolean.FALSE);
+    properties.put(EscherIOOptions.COMPRESS_OUTPUT, Boolean.FALSE);
+    return writeEscherJson(mapList, output, properties);
   }
 
 
@@ -676,51 +1024,61 @@ public class EscherConverter extends Launcher {
    *
    * @param mapList List of Escher maps to serialize.
    * @param output Directory to create files in.
+   * @param properties Command line options, see {@link EscherIOOptions#COMPACT_JSON} and
+   *        {@link EscherIOOptions#COMPRESS_OUTPUT}.
+   * @return {@code true} if every map has been written, {@code false} if
+   *         there is no map, if several maps cannot be written to a single
+   *         file, or if writing a file failed. Problems are logged.
    */
-  public static void writeEscherJson(List<EscherMap> mapList, File output) {
-    try {
-      if (mapList.size() == 0) {
-        // SBML file has no layout.
-        logger.warning(bundle.getString("SBMLNoLayout"));
-        return;
+  public static boolean writeEscherJson(List<EscherMap> mapList, File output,
+    SBProperties properties) {
+    boolean compact = properties.getBooleanProperty(EscherIOOptions.COMPACT_JSON);
+    if (mapList.size() == 0) {
+      // SBML file has no layout.
+      logger.warning(bundle.getString("SBMLNoLayout"));
+      return false;
+    }
+    if (output.exists() && output.isFile()) {
+      // If output is a file, we can only write one layout.
+      if (mapList.size() > 1) {
+        logger.severe(bundle.getString("SingleFileMultipleLayout"));
+        return false;
       }
-      if (output.exists() && output.isFile()) {
-        // If output is a file, we can only write one layout.
-        if (mapList.size() == 1) {
-          writeEscherJson(mapList.get(0), output);
-        }
-        else {
-          logger.severe(bundle.getString("SingleFileMultipleLayout"));
-        }
+      File file = getOutputFile(output, properties);
+      try {
+        writeEscherJson(mapList.get(0), file, compact);
+        return true;
+      } catch (IOException e) {
+        logger.log(Level.SEVERE, format(bundle.getString("FileIOError"), file.getAbsolutePath()), e);
+        return false;
       }
-      else {
-        // Write all maps to their own file.
-        for (EscherMap map : mapList) {
-          File file;
-          if ((mapList.size() > 1) || (output.exists() && output.isDirectory())) {
-            file = new File(Utils.ensureSlash(output.getPath()) + map.getId() + ".json");
-          } else if (SBFileFilter.isJSONFile(output)) {
-            file = output;
-          } else {
-            file = new File(output.getAbsolutePath() + ".json");
-          }
-          try {
-            if (!file.exists()) {
-            	if(file.getParentFile() != null){
-            		file.getParentFile().mkdirs();
-            	}
-              file.createNewFile();
-            }
-            writeEscherJson(map, file);
-          } catch (IOException e) {
-            logger.severe(format(bundle.getString("FileIOError"), file.getAbsolutePath()));
-          }
+    }
+    // Write all maps to their own file.
+    boolean success = true;
+    for (EscherMap map : mapList) {
+      File file;
+      if ((mapList.size() > 1) || (output.exists() && output.isDirectory())) {
+        file = new File(Utils.ensureSlash(output.getPath()) + map.getId() + ".json");
+      } else if (SBFileFilter.isJSONFile(Compression.removeCompressedExtension(output))) {
+        file = output;
+      } else {
+        file = new File(output.getAbsolutePath() + ".json");
+      }
+      file = getOutputFile(file, properties);
+      try {
+        if (!file.exists()) {
+        	if(file.getParentFile() != null){
+        		file.getParentFile().mkdirs();
+        	}
+          file.createNewFile();
         }
+        writeEscherJson(map, file, compact);
+      } catch (IOException e) {
+        logger.log(Level.SEVERE, format(bundle.getString("FileIOError"), file.getAbsolutePath()), e);
+        success = false;
       }
     }
-    catch (IOException e) {
-      e.printStackTrace();
-    }
+    return success;
   }
 
 
@@ -859,7 +1217,7 @@ public class EscherConverter extends Launcher {
    */
   @Override
   public boolean showsGUI() {
-	  	return !props.containsKey(GUIOptions.GUI) || props.getBooleanProperty(GUIOptions.GUI);
+	  	return !isServerMode() && (!props.containsKey(GUIOptions.GUI) || props.getBooleanProperty(GUIOptions.GUI));
   }
 
 }
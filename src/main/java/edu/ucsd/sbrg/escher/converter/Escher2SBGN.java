@@ -31,11 +31,12 @@ import org.xml.sax.SAXException;
 
 import javax.xml.parsers.ParserConfigurationException;
 import java.io.IOException;
-import java.text.MessageFormat;
 import java.util.*;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
@@ -79,15 +80,15 @@ public class Escher2SBGN extends Escher2Standard<Sbgn> {
     public Sbgn convert(EscherMap escherMap) {
         preprocessDataStructure(escherMap);
         Canvas canvas = escherMap.getCanvas();
-        double xOffset = canvas.isSetX() ? canvas.getX().doubleValue() : 0d;
-        double yOffset = canvas.isSetY() ? canvas.getY().doubleValue() : 0d;
+        double xOffset = canvas.isSetX() ? canvas.x() : 0d;
+        double yOffset = canvas.isSetY() ? canvas.y() : 0d;
         Sbgn sbgn = builder.createSbgn();
         org.sbgn.bindings.Map
                 map =
                 builder.createMap(SBGNbuilder.Language.process_description, 0d, 0d,
-                        canvas.isSetHeight() ? canvas.getHeight().doubleValue() :
+                        canvas.isSetHeight() ? canvas.height() :
                                 getCanvasDefaultHeight(),
-                        canvas.isSetWidth() ? canvas.getWidth().doubleValue() :
+                        canvas.isSetWidth() ? canvas.width() :
                                 getCanvasDefaultWidth());
         sbgn.setMap(map);
         if (escherMap.isSetDescription()) {
@@ -99,8 +100,9 @@ public class Escher2SBGN extends Escher2Standard<Sbgn> {
                 logger.warning(exc.getMessage());
             }
         }
-        Map<String, SBGNBase> node2glyph = new HashMap<String, SBGNBase>();
-        Map<String, Node> multimarkers = new HashMap<String, Node>();
+        // Glyphs are created on several threads, but added to the map in the order of the Escher elements.
+        Map<String, SBGNBase> node2glyph = new ConcurrentHashMap<String, SBGNBase>();
+        Map<String, Node> multimarkers = new ConcurrentHashMap<String, Node>();
         if (getInferCompartmentBoundaries()) {
             int i = 0;
             for (Map.Entry<String, EscherCompartment> entry : escherMap
@@ -112,8 +114,8 @@ public class Escher2SBGN extends Escher2Standard<Sbgn> {
                             compGlyph =
                             builder.createGlyph(id, compartment.getName(),
                                     SBGNProperties.GlyphType.compartment,
-                                    compartment.getX() - xOffset, compartment.getY() - yOffset,
-                                    compartment.getWidth(), compartment.getHeight());
+                                    compartment.x() - xOffset, compartment.y() - yOffset,
+                                    compartment.width(), compartment.height());
                     node2glyph.put(compGlyph.getId(), compGlyph);
                     map.getGlyph().add(compGlyph);
                     // TODO: arrange compartments according to their size.
@@ -121,17 +123,50 @@ public class Escher2SBGN extends Escher2Standard<Sbgn> {
                 }
             }
         }
+        List<Node> nodes = new ArrayList<Node>(escherMap.getNodesCount());
         for (Map.Entry<String, Node> entry : escherMap.nodes()) {
-            convertNode(entry.getValue(), escherMap, node2glyph, multimarkers, map,
-                    xOffset, yOffset);
+            nodes.add(entry.getValue());
+            if (entry.getValue().isMetabolite()) {
+                // Process glyphs of exchange reactions need the size of other nodes.
+                initSize(entry.getValue());
+            }
         }
+        merge(computeAll(nodes, node -> {
+            org.sbgn.bindings.Map part = createPart();
+            convertNode(node, escherMap, node2glyph, multimarkers, part, xOffset, yOffset);
+            return part;
+        }), map);
+        List<EscherReaction> reactions = new ArrayList<EscherReaction>(escherMap.getReactionCount());
         for (Map.Entry<String, EscherReaction> entry : escherMap.reactions()) {
-            convertProcess(entry.getValue(), escherMap, map, node2glyph, xOffset,
-                    yOffset);
+            reactions.add(entry.getValue());
         }
+        merge(computeAll(reactions, reaction -> {
+            org.sbgn.bindings.Map part = createPart();
+            convertProcess(reaction, escherMap, part, node2glyph, xOffset, yOffset);
+            return part;
+        }), map);
+        // Identifiers of text labels can depend on each other and are hence determined in advance.
+        List<TextLabel> textLabels = new ArrayList<TextLabel>(escherMap.getTextLabelCount());
+        List<String> textLabelIds = new ArrayList<String>(escherMap.getTextLabelCount());
         for (Map.Entry<String, TextLabel> entry : escherMap.textLabels()) {
-            createTextLabel(entry.getValue(), map, xOffset, yOffset);
+            String id = createTextLabelId(entry.getKey(), entry.getValue());
+            if (id != null) {
+                textLabels.add(entry.getValue());
+                textLabelIds.add(id);
+            }
         }
+        List<Integer> indices = new ArrayList<Integer>(textLabels.size());
+        for (int i = 0; i < textLabels.size(); i++) {
+            indices.add(i);
+        }
+        merge(computeAll(indices, i -> {
+            org.sbgn.bindings.Map part = createPart();
+            createTextLabel(textLabels.get(i), textLabelIds.get(i), part, xOffset, yOffset);
+            return part;
+        }), map);
+        counters.add("glyphs", map.getGlyph().size());
+        counters.add("arcs", map.getArc().size());
+        counters.logSummary(logger);
         return sbgn;
     }
 
@@ -193,9 +228,7 @@ public class Escher2SBGN extends Escher2Standard<Sbgn> {
     private Glyph convertExchange(Node node, Map<String, SBGNBase> node2glyph,
                                   org.sbgn.bindings.Map map, double xOffset, double yOffset) {
         // TODO: implement support for exchange reactions!
-        logger.warning(MessageFormat
-                .format(bundle.getString("Escher2SBGN.cannotConvertExchange"),
-                        node.getId()));
+        counters.log(logger, Level.WARNING, "Escher2SBGN.cannotConvertExchange", node.getId());
         return null;
     }
 
@@ -214,17 +247,17 @@ public class Escher2SBGN extends Escher2Standard<Sbgn> {
         String
                 rId =
                 midmarker
-                        .getId(); //extractReactionId(midmarker.getConnectedSegments());
+                        .getId(); //extractReactionId(midmarker, escherMap);
         if (rId != null) {
-            if (!node2glyph.containsValue(rId)) {
+            if (!node2glyph.containsKey(rId)) {
                 double width = getPrimaryNodeWidth() * getReactionNodeRatio();
                 double height = getPrimaryNodeHeight() * getReactionNodeRatio();
                 double x;
                 double y;
                 // Also shift node because again the center of the node would be used as coordinate instead of upper-left corner
-                EscherReaction reac = escherMap.getReaction(extractReactionId(midmarker.getConnectedSegments()));
-                double mid_x = midmarker.getX();
-                double mid_y = midmarker.getY();
+                EscherReaction reac = escherMap.getReaction(extractReactionId(midmarker, escherMap));
+                double mid_x = midmarker.x();
+                double mid_y = midmarker.y();
                 if (reac.getMetaboliteCount() == 1) {
                     Node metNode = escherMap.getNode(reac.getMetaboliteList().get(0).getNodeRefId());
                     boolean isReversible = reac.getReversibility();
@@ -240,13 +273,13 @@ public class Escher2SBGN extends Escher2Standard<Sbgn> {
                         exId = SBMLtools.toSId(rId + sinkSuffix);
                     }
                     Glyph exGlyph = builder.createGlyph(exId, metNode.getName(),
-                            GlyphType.source_and_sink, convertCoordinate(mid_x, xOffset) - metNode.getWidth() / 2d,
-                            convertCoordinate(mid_y, yOffset) - metNode.getHeight() / 2d, metNode.getWidth(), metNode.getHeight());
+                            GlyphType.source_and_sink, convertCoordinate(mid_x, xOffset) - metNode.width() / 2d,
+                            convertCoordinate(mid_y, yOffset) - metNode.height() / 2d, metNode.width(), metNode.height());
                     map.getGlyph().add(exGlyph);
                     node2glyph.put(exId, exGlyph);
                     Point mid_point = calculateMidpointBetweenNodes(midmarker, metNode);
-                    mid_x = mid_point.getX();
-                    mid_y = mid_point.getY();
+                    mid_x = mid_point.x();
+                    mid_y = mid_point.y();
                 }
                 Glyph
                         rGlyph =
@@ -266,10 +299,10 @@ public class Escher2SBGN extends Escher2Standard<Sbgn> {
     }
 
     private Point calculateMidpointBetweenNodes(Node node1, Node node2) {
-        double node1_x = node1.getX();
-        double node1_y = node1.getY();
-        double node2_x = node2.getX();
-        double node2_y = node2.getY();
+        double node1_x = node1.x();
+        double node1_y = node1.y();
+        double node2_x = node2.x();
+        double node2_y = node2.y();
         double new_x = node1_x + ((node2_x - node1_x) / 2d);
         double new_y = node1_y + ((node2_y - node1_y) / 2d);
 
@@ -278,50 +311,79 @@ public class Escher2SBGN extends Escher2Standard<Sbgn> {
 
 
     /**
-     * @param textLabel
+     * @return an empty map that collects the glyphs and arcs created for a
+     * single element of an {@link EscherMap}.
+     */
+    private org.sbgn.bindings.Map createPart() {
+        return builder.getObjectFactory().createMap();
+    }
+
+
+    /**
+     * Appends the glyphs and arcs of all parts to the given map in the order
+     * of the parts.
+     *
+     * @param parts
      * @param map
-     * @param xOffset
-     * @param yOffset
      */
-    private void createTextLabel(TextLabel textLabel, org.sbgn.bindings.Map map,
-                                 double xOffset, double yOffset) {
+    private void merge(List<org.sbgn.bindings.Map> parts, org.sbgn.bindings.Map map) {
+        for (org.sbgn.bindings.Map part : parts) {
+            map.getGlyph().addAll(part.getGlyph());
+            map.getArc().addAll(part.getArc());
+        }
+    }
+
+
+    /**
+     * @param key       the key of the text label in the {@link EscherMap}
+     * @param textLabel
+     * @return a unique identifier for the glyph of the given text label or
+     * {@code null} if the label is a cardinality label.
+     */
+    private String createTextLabelId(String key, TextLabel textLabel) {
         try {
             // This is important in order to skip cardinality labels. These are treated directly in the reaction conversion.
             Double.parseDouble(textLabel.getText());
+            return null;
         } catch (NumberFormatException exc) {
             if (!textLabel.isSetId()) {
                 // Actually, the id should always be defined!
-                textLabel.setId("" + textLabel.hashCode());
-            }
-            String id = SBMLtools.toSId(textLabel.getId());
-            if (builder.getSBGNBase(id) != null) {
-                int i = 0;
-                do {
-                    i++;
-                } while (builder.getSBGNBase(id + "_" + i) != null);
-                id += "_" + i;
+                textLabel.setId(key);
             }
-            Glyph
-                    glyph =
-                    builder.createGlyph(id, textLabel.getText(), GlyphType.annotation,
-                            convertCoordinate(textLabel.getX(), xOffset),
-                            convertCoordinate(textLabel.getY(), yOffset),
-                            textLabel.isSetWidth() ?
-                                    SBGNbuilder.toDouble(textLabel.getWidth()) : getLabelWidth(),
-                            textLabel.isSetHeight() ?
-                                    SBGNbuilder.toDouble(textLabel.getHeight()) :
-                                    getLabelHeight());
-            Callout
-                    callout =
-                    builder
-                            .createGlyphCallout(convertCoordinate(textLabel.getX(), xOffset),
-                                    convertCoordinate(textLabel.getY(), yOffset));
-            glyph.setCallout(callout);
-            map.getGlyph().add(glyph);
+            return builder.createUniqueId(SBMLtools.toSId(textLabel.getId()));
         }
     }
 
 
+    /**
+     * @param textLabel
+     * @param id      see {@link #createTextLabelId(String, TextLabel)}
+     * @param map
+     * @param xOffset
+     * @param yOffset
+     */
+    private void createTextLabel(TextLabel textLabel, String id, org.sbgn.bindings.Map map,
+                                 double xOffset, double yOffset) {
+        Glyph
+                glyph =
+                builder.createGlyph(id, textLabel.getText(), GlyphType.annotation,
+                        convertCoordinate(textLabel.x(), xOffset),
+                        convertCoordinate(textLabel.y(), yOffset),
+                        textLabel.isSetWidth() ?
+                                textLabel.width() : getLabelWidth(),
+                        textLabel.isSetHeight() ?
+                                textLabel.height() :
+                                getLabelHeight());
+        Callout
+                callout =
+                builder
+                        .createGlyphCallout(convertCoordinate(textLabel.x(), xOffset),
+                                convertCoordinate(textLabel.y(), yOffset));
+        glyph.setCallout(callout);
+        map.getGlyph().add(glyph);
+    }
+
+
     /**
      * @param reaction
      * @param escherMap
@@ -335,8 +397,7 @@ public class Escher2SBGN extends Escher2Standard<Sbgn> {
                                 double xOffset, double yOffset) {
         Node midmarker = reaction.getMidmarker();
         if (midmarker == null) {
-            logger.warning(MessageFormat
-                    .format(bundle.getString("Escher2SBGN.midmarkerMissing"), reaction));
+            counters.log(logger, Level.WARNING, "Escher2SBGN.midmarkerMissing", reaction);
             return;
         }
         Glyph processGlyph = (Glyph) node2glyph.get(midmarker.getId());
@@ -345,7 +406,7 @@ public class Escher2SBGN extends Escher2Standard<Sbgn> {
             processGlyph =
                     convertMidmarker(midmarker, escherMap, node2glyph, map, xOffset, yOffset);
         }
-        List<String> list = midmarker.getConnectedSegments(reaction.getId());
+        List<String> list = escherMap.getConnectedSegments(midmarker.getId(), reaction.getId());
         if (list != null) {
             for (String segmentId : list) {
                 Segment segment = reaction.getSegment(segmentId);
@@ -355,22 +416,20 @@ public class Escher2SBGN extends Escher2Standard<Sbgn> {
                                 segment.getFromNodeId().equals(midmarker.getId()) ?
                                         segment.getToNodeId() : segment.getFromNodeId());
                 if (node.isMultimarker()) {
-                    Port port = createPort(node, processGlyph, xOffset, yOffset);
-                    node2glyph.put(port.getId(), port);
+                    String portKey = createPortId(processGlyph, node.getId());
+                    Port port = createPort(node, portKey, xOffset, yOffset);
+                    node2glyph.put(portKey, port);
                     processGlyph.getPort().add(port);
                 } else {
-                    logger.info(MessageFormat.format(
-                            bundle.getString("Escher2SBGN.midmarkerWithoutMultimarker"),
+                    counters.log(logger, Level.INFO, "Escher2SBGN.midmarkerWithoutMultimarker",
                             midmarker.getId(),
                             reaction.isSetBiggId() ? reaction.getBiggId() : reaction.getId(),
                             node.getType(),
-                            node.isSetBiggId() ? node.getBiggId() : node.getId()));
+                            node.isSetBiggId() ? node.getBiggId() : node.getId());
                 }
             }
         } else {
-            logger.warning(MessageFormat
-                    .format(bundle.getString("Escher2SBGN.reactionNodeWithoutSegments"),
-                            reaction.getId()));
+            counters.log(logger, Level.WARNING, "Escher2SBGN.reactionNodeWithoutSegments", reaction.getId());
         }
         Metabolite metabolite;
         Node srGlyph;
@@ -399,16 +458,18 @@ public class Escher2SBGN extends Escher2Standard<Sbgn> {
 
     /**
      * @param node
-     * @param reaction
+     * @param portKey the result of {@link #createPortId(Glyph, String)}, which
+     *                is used as the port's id unless another element already has
+     *                this id
      * @param xOffset
      * @param yOffset
      * @return
      */
-    private Port createPort(Node node, Glyph reaction, double xOffset,
+    private Port createPort(Node node, String portKey, double xOffset,
                             double yOffset) {
-        return builder.createPort(createPortId(reaction, node.getId()),
-                convertCoordinate(node.getX(), xOffset),
-                convertCoordinate(node.getY(), yOffset));
+        return builder.createPort(builder.createUniqueId(portKey),
+                convertCoordinate(node.x(), xOffset),
+                convertCoordinate(node.y(), yOffset));
     }
 
 
@@ -430,7 +491,7 @@ public class Escher2SBGN extends Escher2Standard<Sbgn> {
     (Glyph) node2glyph.get(reaction.getMidmarker().getId());
     List<String>
     connectedSegments =
-    metaboliteNode.getConnectedSegments(reaction.getId());
+    escherMap.getConnectedSegments(metaboliteNode.getId(), reaction.getId());
     Segment segment = reaction.getSegment(connectedSegments.get(0));
     Node source, target;
     SBGNBase sourceBase, targetBase;
@@ -447,8 +508,8 @@ public class Escher2SBGN extends Escher2Standard<Sbgn> {
       }
       target = escherMap.getNode(metabolite.getNodeRefId());
       targetBase = node2glyph.get(target.getId());
-      x1 = source.getX();
-      y1 = source.getY();
+      x1 = source.x();
+      y1 = source.y();
       // TODO
       /*Segment lastSegment = reaction.getSegment(target.getConnectedSegments(reaction.getId()).get(0));
       Node fromNode = escherMap.getNode(lastSegment.getFromNodeId());
@@ -458,8 +519,8 @@ public class Escher2SBGN extends Escher2Standard<Sbgn> {
 			CubicCurve2D curve = new CubicCurve2D.Double(fromNode.getX(), fromNode.getY(), bp1 != null ? bp1.getX() : Double.NaN, bp1 != null ? bp1.getY() : Double.NaN, bp2 != null ? bp2.getX() : Double.NaN, bp2 != null ? bp2.getY() : Double.NaN, target.getX(), target.getY());
 			Point2D point = Geometry.findIntersection(shape, curve);
 			if (point == null) {*/
-      x2 = target.getX();
-      y2 = target.getY();
+      x2 = target.x();
+      y2 = target.y();
       /*} else {
 				x2 = point.getX();
 				y2 = point.getY();
@@ -486,14 +547,14 @@ public class Escher2SBGN extends Escher2Standard<Sbgn> {
 			CubicCurve2D curve = new CubicCurve2D.Double(source.getX(), source.getY(), bp1 != null ? bp1.getX() : Double.NaN, bp1 != null ? bp1.getY() : Double.NaN, bp2 != null ? bp2.getX() : Double.NaN, bp2 != null ? bp2.getY() : Double.NaN, toNode.getX(), toNode.getY());
 			Point2D point = Geometry.findIntersection(shape, curve);
 			if (point == null) {*/
-      x1 = source.getX();
-      y1 = source.getY();
+      x1 = source.x();
+      y1 = source.y();
       /*} else {
 				x1 = point.getX();
 				y1 = point.getY();
 			}*/
-      x2 = target.getX();
-      y2 = target.getY();
+      x2 = target.x();
+      y2 = target.y();
     }
     Arc
     arc =
@@ -508,8 +569,7 @@ public class Escher2SBGN extends Escher2Standard<Sbgn> {
       // Create cardinality labels for the edges if necessary.
       Glyph
       cardinalityGlyph =
-      builder.createGlyph(
-        SBMLtools.toSId(cardinalityGlyphPrefix + metabolite.getNodeRefId()),
+      builder.createGlyph(cardinalityGlyphPrefix + arc.getId(),
         StringTools.toString(Locale.ENGLISH, coeff),
         GlyphType.cardinality);
       double width = getPrimaryNodeWidth() * getReactionNodeRatio();
@@ -525,10 +585,10 @@ public class Escher2SBGN extends Escher2Standard<Sbgn> {
             end.isMetabolite() && end.isPrimary() ? 1d :
               getSecondaryNodeRatio();
         x =
-            convertCoordinate(end.getX(), xOffset)
+            convertCoordinate(end.x(), xOffset)
             - getPrimaryNodeWidth() * ratio;
         y =
-            convertCoordinate(end.getY(), yOffset)
+            convertCoordinate(end.y(), yOffset)
             - getPrimaryNodeHeight() * ratio;
       } else {
         targetSegment = reaction.getSegment(connectedSegments.get(0));
@@ -537,10 +597,10 @@ public class Escher2SBGN extends Escher2Standard<Sbgn> {
             start.isMetabolite() && start.isPrimary() ? 1d :
               getSecondaryNodeRatio();
         x =
-            convertCoordinate(start.getX(), xOffset)
+            convertCoordinate(start.x(), xOffset)
             - getPrimaryNodeWidth() * ratio;
         y =
-            convertCoordinate(start.getY(), yOffset)
+            convertCoordinate(start.y(), yOffset)
             - getPrimaryNodeHeight() * ratio;
       }
       cardinalityGlyph.setBbox(builder.createBbox(x, y, width, height));
@@ -554,8 +614,8 @@ public class Escher2SBGN extends Escher2Standard<Sbgn> {
       if (nextNode != target) {
         Next
         next =
-        builder.createArcNext(convertCoordinate(nextNode.getX(), xOffset),
-          convertCoordinate(nextNode.getY(), yOffset));
+        builder.createArcNext(convertCoordinate(nextNode.x(), xOffset),
+          convertCoordinate(nextNode.y(), yOffset));
         if (segment.isSetBasePoint1()) {
           next.getPoint()
           .add(convertPoint(segment.getBasePoint1(), xOffset, yOffset));
@@ -607,28 +667,28 @@ public class Escher2SBGN extends Escher2Standard<Sbgn> {
             sourceBase = sourceBase2 = node2glyph.get(og_midmarker.getId());
             targetBase = node2glyph.get(metaboliteNode.getId());
             targetBase2 = node2glyph.get(SBMLtools.toSId(og_midmarker.getId() + exchangeSuffix));
-            x1 = new_midmarker_point.getX();
-            y1 = new_midmarker_point.getY();
-            x2 = metaboliteNode.getX();
-            y2 = metaboliteNode.getY();
+            x1 = new_midmarker_point.x();
+            y1 = new_midmarker_point.y();
+            x2 = metaboliteNode.x();
+            y2 = metaboliteNode.y();
         }
         else if(isProduct) {
             sourceBase = targetBase2 = node2glyph.get(og_midmarker.getId());
             sourceBase2 = node2glyph.get(SBMLtools.toSId(og_midmarker.getId() + sourceSuffix));
             targetBase = node2glyph.get(metaboliteNode.getId());
-            x1 = new_midmarker_point.getX();
-            y1 = new_midmarker_point.getY();
-            x2 = metaboliteNode.getX();
-            y2 = metaboliteNode.getY();
+            x1 = new_midmarker_point.x();
+            y1 = new_midmarker_point.y();
+            x2 = metaboliteNode.x();
+            y2 = metaboliteNode.y();
         }
         else {
             sourceBase = node2glyph.get(metaboliteNode.getId());
             targetBase = sourceBase2 = node2glyph.get(og_midmarker.getId());
             targetBase2 = node2glyph.get(SBMLtools.toSId(og_midmarker.getId() + sinkSuffix));
-            x1 = metaboliteNode.getX();
-            y1 = metaboliteNode.getY();
-            x2 = new_midmarker_point.getX();
-            y2 = new_midmarker_point.getY();
+            x1 = metaboliteNode.x();
+            y1 = metaboliteNode.y();
+            x2 = new_midmarker_point.x();
+            y2 = new_midmarker_point.y();
         }
 
 
@@ -648,30 +708,28 @@ public class Escher2SBGN extends Escher2Standard<Sbgn> {
                 isReversible || !isProduct ? ArcType.production : ArcType.consumption);
         ex_arc.setStart(builder.createArcStart(convertCoordinate(x1, xOffset),
                 convertCoordinate(y1, yOffset)));
-        ex_arc.setEnd(builder.createArcEnd(convertCoordinate(og_midmarker.getX(), xOffset),
-                convertCoordinate(og_midmarker.getY(), yOffset)));
+        ex_arc.setEnd(builder.createArcEnd(convertCoordinate(og_midmarker.x(), xOffset),
+                convertCoordinate(og_midmarker.y(), yOffset)));
 
         coeff = Math.abs(coeff);
         if(coeff != 1d) {
             Glyph cardinalityGlyph =
-                    builder.createGlyph(
-                            SBMLtools.toSId(cardinalityGlyphPrefix + metabolite.getNodeRefId()),
+                    builder.createGlyph(cardinalityGlyphPrefix + arc.getId(),
                             StringTools.toString(Locale.ENGLISH, coeff),
                             GlyphType.cardinality);
             Glyph cardinalityGlyphEx =
-                    builder.createGlyph(
-                            SBMLtools.toSId(cardinalityGlyphPrefix + metabolite.getNodeRefId() + exchangeSuffix),
+                    builder.createGlyph(cardinalityGlyphPrefix + ex_arc.getId(),
                             StringTools.toString(Locale.ENGLISH, coeff),
                             GlyphType.cardinality);
             double width = getPrimaryNodeWidth() * getReactionNodeRatio();
             double height = getPrimaryNodeHeight() * getReactionNodeRatio();
             double x, y = 1d;
-            x = convertCoordinate(og_midmarker.getX(), xOffset) - getPrimaryNodeWidth();
-            y = convertCoordinate(og_midmarker.getY(), yOffset) - getPrimaryNodeHeight();
+            x = convertCoordinate(og_midmarker.x(), xOffset) - getPrimaryNodeWidth();
+            y = convertCoordinate(og_midmarker.y(), yOffset) - getPrimaryNodeHeight();
             cardinalityGlyph.setBbox(builder.createBbox(x, y, width, height));
             arc.getGlyph().add(cardinalityGlyph);
-            x = convertCoordinate(metaboliteNode.getX(), xOffset) - getPrimaryNodeWidth();
-            y = convertCoordinate(metaboliteNode.getY(), yOffset) - getPrimaryNodeHeight();
+            x = convertCoordinate(metaboliteNode.x(), xOffset) - getPrimaryNodeWidth();
+            y = convertCoordinate(metaboliteNode.y(), yOffset) - getPrimaryNodeHeight();
             cardinalityGlyphEx.setBbox(builder.createBbox(x, y, width, height));
             ex_arc.getGlyph().add(cardinalityGlyphEx);
         }
@@ -699,8 +757,8 @@ public class Escher2SBGN extends Escher2Standard<Sbgn> {
      */
     private org.sbgn.bindings.Point convertPoint(Point p, double xOffset,
                                                  double yOffset) {
-        return builder.createPoint(convertCoordinate(p.getX(), xOffset),
-                convertCoordinate(p.getY(), yOffset));
+        return builder.createPoint(convertCoordinate(p.x(), xOffset),
+                convertCoordinate(p.y(), yOffset));
     }
 
 
@@ -709,31 +767,28 @@ public class Escher2SBGN extends Escher2Standard<Sbgn> {
      * @param offset
      * @return
      */
-    private float convertCoordinate(Double coordinate, double offset) {
-        return (float) (SBGNbuilder.toDouble(coordinate) - offset);
+    private float convertCoordinate(double coordinate, double offset) {
+        return (float) (coordinate - offset);
     }
 
 
     /**
+     * Sets the width and height of a metabolite node unless these are already
+     * defined.
+     *
      * @param node
-     * @param escherMap
-     * @param multimarkers
-     * @param xOffset
-     * @param yOffset
-     * @return
      */
-    private Glyph convertMetabolite(Node node, EscherMap escherMap,
-                                    Map<String, Node> multimarkers, double xOffset, double yOffset) {
+    private void initSize(Node node) {
         double width = 0d, height = 0d;
         if (node.isSetHeight()) {
-            height = node.getHeight().doubleValue();
+            height = node.height();
         } else if (node.isSetPrimary()) {
             height =
                     (node.isPrimary() ? getPrimaryNodeHeight() :
                             getPrimaryNodeHeight() * getSecondaryNodeRatio());
         }
         if (node.isSetWidth()) {
-            width = node.getWidth().doubleValue();
+            width = node.width();
         } else if (node.isSetPrimary()) {
             width =
                     (node.isPrimary() ? getPrimaryNodeWidth() :
@@ -746,26 +801,41 @@ public class Escher2SBGN extends Escher2Standard<Sbgn> {
         if (!node.isSetHeight()) {
             node.setHeight(height);
         }
+    }
+
+
+    /**
+     * @param node
+     * @param escherMap
+     * @param multimarkers
+     * @param xOffset
+     * @param yOffset
+     * @return
+     */
+    private Glyph convertMetabolite(Node node, EscherMap escherMap,
+                                    Map<String, Node> multimarkers, double xOffset, double yOffset) {
+        initSize(node);
+        double width = node.width();
+        double height = node.height();
         double
                 x =
-                node.isSetX() ? convertCoordinate(node.getX(), xOffset) - width / 2d :
+                node.isSetX() ? convertCoordinate(node.x(), xOffset) - width / 2d :
                         0d;
         double
                 y =
-                node.isSetY() ? convertCoordinate(node.getY(), yOffset) - height / 2d :
+                node.isSetY() ? convertCoordinate(node.y(), yOffset) - height / 2d :
                         0d;
         // name the glyph and add the id globally
         Glyph
                 glyph =
                 builder.createGlyph(SBMLtools.toSId(node.getId()),
                         GlyphType.simple_chemical, x, y, height, width,
-                        node.isSetBiggId() && (escherMap.getNodes(node.getBiggId()).size()
-                                > 1));
+                        node.isSetBiggId() && (escherMap.getNodesCount(node.getBiggId()) > 1));
         if (node.isSetLabelX() && node.isSetLabelY()) {
             glyph.setLabel(builder
                     .createLabel(node.isSetName() ? node.getName() : node.getBiggId(),
-                            convertCoordinate(node.getLabelX(), xOffset),
-                            convertCoordinate(node.getLabelY(), yOffset),
+                            convertCoordinate(node.labelX(), xOffset),
+                            convertCoordinate(node.labelY(), yOffset),
                             Double.valueOf(getLabelWidth()),
                             Double.valueOf(getLabelHeight())));
         }
@@ -15,9 +15,9 @@ package edu.ucsd.sbrg.escher.converter;
 
 import static java.text.MessageFormat.format;
 
-import java.text.MessageFormat;
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import javax.xml.stream.XMLStreamException;
@@ -35,7 +35,9 @@ import edu.ucsd.sbrg.escher.model.Metabolite;
 import edu.ucsd.sbrg.escher.model.Node;
 import edu.ucsd.sbrg.escher.model.Point;
 import edu.ucsd.sbrg.escher.model.Segment;
+import edu.ucsd.sbrg.escher.model.SegmentAdjacency;
 import edu.ucsd.sbrg.escher.model.TextLabel;
+import edu.ucsd.sbrg.escher.util.IdAllocator;
 
 /**
  * This class takes an {@link EscherMap} as input and creates an
@@ -62,6 +64,15 @@ public class Escher2SBML extends Escher2Standard<SBMLDocument> {
     private double nodeLabelHeight;
     private double reactionLabelHeight;
     private double z;
+    /**
+     * Creates the numbered identifiers of the current conversion.
+     */
+    private IdAllocator ids;
+    /**
+     * Remembers for the mid- and multimarkers of the current map whether they
+     * are connected to a metabolite, see {@link #checkIfConnectedToMetabolite(Node, EscherMap)}.
+     */
+    private Map<String, Boolean> markerConnectivity;
 
 
     /* (non-Javadoc)
@@ -73,18 +84,28 @@ public class Escher2SBML extends Escher2Standard<SBMLDocument> {
         preprocessDataStructure(map);
         // needed for canvas size
         Canvas canvas = map.getCanvas();
-        double xOffset = canvas.isSetX() ? canvas.getX().doubleValue() : 0d;
-        double yOffset = canvas.isSetY() ? canvas.getY().doubleValue() : 0d;
-        double canvasWidth = canvas.getWidth();
-        double canvasHeight = canvas.getWidth();
+        double xOffset = canvas.isSetX() ? canvas.x() : 0d;
+        double yOffset = canvas.isSetY() ? canvas.y() : 0d;
+        double canvasWidth = canvas.width();
+        double canvasHeight = canvas.width();
         Map<String, String> node2glyph = new HashMap<String, String>();
         Map<String, Node> multimarkers = new HashMap<String, Node>();
         Layout layout = initLayout(map, xOffset, yOffset);
+        ids = new IdAllocator(layout.getModel()::containsUniqueNamedSBase);
+        markerConnectivity = new HashMap<String, Boolean>();
         for (Map.Entry<String, Node> entry : map.nodes()) {
             convertNode(entry.getValue(), map, node2glyph, multimarkers, layout, xOffset, yOffset);
         }
+        // The geometry of the reactions is computed independently of each other, but the glyphs are added to the
+        // layout on this thread in the original order of the reactions, so that the identifiers do not depend on
+        // the number of threads.
+        List<EscherReaction> reactions = new ArrayList<EscherReaction>(map.getReactionCount());
         for (Map.Entry<String, EscherReaction> entry : map.reactions()) {
-            convertReaction(entry.getValue(), map, layout, node2glyph, xOffset, yOffset);
+            reactions.add(entry.getValue());
+        }
+        for (PreparedReaction prepared : computeAll(reactions,
+                reaction -> prepareReaction(reaction, map, xOffset, yOffset))) {
+            convertReaction(prepared, map, layout, node2glyph, xOffset, yOffset);
         }
         for (Map.Entry<String, TextLabel> entry : map.textLabels()) {
             createTextGlyph(entry.getValue(), layout, xOffset, yOffset);
@@ -98,6 +119,11 @@ public class Escher2SBML extends Escher2Standard<SBMLDocument> {
                 }
             }
         }
+        counters.add("species glyphs", layout.getSpeciesGlyphCount());
+        counters.add("reaction glyphs", layout.getReactionGlyphCount());
+        counters.add("text glyphs", layout.getTextGlyphCount());
+        counters.add("compartment glyphs", layout.getCompartmentGlyphCount());
+        counters.logSummary(logger);
         return layout.getSBMLDocument();
     }
 
@@ -120,34 +146,30 @@ public class Escher2SBML extends Escher2Standard<SBMLDocument> {
         double y;
         double width;
         double height;
-        if (ec.getX() == null) {
+        if (!ec.isSetX()) {
             x = xOffset;
-            logger.severe(format(bundle.getString("Escher2SBML.inferredCompartmentXoffset"),
-                    ec.getName(), xOffset));
+            counters.log(logger, Level.SEVERE, "Escher2SBML.inferredCompartmentXoffset", ec.getName(), xOffset);
         } else {
-            x = ec.getX() - xOffset - getPrimaryNodeWidth();
+            x = ec.x() - xOffset - getPrimaryNodeWidth();
 
         }
-        if (ec.getY() == null) {
+        if (!ec.isSetY()) {
             y = yOffset;
-            logger.severe(format(bundle.getString("Escher2SBML.inferredCompartmentYoffset"),
-                    ec.getName(), yOffset));
+            counters.log(logger, Level.SEVERE, "Escher2SBML.inferredCompartmentYoffset", ec.getName(), yOffset);
         } else {
-            y = ec.getY() - yOffset - getPrimaryNodeWidth();
+            y = ec.y() - yOffset - getPrimaryNodeWidth();
         }
-        if (ec.getWidth() == null) {
+        if (!ec.isSetWidth()) {
             width = canvasWidth;
-            logger.severe(format(bundle.getString("Escher2SBML.inferredCompartmentWidth"),
-                    ec.getName(), canvasWidth));
+            counters.log(logger, Level.SEVERE, "Escher2SBML.inferredCompartmentWidth", ec.getName(), canvasWidth);
         } else {
-            width = ec.getWidth();
+            width = ec.width();
         }
-        if (ec.getHeight() == null) {
+        if (!ec.isSetHeight()) {
             height = canvasHeight;
-            logger.severe(format(bundle.getString("Escher2SBML.inferredCompartmentHeight"),
-                    ec.getName(), canvasHeight));
+            counters.log(logger, Level.SEVERE, "Escher2SBML.inferredCompartmentHeight", ec.getName(), canvasHeight);
         } else {
-            height = ec.getHeight();
+            height = ec.height();
         }
         cg.createBoundingBox(width, height, getNodeDepth(), x, y, getZ());
         cg.setCompartment(SBMLtools.toSId(ec.getId()));
@@ -210,19 +232,12 @@ public class Escher2SBML extends Escher2Standard<SBMLDocument> {
      */
     private void convertExchange(Node node, Map<String, String> node2glyph,
                                  Layout layout, double xOffset, double yOffset) {
-        Model model = layout.getModel();
-        String id = "empty_set";
-        int i = 0;
-        do {
-            i++;
-        } while (model.containsUniqueNamedSBase(id + "_" + i));
-        id += "_" + i;
+        String id = ids.createNumberedId("empty_set" + IdAllocator.SEPARATOR);
         //TODO!
         SpeciesGlyph emptySet = layout.createSpeciesGlyph(id);
-        emptySet.createBoundingBox(node.getWidth() / 2d, node.getHeight() / 2d,
-                getNodeDepth(), node.getX() - xOffset, node.getY() - yOffset, getZ());
-        logger.warning(format(bundle.getString("Escher2SBML.exchangeNotSupported"),
-                node.getId()));
+        emptySet.createBoundingBox(node.width() / 2d, node.height() / 2d,
+                getNodeDepth(), node.x() - xOffset, node.y() - yOffset, getZ());
+        counters.log(logger, Level.WARNING, "Escher2SBML.exchangeNotSupported", node.getId());
     }
 
 
@@ -235,30 +250,29 @@ public class Escher2SBML extends Escher2Standard<SBMLDocument> {
     private void convertMultimarker(Node node, EscherMap escherMap, Map<String, Node> multimarkers,
                                     double xOffset, double yOffset, Map<String, String> node2glyph, Layout layout) {
         // Check if multimarker is connected to at least one metabolite, if not, multimarker is not converted
-        if (checkIfConnectedToMetabolite(node.getConnectedSegments(), escherMap)) {
+        if (checkIfConnectedToMetabolite(node, escherMap)) {
             if (node.isSetId()) {
                 // If Reaction multimarker is belonging to is exchange reaction and drawn as a straight line then put
                 // multimarker at half the distance from before
-                EscherReaction escherReaction = escherMap.getReaction(extractReactionId(node.getConnectedSegments()));
+                EscherReaction escherReaction = escherMap.getReaction(extractReactionId(node, escherMap));
                 String nodeRefId = escherReaction.getMetaboliteList().get(0).getNodeRefId();
                 boolean isExchange = escherReaction.getMetaboliteCount() == 1;
-                boolean isStraight = checkIfAllSegmentsStraight(escherReaction.getSegments().values(), escherMap);
-                if (isExchange && isStraight && (nodeRefId != null)) {
+                // Only look at all segments of the reaction if needed, because the reaction can have many multimarkers.
+                if (isExchange && (nodeRefId != null)
+                        && checkIfAllSegmentsStraight(escherReaction.getSegments().values(), escherMap)) {
                     Node metNode = escherMap.getNode(nodeRefId);
-                    double x = metNode.getX() + (node.getX() - metNode.getX()) / 2d;
-                    double y = metNode.getY() + (node.getY() - metNode.getY()) / 2d;
+                    double x = metNode.x() + (node.x() - metNode.x()) / 2d;
+                    double y = metNode.y() + (node.y() - metNode.y()) / 2d;
                     node.setX(x);
                     node.setY(y);
                 }
                 // process these later...
                 multimarkers.put(node.getId(), node);
             } else {
-                logger.warning(format(bundle.getString("Escher2SBML.undefinedID"),
-                        node.toString()));
+                counters.log(logger, Level.WARNING, "Escher2SBML.undefinedID", node);
             }
         } else {
-            logger.warning(format(bundle.getString("Escher2SBML.disconnectedMarker"),
-                    node.getType(), node.toString()));
+            counters.log(logger, Level.WARNING, "Escher2SBML.disconnectedMarker", node.getType(), node);
         }
     }
 
@@ -274,140 +288,228 @@ public class Escher2SBML extends Escher2Standard<SBMLDocument> {
     private void convertTextLabel(Node node, Layout layout, double xOffset,
                                   double yOffset) {
         createTextGlyph(node, layout, xOffset, yOffset);
-        logger.info(format(bundle.getString("Escher2SBML.skippingNode"), node.toString()));
+        logger.fine(() -> format(bundle.getString("Escher2SBML.skippingNode"), node));
     }
 
 
     /**
-     * Converts an {@link EscherReaction} to a {@link ReactionGlyph}
+     * Everything about an {@link EscherReaction} that can be determined
+     * without the {@link Layout}, see
+     * {@link Escher2SBML#prepareReaction(EscherReaction, EscherMap, double, double)}.
+     */
+    private static class PreparedReaction {
+
+        /**
+         * The reaction to be converted.
+         */
+        private final EscherReaction escherReaction;
+        /**
+         * Whether all segments of the reaction are roughly straight.
+         */
+        private boolean isStraight;
+        /**
+         * The node of the exchanged metabolite if the reaction is an exchange reaction.
+         */
+        private Node metNode;
+        /**
+         * The node of the metabolite in the extracellular space if the reaction
+         * is an exchange reaction. Its id is not set if the reaction has no
+         * marker at its end.
+         */
+        private Node exchangeNode;
+        /**
+         * The new position of the reaction label if the reaction is a straight
+         * exchange reaction.
+         */
+        private double labelX = Double.NaN;
+        private double labelY = Double.NaN;
+        /**
+         * Messages to be logged when the reaction is added to the layout.
+         */
+        private final List<Problem> problems = new ArrayList<Problem>();
+        /**
+         * All segments of the reaction in their original order.
+         */
+        private final List<PreparedSegment> segments = new ArrayList<PreparedSegment>();
+
+
+        /**
+         * @param escherReaction
+         */
+        private PreparedReaction(EscherReaction escherReaction) {
+            this.escherReaction = escherReaction;
+        }
+
+    }
+
+
+    /**
+     * A message key of a {@link PreparedReaction} and its arguments, which are
+     * only formatted if the message is logged.
+     */
+    private static class Problem {
+
+        private final String   key;
+        private final Object[] arguments;
+
+
+        /**
+         * @param key
+         * @param arguments
+         */
+        private Problem(String key, Object... arguments) {
+            this.key = key;
+            this.arguments = arguments;
+        }
+
+    }
+
+
+    /**
+     * An oriented {@link Segment} of a {@link PreparedReaction}.
+     */
+    private static class PreparedSegment {
+
+        /**
+         * The segment, oriented from a reactant or towards a product.
+         */
+        private final Segment segment;
+        /**
+         * BiGG id of the metabolite whose node the segment touches, or {@code null}.
+         */
+        private final String  metaboliteId;
+        /**
+         * Whether the segment has been reversed, because it ends in a product.
+         */
+        private final boolean isProduct;
+        /**
+         * Whether the segment is drawn as a cubic B&eacute;zier curve rather
+         * than a straight line.
+         */
+        private final boolean isCubic;
+        /**
+         * The x and y coordinates of the start, the end, and both base points
+         * of the segment in the layout, in this order.
+         */
+        private final double[] points = new double[8];
+
+
+        /**
+         * @param segment
+         * @param metaboliteId
+         * @param isProduct
+         * @param escherMap
+         * @param xOffset
+         * @param yOffset
+         */
+        private PreparedSegment(Segment segment, String metaboliteId, boolean isProduct,
+                                EscherMap escherMap, double xOffset, double yOffset) {
+            this.segment = segment;
+            this.metaboliteId = metaboliteId;
+            this.isProduct = isProduct;
+            Node fromNode = escherMap.getNode(segment.getFromNodeId());
+            Node toNode = escherMap.getNode(segment.getToNodeId());
+            Point basePoint1 = segment.getBasePoint1();
+            Point basePoint2 = segment.getBasePoint2();
+            isCubic = (basePoint1 != null) && (basePoint2 != null);
+            Arrays.fill(points, Double.NaN);
+            // TODO: calculate correct end points using intersection of node borders.
+            //			List<Point> intersections = Geometry.intersectBezier3Ellipse(new Point(x, y), new Point(basePoint1.getX(), basePoint1.getY()), new Point(basePoint2.getX(), basePoint2.getY()), new Point(toNode.getX() - xOffset, toNode.getY() - yOffset), new Point(x, y), width, height);
+            //			if (intersections.size() > 0) {
+            //				Point start = intersections.get(0);
+            //				x = start.getX();
+            //				y = start.getY();
+            //			}
+            if (fromNode != null) {
+                points[0] = fromNode.x() - xOffset;
+                points[1] = fromNode.y() - yOffset;
+            }
+            if (toNode != null) {
+                points[2] = toNode.x() - xOffset;
+                points[3] = toNode.y() - yOffset;
+            }
+            if (isCubic) {
+                points[4] = basePoint1.x() - xOffset;
+                points[5] = basePoint1.y() - yOffset;
+                points[6] = basePoint2.x() - xOffset;
+                points[7] = basePoint2.y() - yOffset;
+            }
+        }
+
+
+        /**
+         * Swaps start and end as well as both base points, as
+         * {@link Escher2Standard#reverse(Segment)} does for the segment.
+         */
+        private void reverse() {
+            for (int i = 0; i < 8; i += 4) {
+                double x = points[i];
+                double y = points[i + 1];
+                points[i] = points[i + 2];
+                points[i + 1] = points[i + 3];
+                points[i + 2] = x;
+                points[i + 3] = y;
+            }
+        }
+
+    }
+
+
+    /**
+     * Determines everything about the given reaction that does not depend on
+     * the {@link Layout}: whether it is drawn straight, in which direction
+     * its segments point, and the coordinates of all curve segments and of
+     * the node for the exchanged metabolite. The segments of an exchange
+     * reaction are moved closer to the metabolite if they are straight. This
+     * only modifies the segments of the given reaction and can hence be done
+     * for several reactions at the same time.
      *
      * @param escherReaction The reaction to be converted
      * @param escherMap      The {@link EscherMap} the {@code escherReaction} is in
-     * @param layout         The {@link Layout} object of the SBML model
-     * @param node2glyph     A hash map of the node ids and their converted glyph ids
      * @param xOffset        x-offset of the document
      * @param yOffset        y-offset of the document
+     * @return The data for
+     * {@link #convertReaction(PreparedReaction, EscherMap, Layout, Map, double, double)}
      */
-    private Reaction convertReaction(EscherReaction escherReaction,
-                                     EscherMap escherMap, Layout layout, Map<String, String> node2glyph,
-                                     double xOffset, double yOffset) {
+    private PreparedReaction prepareReaction(EscherReaction escherReaction, EscherMap escherMap,
+                                             double xOffset, double yOffset) {
+        PreparedReaction prepared = new PreparedReaction(escherReaction);
         Metabolite met = escherReaction.getMetaboliteList().get(0);
         boolean isExchange = (escherReaction.getMetaboliteCount() == 1);
         boolean isFirstNodeRefIdSet = met.isSetNodeRefId();
-        Node metNode = null;
         if (isExchange && isFirstNodeRefIdSet) {
-            metNode = escherMap.getNode(met.getNodeRefId());
-            String exchangeNodeId = metNode.getId() + exchangeSuffix;
-            // If reaction is exchange reaction a new node has to be created representing the metabolite in the
-            // extracellular space.
-            if (!node2glyph.containsKey(metabolitePrefix + exchangeNodeId)) {
-                boolean isStraight = checkIfAllSegmentsStraight(escherReaction.getSegments().values(), escherMap);
-                Node lastNode;
-                Node exchangeNode = new Node();
-                // Find Multimarker (or Midmarker) at the end of the reaction (only connected to a single segment)
-                // and create new metabolite marker at this position for the exchanged metabolite
-                for (String nodeID : escherReaction.getNodes()) {
-                    lastNode = escherMap.getNode(nodeID);
-                    if ((lastNode.getConnectedSegments(escherReaction.getId()).size() == 1) && !lastNode.isMetabolite()) {
-                        exchangeNode.setId(exchangeNodeId);
-                        if (isStraight) {
-                            exchangeNode.setX(metNode.getX() + (lastNode.getX() - metNode.getX()) * 2d);
-                            exchangeNode.setY(metNode.getY() + (lastNode.getY() - metNode.getY()) * 2d);
-                        } else {
-                            exchangeNode.setX(lastNode.getX());
-                            exchangeNode.setY(lastNode.getY());
-                        }
-                        exchangeNode.setHeight(metNode.getHeight());
-                        exchangeNode.setWidth(metNode.getWidth());
-                        exchangeNode.setName(metNode.getName() + exchangeSuffix);
-                        exchangeNode.setBiggId(metNode.getBiggId() + exchangeSuffix);
-                        exchangeNode.setLabelX(exchangeNode.getX() + 20);
-                        exchangeNode.setLabelY(exchangeNode.getY() + 20);
-                        convertMetabolite(exchangeNode, node2glyph, layout, xOffset, yOffset);
-                        break;
-                    }
-                }
-                // If all segments of the reaction are roughly straight the label of the reaction also has to be moved
-                // Therefore the label is moved to the vicinity of the midmarker. The label is placed on a circle with
-                // a radius of 20 around the midmarker, whereby is exact orientation is dependent on the orientation of the
-                // reaction segments to the horizontal axis (0: horizontal, 1:vertical).
-                if (isStraight) {
-                    String[] reacNodeIDs = new String[escherReaction.getNodes().size()];
-                    escherReaction.getNodes().toArray(reacNodeIDs);
-                    double dx = Math.abs(metNode.getX() - exchangeNode.getX());
-                    double dy = Math.abs(metNode.getY() - exchangeNode.getY());
-                    double orient = Math.abs(Math.atan(dy / dx) / (Math.PI / 2d));
-                    double midPointX = metNode.getX() + (exchangeNode.getX() - metNode.getX()) / 2d;
-                    double midPointY = metNode.getY() + (exchangeNode.getY() - metNode.getY()) / 2d;
-                    escherReaction.setLabelX(midPointX + orient * 20);
-                    escherReaction.setLabelY(midPointY + (1 - orient) * 20);
-                }
-            }
+            prepared.metNode = escherMap.getNode(met.getNodeRefId());
         }
-        ReactionGlyph rGlyph = createReactionGlyph(escherReaction, layout, node2glyph, xOffset, yOffset);
-        Reaction reaction = (Reaction) rGlyph.getReactionInstance();
-        // For exchange reaction the species reference glyphs have to be created for the previously created node
-        // of the exchange metabolite
-        if (isExchange && isFirstNodeRefIdSet) {
-            String id = metNode.getId() + exchangeSuffix;
-            SpeciesGlyph sGlyph = layout.getSpeciesGlyph(speciesGlyphPrefix + id);
-            SpeciesReferenceGlyph srGlyph;
-            String srGlyphId = escherReaction.getId() + speciesReferenceGlyphInfix + metNode.getBiggId() + exchangeSuffix;
-            if (sGlyph != null) {
-                sGlyph.setSBOTerm(291); // turns the node into an empty set node
-                srGlyphId = srGlyphId.replaceAll("\\+", "");
-                srGlyph = rGlyph.createSpeciesReferenceGlyph(SBMLtools.toSId(srGlyphId), sGlyph.getId());
-                if (met.getCoefficient() < 0d) {
-                    srGlyph.setRole(SpeciesReferenceRole.PRODUCT);
-                } else {
-                    srGlyph.setRole(SpeciesReferenceRole.SUBSTRATE);
-                }
-            }
-        }
-        if (escherReaction.isSetGeneReactionRule()) {
-            // TODO
-        }
-        // Go through each metabolite and connect it to the reaction.
-        Map<String, SpeciesReferenceGlyph> srgMap = new HashMap<String, SpeciesReferenceGlyph>();
-        for (Map.Entry<String, Metabolite> entry : escherReaction.getMetabolites().entrySet()) {
-            Metabolite metabolite = entry.getValue();
-            if (metabolite.getId() != null) {
-                // Each metabolite can be represented in multiple nodes, so we need to find those in this reaction, but also these can be multiple...
-                Set<Node> setOfNodes = escherReaction.intersect(escherMap.getNodes(metabolite.getId()));
-                srgMap.putAll(createSpeciesReferenceGlyphs(metabolite, setOfNodes, layout, node2glyph, rGlyph, reaction));
-            }
-        }
-
-        // Create a set of all segments to be processed
-        Set<Segment> segments = new HashSet<Segment>();
-        boolean isStraight = checkIfAllSegmentsStraight(escherReaction.getSegments().values(), escherMap);
+        prepared.isStraight = checkIfAllSegmentsStraight(escherReaction.getSegments().values(), escherMap);
+        Node metNode = prepared.metNode;
+        boolean isStraight = prepared.isStraight;
         for (Entry<String, Segment> entry : escherReaction.segments()) {
             Segment segment = entry.getValue();
             Node fromNode = escherMap.getNode(segment.getFromNodeId());
             Node toNode = escherMap.getNode(segment.getToNodeId());
-            SpeciesReferenceGlyph srGlyph = null;
+            String metaboliteId = null;
             boolean isProduct = false;
             // If all reaction is exchange reaction and all its segments are roughly straight then put their
             // base points at the halfway point
             if (isExchange && isStraight && isFirstNodeRefIdSet) {
                 Point bp1 = segment.getBasePoint1();
                 Point bp2 = segment.getBasePoint2();
-                double metX = metNode.getX();
-                double metY = metNode.getY();
+                double metX = metNode.x();
+                double metY = metNode.y();
                 if (bp1 != null) {
-                    bp1.setX(metX + (bp1.getX() - metX) / 2d);
-                    bp1.setY(metY + (bp1.getY() - metY) / 2d);
+                    bp1.setX(metX + (bp1.x() - metX) / 2d);
+                    bp1.setY(metY + (bp1.y() - metY) / 2d);
                     segment.setBasePoint1(bp1);
                 }
                 if (bp2 != null) {
-                    bp2.setX(metX + (bp2.getX() - metX) / 2d);
-                    bp2.setY(metY + (bp2.getY() - metY) / 2d);
+                    bp2.setX(metX + (bp2.x() - metX) / 2d);
+                    bp2.setY(metY + (bp2.y() - metY) / 2d);
                     segment.setBasePoint2(bp2);
                 }
             }
             if ((toNode != null) && (fromNode != null)) {
                 if (fromNode.isMetabolite()) {
-                    srGlyph = srgMap.get(fromNode.getBiggId());
+                    metaboliteId = fromNode.getBiggId();
                     //				if (!fromNode.isSetBiggId() || (escherReaction.getMetabolite(fromNode.getBiggId()) == null) || !escherReaction.getMetabolite(fromNode.getBiggId()).isSetCoefficient()) {
                     //				}
                     Metabolite m = escherReaction.getMetabolite(fromNode.getBiggId());
@@ -417,19 +519,17 @@ public class Escher2SBML extends Escher2Standard<SBMLDocument> {
                             isProduct = true;
                         } else {
                             //TODO: Localize
-                            logger.severe(MessageFormat
-                                    .format(bundle.getString("Escher2SBML.noNodeWithBiGGId"),
-                                            fromNode.getBiggId()));
+                            prepared.problems.add(new Problem("Escher2SBML.noNodeWithBiGGId",
+                                    fromNode.getBiggId()));
                         }
                     }
                 } else if (toNode.isMetabolite()) {
-                    srGlyph = srgMap.get(toNode.getBiggId());
+                    metaboliteId = toNode.getBiggId();
                     Metabolite
                             metabolite =
                             escherReaction.getMetabolite(toNode.getBiggId());
                     if (metabolite == null) {
-                        logger.severe(format(
-                                bundle.getString("Escher2SBML.metaboliteWithoutStoichiometry"),
+                        prepared.problems.add(new Problem("Escher2SBML.metaboliteWithoutStoichiometry",
                                 toNode.getBiggId(), escherReaction.getBiggId()));
                     } else if (metabolite.getCoefficient() <= 0d) {
                         segment = reverse(segment);
@@ -438,33 +538,159 @@ public class Escher2SBML extends Escher2Standard<SBMLDocument> {
                     }
                 }
             }
+            prepared.segments.add(new PreparedSegment(segment, metaboliteId, isProduct, escherMap, xOffset, yOffset));
+        }
+        if (isExchange && isFirstNodeRefIdSet) {
+            String exchangeNodeId = metNode.getId() + exchangeSuffix;
+            Node lastNode;
+            Node exchangeNode = new Node();
+            // Find Multimarker (or Midmarker) at the end of the reaction (only connected to a single segment)
+            // and create new metabolite marker at this position for the exchanged metabolite
+            for (String nodeID : escherReaction.getNodes()) {
+                lastNode = escherMap.getNode(nodeID);
+                List<String> lastSegments = escherMap.getConnectedSegments(nodeID, escherReaction.getId());
+                if ((lastSegments != null) && (lastSegments.size() == 1) && !lastNode.isMetabolite()) {
+                    exchangeNode.setId(exchangeNodeId);
+                    if (isStraight) {
+                        exchangeNode.setX(metNode.x() + (lastNode.x() - metNode.x()) * 2d);
+                        exchangeNode.setY(metNode.y() + (lastNode.y() - metNode.y()) * 2d);
+                    } else {
+                        exchangeNode.setX(lastNode.x());
+                        exchangeNode.setY(lastNode.y());
+                    }
+                    exchangeNode.setHeight(metNode.height());
+                    exchangeNode.setWidth(metNode.width());
+                    exchangeNode.setName(metNode.getName() + exchangeSuffix);
+                    exchangeNode.setBiggId(metNode.getBiggId() + exchangeSuffix);
+                    exchangeNode.setLabelX(exchangeNode.x() + 20);
+                    exchangeNode.setLabelY(exchangeNode.y() + 20);
+                    break;
+                }
+            }
+            prepared.exchangeNode = exchangeNode;
+            // If all segments of the reaction are roughly straight the label of the reaction also has to be moved
+            // Therefore the label is moved to the vicinity of the midmarker. The label is placed on a circle with
+            // a radius of 20 around the midmarker, whereby is exact orientation is dependent on the orientation of the
+            // reaction segments to the horizontal axis (0: horizontal, 1:vertical).
+            if (isStraight) {
+                double dx = Math.abs(metNode.x() - exchangeNode.x());
+                double dy = Math.abs(metNode.y() - exchangeNode.y());
+                double orient = Math.abs(Math.atan(dy / dx) / (Math.PI / 2d));
+                double midPointX = metNode.x() + (exchangeNode.x() - metNode.x()) / 2d;
+                double midPointY = metNode.y() + (exchangeNode.y() - metNode.y()) / 2d;
+                prepared.labelX = midPointX + orient * 20;
+                prepared.labelY = midPointY + (1 - orient) * 20;
+            }
+        }
+        return prepared;
+    }
+
+
+    /**
+     * Converts an {@link EscherReaction} to a {@link ReactionGlyph}
+     *
+     * @param prepared       The reaction to be converted as returned by
+     *                       {@link #prepareReaction(EscherReaction, EscherMap, double, double)}
+     * @param escherMap      The {@link EscherMap} the reaction is in
+     * @param layout         The {@link Layout} object of the SBML model
+     * @param node2glyph     A hash map of the node ids and their converted glyph ids
+     * @param xOffset        x-offset of the document
+     * @param yOffset        y-offset of the document
+     */
+    private Reaction convertReaction(PreparedReaction prepared,
+                                     EscherMap escherMap, Layout layout, Map<String, String> node2glyph,
+                                     double xOffset, double yOffset) {
+        EscherReaction escherReaction = prepared.escherReaction;
+        Metabolite met = escherReaction.getMetaboliteList().get(0);
+        boolean isExchange = (escherReaction.getMetaboliteCount() == 1);
+        boolean isFirstNodeRefIdSet = met.isSetNodeRefId();
+        Node metNode = prepared.metNode;
+        if (isExchange && isFirstNodeRefIdSet) {
+            Node exchangeNode = prepared.exchangeNode;
+            // If reaction is exchange reaction a new node has to be created representing the metabolite in the
+            // extracellular space.
+            if (!node2glyph.containsKey(metabolitePrefix + metNode.getId() + exchangeSuffix)) {
+                if (exchangeNode.isSetId()) {
+                    convertMetabolite(exchangeNode, node2glyph, layout, xOffset, yOffset);
+                }
+                if (prepared.isStraight) {
+                    escherReaction.setLabelX(prepared.labelX);
+                    escherReaction.setLabelY(prepared.labelY);
+                }
+            }
+        }
+        ReactionGlyph rGlyph = createReactionGlyph(escherReaction, layout, node2glyph, xOffset, yOffset);
+        Reaction reaction = (Reaction) rGlyph.getReactionInstance();
+        // For exchange reaction the species reference glyphs have to be created for the previously created node
+        // of the exchange metabolite
+        if (isExchange && isFirstNodeRefIdSet) {
+            String id = metNode.getId() + exchangeSuffix;
+            SpeciesGlyph sGlyph = findGlyph(layout, speciesGlyphPrefix + id, SpeciesGlyph.class);
+            SpeciesReferenceGlyph srGlyph;
+            String srGlyphId = escherReaction.getId() + speciesReferenceGlyphInfix + metNode.getBiggId() + exchangeSuffix;
+            if (sGlyph != null) {
+                sGlyph.setSBOTerm(291); // turns the node into an empty set node
+                srGlyphId = srGlyphId.replaceAll("\\+", "");
+                srGlyph = rGlyph.createSpeciesReferenceGlyph(SBMLtools.toSId(srGlyphId), sGlyph.getId());
+                if (met.getCoefficient() < 0d) {
+                    srGlyph.setRole(SpeciesReferenceRole.PRODUCT);
+                } else {
+                    srGlyph.setRole(SpeciesReferenceRole.SUBSTRATE);
+                }
+            }
+        }
+        if (escherReaction.isSetGeneReactionRule()) {
+            // TODO
+        }
+        // Go through each metabolite and connect it to the reaction.
+        Map<String, SpeciesReferenceGlyph> srgMap = new HashMap<String, SpeciesReferenceGlyph>();
+        for (Map.Entry<String, Metabolite> entry : escherReaction.getMetabolites().entrySet()) {
+            Metabolite metabolite = entry.getValue();
+            if (metabolite.getId() != null) {
+                // Each metabolite can be represented in multiple nodes, so we need to find those in this reaction, but also these can be multiple...
+                Set<Node> setOfNodes = escherMap.getNodes(escherReaction.getId(), metabolite.getId());
+                srgMap.putAll(createSpeciesReferenceGlyphs(metabolite, setOfNodes, layout, node2glyph, rGlyph, reaction));
+            }
+        }
+
+        // Create a set of all segments to be processed
+        Set<Segment> segments = new HashSet<Segment>();
+        Map<Segment, PreparedSegment> segment2prepared = new IdentityHashMap<Segment, PreparedSegment>();
+        for (Problem problem : prepared.problems) {
+            counters.log(logger, Level.SEVERE, problem.key, problem.arguments);
+        }
+        for (PreparedSegment preparedSegment : prepared.segments) {
+            Segment segment = preparedSegment.segment;
+            SpeciesReferenceGlyph srGlyph = preparedSegment.metaboliteId != null ?
+                    srgMap.get(preparedSegment.metaboliteId) : null;
             if (srGlyph != null) {
-                LineSegment ls = convertSegment(segment, escherMap, srGlyph.createCurve(), xOffset, yOffset);
+                LineSegment ls = convertSegment(preparedSegment, srGlyph.createCurve());
                 // memorize the toNode id of the segment in the lineSegment to make access easier later on.
                 ls.putUserObject(ESCHER_NODE_LINK,
-                        isProduct ? segment.getFromNodeId() : segment.getToNodeId());
+                        preparedSegment.isProduct ? segment.getFromNodeId() : segment.getToNodeId());
             } else {
                 segments.add(segment);
+                segment2prepared.put(segment, preparedSegment);
             }
         }
 
         Set<Segment> done = new HashSet<Segment>();
+        SegmentAdjacency connectedSegments = escherMap.getConnectedSegments();
         for (
                 SpeciesReferenceGlyph srGlyph : srgMap.values()) {
             Curve curve = srGlyph.getCurve();
             Node toNode = escherMap.getNode(curve.getCurveSegment(curve.getCurveSegmentCount() - 1).getUserObject(ESCHER_NODE_LINK).toString());
             while(!toNode.isMidmarker()) {
                 for (Segment segment : segments) {
-                    if (tryToAttach(segment, curve, curve.getCurveSegmentCount() - 1,
-                            escherMap, xOffset, yOffset)) {
+                    if (tryToAttach(segment2prepared.get(segment), curve, curve.getCurveSegmentCount() - 1)) {
                         done.add(segment);
                         toNode = escherMap.getNode(curve.getCurveSegment(curve.getCurveSegmentCount() - 1).getUserObject(ESCHER_NODE_LINK).toString());
-                        if (toNode.isMidmarker() || ((toNode.getConnectedSegments().size() == 1) && !toNode.isMetabolite())) {
+                        if (toNode.isMidmarker() || ((connectedSegments.getReactionCount(toNode.getId()) == 1) && !toNode.isMetabolite())) {
                             break;
                         }
                     }
                 }
-                if((toNode.getConnectedSegments().size() <= 1) && toNode.isMultimarker()) {
+                if((connectedSegments.getReactionCount(toNode.getId()) <= 1) && toNode.isMultimarker()) {
                     break;
                 }
             }
@@ -484,9 +710,9 @@ public class Escher2SBML extends Escher2Standard<SBMLDocument> {
         }
         segments.removeAll(done);
         if (!segments.isEmpty()) {
-            logger.warning(format(bundle.getString("Escher2SBML.segmentsLost"), segments));
+            counters.log(logger, Level.WARNING, "Escher2SBML.segmentsLost", segments);
         }
-        logger.fine(bundle.getString("Escher2SBML.done"));
+        logger.fine(() -> bundle.getString("Escher2SBML.done"));
         return reaction;
     }
 
@@ -494,82 +720,27 @@ public class Escher2SBML extends Escher2Standard<SBMLDocument> {
     /**
      * Converts a segment to a line segment
      *
-     * @param fromNode   The node the segment starts from
-     * @param toNode     The node where the segment ends
-     * @param basePoint1 base point for the curve TODO
-     * @param basePoint2 base point for the curve
-     * @param curve      A curve object as used by SBML
-     * @param xOffset    x-offset of the document
-     * @param yOffset    y-offset of the document
+     * @param prepared The segment to be converted with its coordinates in the layout
+     * @param curve    A curve object as used by SBML
      * @return A line segment (either a cubic bezier or a line)
      */
-    private LineSegment convertSegment(Node fromNode, Node toNode,
-                                       Point basePoint1, Point basePoint2, Curve curve, double xOffset,
-                                       double yOffset) {
+    private LineSegment convertSegment(PreparedSegment prepared, Curve curve) {
+        double[] points = prepared.points;
         LineSegment lineSegment = null;
-        if ((basePoint1 != null) && (basePoint2 != null)) {
+        if (prepared.isCubic) {
             CubicBezier cb = curve.createCubicBezier();
-            cb.createBasePoint1(basePoint1.getX() - xOffset,
-                    basePoint1.getY() - yOffset, z);
-            cb.createBasePoint2(basePoint2.getX() - xOffset,
-                    basePoint2.getY() - yOffset, z);
+            cb.createBasePoint1(points[4], points[5], z);
+            cb.createBasePoint2(points[6], points[7], z);
             lineSegment = cb;
         } else {
             lineSegment = curve.createLineSegment();
         }
-        double x = fromNode.getX() - xOffset;
-        double y = fromNode.getY() - yOffset;
-        double width = 0d;
-        double height = 0d;
-        if (fromNode.isMetabolite() && (lineSegment instanceof CubicBezier)) {
-            width = fromNode.getWidth();
-            height = fromNode.getHeight();
-            // TODO: calculate correct end points using intersection of node borders.
-            //			List<Point> intersections = Geometry.intersectBezier3Ellipse(new Point(x, y), new Point(basePoint1.getX(), basePoint1.getY()), new Point(basePoint2.getX(), basePoint2.getY()), new Point(toNode.getX() - xOffset, toNode.getY() - yOffset), new Point(x, y), width, height);
-            //			if (intersections.size() > 0) {
-            //				Point start = intersections.get(0);
-            //				x = start.getX();
-            //				y = start.getY();
-            //			}
-        }
-        lineSegment.createStart(x, y, z);
-        x = toNode.getX() - xOffset;
-        y = toNode.getY() - yOffset;
-        lineSegment.createEnd(x, y, z);
+        lineSegment.createStart(points[0], points[1], z);
+        lineSegment.createEnd(points[2], points[3], z);
         return lineSegment;
     }
 
 
-    /**
-     * Extracts all necessary parameters from the segment needed for converting it to a line segment
-     *
-     * @param segment The segment to be converted
-     * @param map     The {@link EscherMap} the {@code segment} is in
-     * @param curve   A curve object as used by SBML
-     * @param xOffset x-offset of the document
-     * @param yOffset y-offset of the document
-     * @return A line segment (either a cubic bezier or a line)
-     */
-    private LineSegment convertSegment(Segment segment, EscherMap map,
-                                       Curve curve, double xOffset, double yOffset) {
-        return convertSegment(map.getNode(segment.getFromNodeId()),
-                map.getNode(segment.getToNodeId()), segment.getBasePoint1(),
-                segment.getBasePoint2(), curve, xOffset, yOffset);
-    }
-
-
-    /**
-     * Creates an id
-     *
-     * @param prefix
-     * @param count
-     * @return A string id
-     */
-    private String createId(String prefix, int count) {
-        return prefix + (count + 1);
-    }
-
-
     /**
      * Creates a reaction glyph from an {@link EscherReaction}
      *
@@ -586,7 +757,7 @@ public class Escher2SBML extends Escher2Standard<SBMLDocument> {
         ReactionGlyph rGlyph = null;
         String rId = reactionPrefix + escherReaction.getId();
         if (escherReaction.isSetId() && node2glyph.containsKey(rId)) {
-            rGlyph = layout.getReactionGlyph(node2glyph.get(rId));
+            rGlyph = findGlyph(layout, node2glyph.get(rId), ReactionGlyph.class);
         }
         if (rGlyph == null) {
             // It can still be null if there is another glyph in the layout that is not a reaction glyph but has an identical id.
@@ -645,8 +816,8 @@ public class Escher2SBML extends Escher2Standard<SBMLDocument> {
                                            Map<String, String> node2glyph, Layout layout, double xOffset,
                                            double yOffset) {
         // Check if midmarker is connected to at least one metabolite, if not, midmarker is not converted
-        if (checkIfConnectedToMetabolite(node.getConnectedSegments(), escherMap)) {
-            String ogRId = extractReactionId(node.getConnectedSegments());
+        if (checkIfConnectedToMetabolite(node, escherMap)) {
+            String ogRId = extractReactionId(node, escherMap);
             EscherReaction escherReaction = escherMap.getReaction(ogRId);
             boolean isExchange = escherReaction.getMetaboliteCount() == 1;
             boolean isStraight = checkIfAllSegmentsStraight(escherReaction.getSegments().values(), escherMap);
@@ -660,25 +831,25 @@ public class Escher2SBML extends Escher2Standard<SBMLDocument> {
                     double width;
                     double height;
                     if (node.isSetWidth()) {
-                        width = node.getWidth().doubleValue();
+                        width = node.width();
                     } else {
                         width = getPrimaryNodeWidth() * getReactionNodeRatio();
                         node.setWidth(width);
                     }
                     if (node.isSetHeight()) {
-                        height = node.getHeight().doubleValue();
+                        height = node.height();
                     } else {
                         height = getPrimaryNodeHeight() * getReactionNodeRatio();
                         node.setHeight(height);
                     }
-                    double x = node.getX();
-                    double y = node.getY();
+                    double x = node.x();
+                    double y = node.y();
                     // If corresponding reaction it is exchange reaction and all its segments are straight
                     // move midmarker to the halfway point
                     if (isExchange && isStraight) {
                         Node metNode = escherMap.getNode(escherReaction.getMetaboliteList().get(0).getNodeRefId());
-                        double metX = metNode.getX();
-                        double metY = metNode.getY();
+                        double metX = metNode.x();
+                        double metY = metNode.y();
                         x = metX + (x - metX) / 2;
                         y = metY + (y - metY) / 2;
                         node.setX(x);
@@ -699,8 +870,7 @@ public class Escher2SBML extends Escher2Standard<SBMLDocument> {
                 }
             }
         } else {
-            logger.warning(format(bundle.getString("Escher2SBML.disconnectedMarker"),
-                    node.getType(), node.toString()));
+            counters.log(logger, Level.WARNING, "Escher2SBML.disconnectedMarker", node.getType(), node);
         }
         return null;
     }
@@ -720,27 +890,27 @@ public class Escher2SBML extends Escher2Standard<SBMLDocument> {
                                            Map<String, String> node2glyph, Layout layout, double xOffset,
                                            double yOffset) {
         SpeciesGlyph sGlyph;
-        sGlyph = layout.createSpeciesGlyph(createSpeciesGlyphId(node, layout));
+        sGlyph = layout.createSpeciesGlyph(createSpeciesGlyphId(node));
         String nodeId = "M_" + node.getId();
         node2glyph.put(nodeId, sGlyph.getId());
         // Not defined in SBML Layout: sGlyph.setName(node.getName())
         double width;
         double height;
         if (node.isSetWidth()) {
-            width = node.getWidth().doubleValue();
+            width = node.width();
         } else {
             width = node.isPrimary() ? getPrimaryNodeWidth() : getSecondaryNodeRatio() * getPrimaryNodeWidth();
             node.setWidth(width);
         }
         if (node.isSetHeight()) {
-            height = node.getHeight().doubleValue();
+            height = node.height();
         } else {
             height = node.isPrimary() ? getPrimaryNodeHeight() : getSecondaryNodeRatio() * getPrimaryNodeHeight();
             node.setHeight(height);
         }
         // Correct node position with offset and also because Escher uses the center whereas layout uses the top-left corner of bbox
         sGlyph.createBoundingBox(width, height, nodeDepth,
-                node.getX() - xOffset - width / 2d, node.getY() - yOffset - height / 2d,
+                node.x() - xOffset - width / 2d, node.y() - yOffset - height / 2d,
                 z);
         sGlyph.setSBOTerm(SBO.getSimpleMolecule());
         if (node.isSetBiggId()) {
@@ -802,16 +972,30 @@ public class Escher2SBML extends Escher2Standard<SBMLDocument> {
     }
 
 
+    /**
+     * Looks up a glyph through the identifier index of the model instead of going through the list of glyphs as
+     * {@link Layout#getSpeciesGlyph(String)} does, which is slow on large layouts.
+     *
+     * @param layout The {@link Layout} object of the SBML model
+     * @param id     The id of the glyph, may be {@code null}
+     * @param type   The expected class of the glyph
+     * @return The glyph or {@code null} if the layout contains no glyph of the given type with this id
+     */
+    private static <G extends GraphicalObject> G findGlyph(Layout layout, String id, Class<G> type) {
+        UniqueNamedSBase sbase = (id != null) ? layout.getModel().findUniqueNamedSBase(id) : null;
+        return type.isInstance(sbase) ? type.cast(sbase) : null;
+    }
+
+
     /**
      * Creates a {@link SpeciesGlyph} id (starting with sg_)
      *
      * @param node   The node for which the id is to be created
-     * @param layout The {@link Layout} object of the SBML model
      * @return A a {@link SpeciesGlyph} id (starting with sg_)
      */
-    private String createSpeciesGlyphId(Node node, Layout layout) {
+    private String createSpeciesGlyphId(Node node) {
         return SBMLtools.toSId(node.isSetId() ? speciesGlyphPrefix + node.getId() :
-                createId(speciesGlyphPrefix, layout.getSpeciesGlyphCount()));
+                ids.createNumberedId(speciesGlyphPrefix));
     }
 
 
@@ -832,25 +1016,21 @@ public class Escher2SBML extends Escher2Standard<SBMLDocument> {
         String biggID = metabolite.getId();
         String sId = SBMLtools.toSId(biggID);
         SpeciesGlyph sGlyph = null;
-        Model model = reaction.getModel();
         Map<String, SpeciesReferenceGlyph>
                 srgMap =
                 new HashMap<String, SpeciesReferenceGlyph>();
         Set<Compartment> setOfCompartments = new HashSet<Compartment>();
         for (Node node : setOfNodes) {
-            sGlyph = layout.getSpeciesGlyph(node2glyph.get(metabolitePrefix + node.getId()));
+            sGlyph = findGlyph(layout, node2glyph.get(metabolitePrefix + node.getId()), SpeciesGlyph.class);
             if (sGlyph != null) {
                 String srGlyphId = reaction.getId() + speciesReferenceGlyphInfix + metabolite.getId();
                 srGlyphId = srGlyphId.replaceAll("\\+", "");
-                if (model.containsUniqueNamedSBase(srGlyphId)) {
-
-                    int i = 0;
-                    do {
-                        i++;
-                    } while (model.containsUniqueNamedSBase(srGlyphId + "_" + i));
-                    srGlyphId += "_" + i;
-                    logger.warning(format(bundle.getString("Escher2SBML.metaboliteDuplication"),
-                            metabolite.getId(), reaction.getId(), ++i));
+                String uniqueId = ids.createId(srGlyphId);
+                if (!uniqueId.equals(srGlyphId)) {
+                    int i = Integer.parseInt(uniqueId.substring(srGlyphId.length() + IdAllocator.SEPARATOR.length()));
+                    counters.log(logger, Level.WARNING, "Escher2SBML.metaboliteDuplication",
+                            metabolite.getId(), reaction.getId(), i + 1);
+                    srGlyphId = uniqueId;
                 }
                 SpeciesReferenceGlyph srGlyph = rGlyph.createSpeciesReferenceGlyph(SBMLtools.toSId(srGlyphId), sGlyph.getId());
 
@@ -891,13 +1071,12 @@ public class Escher2SBML extends Escher2Standard<SBMLDocument> {
                 srGlyph.setSBOTerm(srGlyph.getSpeciesReferenceRole().toSBOterm());
                 srGlyph.setSpeciesReference(ssr);
                 if (srgMap.containsKey(metabolite.getId())) {
-                    logger.warning(format(bundle.getString("Escher2SBML.replacementGlyph"),
-                            metabolite.getId()));
+                    counters.log(logger, Level.WARNING, "Escher2SBML.replacementGlyph", metabolite.getId());
                 }
                 srgMap.put(metabolite.getId(), srGlyph);
                 //createCurve(node, srGlyph, segmentIds, isProduct, escherReaction, escherMap, xOffset, yOffset);
             } else {
-                logger.warning(format(bundle.getString("Escher2SBML.glyphIdNull"), biggID));
+                counters.log(logger, Level.WARNING, "Escher2SBML.glyphIdNull", biggID);
             }
         }
         if (!reaction.isSetCompartment()) {
@@ -906,8 +1085,7 @@ public class Escher2SBML extends Escher2Standard<SBMLDocument> {
             } else {
                 //TODO: What to do?
                 //reaction.setCompartment(createCompartment(model, compartmentId, compartmentName));
-                logger.warning(format(bundle.getString("Escher2SBML.reactionCompartmentUnknown"),
-                        reaction.getId()));
+                counters.log(logger, Level.WARNING, "Escher2SBML.reactionCompartmentUnknown", reaction.getId());
             }
         }
         return srgMap;
@@ -925,9 +1103,9 @@ public class Escher2SBML extends Escher2Standard<SBMLDocument> {
      */
     private void createTextGlyph(EscherReaction reaction, ReactionGlyph rGlyph,
                                  Layout layout, double xOffset, double yOffset) {
-        double x = reaction.getLabelX() - xOffset;
-        double y = reaction.getLabelY() - yOffset - reactionLabelHeight;
-        TextGlyph label = layout.createTextGlyph(createTextGlyphId(layout));
+        double x = reaction.labelX() - xOffset;
+        double y = reaction.labelY() - yOffset - reactionLabelHeight;
+        TextGlyph label = layout.createTextGlyph(createTextGlyphId());
         label.createBoundingBox(getLabelWidth(), reactionLabelHeight, nodeDepth, x, y, z);
         label.setOriginOfText(rGlyph.getReaction());
         label.setGraphicalObject(rGlyph);
@@ -963,7 +1141,7 @@ public class Escher2SBML extends Escher2Standard<SBMLDocument> {
                                       double yOffset, AbstractReferenceGlyph referenceGlyph) {
         TextGlyph tGlyph = null;
         if (node.isSetLabelX() && node.isSetLabelY()) {
-            tGlyph = layout.createTextGlyph(createTextGlyphId(layout));
+            tGlyph = layout.createTextGlyph(createTextGlyphId());
             double height = getLabelHeight();
             if (node.isMetabolite()) {
                 height = nodeLabelHeight;
@@ -972,7 +1150,7 @@ public class Escher2SBML extends Escher2Standard<SBMLDocument> {
             }
             // In Escher text is positioned at the bottom-left corner, but in layout it is always the top-left corner.
             tGlyph.createBoundingBox(getLabelWidth(), height, nodeDepth,
-                    node.getLabelX() - xOffset, node.getLabelY() - yOffset - height, z);
+                    node.labelX() - xOffset, node.labelY() - yOffset - height, z);
             if ((referenceGlyph == null) && (node.isSetName())) {
                 tGlyph.setText(node.getName());
             } else {
@@ -1010,7 +1188,7 @@ public class Escher2SBML extends Escher2Standard<SBMLDocument> {
         String id = createTextGlyphId(label, layout);
         TextGlyph tGlyph = layout.createTextGlyph(id);
         BoundingBox bbox = tGlyph.createBoundingBox();
-        bbox.createPosition(label.getX() - xOffset, label.getY() - yOffset - getLabelHeight(), z);
+        bbox.createPosition(label.x() - xOffset, label.y() - yOffset - getLabelHeight(), z);
         bbox.createDimensions(getLabelWidth(), getLabelHeight(), nodeDepth);
         if (label.isSetText()) {
             tGlyph.setText(label.getText());
@@ -1021,11 +1199,10 @@ public class Escher2SBML extends Escher2Standard<SBMLDocument> {
     /**
      * Creates a {@link TextGlyph} id (starting with tg_)
      *
-     * @param layout The {@link Layout} object of the SBML model
      * @return A string {@link TextGlyph} id (starting with tg_)
      */
-    private String createTextGlyphId(Layout layout) {
-        return createId(textGlyphPrefix, layout.getTextGlyphCount());
+    private String createTextGlyphId() {
+        return ids.createNumberedId(textGlyphPrefix);
     }
 
 
@@ -1037,7 +1214,7 @@ public class Escher2SBML extends Escher2Standard<SBMLDocument> {
      * @return A string {@link TextGlyph} id
      */
     private String createTextGlyphId(TextLabel label, Layout layout) {
-        return label.isSetId() ? SBMLtools.nameToSId(label.getId(), layout.getSBMLDocument()) : createTextGlyphId(layout);
+        return label.isSetId() ? SBMLtools.nameToSId(label.getId(), layout.getSBMLDocument()) : createTextGlyphId();
     }
 
 
@@ -1099,8 +1276,8 @@ public class Escher2SBML extends Escher2Standard<SBMLDocument> {
     private Layout initLayout(EscherMap escherMap, double xOffset,
                               double yOffset) {
         Canvas canvas = escherMap.getCanvas();
-        double width = canvas.isSetWidth() ? canvas.getWidth().doubleValue() - xOffset : getCanvasDefaultWidth();
-        double height = canvas.isSetHeight() ? canvas.getHeight().doubleValue() - yOffset : getCanvasDefaultHeight();
+        double width = canvas.isSetWidth() ? canvas.width() - xOffset : getCanvasDefaultWidth();
+        double height = canvas.isSetHeight() ? canvas.height() - yOffset : getCanvasDefaultHeight();
         SBMLDocument doc = new SBMLDocument(3, 1);
         Model model = doc.createModel(
                 escherMap.isSetId() ? SBMLtools.toSId(escherMap.getId()) : "_default");
@@ -1141,8 +1318,8 @@ public class Escher2SBML extends Escher2Standard<SBMLDocument> {
         if (model.getId().equals(layoutId)) {
             String layoutIdOld = layoutId;
             layoutId = layoutId + "_1";
-            logger.warning(format(bundle.getString("Escher2SBML.layoutIDnotunique"), layoutIdOld, layoutId,
-                    model.getId()));
+            counters.log(logger, Level.WARNING, "Escher2SBML.layoutIDnotunique", layoutIdOld, layoutId,
+                    model.getId());
         }
         Layout layout = layoutPlugin.createLayout(layoutId);
         layout.setName(layoutName);
@@ -1210,26 +1387,23 @@ public class Escher2SBML extends Escher2Standard<SBMLDocument> {
     /**
      * Tries to attach a segment to a node
      *
-     * @param segment                 The {@link Segment} to be attached
-     * @param targetCurve             The {@link Curve} object of the current {@link SpeciesReferenceGlyph} the {@code segment} will be part of
-     * @param targetCurveSegmentIndex Index of the {@code segment} within the {@code targetCurve}
-     * @param escherMap               The {@link EscherMap} the {@code segment} is part of
-     * @param xOffset                 x-offset of the document
-     * @param yOffset                 y-offset of the document
+     * @param prepared                The segment to be attached with its coordinates in the layout
+     * @param targetCurve             The {@link Curve} object of the current {@link SpeciesReferenceGlyph} the segment will be part of
+     * @param targetCurveSegmentIndex Index of the segment within the {@code targetCurve}
      * @return A boolean: {@code true} if the segment could be attached, {@code false} otherwise
      */
-    private boolean tryToAttach(Segment segment, Curve targetCurve,
-                                int targetCurveSegmentIndex, EscherMap escherMap, double xOffset,
-                                double yOffset) {
+    private boolean tryToAttach(PreparedSegment prepared, Curve targetCurve, int targetCurveSegmentIndex) {
+        Segment segment = prepared.segment;
         CurveSegment lastSegment = targetCurve.getListOfCurveSegments().get(targetCurveSegmentIndex);
         String toNodeId = lastSegment.getUserObject(ESCHER_NODE_LINK).toString();
         if (toNodeId.equals(segment.getFromNodeId())) {
-            LineSegment ls = convertSegment(segment, escherMap, targetCurve, xOffset, yOffset);
+            LineSegment ls = convertSegment(prepared, targetCurve);
             ls.putUserObject(ESCHER_NODE_LINK, segment.getToNodeId());
             return true;
         } else if (toNodeId.equals(segment.getToNodeId())) {
-            ;
-            LineSegment ls = convertSegment(reverse(segment), escherMap, targetCurve, xOffset, yOffset);
+            reverse(segment);
+            prepared.reverse();
+            LineSegment ls = convertSegment(prepared, targetCurve);
             ls.putUserObject(ESCHER_NODE_LINK, segment.getFromNodeId());
             return true;
         }
@@ -1255,11 +1429,11 @@ public class Escher2SBML extends Escher2Standard<SBMLDocument> {
         Point p1 = coordinates.get(0);
         Point p2 = coordinates.get(1);
 
-        double dx12 = p2.getX() - p1.getX();
-        double dy12 = p2.getY() - p1.getY();
+        double dx12 = p2.x() - p1.x();
+        double dy12 = p2.y() - p1.y();
 
         for (int i = 2; i < coordinates.size(); i++) {
-            if (Math.abs((dy12 * (coordinates.get(i).getX() - p1.getX()) - dx12 * (coordinates.get(i).getY() - p1.getY()))) > tolerance) {
+            if (Math.abs((dy12 * (coordinates.get(i).x() - p1.x()) - dx12 * (coordinates.get(i).y() - p1.y()))) > tolerance) {
                 return false;
             }
         }
@@ -1285,10 +1459,10 @@ public class Escher2SBML extends Escher2Standard<SBMLDocument> {
             Point bp2 = seg.getBasePoint2();
             List<Point> pointsOfSegment = new ArrayList<Point>();
             if (fromNode != null) {
-                pointsOfSegment.add(new Point(fromNode.getX(), fromNode.getY()));
+                pointsOfSegment.add(new Point(fromNode.x(), fromNode.y()));
             }
             if (toNode != null) {
-                pointsOfSegment.add(new Point(toNode.getX(), toNode.getY()));
+                pointsOfSegment.add(new Point(toNode.x(), toNode.y()));
             }
             if (bp1 != null) {
                 pointsOfSegment.add(bp1);
@@ -1307,52 +1481,71 @@ public class Escher2SBML extends Escher2Standard<SBMLDocument> {
 
 
     /**
-     * Checks if mid-/multimarker is connected to a metabolite node(possibly over other markers) given their connected Segments
+     * Checks if mid-/multimarker is connected to a metabolite node (possibly over other markers). The markers are
+     * visited breadth-first along their connected segments, which have been collected during pre-processing. The
+     * result is remembered for every visited marker, so that each marker of a map is only visited once.
      *
-     * @param conSegs         Connected segments of mid-/multimarker to check
-     * @param escherMap       escherMap corresponding to marker
-     * @param visitedSegments used to store which segments were already visited
+     * @param marker    mid-/multimarker to check
+     * @param escherMap escherMap corresponding to marker
      * @return boolean stating whether marker is connected to a metabolite node
      */
-    private boolean checkIfConnectedToMetabolite(Set<Entry<String, List<String>>> conSegs, EscherMap escherMap, List<String> visitedSegments) {
-
-
-        // Iterate over every reactionID
-        for (Entry<String, List<String>> entry : conSegs) {
-            EscherReaction reaction = escherMap.getReaction(entry.getKey());
-            // Iterate over every segment connected to marker within this reaction
-            for (String segId : entry.getValue()) {
-                // If segment already visited in previous recursion -> skip
-                if (!visitedSegments.contains(segId)) {
-                    visitedSegments.add(segId);
-                    Segment seg = reaction.getSegment(segId);
-                    Node fromNode = escherMap.getNode(seg.getFromNodeId());
-                    Node toNode = escherMap.getNode(seg.getToNodeId());
-                    // If start or end node of segment -> return true
-                    if (fromNode.isMetabolite() || toNode.isMetabolite()) {
-                        return true;
-                    } else { // Otherwise, get Segments of start and end Node and repeat this process for both if either finally ends up in metabolite return true
-                        Set<Entry<String, List<String>>> fConSegs = fromNode.getConnectedSegments();
-                        Set<Entry<String, List<String>>> tConSegs = toNode.getConnectedSegments();
-                        return checkIfConnectedToMetabolite(fConSegs, escherMap, visitedSegments) || checkIfConnectedToMetabolite(tConSegs, escherMap, visitedSegments);
-                    }
+    private boolean checkIfConnectedToMetabolite(Node marker, EscherMap escherMap) {
+        Boolean connected = markerConnectivity.get(marker.getId());
+        if (connected != null) {
+            return connected.booleanValue();
+        }
+        Set<String> visitedMarkers = new HashSet<String>();
+        Deque<Node> queue = new ArrayDeque<Node>();
+        visitedMarkers.add(marker.getId());
+        queue.add(marker);
+        boolean found = false;
+        SegmentAdjacency connectedSegments = escherMap.getConnectedSegments();
+        while (!queue.isEmpty() && !found) {
+            // Iterate over every segment connected to the marker within every reaction
+            int node = connectedSegments.indexOf(queue.poll().getId());
+            if (node < 0) {
+                continue;
+            }
+            for (int i = 0; i < connectedSegments.getSegmentCount(node); i++) {
+                EscherReaction reaction = escherMap.getReaction(connectedSegments.getReactionId(node, i));
+                Segment seg = reaction != null ? reaction.getSegment(connectedSegments.getSegmentId(node, i)) : null;
+                if (seg != null) {
+                    found |= visitMarkerNeighbor(seg.getFromNodeId(), escherMap, visitedMarkers, queue);
+                    found |= visitMarkerNeighbor(seg.getToNodeId(), escherMap, visitedMarkers, queue);
                 }
             }
         }
-
-        return false;
+        // All visited markers are connected to each other, hence share the result.
+        connected = Boolean.valueOf(found);
+        for (String markerId : visitedMarkers) {
+            markerConnectivity.put(markerId, connected);
+        }
+        return found;
     }
 
+
     /**
-     * Checks if mid-/multimarker is connected to a metabolite node(possibly over other markers) given their connected Segments
+     * One step of {@link #checkIfConnectedToMetabolite(Node, EscherMap)}.
      *
-     * @param conSegs   Connected segments of mid-/multimarker to check
-     * @param escherMap escherMap corresponding to marker
-     * @return boolean stating whether marker is connected to a metabolite node
+     * @param nodeId         an end of a segment at the current marker
+     * @param escherMap      escherMap corresponding to the marker
+     * @param visitedMarkers the markers that have been reached so far
+     * @param queue          the markers whose segments still have to be visited
+     * @return {@code true} if the node is a metabolite or a marker that is known to be connected to one
      */
-    private boolean checkIfConnectedToMetabolite(Set<Entry<String, List<String>>> conSegs, EscherMap escherMap) {
-
-        return checkIfConnectedToMetabolite(conSegs, escherMap, new ArrayList<>());
+    private boolean visitMarkerNeighbor(String nodeId, EscherMap escherMap, Set<String> visitedMarkers,
+                                        Deque<Node> queue) {
+        Node node = escherMap.getNode(nodeId);
+        if (node == null) {
+            return false;
+        }
+        if (node.isMetabolite() || Boolean.TRUE.equals(markerConnectivity.get(nodeId))) {
+            return true;
+        }
+        if (visitedMarkers.add(nodeId)) {
+            queue.add(node);
+        }
+        return false;
     }
 
 }
@@ -17,6 +17,15 @@ import static java.text.MessageFormat.format;
 
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinPool.ForkJoinWorkerThreadFactory;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.sbml.jsbml.util.ResourceManager;
@@ -27,6 +36,9 @@ import edu.ucsd.sbrg.escher.model.Metabolite;
 import edu.ucsd.sbrg.escher.model.Node;
 import edu.ucsd.sbrg.escher.model.Point;
 import edu.ucsd.sbrg.escher.model.Segment;
+import edu.ucsd.sbrg.escher.model.SegmentAdjacency;
+import edu.ucsd.sbrg.escher.util.ConversionCounters;
+import edu.ucsd.sbrg.escher.util.LogContext;
 
 /**
  * @param T the output format
@@ -60,6 +72,8 @@ public abstract class Escher2Standard<T> implements StringLiterals {
     builder.append(reactionNodeRatio);
     builder.append(", secondaryNodeRatio=");
     builder.append(secondaryNodeRatio);
+    builder.append(", threads=");
+    builder.append(threads);
     builder.append("]");
     return builder.toString();
   }
@@ -81,6 +95,25 @@ public abstract class Escher2Standard<T> implements StringLiterals {
    * A {@link Logger} for this class.
    */
   private static final Logger logger = Logger.getLogger(Escher2Standard.class.getName());
+  /**
+   * Creates the workers of the {@link #pool}, which do not keep the
+   * {@link LogContext} of the thread that happens to create them, because
+   * they work for all conversions.
+   */
+  private static final ForkJoinWorkerThreadFactory workerFactory = pool -> new ForkJoinWorkerThread(pool) {
+
+    @Override
+    protected void onStart() {
+      super.onStart();
+      LogContext.remove();
+    }
+  };
+  /**
+   * The fork/join pool of {@link #computeAll(List, Function)}, which is
+   * shared by all conversions and has one worker per available processor.
+   */
+  private static final ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors(),
+    workerFactory, null, false);
   /**
    *
    */
@@ -103,6 +136,16 @@ public abstract class Escher2Standard<T> implements StringLiterals {
   private double  primaryNodeWidth;
   private double  reactionNodeRatio;
   private double  secondaryNodeRatio;
+  /**
+   * Number of threads for independent parts of a conversion. One means
+   * sequential conversion, zero one thread per available processor.
+   */
+  private int     threads = 1;
+  /**
+   * Elements and problems of the current conversion, which are logged as a
+   * summary when the conversion is finished.
+   */
+  protected ConversionCounters counters = new ConversionCounters(getClass().getSimpleName());
 
 
   /**
@@ -113,21 +156,18 @@ public abstract class Escher2Standard<T> implements StringLiterals {
 
 
   /**
-   * Returns the reaction id of a set of segments, gives warning if multiple ones are used in segments
-   * @param set of segments
+   * Returns the id of the reaction a node belongs to, gives warning if the node belongs to multiple reactions
+   * @param node a mid- or multimarker
+   * @param escherMap the post-processed map of the node
    * @return String of the reaction id
    */
-  protected String extractReactionId(Set<Entry<String, List<String>>> set) {
-    String rId = null;
-    for (Entry<String, List<String>> pair : set) {
-      if (rId == null) {
-        rId = pair.getKey();
-      } else if (!rId.equals(pair.getKey())) {
-        logger.warning("Error: multiple reaction identifiers used in this node's connected segments.");
-        return null;
-      }
+  protected String extractReactionId(Node node, EscherMap escherMap) {
+    Set<String> reactionIds = escherMap.getReactionIds(node.getId());
+    if (reactionIds.size() > 1) {
+      logger.warning("Error: multiple reaction identifiers used in this node's connected segments.");
+      return null;
     }
-    return rId;
+    return reactionIds.isEmpty() ? null : reactionIds.iterator().next();
   }
 
 
@@ -204,14 +244,109 @@ public abstract class Escher2Standard<T> implements StringLiterals {
 
 
   /**
-   * Pre-processes every reaction in a data structure
+   * @return the number of threads for independent parts of a conversion.
+   */
+  public int getThreads() {
+    return threads;
+  }
+
+
+  /**
+   * Applies the given function to all elements. Depending on
+   * {@link #getThreads()}, this happens one after another on the calling
+   * thread or on the fork/join pool that all conversions share, where at
+   * most {@link #getThreads()} elements, and no more than one per available
+   * processor, are processed at the same time. Either way, the results are
+   * returned in the order of the elements, so that the output of a
+   * conversion does not depend on the number of threads. The function must
+   * therefore neither depend on the order in which elements are processed
+   * nor modify data that is shared among elements. The tasks run with the
+   * {@link LogContext} of the calling thread. Runtime exceptions and errors
+   * of the function are rethrown as they are. Waiting for the results cannot
+   * be interrupted, so that a conversion that has been started is always
+   * completed.
+   *
+   * @param elements
+   * @param function
+   * @return the results in the order of {@code elements}.
+   */
+  @SuppressWarnings("unchecked")
+  protected <E, R> List<R> computeAll(List<E> elements, Function<? super E, ? extends R> function) {
+    List<R> results = new ArrayList<R>(elements.size());
+    // The pool itself runs no more tasks at the same time than it has workers.
+    int parallelism = Math.min(threads > 0 ? threads : pool.getParallelism(), elements.size());
+    if (parallelism <= 1) {
+      for (E element : elements) {
+        results.add(function.apply(element));
+      }
+      return results;
+    }
+    // Log messages of the tasks belong to the caller, e.g., to its conversion job.
+    Object context = LogContext.get();
+    // Every task takes the next element until none is left.
+    AtomicInteger next = new AtomicInteger();
+    Object values[] = new Object[elements.size()];
+    List<ForkJoinTask<?>> tasks = new ArrayList<ForkJoinTask<?>>(parallelism);
+    for (int t = 0; t < parallelism; t++) {
+      tasks.add(pool.submit(() -> {
+        try {
+          return LogContext.callWith(context, () -> {
+            for (int i = next.getAndIncrement(); i < values.length; i = next.getAndIncrement()) {
+              values[i] = function.apply(elements.get(i));
+            }
+            return null;
+          });
+        } catch (RuntimeException | Error exc) {
+          // The other tasks do not start any further element.
+          next.set(values.length);
+          throw new CompletionException(exc);
+        }
+      }));
+    }
+    try {
+      for (ForkJoinTask<?> task : tasks) {
+        task.join();
+      }
+    } catch (CompletionException exc) {
+      for (ForkJoinTask<?> task : tasks) {
+        task.cancel(false);
+      }
+      // Fork/join tasks may rethrow a copy of the CompletionException, whose cause is the original.
+      Throwable cause = exc;
+      while (((cause instanceof ExecutionException) || (cause instanceof CompletionException))
+          && (cause.getCause() != null)) {
+        cause = cause.getCause();
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      // The function does not throw checked exceptions.
+      throw (RuntimeException) cause;
+    }
+    for (Object value : values) {
+      results.add((R) value);
+    }
+    return results;
+  }
+
+
+  /**
+   * Pre-processes every reaction in a data structure and starts counting the
+   * elements and problems of a new conversion.
    * @param escherMap
    */
   public void preprocessDataStructure(EscherMap escherMap) {
+    counters = new ConversionCounters(getClass().getSimpleName());
+    counters.add("nodes", escherMap.getNodesCount());
+    counters.add("reactions", escherMap.getReactionCount());
+    counters.add("text labels", escherMap.getTextLabelCount());
+    SegmentAdjacency.Builder connectedSegments = new SegmentAdjacency.Builder(
+      escherMap.getNodes().keySet(), escherMap.getReactions().keySet());
     for (Entry<String, EscherReaction> reactions : escherMap.reactions()) {
       EscherReaction reaction = reactions.getValue();
-      preProcessReaction(reaction, escherMap);
+      preProcessReaction(reaction, escherMap, connectedSegments);
     }
+    escherMap.setConnectedSegments(connectedSegments.build());
   }
 
 
@@ -220,10 +355,14 @@ public abstract class Escher2Standard<T> implements StringLiterals {
    *
    * @param reaction The {@code reaction} object.
    * @param escherMap The parent {@code escher map}.
+   * @param connectedSegments Receives the chained segments of every node of the reaction.
    */
   private void preProcessReaction(EscherReaction reaction,
-    EscherMap escherMap) {
-    Set<Segment> segments = new HashSet<Segment>();
+    EscherMap escherMap, SegmentAdjacency.Builder connectedSegments) {
+    // Segments that still need to be chained, indexed by the ids of both of their nodes.
+    Map<String, List<Segment>> adjacency = new HashMap<String, List<Segment>>();
+    // Segments of this reaction that end at each node, in the order of the curve.
+    Map<String, List<String>> node2segments = new HashMap<String, List<String>>();
     for (Entry<String, Segment> entry : reaction.segments()) {
       Segment segment = entry.getValue();
       Node fromNode = escherMap.getNode(segment.getFromNodeId());
@@ -231,55 +370,55 @@ public abstract class Escher2Standard<T> implements StringLiterals {
       
       Node srGlyph = null;
       if(toNode == null){
-    	  logger.severe(format(bundle.getString("Escher2Standard.missing_node"),
-    			  segment.getToNodeId(), reaction.getBiggId()));
+    	  counters.log(logger, Level.SEVERE, "Escher2Standard.missing_node",
+    			  segment.getToNodeId(), reaction.getBiggId());
       }else if (fromNode == null){
-    	  logger.severe(format(bundle.getString("Escher2Standard.missing_node"),
-    			  segment.getFromNodeId(), reaction.getBiggId()));
+    	  counters.log(logger, Level.SEVERE, "Escher2Standard.missing_node",
+    			  segment.getFromNodeId(), reaction.getBiggId());
       }else{
       if (fromNode.isMetabolite()) {
         srGlyph = escherMap.getNode(fromNode.getId());
         Metabolite metabolite = reaction.getMetabolite(fromNode.getBiggId());
         if (metabolite == null) {
-          logger.severe(format(bundle.getString("Escher2Standard.node_lacking_metabolite"),
-            fromNode.getBiggId(), reaction.getBiggId()));
+          counters.log(logger, Level.SEVERE, "Escher2Standard.node_lacking_metabolite",
+            fromNode.getBiggId(), reaction.getBiggId());
         } else if (metabolite.getCoefficient() > 0d) {
           segment = reverse(segment);
         }
-        toNode.addConnectedSegment(reaction.getId(), segment);
+        addConnectedSegment(node2segments, toNode.getId(), segment);
       } else if (toNode.isMetabolite()) {
         srGlyph = escherMap.getNode(toNode.getId());
         Metabolite metabolite = reaction.getMetabolite(toNode.getBiggId());
         if (metabolite == null) {
-          logger.severe(format(bundle.getString("Escher2Standard.node_lacking_metabolite"),
-            toNode.getBiggId(), reaction.getBiggId()));
+          counters.log(logger, Level.SEVERE, "Escher2Standard.node_lacking_metabolite",
+            toNode.getBiggId(), reaction.getBiggId());
         } else if (metabolite.getCoefficient() <= 0d) {
           segment = reverse(segment);
         }
-        fromNode.addConnectedSegment(reaction.getId(), segment);
+        addConnectedSegment(node2segments, fromNode.getId(), segment);
       } else {
         // Attach segments to midmarkers and multimarkers.
         // Here we have no information about directionality and just keep it as given.
-        fromNode.addConnectedSegment(reaction.getId(), segment);
-        toNode.addConnectedSegment(reaction.getId(), segment);
+        addConnectedSegment(node2segments, fromNode.getId(), segment);
+        addConnectedSegment(node2segments, toNode.getId(), segment);
       }
       }
       if (srGlyph != null) {
         List<String>
-        segmentIds = srGlyph.getConnectedSegments(reaction.getId());
+        segmentIds = node2segments.get(srGlyph.getId());
         if (segmentIds == null) {
-          srGlyph.addConnectedSegment(reaction.getId(), segment);
-          segmentIds = srGlyph.getConnectedSegments(reaction.getId());
+          addConnectedSegment(node2segments, srGlyph.getId(), segment);
+          segmentIds = node2segments.get(srGlyph.getId());
         }
         boolean inconsistency = false;
         if (!segmentIds.contains(segment.getId())) {
-          logger.warning(format(bundle.getString("Escher2Standard.inconsistent_data_structure"),
-            srGlyph.getId(), segment.getId()));
+          counters.log(logger, Level.WARNING, "Escher2Standard.inconsistent_data_structure",
+            srGlyph.getId(), segment.getId());
           inconsistency = true;
         }
         if (segmentIds.size() > 1) {
-          logger.warning(format(bundle.getString("Escher2Standard.multiple_arcs"),
-            srGlyph.getId(), segments.toString()));
+          counters.log(logger, Level.WARNING, "Escher2Standard.multiple_arcs",
+            srGlyph.getId(), reaction.getId(), segmentIds);
           inconsistency = true;
         }
         if (inconsistency) {
@@ -287,50 +426,156 @@ public abstract class Escher2Standard<T> implements StringLiterals {
           segmentIds.add(segment.getId());
         }
       } else {
-        // the set of segments that still need to be processed.
-        segments.add(segment);
+        addIncidentSegment(adjacency, segment.getFromNodeId(), segment);
+        addIncidentSegment(adjacency, segment.getToNodeId(), segment);
       }
     }
     for (Entry<String, Metabolite> metabolites : reaction.getMetabolites().entrySet()) {
       Metabolite metabolite = metabolites.getValue();
       Node srGlyph = escherMap.getNode(metabolite.getNodeRefId());
       if (srGlyph == null) {
-        logger.warning(format(bundle.getString("Escher2Standard.metabolite_lacking_node"),
-          metabolite.getId(), reaction.getBiggId()));
+        counters.log(logger, Level.WARNING, "Escher2Standard.metabolite_lacking_node",
+          metabolite.getId(), reaction.getBiggId());
+        continue;
+      }
+      List<String> curve = node2segments.get(srGlyph.getId());
+      if ((curve == null) || curve.isEmpty()) {
+        counters.log(logger, Level.WARNING, "Escher2Standard.incomplete_curve",
+          metabolite.getId(), reaction.getBiggId(), srGlyph.getId());
         continue;
       }
-      List<String> curve = srGlyph.getConnectedSegments(reaction.getId());
-      Segment currSegment = reaction.getSegment(curve.get(0));
       boolean isProduct = metabolite.getCoefficient() > 0d;
-      Node currNode = escherMap.getNode(isProduct ? currSegment.getFromNodeId() : currSegment.getToNodeId());
-      while(!currNode.isMidmarker()) {
-        for (Segment segment : segments) {
-          boolean canAttach = false;
-          Segment lastSegment = reaction.getSegment(curve.get(curve.size() - 1));
-          String toNodeId = isProduct ? lastSegment.getFromNodeId() : lastSegment.getToNodeId();
-          if (toNodeId.equals(isProduct ? segment.getToNodeId() : segment.getFromNodeId())) {
-            curve.add(segment.getId());
-            canAttach = true;
-          } else if (toNodeId.equals(isProduct ? segment.getFromNodeId() : segment.getToNodeId())) {
-            curve.add(reverse(segment).getId());
-            canAttach = true;
-          }
-          if (canAttach) {
-            currNode = escherMap.getNode(isProduct ? segment.getFromNodeId() : segment.getToNodeId());
-            if (currNode.isMidmarker() || ((currNode.getConnectedSegments().size() <= 1) && currNode.isMultimarker())) {
-              break;
-            }
-          }
+      String nodeId = chainSegments(curve, isProduct, adjacency, reaction, escherMap);
+      if (nodeId != null) {
+        counters.log(logger, Level.WARNING, "Escher2Standard.incomplete_curve",
+          metabolite.getId(), reaction.getBiggId(), nodeId);
+      }
+      if (isProduct) {
+        Collections.reverse(curve);
+      }
+    }
+    for (Entry<String, List<String>> entry : node2segments.entrySet()) {
+      connectedSegments.add(entry.getKey(), reaction.getId(), entry.getValue());
+    }
+  }
+
+
+  /**
+   * Adds a segment to the ones of a node unless it is already there.
+   *
+   * @param node2segments
+   * @param nodeId
+   * @param segment
+   */
+  private void addConnectedSegment(Map<String, List<String>> node2segments, String nodeId,
+    Segment segment) {
+    List<String> segmentIds = node2segments.get(nodeId);
+    if (segmentIds == null) {
+      segmentIds = new ArrayList<String>(2);
+      node2segments.put(nodeId, segmentIds);
+    }
+    if (!segmentIds.contains(segment.getId())) {
+      segmentIds.add(segment.getId());
+    }
+  }
+
+
+  /**
+   * @param adjacency
+   * @param nodeId
+   * @param segment
+   */
+  private void addIncidentSegment(Map<String, List<Segment>> adjacency, String nodeId,
+    Segment segment) {
+    List<Segment> incident = adjacency.get(nodeId);
+    if (incident == null) {
+      incident = new ArrayList<Segment>(2);
+      adjacency.put(nodeId, incident);
+    }
+    incident.add(segment);
+  }
+
+
+  /**
+   * Extends the curve of a metabolite node by the segments that lead to the
+   * midmarker of the reaction. The shortest such path is searched breadth-first,
+   * so that branches of multimarkers that end elsewhere are not followed. Every
+   * segment is used at most once per curve. Only the segments of the path that
+   * has been found are oriented such that curves of reactants point to the
+   * midmarker, whereas curves of products are built in reverse order, i.e., from
+   * the product towards the midmarker.
+   *
+   * @param curve the ids of the segments of the curve, starting with the
+   *        segment that is connected to the metabolite node.
+   * @param isProduct
+   * @param adjacency the segments of the reaction that are not connected to a
+   *        metabolite node by the ids of both of their nodes.
+   * @param reaction
+   * @param escherMap
+   * @return {@code null} if the midmarker has been reached, otherwise the id
+   *         of the node at the end of the curve from which no path leads to
+   *         the midmarker; the curve is not changed in this case.
+   */
+  private String chainSegments(List<String> curve, boolean isProduct,
+    Map<String, List<Segment>> adjacency, EscherReaction reaction, EscherMap escherMap) {
+    Segment lastSegment = reaction.getSegment(curve.get(curve.size() - 1));
+    String start = isProduct ? lastSegment.getFromNodeId() : lastSegment.getToNodeId();
+    Node node = escherMap.getNode(start);
+    if (node == null) {
+      return start;
+    }
+    Set<String> used = new HashSet<String>(curve);
+    // The segment through which each node has been reached first.
+    Map<String, Segment> parent = new HashMap<String, Segment>();
+    parent.put(start, null);
+    Deque<String> queue = new ArrayDeque<String>();
+    queue.add(start);
+    String target = null;
+    while (!queue.isEmpty()) {
+      String nodeId = queue.poll();
+      node = escherMap.getNode(nodeId);
+      if (node == null) {
+        continue;
+      }
+      if (node.isMidmarker()) {
+        target = nodeId;
+        break;
+      }
+      List<Segment> incident = adjacency.get(nodeId);
+      if (incident == null) {
+        continue;
+      }
+      for (Segment segment : incident) {
+        if (used.contains(segment.getId())) {
+          continue;
         }
-        if((currNode.getConnectedSegments().size() <= 1) && currNode.isMultimarker()) {
-          break;
+        String neighbor = nodeId.equals(segment.getFromNodeId()) ? segment.getToNodeId()
+          : segment.getFromNodeId();
+        if ((neighbor != null) && !parent.containsKey(neighbor)) {
+          parent.put(neighbor, segment);
+          queue.add(neighbor);
         }
       }
-
-        if (isProduct) {
-        Collections.reverse(srGlyph.getConnectedSegments(reaction.getId()));
+    }
+    if (target == null) {
+      return start;
+    }
+    LinkedList<Segment> path = new LinkedList<Segment>();
+    for (String nodeId = target; !nodeId.equals(start);) {
+      Segment segment = parent.get(nodeId);
+      path.addFirst(segment);
+      nodeId = nodeId.equals(segment.getFromNodeId()) ? segment.getToNodeId()
+        : segment.getFromNodeId();
+    }
+    String nodeId = start;
+    for (Segment segment : path) {
+      if (!nodeId.equals(isProduct ? segment.getToNodeId() : segment.getFromNodeId())) {
+        reverse(segment);
       }
+      curve.add(segment.getId());
+      nodeId = isProduct ? segment.getFromNodeId() : segment.getToNodeId();
     }
+    return null;
   }
 
 
@@ -350,7 +595,7 @@ public abstract class Escher2Standard<T> implements StringLiterals {
    * @return The reversed {@code segment}.
    */
   protected Segment reverse(Segment segment) {
-    logger.fine(format(bundle.getString("Escher2Standard.reversed_segment"),
+    logger.fine(() -> format(bundle.getString("Escher2Standard.reversed_segment"),
       segment.getId(), segment.getFromNodeId(), segment.getToNodeId()));
     Point point = segment.removeBasePoint1();
     segment.setBasePoint1(segment.removeBasePoint2());
@@ -433,4 +678,14 @@ public abstract class Escher2Standard<T> implements StringLiterals {
     this.secondaryNodeRatio = secondaryNodeRatio;
   }
 
+
+  /**
+   * @param threads the number of threads for independent parts of a
+   *        conversion. One means sequential conversion, zero one thread per
+   *        available processor.
+   */
+  public void setThreads(int threads) {
+    this.threads = threads;
+  }
+
 }
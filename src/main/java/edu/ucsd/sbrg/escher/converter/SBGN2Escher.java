@@ -8,6 +8,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.ResourceBundle;
 import java.util.Set;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
@@ -29,6 +30,8 @@ import edu.ucsd.sbrg.escher.model.Node;
 import edu.ucsd.sbrg.escher.model.Point;
 import edu.ucsd.sbrg.escher.model.Segment;
 import edu.ucsd.sbrg.escher.model.TextLabel;
+import edu.ucsd.sbrg.escher.util.ConversionCounters;
+import edu.ucsd.sbrg.escher.util.StringPool;
 
 /**
  * Converter from SBML Layout Extension to Escher.
@@ -78,6 +81,15 @@ public class SBGN2Escher {
    * List of process ({@link Glyph}) ids.
    */
   protected Set<String>             processIds;
+  /**
+   * Identifiers and labels of the SBGN-ML document shared by all created
+   * elements.
+   */
+  protected StringPool              strings;
+  /**
+   * Elements and problems of the current conversion.
+   */
+  protected ConversionCounters      counters;
   /**
    * List of {@link Metabolite} ids.
    */
@@ -163,15 +175,15 @@ public class SBGN2Escher {
     node.setX(glyph.getBbox().getX() + glyph.getBbox().getW() * 0.5);
     node.setY(glyph.getBbox().getY() + glyph.getBbox().getH() * 0.5);
     node.setType(Node.Type.metabolite);
-    node.setName(glyph.getLabel().getText());
-    node.setBiggId(glyph.getLabel().getText());
+    node.setName(strings.intern(glyph.getLabel().getText()));
+    node.setBiggId(node.getName(), strings);
 
     if (glyph.getLabel() != null && glyph.getLabel().getBbox() != null) {
       node.setLabelX((double) glyph.getLabel().getBbox().getX());
       node.setLabelY((double) glyph.getLabel().getBbox().getY());
     }
     else {
-      logger.warning(format(messages.getString("GlyphLabelBBoxUnavailable")));
+      counters.log(logger, Level.WARNING, "GlyphLabelBBoxUnavailable", glyph.getId());
       node.setLabelX((double) glyph.getBbox().getX());
       node.setLabelY((double) glyph.getBbox().getY());
     }
@@ -208,7 +220,7 @@ public class SBGN2Escher {
   public Node createMultiMarker(Arc.Next next) {
     Node node = new Node();
 
-    node.setId("" + (next.hashCode() & 0xfffffff));
+    node.setId(strings.intern("" + (next.hashCode() & 0xfffffff)));
     node.setX((double) next.getX());
     node.setY((double) next.getY());
     node.setType(Node.Type.multimarker);
@@ -230,32 +242,32 @@ public class SBGN2Escher {
 
 
     reaction.setId((glyph.getId().hashCode() & 0xfffffff) + "");
-    logger.info(format(messages.getString("GlyphToReactionId"), glyph.getId(), reaction.getId()));
+    logger.fine(() -> format(messages.getString("GlyphToReactionId"), glyph.getId(), reaction.getId()));
     if (glyph.getLabel() == null) {
       reaction.setName("R" + reactionId++);
-      logger.info(format(messages.getString("GlyphReactionNoLabel"), 
+      logger.fine(() -> format(messages.getString("GlyphReactionNoLabel"), 
         glyph.getId(), reaction.getName()));
     }
     else {
-      logger.fine(format(messages.getString("GlyphReactionLabel"),
+      logger.fine(() -> format(messages.getString("GlyphReactionLabel"),
         glyph.getId(), glyph.getLabel().getText()));
       reaction.setName(glyph.getLabel().getText());
     }
     reaction.setBiggId(reaction.getName());
-    logger.fine(format(messages.getString("ReactionIdenticalNameAndBigg"),
+    logger.fine(() -> format(messages.getString("ReactionIdenticalNameAndBigg"),
       reaction.getId(), reaction.getName()));
     reaction.setLabelX(((double) glyph.getBbox().getX()));
     reaction.setLabelY(((double) glyph.getBbox().getY()));
     reaction.setMidmarker(createMidMarker(glyph));
 
-    logger.fine(format(messages.getString("ReactionSegmentAddInit"), reaction.getId()));
+    logger.fine(() -> format(messages.getString("ReactionSegmentAddInit"), reaction.getId()));
     // This adds arcs which are either "production" or "consumption" into the reaction.
     document.getMap().getArc().stream().filter(a -> a.getClazz().equals("production") ||
       a.getClazz().equals("consumption")).collect(Collectors.toList()).forEach((a) -> {
 
         // If the arc is linked to the process node (mid-marker) of the reaction.
         if (glyph.getId().equals(arc2GlyphMap.get(a.getId()))) {
-          logger.info(format(messages.getString("ReactionArcsAdd"), a.getId(), reaction.getId()));
+          logger.fine(() -> format(messages.getString("ReactionArcsAdd"), a.getId(), reaction.getId()));
           sources.add(port2GlyphMap.get(getIdFromSourceOrTarget(a.getSource())));
           targets.add(port2GlyphMap.get(getIdFromSourceOrTarget(a.getTarget())));
           createSegments(a).forEach(reaction::addSegment);
@@ -263,17 +275,17 @@ public class SBGN2Escher {
 
         Metabolite metabolite = new Metabolite();
         if (a.getClazz().equals("consumption") && glyph.getId().equals(arc2GlyphMap.get(a.getId()))) {
-          logger.info(format(messages.getString("ConsumptionArcNegativeCoeff"), a.getId()));
+          logger.fine(() -> format(messages.getString("ConsumptionArcNegativeCoeff"), a.getId()));
           metabolite.setCoefficient(-1.0);
-          metabolite.setId(glyphId2LabelMap.get(getGlyphIdFromPortId(getIdFromSourceOrTarget(a
-            .getSource()))));
+          metabolite.setId(strings.intern(glyphId2LabelMap.get(getGlyphIdFromPortId(getIdFromSourceOrTarget(a
+            .getSource())))));
         }
 
         if (a.getClazz().equals("production") && glyph.getId().equals(arc2GlyphMap.get(a.getId()))) {
-          logger.info(format(messages.getString("ProductionArcNegativeCoeff"), a.getId()));
+          logger.fine(() -> format(messages.getString("ProductionArcNegativeCoeff"), a.getId()));
           metabolite.setCoefficient(1.0);
-          metabolite.setId(glyphId2LabelMap.get(getGlyphIdFromPortId(getIdFromSourceOrTarget(a
-            .getTarget()))));
+          metabolite.setId(strings.intern(glyphId2LabelMap.get(getGlyphIdFromPortId(getIdFromSourceOrTarget(a
+            .getTarget())))));
         }
 
         reaction.addMetabolite(metabolite);
@@ -288,7 +300,7 @@ public class SBGN2Escher {
       reaction.setGeneReactionRule(a.getId());
     });
 
-    logger.fine(format(messages.getString("ReactionSegmentAddFinish"), reaction.getId()));
+    logger.fine(() -> format(messages.getString("ReactionSegmentAddFinish"), reaction.getId()));
 
     // If the the set of sources is mutually exclusive from the set of targets, then the reaction
     // is not reversible.
@@ -350,18 +362,18 @@ public class SBGN2Escher {
   public List<Segment> createSegments(Arc arc) {
     List<Segment> segments = new ArrayList<>();
 
-    logger.info(format(messages.getString("ArcSegmentCount"), arc.getId(), arc.getNext().size()));
+    logger.fine(() -> format(messages.getString("ArcSegmentCount"), arc.getId(), arc.getNext().size()));
     Segment segment = new Segment();
 
     segment.setId(arc.getId() + ".S" + 0);
-    segment.setFromNodeId(getGlyphIdFromPortId(getIdFromSourceOrTarget(arc.getSource())));
+    segment.setFromNodeId(strings.intern(getGlyphIdFromPortId(getIdFromSourceOrTarget(arc.getSource()))));
 
     // A segment is created for every next element in an arc.
     for (int i = 0; i < arc.getNext().size(); i++) {
 
       Arc.Next next = arc.getNext().get(i);
 
-      segment.setToNodeId("" + (next.hashCode() & 0xfffffff));
+      segment.setToNodeId(strings.intern("" + (next.hashCode() & 0xfffffff)));
 
       if (!next.getPoint().isEmpty()) {
         Point point = new Point();
@@ -376,16 +388,18 @@ public class SBGN2Escher {
       }
 
       segments.add(segment);
-      logger.fine(format(messages.getString("SegmentAdd"), segment.getId(),
-        segment.getFromNodeId(), segment.getToNodeId()));
+      if (logger.isLoggable(Level.FINE)) {
+        logger.fine(format(messages.getString("SegmentAdd"), segment.getId(),
+          segment.getFromNodeId(), segment.getToNodeId()));
+      }
 
       segment = new Segment();
 
       segment.setId(arc.getId() + ".S" + (i+1));
-      segment.setFromNodeId("" + (next.hashCode() & 0xfffffff));
+      segment.setFromNodeId(strings.intern("" + (next.hashCode() & 0xfffffff)));
     }
 
-    segment.setToNodeId(getGlyphIdFromPortId(getIdFromSourceOrTarget(arc.getTarget())));
+    segment.setToNodeId(strings.intern(getGlyphIdFromPortId(getIdFromSourceOrTarget(arc.getTarget()))));
 
     if (!arc.getEnd().getPoint().isEmpty()) {
       Point point = new Point();
@@ -400,8 +414,10 @@ public class SBGN2Escher {
     }
 
     segments.add(segment);
-    logger.fine(format(messages.getString("SegmentAdd"),
-      segment.getId(), segment.getFromNodeId(), segment.getToNodeId()));
+    if (logger.isLoggable(Level.FINE)) {
+      logger.fine(format(messages.getString("SegmentAdd"),
+        segment.getId(), segment.getFromNodeId(), segment.getToNodeId()));
+    }
 
     return segments;
   }
@@ -490,6 +506,8 @@ public class SBGN2Escher {
     logger.info(messages.getString("SBGNImportInit"));
 
     this.document = document;
+    strings = new StringPool();
+    counters = new ConversionCounters(getClass().getSimpleName());
     Map map = document.getMap();
 
     addCanvasInfo(map.getBbox());
@@ -503,23 +521,23 @@ public class SBGN2Escher {
       switch (component) {
 
       case "node":
-        logger.info(format(messages.getString("GlyphNode"), g.getId(), g.getClazz()));
+        logger.fine(() -> format(messages.getString("GlyphNode"), g.getId(), g.getClazz()));
         escherMap.addNode(createNode(g));
         break;
 
       case "reaction":
-        logger.info(format(messages.getString("GlyphReaction"), g.getId(), g.getClazz()));
+        logger.fine(() -> format(messages.getString("GlyphReaction"), g.getId(), g.getClazz()));
         escherMap.addNode(createMidMarker(g));
         escherMap.addReaction(createReaction(g));
         break;
 
       case "text_label":
-        logger.info(format(messages.getString("GlyphTextLabel"), g.getId(), g.getClazz()));
+        logger.fine(() -> format(messages.getString("GlyphTextLabel"), g.getId(), g.getClazz()));
         escherMap.addTextLabel(createTextLabel(g));
         break;
 
       default:
-        logger.warning(format(messages.getString("GlyphUnsupportedClass"), g.getId(), g.getClazz()));
+        counters.log(logger, Level.WARNING, "GlyphUnsupportedClass", g.getId(), g.getClazz());
         break;
 
       }
@@ -528,12 +546,16 @@ public class SBGN2Escher {
     map.getArc().stream().filter(a -> a.getClazz().equals("production") || a.getClazz().equals("consumption"))
     .collect(Collectors.toList()).forEach(a -> {
 
-      logger.info(format(messages.getString("ArcMultiMarkerCount"), a.getId(), a.getNext().size()));
+      logger.fine(() -> format(messages.getString("ArcMultiMarkerCount"), a.getId(), a.getNext().size()));
       a.getNext().forEach(next -> {
         escherMap.addNode(createMultiMarker(next));
       });
     });
 
+    counters.add("nodes", escherMap.getNodesCount());
+    counters.add("reactions", escherMap.getReactionCount());
+    counters.add("text labels", escherMap.getTextLabelCount());
+    counters.logSummary(logger);
     return escherMap;
   }
 
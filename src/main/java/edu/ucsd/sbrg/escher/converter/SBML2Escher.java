@@ -5,6 +5,7 @@ import static java.text.MessageFormat.format;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.ResourceBundle;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import javax.swing.tree.TreeNode;
@@ -39,7 +40,9 @@ import edu.ucsd.sbrg.escher.model.Node;
 import edu.ucsd.sbrg.escher.model.Point;
 import edu.ucsd.sbrg.escher.model.Segment;
 import edu.ucsd.sbrg.escher.model.TextLabel;
+import edu.ucsd.sbrg.escher.util.ConversionCounters;
 import edu.ucsd.sbrg.escher.util.EscherOptions;
+import edu.ucsd.sbrg.escher.util.StringPool;
 
 /**
  * Converter from SBML Layout Extension to Escher.
@@ -73,6 +76,14 @@ public class SBML2Escher {
    * List of layouts exported from the SBML document.
    */
   protected List<Layout>    layouts;
+  /**
+   * Identifiers of the SBML document shared by all created elements.
+   */
+  protected StringPool      strings;
+  /**
+   * Elements and problems of the current conversion.
+   */
+  protected ConversionCounters counters;
   
   /**
    * The height of primary nodes; in case bounding boxes have no dimensions
@@ -101,12 +112,14 @@ public class SBML2Escher {
   public List<EscherMap> convert(SBMLDocument doc) {
     logger.fine(format(messages.getString("SBMLImportInit")));
     document = doc;
+    strings = new StringPool();
+    counters = new ConversionCounters(getClass().getSimpleName());
 
     layouts = ((LayoutModelPlugin) doc.getModel().getPlugin(LayoutConstants.shortLabel)).getListOfLayouts();
     logger.info(format(messages.getString("SBMLLayoutCount"), layouts.size()));
 
     layouts.forEach((layout) -> {
-      logger.info(format(messages.getString("SBMLLayoutConversionInit")));
+      logger.info(format(messages.getString("SBMLLayoutConversionInit"), layout.getId()));
 
       EscherMap map = new EscherMap();
 
@@ -144,26 +157,33 @@ public class SBML2Escher {
         map.addReaction(r);
 
         for (SpeciesReferenceGlyph sRG: rG.getListOfSpeciesReferenceGlyphs()) {
-          logger.info(format(messages.getString("SRGToSegments"), rG.getId(), sRG.getId(), "" + (rG.getId().hashCode() & 0xfffffff)));
-          createSegments(sRG, rG).forEach(s -> r.addSegment(s));
+          logger.fine(() -> format(messages.getString("SRGToSegments"), rG.getId(), sRG.getId(), "" + (rG.getId().hashCode() & 0xfffffff)));
+          List<Segment> segments = createSegments(sRG, rG);
+          segments.forEach(s -> r.addSegment(s));
+          counters.add("segments", segments.size());
 
           // Setting node_is_primary of nodes.
           if ((sRG.getSpeciesReferenceRole() == SpeciesReferenceRole.PRODUCT) ||
               (sRG.getSpeciesReferenceRole() == SpeciesReferenceRole.SUBSTRATE)) {
             map.getNode(sRG.getSpeciesGlyph()).setPrimary(true);
-            logger.info(format(messages.getString("PrimaryNode"), sRG.getSpeciesGlyph()));
+            logger.fine(() -> format(messages.getString("PrimaryNode"), sRG.getSpeciesGlyph()));
           } else if ((sRG.getSpeciesReferenceRole() == SpeciesReferenceRole.SIDEPRODUCT) ||
               (sRG.getSpeciesReferenceRole() == SpeciesReferenceRole.SIDESUBSTRATE)) {
             map.getNode(sRG.getSpeciesGlyph()).setPrimary(false);
-            logger.info(format(messages.getString("SecondaryNode"), sRG.getSpeciesGlyph()));
+            logger.fine(() -> format(messages.getString("SecondaryNode"), sRG.getSpeciesGlyph()));
           }
         };
 
       });
 
       escherMaps.add(map);
+      counters.count("layouts");
+      counters.add("nodes", map.getNodesCount());
+      counters.add("reactions", map.getReactionCount());
+      counters.add("text labels", map.getTextLabelCount());
     });
 
+    counters.logSummary(logger);
     return escherMaps;
   }
 
@@ -187,7 +207,7 @@ public class SBML2Escher {
     }
     else {
       // Default values if dimensions not found.
-      logger.warning(messages.getString("RootDimensionsNotFound"));
+      counters.log(logger, Level.WARNING, "RootDimensionsNotFound");
       canvas.setHeight(layout.getDimensions().getHeight());
       canvas.setWidth(layout.getDimensions().getWidth());
     }
@@ -222,7 +242,7 @@ public class SBML2Escher {
 
     if (!textLabel.isSetText()) {
       // TODO: Log about no text, so ignoring text label.
-      logger.warning(format(messages.getString("TextGlyphNoText"), textLabel.getId()));
+      counters.log(logger, Level.WARNING, "TextGlyphNoText", textLabel.getId());
     }
 
     BoundingBox bbox = textGlyph.getBoundingBox();
@@ -244,10 +264,11 @@ public class SBML2Escher {
 
     node.setType(Node.Type.metabolite);
     node.setId(speciesGlyph.getId());
-    node.setBiggId(speciesGlyph.getSpecies());
-    if (node.getBiggId().startsWith("M_")) {
-      node.setBiggId(node.getBiggId().substring(2));
+    String biggId = speciesGlyph.getSpecies();
+    if (biggId.startsWith("M_")) {
+      biggId = biggId.substring(2);
     }
+    node.setBiggId(biggId, strings);
     NamedSBase species = speciesGlyph.getSpeciesInstance();
     if ((species != null) && (species.isSetName())) {
       node.setName(species.getName());
@@ -268,7 +289,7 @@ public class SBML2Escher {
     node.setLabelX(x);
     node.setLabelY(y + dim.getHeight() * 3d / 4d);
 
-    logger.info(format(messages.getString("SpeciesGlyphToNode"), speciesGlyph.getId()));
+    logger.fine(() -> format(messages.getString("SpeciesGlyphToNode"), speciesGlyph.getId()));
     node.setPrimary(true);
 
     return node;
@@ -286,13 +307,13 @@ public class SBML2Escher {
 
     node.setId(reactionGlyph.getId());
     node.setType(Node.Type.midmarker);
-    logger.info(format(messages.getString("ReactionToMidMarker"), reactionGlyph.getId()));
+    logger.fine(() -> format(messages.getString("ReactionToMidMarker"), reactionGlyph.getId()));
 
     Point point = new Point();
     BoundingBox bbox = reactionGlyph.getBoundingBox();
     if ((bbox != null) || !reactionGlyph.isSetCurve()) {
       // If position is available, use its center as anchor.
-      logger.info(format(messages.getString("ReactionGlyphBBoxFound"), reactionGlyph.getId()));
+      logger.fine(() -> format(messages.getString("ReactionGlyphBBoxFound"), reactionGlyph.getId()));
       if ((bbox != null) && bbox.isSetDimensions() && bbox.isSetPosition()) {
         org.sbml.jsbml.ext.layout.Point pos = bbox.getPosition();
         Dimensions dim = bbox.getDimensions();
@@ -311,7 +332,7 @@ public class SBML2Escher {
     }
     else {
       // If position is not available, calculate center of the curve.
-      logger.info(format(messages.getString("ReactionGlyphBBoxNotFound"), reactionGlyph.getId()));
+      logger.fine(() -> format(messages.getString("ReactionGlyphBBoxNotFound"), reactionGlyph.getId()));
       Curve curve = reactionGlyph.getCurve();
       point.setX((curve.getCurveSegment(0).getStart().x() +
           curve.getCurveSegment(curve.getCurveSegmentCount()-1).getStart().x()) / 2d);
@@ -334,7 +355,7 @@ public class SBML2Escher {
    * @return The created {@code nodes}(multi-markers).
    */
   protected List<Node> createMultiMarkers(SpeciesReferenceGlyph sRG) {
-    logger.info(format(messages.getString("SRGToMultiMarkers"), sRG.getId()));
+    logger.fine(() -> format(messages.getString("SRGToMultiMarkers"), sRG.getId()));
     List<Node> multiMarkers = new ArrayList<>();
 
     Node node;
@@ -372,7 +393,7 @@ public class SBML2Escher {
 
       if(sRG.getRole() == null) {
         sRG.setRole(SpeciesReferenceRole.UNDEFINED);
-        logger.warning(format(messages.getString("SRGToMultiMarkersNullRole"), sRG.getId()));
+        counters.log(logger, Level.WARNING, "SRGToMultiMarkersNullRole", sRG.getId());
       }
 
       if (SBO.isChildOf(sRG.getRole().toSBOterm(), SpeciesReferenceRole.PRODUCT.toSBOterm())) {
@@ -403,7 +424,7 @@ public class SBML2Escher {
       }
     }
 
-    logger.info(format(messages.getString("MultiMarkerCount"), multiMarkers.size(), sRG.getId()));
+    logger.fine(() -> format(messages.getString("MultiMarkerCount"), multiMarkers.size(), sRG.getId()));
 
     return multiMarkers;
   }
@@ -471,14 +492,14 @@ public class SBML2Escher {
     reaction.setName(reac.getName());
     reaction.setId("" + (reactionGlyph.getId().hashCode() & 0xfffffff));
     reaction.setBiggId(reac.getId());
-    logger.info(format(messages.getString("ReactionGlyphToReaction"), reactionGlyph.getId(),
+    logger.fine(() -> format(messages.getString("ReactionGlyphToReaction"), reactionGlyph.getId(),
       reaction.getId()));
 
     Point point = new Point();
     BoundingBox bbox = reactionGlyph.getBoundingBox();
     if ((bbox != null) || !reactionGlyph.isSetCurve()) {
       // If BBox is available, use its center as anchor.
-      logger.info(format(messages.getString("ReactionGlyphBBoxFound"), reactionGlyph.getId()));
+      logger.fine(() -> format(messages.getString("ReactionGlyphBBoxFound"), reactionGlyph.getId()));
       if ((bbox != null) && bbox.isSetPosition() && bbox.isSetDimensions()) {
         org.sbml.jsbml.ext.layout.Point pos = bbox.getPosition();
         Dimensions dim = bbox.getDimensions();
@@ -497,7 +518,7 @@ public class SBML2Escher {
     }
     else {
       // If BBox is not available, calculate its center using the curve.
-      logger.info(format(messages.getString("ReactionGlyphBBoxNotFound")));
+      logger.fine(() -> format(messages.getString("ReactionGlyphBBoxNotFound")));
       Curve curve = reactionGlyph.getCurve();
       point.setX((curve.getCurveSegment(0).getStart().x() +
           curve.getCurveSegment(curve.getCurveSegmentCount()-1).getStart().x()) / 2d);
@@ -508,16 +529,16 @@ public class SBML2Escher {
     reaction.setLabelY(point.getY());
 
     // Add metabolite with positive coefficient (products).
-    logger.info(format(messages.getString("ReactionGlyphProductCount"), reac.getProductCount()));
+    logger.fine(() -> format(messages.getString("ReactionGlyphProductCount"), reac.getProductCount()));
     for (SpeciesReference p : reac.getListOfProducts()) {
-      logger.info(format(messages.getString("MetaboliteCoefficient"), p.getSpecies(), 1d));
+      logger.fine(() -> format(messages.getString("MetaboliteCoefficient"), p.getSpecies(), 1d));
       reaction.addMetabolite(createMetabolite(p));
     };
 
     // Add metabolite with negative coefficient (reactants).
-    logger.info(format(messages.getString("ReactionGlyphSubstrateCount"), reac.getListOfReactants().size()));
+    logger.fine(() -> format(messages.getString("ReactionGlyphSubstrateCount"), reac.getListOfReactants().size()));
     for (SpeciesReference r : reac.getListOfReactants()) {
-      logger.info(format(messages.getString("MetaboliteCoefficient"), r.getSpecies(), -1d));
+      logger.fine(() -> format(messages.getString("MetaboliteCoefficient"), r.getSpecies(), -1d));
       r.setStoichiometry(-r.getStoichiometry());
       reaction.addMetabolite(createMetabolite(r));
     };
@@ -547,7 +568,7 @@ public class SBML2Escher {
     if (sRG.isSetCurve()) {
       List<CurveSegment> cSs = sRG.getCurve().getListOfCurveSegments();
 
-      logger.info(format(messages.getString("CurveSegmentCount"), sRG.getId(), cSs.size()));
+      logger.fine(() -> format(messages.getString("CurveSegmentCount"), sRG.getId(), cSs.size()));
 
       Segment segment = new Segment();
       segment.setId(sRG.getId() + ".S" + 0);
@@ -561,8 +582,10 @@ public class SBML2Escher {
           copyBasePoints(cs, segment, SBO.isChildOf(sRG.getRole().toSBOterm(), SpeciesReferenceRole.PRODUCT.toSBOterm()));
         }
         segments.add(segment);
-        logger.info(format(messages.getString("CurveSegmentAdd"),
-          segment.getId(), segment.getFromNodeId(), segment.getToNodeId()));
+        if (logger.isLoggable(Level.FINE)) {
+          logger.fine(format(messages.getString("CurveSegmentAdd"),
+            segment.getId(), segment.getFromNodeId(), segment.getToNodeId()));
+        }
 
         segment = new Segment();
 
@@ -579,8 +602,10 @@ public class SBML2Escher {
         }
       }
       segments.add(segment);
-      logger.info(format(messages.getString("CurveSegmentAdd"),
-        segment.getId(), segment.getFromNodeId(), segment.getToNodeId()));
+      if (logger.isLoggable(Level.FINE)) {
+        logger.fine(format(messages.getString("CurveSegmentAdd"),
+          segment.getId(), segment.getFromNodeId(), segment.getToNodeId()));
+      }
     }else{
     	// at the moment only straight lines are supported
 		Segment segment = new Segment();
@@ -588,8 +613,10 @@ public class SBML2Escher {
    	    segment.setFromNodeId(rG.getId());
 		segment.setToNodeId(sRG.getSpeciesGlyph());
 	    segments.add(segment);
-	    logger.info(format(messages.getString("CurveSegmentAdd"),
-	        segment.getId(), segment.getFromNodeId(), segment.getToNodeId()));
+	    if (logger.isLoggable(Level.FINE)) {
+	      logger.fine(format(messages.getString("CurveSegmentAdd"),
+	          segment.getId(), segment.getFromNodeId(), segment.getToNodeId()));
+	    }
     	// TODO draw curves instead of straight lines
     }
 
@@ -628,10 +655,11 @@ public class SBML2Escher {
   protected Metabolite createMetabolite(SpeciesReference speciesReference) {
     Metabolite metabolite = new Metabolite();
 
-    metabolite.setId(speciesReference.getSpecies());
-    if (metabolite.getId().startsWith("M_")) {
-      metabolite.setId(metabolite.getId().substring(2));
+    String biggId = speciesReference.getSpecies();
+    if (biggId.startsWith("M_")) {
+      biggId = biggId.substring(2);
     }
+    metabolite.setId(strings.intern(biggId));
     metabolite.setCoefficient(speciesReference.getCalculatedStoichiometry());
 
     return metabolite;
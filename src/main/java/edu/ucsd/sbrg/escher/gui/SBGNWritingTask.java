@@ -14,7 +14,7 @@
 package edu.ucsd.sbrg.escher.gui;
 
 import de.zbit.io.OpenedFile;
-import org.sbgn.SbgnUtil;
+import edu.ucsd.sbrg.sbgn.SBGNIO;
 import org.sbgn.bindings.Sbgn;
 
 import javax.swing.*;
@@ -43,7 +43,7 @@ public class SBGNWritingTask extends SwingWorker<File, Void> {
   @Override
   protected File doInBackground() throws Exception {
     try {
-      SbgnUtil.writeToFile(openedFile.getDocument(), openedFile.getFile());
+      SBGNIO.write(openedFile.getDocument(), openedFile.getFile());
     } catch (Throwable t) {
       t.printStackTrace();
       throw t;
@@ -16,18 +16,21 @@ package edu.ucsd.sbrg.escher.model;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 /**
+ * Like the coordinates, width and height are primitive {@code double} values
+ * with {@link Double#NaN} for unset values, see {@link AbstractPosition}.
+ *
  * @author Andreas Dr&auml;ger
  */
 public abstract class AbstractBox extends AbstractPosition implements Box {
 
   /**
-   *
+   * {@link Double#NaN} if not set.
    */
-  protected Double height;
+  protected double height = Double.NaN;
   /**
-   *
+   * {@link Double#NaN} if not set.
    */
-  protected Double width;
+  protected double width = Double.NaN;
 
 
   /**
@@ -35,7 +38,7 @@ public abstract class AbstractBox extends AbstractPosition implements Box {
    */
   public AbstractBox() {
     super();
-    x = y = width = height = null;
+    x = y = width = height = Double.NaN;
   }
 
 
@@ -68,18 +71,10 @@ public abstract class AbstractBox extends AbstractPosition implements Box {
       return false;
     }
     AbstractBox other = (AbstractBox) obj;
-    if (height == null) {
-      if (other.height != null) {
-        return false;
-      }
-    } else if (!height.equals(other.height)) {
+    if (Double.compare(height, other.height) != 0) {
       return false;
     }
-    if (width == null) {
-      if (other.width != null) {
-        return false;
-      }
-    } else if (!width.equals(other.width)) {
+    if (Double.compare(width, other.width) != 0) {
       return false;
     }
     return true;
@@ -92,7 +87,7 @@ public abstract class AbstractBox extends AbstractPosition implements Box {
   @Override
   @JsonProperty("height")
   public Double getHeight() {
-    return height;
+    return isSetHeight() ? Double.valueOf(height) : null;
   }
 
 
@@ -102,6 +97,24 @@ public abstract class AbstractBox extends AbstractPosition implements Box {
   @Override
   @JsonProperty("width")
   public Double getWidth() {
+    return isSetWidth() ? Double.valueOf(width) : null;
+  }
+
+
+  /* (non-Javadoc)
+   * @see edu.ucsd.sbrg.escher.model.Box#height()
+   */
+  @Override
+  public double height() {
+    return height;
+  }
+
+
+  /* (non-Javadoc)
+   * @see edu.ucsd.sbrg.escher.model.Box#width()
+   */
+  @Override
+  public double width() {
     return width;
   }
 
@@ -113,8 +126,8 @@ public abstract class AbstractBox extends AbstractPosition implements Box {
   public int hashCode() {
     final int prime = 31;
     int result = super.hashCode();
-    result = prime * result + ((height == null) ? 0 : height.hashCode());
-    result = prime * result + ((width == null) ? 0 : width.hashCode());
+    result = prime * result + Double.hashCode(height);
+    result = prime * result + Double.hashCode(width);
     return result;
   }
 
@@ -124,7 +137,7 @@ public abstract class AbstractBox extends AbstractPosition implements Box {
    */
   @Override
   public boolean isSetHeight() {
-    return height != null;
+    return !Double.isNaN(height);
   }
 
 
@@ -133,7 +146,7 @@ public abstract class AbstractBox extends AbstractPosition implements Box {
    */
   @Override
   public boolean isSetWidth() {
-    return width != null;
+    return !Double.isNaN(width);
   }
 
 
@@ -143,7 +156,7 @@ public abstract class AbstractBox extends AbstractPosition implements Box {
   @Override
   @JsonProperty("height")
   public void setHeight(Double height) {
-    this.height = height;
+    this.height = (height != null) ? height.doubleValue() : Double.NaN;
   }
 
 
@@ -153,7 +166,7 @@ public abstract class AbstractBox extends AbstractPosition implements Box {
   @Override
   @JsonProperty("width")
   public void setWidth(Double width) {
-    this.width = width;
+    this.width = (width != null) ? width.doubleValue() : Double.NaN;
   }
 
 
@@ -165,13 +178,13 @@ public abstract class AbstractBox extends AbstractPosition implements Box {
     StringBuilder builder = new StringBuilder();
     builder.append(getClass().getSimpleName());
     builder.append(" [x=");
-    builder.append(x);
+    builder.append(getX());
     builder.append(", y=");
-    builder.append(y);
+    builder.append(getY());
     builder.append(", width=");
-    builder.append(width);
+    builder.append(getWidth());
     builder.append(", height=");
-    builder.append(height);
+    builder.append(getHeight());
     builder.append("]");
     return builder.toString();
   }
@@ -13,6 +13,7 @@
  */
 package edu.ucsd.sbrg.escher.model;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
@@ -23,7 +24,7 @@ import java.util.Set;
 public abstract class AbstractEscherBase implements EscherBase {
 
   /**
-   *
+   * Created on demand, because most elements never get any user objects.
    */
   private Map<String, Object> userObjects;
 
@@ -33,7 +34,7 @@ public abstract class AbstractEscherBase implements EscherBase {
    */
   public AbstractEscherBase() {
     super();
-    userObjects = new HashMap<String, Object>();
+    userObjects = null;
   }
 
 
@@ -67,14 +68,7 @@ public abstract class AbstractEscherBase implements EscherBase {
       return false;
     }
     AbstractEscherBase other = (AbstractEscherBase) obj;
-    if (userObjects == null) {
-      if (other.userObjects != null) {
-        return false;
-      }
-    } else if (!userObjects.equals(other.userObjects)) {
-      return false;
-    }
-    return true;
+    return userObjects().equals(other.userObjects());
   }
 
 
@@ -83,7 +77,7 @@ public abstract class AbstractEscherBase implements EscherBase {
    */
   @Override
   public Object getUserObject(String key) {
-    return userObjects.get(key);
+    return userObjects().get(key);
   }
 
 
@@ -94,7 +88,7 @@ public abstract class AbstractEscherBase implements EscherBase {
   public int hashCode() {
     final int prime = 31;
     int result = super.hashCode();
-    result = prime * result + ((userObjects == null) ? 0 : userObjects.hashCode());
+    result = prime * result + userObjects().hashCode();
     return result;
   }
 
@@ -104,6 +98,9 @@ public abstract class AbstractEscherBase implements EscherBase {
    */
   @Override
   public <T> Object putUserObject(String key, T value) {
+    if (userObjects == null) {
+      userObjects = new HashMap<String, Object>();
+    }
     return userObjects.put(key, value);
   }
 
@@ -113,7 +110,7 @@ public abstract class AbstractEscherBase implements EscherBase {
    */
   @Override
   public Set<Map.Entry<String, Object>> userObjectEntrySet() {
-    return userObjects.entrySet();
+    return userObjects().entrySet();
   }
 
 
@@ -122,7 +119,15 @@ public abstract class AbstractEscherBase implements EscherBase {
    */
   @Override
   public Set<String> userObjectKeys() {
-    return userObjects.keySet();
+    return userObjects().keySet();
+  }
+
+
+  /**
+   * @return the user objects or an empty map if there are none.
+   */
+  private Map<String, Object> userObjects() {
+    return (userObjects != null) ? userObjects : Collections.<String, Object>emptyMap();
   }
 
 }
@@ -16,18 +16,23 @@ package edu.ucsd.sbrg.escher.model;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 /**
+ * Stores the coordinates as primitive {@code double} values, where
+ * {@link Double#NaN} stands for an unset coordinate. Hence, setting a
+ * coordinate to {@code null} or {@link Double#NaN} unsets it, and the getters
+ * return {@code null} for unset coordinates.
+ *
  * @author Andreas Dr&auml;ger
  */
 public abstract class AbstractPosition extends AbstractEscherBase implements Position {
 
   /**
-   *
+   * {@link Double#NaN} if not set.
    */
-  protected Double x;
+  protected double x = Double.NaN;
   /**
-   *
+   * {@link Double#NaN} if not set.
    */
-  protected Double y;
+  protected double y = Double.NaN;
 
 
   /**
@@ -35,7 +40,7 @@ public abstract class AbstractPosition extends AbstractEscherBase implements Pos
    */
   public AbstractPosition() {
     super();
-    x = y = null;
+    x = y = Double.NaN;
   }
 
 
@@ -79,18 +84,10 @@ public abstract class AbstractPosition extends AbstractEscherBase implements Pos
       return false;
     }
     AbstractPosition other = (AbstractPosition) obj;
-    if (x == null) {
-      if (other.x != null) {
-        return false;
-      }
-    } else if (!x.equals(other.x)) {
+    if (Double.compare(x, other.x) != 0) {
       return false;
     }
-    if (y == null) {
-      if (other.y != null) {
-        return false;
-      }
-    } else if (!y.equals(other.y)) {
+    if (Double.compare(y, other.y) != 0) {
       return false;
     }
     return true;
@@ -103,7 +100,7 @@ public abstract class AbstractPosition extends AbstractEscherBase implements Pos
   @Override
   @JsonProperty("x")
   public Double getX() {
-    return x;
+    return isSetX() ? Double.valueOf(x) : null;
   }
 
 
@@ -113,6 +110,24 @@ public abstract class AbstractPosition extends AbstractEscherBase implements Pos
   @Override
   @JsonProperty("y")
   public Double getY() {
+    return isSetY() ? Double.valueOf(y) : null;
+  }
+
+
+  /* (non-Javadoc)
+   * @see edu.ucsd.sbrg.escher.model.Position#x()
+   */
+  @Override
+  public double x() {
+    return x;
+  }
+
+
+  /* (non-Javadoc)
+   * @see edu.ucsd.sbrg.escher.model.Position#y()
+   */
+  @Override
+  public double y() {
     return y;
   }
 
@@ -124,8 +139,8 @@ public abstract class AbstractPosition extends AbstractEscherBase implements Pos
   public int hashCode() {
     final int prime = 31;
     int result = super.hashCode();
-    result = prime * result + ((x == null) ? 0 : x.hashCode());
-    result = prime * result + ((y == null) ? 0 : y.hashCode());
+    result = prime * result + Double.hashCode(x);
+    result = prime * result + Double.hashCode(y);
     return result;
   }
 
@@ -135,7 +150,7 @@ public abstract class AbstractPosition extends AbstractEscherBase implements Pos
    */
   @Override
   public boolean isSetX() {
-    return x != null;
+    return !Double.isNaN(x);
   }
 
 
@@ -144,7 +159,7 @@ public abstract class AbstractPosition extends AbstractEscherBase implements Pos
    */
   @Override
   public boolean isSetY() {
-    return y != null;
+    return !Double.isNaN(y);
   }
 
 
@@ -154,7 +169,7 @@ public abstract class AbstractPosition extends AbstractEscherBase implements Pos
   @Override
   @JsonProperty("x")
   public void setX(Double x) {
-    this.x = x;
+    this.x = (x != null) ? x.doubleValue() : Double.NaN;
   }
 
 
@@ -164,7 +179,7 @@ public abstract class AbstractPosition extends AbstractEscherBase implements Pos
   @Override
   @JsonProperty("y")
   public void setY(Double y) {
-    this.y = y;
+    this.y = (y != null) ? y.doubleValue() : Double.NaN;
   }
 
 
@@ -176,9 +191,9 @@ public abstract class AbstractPosition extends AbstractEscherBase implements Pos
     StringBuilder builder = new StringBuilder();
     builder.append(getClass().getSimpleName());
     builder.append(" [x=");
-    builder.append(x);
+    builder.append(getX());
     builder.append(", y=");
-    builder.append(y);
+    builder.append(getY());
     builder.append("]");
     return builder.toString();
   }
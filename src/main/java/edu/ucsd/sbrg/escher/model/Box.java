@@ -39,6 +39,20 @@ public interface Box extends EscherBase, Position {
    */
   Double getWidth();
 
+  /**
+   * Like {@link #getHeight()}, but without creating a {@link Double} object.
+   *
+   * @return the height or {@link Double#NaN} if not set.
+   */
+  double height();
+
+  /**
+   * Like {@link #getWidth()}, but without creating a {@link Double} object.
+   *
+   * @return the width or {@link Double#NaN} if not set.
+   */
+  double width();
+
   /**
    * @return {@code true} if the requested property is not {@code null}.
    */
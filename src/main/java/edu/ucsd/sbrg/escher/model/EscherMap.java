@@ -15,8 +15,11 @@ package edu.ucsd.sbrg.escher.model;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
@@ -75,6 +78,25 @@ public class EscherMap extends AbstractEscherBase {
    * Escher map URL.
    */
   private String                         url;
+  /**
+   * Midmarker of each reaction, filled by {@link #postprocessMap()}.
+   */
+  private Map<String, Node>                     reaction2midmarker;
+  /**
+   * Nodes of each metabolite within each reaction, i.e., reaction id to
+   * bigg_id to nodes, filled by {@link #postprocessMap()}.
+   */
+  private Map<String, Map<String, Set<Node>>>   reaction2metabolite2nodes;
+  /**
+   * Ids of the reactions whose segments end at each node, filled by
+   * {@link #postprocessMap()}.
+   */
+  private Map<String, Set<String>>              node2reactions;
+  /**
+   * The segments of every reaction that end at every node, set by the
+   * pre-processing of a conversion.
+   */
+  private SegmentAdjacency                      connectedSegments;
 
 
   /**
@@ -88,6 +110,9 @@ public class EscherMap extends AbstractEscherBase {
     bigg2nodes = new HashMap<String, Set<String>>();
     bigg2reactions = new HashMap<String, Set<String>>();
     compartments = new HashMap<String, EscherCompartment>();
+    reaction2midmarker = new HashMap<String, Node>();
+    reaction2metabolite2nodes = new HashMap<String, Map<String, Set<Node>>>();
+    node2reactions = new HashMap<String, Set<String>>();
   }
 
 
@@ -322,6 +347,39 @@ public class EscherMap extends AbstractEscherBase {
   }
 
 
+  /**
+   * @param nodeId
+   * @param reactionId
+   * @return an unmodifiable list of the ids of the segments of the given
+   *         reaction that end at the given node, ordered from the metabolite
+   *         towards the midmarker, or {@code null} if there are none or the
+   *         map has not been pre-processed for a conversion.
+   */
+  public List<String> getConnectedSegments(String nodeId, String reactionId) {
+    return connectedSegments != null ? connectedSegments.getSegmentIds(nodeId, reactionId) : null;
+  }
+
+
+  /**
+   * @return the segments of every reaction that end at every node or
+   *         {@code null} if the map has not been pre-processed for a
+   *         conversion.
+   */
+  public SegmentAdjacency getConnectedSegments() {
+    return connectedSegments;
+  }
+
+
+  /**
+   * @param reactionId
+   * @return the midmarker of the reaction with the given id or {@code null}
+   *         if the reaction has none or the map has not been post-processed.
+   */
+  public Node getMidmarker(String reactionId) {
+    return reaction2midmarker.get(reactionId);
+  }
+
+
   /**
    * @param id
    * @return
@@ -337,7 +395,7 @@ public class EscherMap extends AbstractEscherBase {
    */
   public Set<Node> getNodes(String biggId) {
     Set<String> nodeIds = bigg2nodes.get(biggId);
-    Set<Node> set = new HashSet<Node>();
+    Set<Node> set = new LinkedHashSet<Node>();
     if (nodeIds != null) {
       for (String id : nodeIds) {
         set.add(getNode(id));
@@ -347,6 +405,32 @@ public class EscherMap extends AbstractEscherBase {
   }
 
 
+  /**
+   * Looks up the nodes that represent a metabolite within one reaction
+   * without going through all nodes of this metabolite in the map.
+   *
+   * @param reactionId
+   * @param biggId
+   * @return the nodes with the given bigg_id that segments of the given
+   *         reaction end at, in the same order as in {@link #getNodes(String)}.
+   */
+  public Set<Node> getNodes(String reactionId, String biggId) {
+    Map<String, Set<Node>> metabolite2nodes = reaction2metabolite2nodes.get(reactionId);
+    Set<Node> set = metabolite2nodes != null ? metabolite2nodes.get(biggId) : null;
+    return set != null ? Collections.unmodifiableSet(set) : Collections.<Node>emptySet();
+  }
+
+
+  /**
+   * @param biggId
+   * @return the number of nodes with the given bigg_id.
+   */
+  public int getNodesCount(String biggId) {
+    Set<String> nodeIds = bigg2nodes.get(biggId);
+    return nodeIds != null ? nodeIds.size() : 0;
+  }
+
+
   /**
    * @return
    */
@@ -388,6 +472,17 @@ public class EscherMap extends AbstractEscherBase {
   }
 
 
+  /**
+   * @param nodeId
+   * @return the ids of all reactions whose segments end at the node with the
+   *         given id, in the order of {@link #reactions()}.
+   */
+  public Set<String> getReactionIds(String nodeId) {
+    Set<String> reactionIds = node2reactions.get(nodeId);
+    return reactionIds != null ? Collections.unmodifiableSet(reactionIds) : Collections.<String>emptySet();
+  }
+
+
   /**
    * @return the schema
    */
@@ -533,6 +628,15 @@ public class EscherMap extends AbstractEscherBase {
   }
 
 
+  /**
+   * @param connectedSegments
+   *        the segments of every reaction that end at every node.
+   */
+  public void setConnectedSegments(SegmentAdjacency connectedSegments) {
+    this.connectedSegments = connectedSegments;
+  }
+
+
   /**
    * @param canvas
    */
@@ -660,36 +764,40 @@ public class EscherMap extends AbstractEscherBase {
 
 
   /**
-   * Post-processes {@link EscherMap} and populates internal helper fields.
+   * Post-processes {@link EscherMap} and populates internal helper fields,
+   * including the indexes behind {@link #getMidmarker(String)},
+   * {@link #getNodes(String, String)} and {@link #getReactionIds(String)}.
    */
   public void postprocessMap() {
+    reaction2midmarker.clear();
+    reaction2metabolite2nodes.clear();
+    node2reactions.clear();
     try {
-      // Set mid-marker for every reaction by going through its nodes and
-      // checking which one is a mid-marker.
+      // Go once through the nodes of every reaction to find its mid-marker,
+      // to set nodeRefIds for metabolites, and to remember the reactions of
+      // every node.
       reactions.forEach((k, r) -> {
         r.getNodes().forEach((s) -> {
-          if (nodes.get(s).getType() == Node.Type.midmarker) {
-            r.setMidmarker(nodes.get(s));
+          Node node = nodes.get(s);
+          if (node == null) {
+            return;
           }
-        });
-
-        // Set nodeRefIds for metabolites.
-        r.getMetabolites().forEach((mk, mv) -> {
-          r.getNodes().forEach((s) -> {
-            try {
-              Node node = nodes.get(s);
-              if (node.getBiggId() == null) {
-                return;
-              }
-              if (node.getBiggId().equals(mv.getId())) {
-                mv.setNodeRefId(node.getId());
-              }
-            }
-            catch (NullPointerException ex) {
-              ex.getMessage();
+          Set<String> reactionIds = node2reactions.get(s);
+          if (reactionIds == null) {
+            reactionIds = new LinkedHashSet<String>();
+            node2reactions.put(s, reactionIds);
+          }
+          reactionIds.add(r.getId());
+          if (node.getType() == Node.Type.midmarker) {
+            r.setMidmarker(node);
+            reaction2midmarker.put(r.getId(), node);
+          }
+          if (node.getBiggId() != null) {
+            Metabolite metabolite = r.getMetabolite(node.getBiggId());
+            if (metabolite != null) {
+              metabolite.setNodeRefId(node.getId());
             }
-
-          });
+          }
         });
 
         // Bigg2Reactions.
@@ -725,6 +833,26 @@ public class EscherMap extends AbstractEscherBase {
         }
       });
 
+      // Nodes of every metabolite within each reaction, in the order of bigg2nodes.
+      bigg2nodes.forEach((biggId, nodeIds) -> {
+        for (String nodeId : nodeIds) {
+          Node node = nodes.get(nodeId);
+          for (String reactionId : getReactionIds(nodeId)) {
+            Map<String, Set<Node>> metabolite2nodes = reaction2metabolite2nodes.get(reactionId);
+            if (metabolite2nodes == null) {
+              metabolite2nodes = new HashMap<String, Set<Node>>();
+              reaction2metabolite2nodes.put(reactionId, metabolite2nodes);
+            }
+            Set<Node> set = metabolite2nodes.get(biggId);
+            if (set == null) {
+              set = new LinkedHashSet<Node>();
+              metabolite2nodes.put(biggId, set);
+            }
+            set.add(node);
+          }
+        }
+      });
+
     }
     catch (Exception ex) {
       ex.printStackTrace();
@@ -56,9 +56,10 @@ public class EscherReaction extends AbstractEscherBase implements Element {
    */
   private String            id;
   /**
-   * The x and y coordinates for the label of this reaction (the bottom left corner of the label).
+   * The x and y coordinates for the label of this reaction (the bottom left corner of the label),
+   * {@link Double#NaN} if not set.
    */
-  private Double            labelX, labelY;
+  private double            labelX = Double.NaN, labelY = Double.NaN;
   /**
    *
    */
@@ -97,7 +98,7 @@ public class EscherReaction extends AbstractEscherBase implements Element {
   public EscherReaction() {
     id = name = biggId = null;
     reversibility = null;
-    labelX = labelY = null;
+    labelX = labelY = Double.NaN;
     segments = new HashMap<String, Segment>();
     metabolites = new HashMap<String, Metabolite>();
     nodes = new HashSet<String>();
@@ -258,18 +259,10 @@ public class EscherReaction extends AbstractEscherBase implements Element {
     } else if (!id.equals(other.id)) {
       return false;
     }
-    if (labelX == null) {
-      if (other.labelX != null) {
-        return false;
-      }
-    } else if (!labelX.equals(other.labelX)) {
+    if (Double.compare(labelX, other.labelX) != 0) {
       return false;
     }
-    if (labelY == null) {
-      if (other.labelY != null) {
-        return false;
-      }
-    } else if (!labelY.equals(other.labelY)) {
+    if (Double.compare(labelY, other.labelY) != 0) {
       return false;
     }
     if (metabolites == null) {
@@ -319,16 +312,11 @@ public class EscherReaction extends AbstractEscherBase implements Element {
 
 
   /**
-   * @return
+   * @param map the post-processed map of this reaction
+   * @return the midmarker of this reaction, see {@link EscherMap#getMidmarker(String)}
    */
   public Node findMidmarker(EscherMap map) {
-    for (String nodeId : nodes) {
-      Node node = map.getNode(nodeId);
-      if (node.getType() == Node.Type.midmarker) {
-        return node;
-      }
-    }
-    return null;
+    return map.getMidmarker(getId());
   }
 
 
@@ -386,7 +374,7 @@ public class EscherReaction extends AbstractEscherBase implements Element {
    */
   @JsonProperty("label_x")
   public Double getLabelX() {
-    return labelX;
+    return isSetLabelX() ? Double.valueOf(labelX) : null;
   }
 
 
@@ -395,6 +383,26 @@ public class EscherReaction extends AbstractEscherBase implements Element {
    */
   @JsonProperty("label_y")
   public Double getLabelY() {
+    return isSetLabelY() ? Double.valueOf(labelY) : null;
+  }
+
+
+  /**
+   * Like {@link #getLabelX()}, but without creating a {@link Double} object.
+   *
+   * @return the labelX or {@link Double#NaN} if not set.
+   */
+  public double labelX() {
+    return labelX;
+  }
+
+
+  /**
+   * Like {@link #getLabelY()}, but without creating a {@link Double} object.
+   *
+   * @return the labelY or {@link Double#NaN} if not set.
+   */
+  public double labelY() {
     return labelY;
   }
 
@@ -496,8 +504,8 @@ public class EscherReaction extends AbstractEscherBase implements Element {
     int result = super.hashCode();
     result = prime * result + ((biggId == null) ? 0 : biggId.hashCode());
     result = prime * result + ((id == null) ? 0 : id.hashCode());
-    result = prime * result + ((labelX == null) ? 0 : labelX.hashCode());
-    result = prime * result + ((labelY == null) ? 0 : labelY.hashCode());
+    result = prime * result + Double.hashCode(labelX);
+    result = prime * result + Double.hashCode(labelY);
     result = prime * result + ((metabolites == null) ? 0 : metabolites.hashCode());
     result = prime * result + ((midmarker == null) ? 0 : midmarker.hashCode());
     result = prime * result + ((name == null) ? 0 : name.hashCode());
@@ -513,7 +521,7 @@ public class EscherReaction extends AbstractEscherBase implements Element {
    * @return
    */
   public Set<Node> intersect(Set<Node> nodes) {
-    Set<Node> intersection = new HashSet<Node>();
+    Set<Node> intersection = new LinkedHashSet<Node>();
     for (Node node : nodes) {
       if (this.nodes.contains(node.getId())) {
         intersection.add(node);
@@ -552,7 +560,7 @@ public class EscherReaction extends AbstractEscherBase implements Element {
    * @return {@code true} if the requested property is not {@code null}.
    */
   public boolean isSetLabelX() {
-    return labelX != null;
+    return !Double.isNaN(labelX);
   }
 
 
@@ -560,7 +568,7 @@ public class EscherReaction extends AbstractEscherBase implements Element {
    * @return {@code true} if the requested property is not {@code null}.
    */
   public boolean isSetLabelY() {
-    return labelY != null;
+    return !Double.isNaN(labelY);
   }
 
 
@@ -637,7 +645,7 @@ public class EscherReaction extends AbstractEscherBase implements Element {
    */
   @JsonProperty("label_x")
   public void setLabelX(Double labelX) {
-    this.labelX = labelX;
+    this.labelX = (labelX != null) ? labelX.doubleValue() : Double.NaN;
   }
 
 
@@ -646,7 +654,7 @@ public class EscherReaction extends AbstractEscherBase implements Element {
    */
   @JsonProperty("label_y")
   public void setLabelY(Double labelY) {
-    this.labelY = labelY;
+    this.labelY = (labelY != null) ? labelY.doubleValue() : Double.NaN;
   }
 
 
@@ -730,9 +738,9 @@ public class EscherReaction extends AbstractEscherBase implements Element {
     builder.append(", reversibility=");
     builder.append(reversibility);
     builder.append(", labelX=");
-    builder.append(labelX);
+    builder.append(getLabelX());
     builder.append(", labelY=");
-    builder.append(labelY);
+    builder.append(getLabelY());
     builder.append(", segments=");
     builder.append(segments);
     builder.append(", metabolites=");
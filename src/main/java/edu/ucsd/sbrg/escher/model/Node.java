@@ -28,6 +28,7 @@ import org.sbml.jsbml.util.ResourceManager;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 import de.zbit.util.Utils;
+import edu.ucsd.sbrg.escher.util.StringPool;
 
 /**
  * @author Andreas Dr&auml;ger
@@ -99,8 +100,9 @@ public class Node extends AbstractBox implements Element {
   private Boolean                   isPrimary;
   /**
    * Coordinates of a text label for this node. This is the bottom-left corner.
+   * {@link Double#NaN} if not set.
    */
-  private Double                    labelX, labelY;
+  private double                    labelX = Double.NaN, labelY = Double.NaN;
   /**
    * A human-readable name for this node.
    */
@@ -117,7 +119,7 @@ public class Node extends AbstractBox implements Element {
   public Node() {
     super();
     id = name = biggId = null;
-    x = y = labelX = labelY = null;
+    x = y = labelX = labelY = Double.NaN;
     nodeType = null;
   }
 
@@ -241,18 +243,10 @@ public class Node extends AbstractBox implements Element {
     } else if (!isPrimary.equals(other.isPrimary)) {
       return false;
     }
-    if (labelX == null) {
-      if (other.labelX != null) {
-        return false;
-      }
-    } else if (!labelX.equals(other.labelX)) {
+    if (Double.compare(labelX, other.labelX) != 0) {
       return false;
     }
-    if (labelY == null) {
-      if (other.labelY != null) {
-        return false;
-      }
-    } else if (!labelY.equals(other.labelY)) {
+    if (Double.compare(labelY, other.labelY) != 0) {
       return false;
     }
     if (name == null) {
@@ -315,7 +309,7 @@ public class Node extends AbstractBox implements Element {
    */
   @JsonProperty("label_x")
   public Double getLabelX() {
-    return labelX;
+    return isSetLabelX() ? Double.valueOf(labelX) : null;
   }
 
 
@@ -324,6 +318,26 @@ public class Node extends AbstractBox implements Element {
    */
   @JsonProperty("label_y")
   public Double getLabelY() {
+    return isSetLabelY() ? Double.valueOf(labelY) : null;
+  }
+
+
+  /**
+   * Like {@link #getLabelX()}, but without creating a {@link Double} object.
+   *
+   * @return the labelX or {@link Double#NaN} if not set.
+   */
+  public double labelX() {
+    return labelX;
+  }
+
+
+  /**
+   * Like {@link #getLabelY()}, but without creating a {@link Double} object.
+   *
+   * @return the labelY or {@link Double#NaN} if not set.
+   */
+  public double labelY() {
     return labelY;
   }
 
@@ -351,7 +365,7 @@ public class Node extends AbstractBox implements Element {
    */
   @Override
   public Double getX() {
-    return x;
+    return isSetX() ? Double.valueOf(x) : null;
   }
 
 
@@ -360,7 +374,7 @@ public class Node extends AbstractBox implements Element {
    */
   @Override
   public Double getY() {
-    return y;
+    return isSetY() ? Double.valueOf(y) : null;
   }
 
 
@@ -376,8 +390,8 @@ public class Node extends AbstractBox implements Element {
     result = prime * result + ((connectedSegments == null) ? 0 : connectedSegments.hashCode());
     result = prime * result + ((id == null) ? 0 : id.hashCode());
     result = prime * result + ((isPrimary == null) ? 0 : isPrimary.hashCode());
-    result = prime * result + ((labelX == null) ? 0 : labelX.hashCode());
-    result = prime * result + ((labelY == null) ? 0 : labelY.hashCode());
+    result = prime * result + Double.hashCode(labelX);
+    result = prime * result + Double.hashCode(labelY);
     result = prime * result + ((name == null) ? 0 : name.hashCode());
     result = prime * result + ((nodeType == null) ? 0 : nodeType.hashCode());
     return result;
@@ -473,7 +487,7 @@ public class Node extends AbstractBox implements Element {
    * @return {@code true} if the requested property is not {@code null}.
    */
   public boolean isSetLabelX() {
-    return labelX != null;
+    return !Double.isNaN(labelX);
   }
 
 
@@ -481,7 +495,7 @@ public class Node extends AbstractBox implements Element {
    * @return {@code true} if the requested property is not {@code null}.
    */
   public boolean isSetLabelY() {
-    return labelY != null;
+    return !Double.isNaN(labelY);
   }
 
 
@@ -514,7 +528,7 @@ public class Node extends AbstractBox implements Element {
    */
   @Override
   public boolean isSetX() {
-    return x != null;
+    return !Double.isNaN(x);
   }
 
 
@@ -523,7 +537,7 @@ public class Node extends AbstractBox implements Element {
    */
   @Override
   public boolean isSetY() {
-    return y != null;
+    return !Double.isNaN(y);
   }
 
 
@@ -567,6 +581,19 @@ public class Node extends AbstractBox implements Element {
   }
 
 
+  /**
+   * Same as {@link #setBiggId(String)}, but the bigg_id and the compartment
+   * code extracted from it are taken from the given pool.
+   *
+   * @param biggId the biggId to set, may be {@code null}.
+   * @param strings the pool of the current parse session.
+   */
+  public void setBiggId(String biggId, StringPool strings) {
+    setBiggId(strings.intern(biggId));
+    compartment = strings.intern(compartment);
+  }
+
+
   /**
    * @param connectedSegments the connected segments to set
    */
@@ -590,7 +617,7 @@ public class Node extends AbstractBox implements Element {
    */
   @JsonProperty("label_x")
   public void setLabelX(Double labelX) {
-    this.labelX = labelX;
+    this.labelX = (labelX != null) ? labelX.doubleValue() : Double.NaN;
   }
 
 
@@ -599,7 +626,7 @@ public class Node extends AbstractBox implements Element {
    */
   @JsonProperty("label_y")
   public void setLabelY(Double labelY) {
-    this.labelY = labelY;
+    this.labelY = (labelY != null) ? labelY.doubleValue() : Double.NaN;
   }
 
 
@@ -635,7 +662,7 @@ public class Node extends AbstractBox implements Element {
    */
   @Override
   public void setX(Double x) {
-    this.x = x;
+    this.x = (x != null) ? x.doubleValue() : Double.NaN;
   }
 
 
@@ -644,7 +671,7 @@ public class Node extends AbstractBox implements Element {
    */
   @Override
   public void setY(Double y) {
-    this.y = y;
+    this.y = (y != null) ? y.doubleValue() : Double.NaN;
   }
 
 
@@ -667,15 +694,15 @@ public class Node extends AbstractBox implements Element {
     builder.append(", nodeType=");
     builder.append(nodeType);
     builder.append(", x=");
-    builder.append(x);
+    builder.append(getX());
     builder.append(", y=");
-    builder.append(y);
+    builder.append(getY());
     builder.append(", isPrimary=");
     builder.append(isPrimary);
     builder.append(", labelX=");
-    builder.append(labelX);
+    builder.append(getLabelX());
     builder.append(", labelY=");
-    builder.append(labelY);
+    builder.append(getLabelY());
     builder.append(", connectedSegments=");
     builder.append(connectedSegments);
     builder.append("]");
@@ -29,6 +29,20 @@ public interface Position extends EscherBase {
    */
   Double getY();
 
+  /**
+   * Like {@link #getX()}, but without creating a {@link Double} object.
+   *
+   * @return the x or {@link Double#NaN} if not set.
+   */
+  double x();
+
+  /**
+   * Like {@link #getY()}, but without creating a {@link Double} object.
+   *
+   * @return the y or {@link Double#NaN} if not set.
+   */
+  double y();
+
   /**
    * @return {@code true} if the requested property is not {@code null}.
    */
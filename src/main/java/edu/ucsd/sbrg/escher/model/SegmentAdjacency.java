@@ -0,0 +1,351 @@
+/* ---------------------------------------------------------------------
+ * This file is part of the program EscherConverter.
+ *
+ * Copyright (C) 2013-2017 by the University of California, San Diego.
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation. A copy of the license
+ * agreement is provided in the file named "LICENSE.txt" included with
+ * this software distribution and also available online as
+ * <http://www.gnu.org/licenses/lgpl-3.0-standalone.html>.
+ * ---------------------------------------------------------------------
+ */
+package edu.ucsd.sbrg.escher.model;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * The segments of every reaction that end at every node of an
+ * {@link EscherMap}, stored in a few flat arrays instead of one map of lists
+ * per {@link Node}. Node and reaction ids are mapped to dense indices by
+ * binary search in sorted arrays. The entries of a node are consecutive,
+ * sorted by reaction, and keep the order in which the segments of a reaction
+ * were added. The segment ids are the strings of the map, i.e., they are
+ * shared and not copied.
+ * <p>
+ * Instances are immutable and are created with a {@link Builder}.
+ *
+ * @author Andreas Dr&auml;ger
+ */
+public class SegmentAdjacency {
+
+  /**
+   * Collects the connected segments of a map. Not thread-safe.
+   *
+   * @author Andreas Dr&auml;ger
+   */
+  public static class Builder {
+
+    /**
+     * Sorted ids of all nodes.
+     */
+    private final String[] nodeIds;
+    /**
+     * Sorted ids of all reactions.
+     */
+    private final String[] reactionIds;
+    /**
+     * Node index of each entry.
+     */
+    private int[]          nodes;
+    /**
+     * Reaction index of each entry.
+     */
+    private int[]          reactions;
+    /**
+     * Segment id of each entry.
+     */
+    private String[]       segmentIds;
+    /**
+     * Number of entries.
+     */
+    private int            size;
+
+
+    /**
+     * @param nodeIds
+     *        the ids of all nodes that can have connected segments.
+     * @param reactionIds
+     *        the ids of all reactions these segments can belong to.
+     */
+    public Builder(Collection<String> nodeIds, Collection<String> reactionIds) {
+      this.nodeIds = sorted(nodeIds);
+      this.reactionIds = sorted(reactionIds);
+      int capacity = Math.max(16, 2 * nodeIds.size());
+      nodes = new int[capacity];
+      reactions = new int[capacity];
+      segmentIds = new String[capacity];
+    }
+
+
+    /**
+     * Adds the given segments of a reaction to a node, after all segments
+     * that have already been added to the same node for the same reaction.
+     *
+     * @param nodeId
+     * @param reactionId
+     * @param segmentIds
+     * @throws IllegalArgumentException
+     *         if the node or the reaction has not been given to the
+     *         constructor.
+     */
+    public void add(String nodeId, String reactionId, List<String> segmentIds) {
+      int node = index(nodeIds, nodeId);
+      int reaction = index(reactionIds, reactionId);
+      if (size + segmentIds.size() > nodes.length) {
+        int capacity = Math.max(2 * nodes.length, size + segmentIds.size());
+        nodes = Arrays.copyOf(nodes, capacity);
+        reactions = Arrays.copyOf(reactions, capacity);
+        this.segmentIds = Arrays.copyOf(this.segmentIds, capacity);
+      }
+      for (String segmentId : segmentIds) {
+        nodes[size] = node;
+        reactions[size] = reaction;
+        this.segmentIds[size] = segmentId;
+        size++;
+      }
+    }
+
+
+    /**
+     * Sorts the entries by node and reaction, keeping the order of the
+     * segments within each group.
+     *
+     * @return the connected segments added so far.
+     */
+    public SegmentAdjacency build() {
+      // Stable counting sort by reaction, then by node.
+      int[] byReaction = countingSort(identity(size), reactions, reactionIds.length, null);
+      int[] offsets = new int[nodeIds.length + 1];
+      int[] order = countingSort(byReaction, nodes, nodeIds.length, offsets);
+      int[] sortedReactions = new int[size];
+      String[] sortedSegmentIds = new String[size];
+      for (int i = 0; i < size; i++) {
+        sortedReactions[i] = reactions[order[i]];
+        sortedSegmentIds[i] = segmentIds[order[i]];
+      }
+      return new SegmentAdjacency(nodeIds, reactionIds, offsets, sortedReactions,
+        sortedSegmentIds);
+    }
+
+
+    /**
+     * @param order
+     *        the entries to sort.
+     * @param keys
+     *        the key of each entry.
+     * @param range
+     *        all keys are smaller than this.
+     * @param offsets
+     *        if not {@code null}, receives the first position of every key
+     *        and the number of entries at index {@code range}.
+     * @return the given entries, stably sorted by key.
+     */
+    private static int[] countingSort(int[] order, int[] keys, int range, int[] offsets) {
+      int[] start = offsets != null ? offsets : new int[range + 1];
+      for (int entry : order) {
+        start[keys[entry] + 1]++;
+      }
+      for (int key = 0; key < range; key++) {
+        start[key + 1] += start[key];
+      }
+      int[] next = Arrays.copyOf(start, range);
+      int[] sorted = new int[order.length];
+      for (int entry : order) {
+        sorted[next[keys[entry]]++] = entry;
+      }
+      return sorted;
+    }
+
+
+    /**
+     * @param size
+     * @return the numbers from zero to {@code size - 1}.
+     */
+    private static int[] identity(int size) {
+      int[] identity = new int[size];
+      for (int i = 0; i < size; i++) {
+        identity[i] = i;
+      }
+      return identity;
+    }
+
+
+    /**
+     * @param ids
+     * @param id
+     * @return the position of the given id.
+     */
+    private static int index(String[] ids, String id) {
+      int index = Arrays.binarySearch(ids, id);
+      if (index < 0) {
+        throw new IllegalArgumentException(id);
+      }
+      return index;
+    }
+
+
+    /**
+     * @param ids
+     * @return the given ids in a sorted array.
+     */
+    private static String[] sorted(Collection<String> ids) {
+      String[] array = ids.toArray(new String[ids.size()]);
+      Arrays.sort(array);
+      return array;
+    }
+  }
+
+
+  /**
+   * Sorted ids of all nodes.
+   */
+  private final String[] nodeIds;
+  /**
+   * Sorted ids of all reactions.
+   */
+  private final String[] reactionIds;
+  /**
+   * The entries of the node with index i are at the positions from
+   * {@code offsets[i]} up to, but not including, {@code offsets[i + 1]}.
+   */
+  private final int[]    offsets;
+  /**
+   * Reaction index of each entry.
+   */
+  private final int[]    reactions;
+  /**
+   * Segment id of each entry.
+   */
+  private final String[] segmentIds;
+
+
+  /**
+   * @param nodeIds
+   * @param reactionIds
+   * @param offsets
+   * @param reactions
+   * @param segmentIds
+   */
+  private SegmentAdjacency(String[] nodeIds, String[] reactionIds, int[] offsets,
+    int[] reactions, String[] segmentIds) {
+    this.nodeIds = nodeIds;
+    this.reactionIds = reactionIds;
+    this.offsets = offsets;
+    this.reactions = reactions;
+    this.segmentIds = segmentIds;
+  }
+
+
+  /**
+   * @param nodeId
+   * @return the number of reactions with segments that end at the given node.
+   */
+  public int getReactionCount(String nodeId) {
+    int node = indexOf(nodeId);
+    if (node < 0) {
+      return 0;
+    }
+    int count = 0;
+    for (int i = offsets[node]; i < offsets[node + 1]; i++) {
+      if ((i == offsets[node]) || (reactions[i] != reactions[i - 1])) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+
+  /**
+   * @param node
+   *        an index returned by {@link #indexOf(String)}.
+   * @param entry
+   *        a number between zero and {@link #getSegmentCount(int)}.
+   * @return the id of the reaction of the given entry of the node.
+   */
+  public String getReactionId(int node, int entry) {
+    return reactionIds[reactions[offsets[node] + entry]];
+  }
+
+
+  /**
+   * @param node
+   *        an index returned by {@link #indexOf(String)}.
+   * @return the number of segments of all reactions that end at the node.
+   */
+  public int getSegmentCount(int node) {
+    return offsets[node + 1] - offsets[node];
+  }
+
+
+  /**
+   * @param node
+   *        an index returned by {@link #indexOf(String)}.
+   * @param entry
+   *        a number between zero and {@link #getSegmentCount(int)}.
+   * @return the id of the segment of the given entry of the node.
+   */
+  public String getSegmentId(int node, int entry) {
+    return segmentIds[offsets[node] + entry];
+  }
+
+
+  /**
+   * @param nodeId
+   * @param reactionId
+   * @return an unmodifiable view of the ids of the segments of the given
+   *         reaction that end at the given node, or {@code null} if there are
+   *         none.
+   */
+  public List<String> getSegmentIds(String nodeId, String reactionId) {
+    int node = indexOf(nodeId);
+    int reaction = Arrays.binarySearch(reactionIds, reactionId);
+    if ((node < 0) || (reaction < 0)) {
+      return null;
+    }
+    int from = offsets[node];
+    int to = offsets[node + 1];
+    while ((from < to) && (reactions[from] != reaction)) {
+      from++;
+    }
+    if (from == to) {
+      return null;
+    }
+    int end = from;
+    while ((end < to) && (reactions[end] == reaction)) {
+      end++;
+    }
+    int first = from;
+    int count = end - from;
+    return new AbstractList<String>() {
+
+      @Override
+      public String get(int index) {
+        if ((index < 0) || (index >= count)) {
+          throw new IndexOutOfBoundsException(Integer.toString(index));
+        }
+        return segmentIds[first + index];
+      }
+
+
+      @Override
+      public int size() {
+        return count;
+      }
+    };
+  }
+
+
+  /**
+   * @param nodeId
+   * @return the index of the node with the given id or a negative number if
+   *         the node is unknown.
+   */
+  public int indexOf(String nodeId) {
+    return nodeId != null ? Arrays.binarySearch(nodeIds, nodeId) : -1;
+  }
+}
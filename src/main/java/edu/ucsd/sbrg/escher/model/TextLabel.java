@@ -35,7 +35,7 @@ public class TextLabel extends AbstractBox implements Element {
    */
   public TextLabel() {
     id = text = null;
-    x = y = null;
+    x = y = Double.NaN;
   }
 
 
@@ -0,0 +1,207 @@
+/* ---------------------------------------------------------------------
+ * This file is part of the program EscherConverter.
+ *
+ * Copyright (C) 2013-2017 by the University of California, San Diego.
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation. A copy of the license
+ * agreement is provided in the file named "LICENSE.txt" included with
+ * this software distribution and also available online as
+ * <http://www.gnu.org/licenses/lgpl-3.0-standalone.html>.
+ * ---------------------------------------------------------------------
+ */
+package edu.ucsd.sbrg.escher.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Transparent handling of gzip-compressed files. Compressed input is
+ * recognized by its content, i.e., by the gzip magic number at the
+ * beginning of the file, so that its name does not matter. Compressed
+ * output is written to all files whose name ends with
+ * {@value #GZIP_EXTENSION}.
+ *
+ * @author Andreas Dr&auml;ger
+ */
+public class Compression {
+
+  /**
+   * File name extension of gzip-compressed files.
+   */
+  public static final String GZIP_EXTENSION = ".gz";
+  /**
+   * Size of the buffers for reading and writing.
+   */
+  private static final int BUFFER_SIZE = 65536;
+
+
+  /**
+   * Checks if the given stream starts with the gzip magic number. The stream
+   * must support {@link InputStream#mark(int)}; it is reset to its current
+   * position.
+   *
+   * @param stream
+   * @return {@code true} if the stream contains gzip-compressed data.
+   * @throws IOException
+   */
+  public static boolean isCompressed(InputStream stream) throws IOException {
+    stream.mark(2);
+    int first = stream.read();
+    int second = stream.read();
+    stream.reset();
+    return (first == (GZIPInputStream.GZIP_MAGIC & 0xff))
+        && (second == (GZIPInputStream.GZIP_MAGIC >> 8));
+  }
+
+
+  /**
+   * @param file
+   * @return {@code true} if the given file is a regular file that contains
+   *         gzip-compressed data, independent of its name.
+   * @throws IOException
+   */
+  public static boolean isCompressed(File file) throws IOException {
+    if (!file.isFile()) {
+      return false;
+    }
+    try (InputStream stream = new BufferedInputStream(new FileInputStream(file), 2)) {
+      return isCompressed(stream);
+    }
+  }
+
+
+  /**
+   * @param file
+   * @return {@code true} if the name of the given file ends with
+   *         {@value #GZIP_EXTENSION}.
+   */
+  public static boolean hasCompressedExtension(File file) {
+    return file.getName().toLowerCase().endsWith(GZIP_EXTENSION);
+  }
+
+
+  /**
+   * @param file
+   * @return the given file if its name already ends with
+   *         {@value #GZIP_EXTENSION}, otherwise a file with this extension
+   *         added to its name.
+   */
+  public static File addCompressedExtension(File file) {
+    return hasCompressedExtension(file) ? file : new File(file.getPath() + GZIP_EXTENSION);
+  }
+
+
+  /**
+   * @param file
+   * @return the given file without {@value #GZIP_EXTENSION} at the end of
+   *         its name, e.g., {@code map.json} for {@code map.json.gz}.
+   */
+  public static File removeCompressedExtension(File file) {
+    if (!hasCompressedExtension(file)) {
+      return file;
+    }
+    String path = file.getPath();
+    return new File(path.substring(0, path.length() - GZIP_EXTENSION.length()));
+  }
+
+
+  /**
+   * Wraps the given stream so that it is decompressed while reading if it
+   * starts with the gzip magic number. Otherwise, the data is passed through
+   * unchanged.
+   *
+   * @param stream
+   * @return a buffered stream of uncompressed data.
+   * @throws IOException
+   */
+  public static InputStream decompress(InputStream stream) throws IOException {
+    InputStream buffered = stream.markSupported() ? stream
+        : new BufferedInputStream(stream, BUFFER_SIZE);
+    if (isCompressed(buffered)) {
+      return new BufferedInputStream(new GZIPInputStream(buffered, BUFFER_SIZE), BUFFER_SIZE);
+    }
+    return buffered;
+  }
+
+
+  /**
+   * Opens the given file for reading and decompresses its content on the fly
+   * if necessary.
+   *
+   * @param file
+   * @return a buffered stream of uncompressed data.
+   * @throws IOException
+   * @see #decompress(InputStream)
+   */
+  public static InputStream openInput(File file) throws IOException {
+    InputStream stream = new FileInputStream(file);
+    try {
+      return decompress(stream);
+    } catch (IOException exc) {
+      stream.close();
+      throw exc;
+    }
+  }
+
+
+  /**
+   * Reads at most the given number of bytes from the beginning of the
+   * uncompressed content of the given file.
+   *
+   * @param file
+   * @param length
+   * @return the first bytes of the file; the array is shorter than
+   *         {@code length} if the file is smaller.
+   * @throws IOException
+   */
+  public static byte[] readHeader(File file, int length) throws IOException {
+    byte[] header = new byte[length];
+    int count = 0;
+    try (InputStream stream = openInput(file)) {
+      int read;
+      while ((count < length) && ((read = stream.read(header, count, length - count)) >= 0)) {
+        count += read;
+      }
+    }
+    if (count < length) {
+      byte[] shorter = new byte[count];
+      System.arraycopy(header, 0, shorter, 0, count);
+      return shorter;
+    }
+    return header;
+  }
+
+
+  /**
+   * Opens the given file for writing. If its name ends with
+   * {@value #GZIP_EXTENSION}, all data is compressed on the fly.
+   *
+   * @param file
+   * @return a buffered stream.
+   * @throws IOException
+   */
+  public static OutputStream openOutput(File file) throws IOException {
+    OutputStream stream = new FileOutputStream(file);
+    if (hasCompressedExtension(file)) {
+      try {
+        // Writes the gzip header immediately.
+        return new BufferedOutputStream(new GZIPOutputStream(stream, BUFFER_SIZE), BUFFER_SIZE);
+      } catch (IOException | RuntimeException exc) {
+        stream.close();
+        throw exc;
+      }
+    }
+    return new BufferedOutputStream(stream, BUFFER_SIZE);
+  }
+
+}
@@ -0,0 +1,220 @@
+/* ---------------------------------------------------------------------
+ * This file is part of the program EscherConverter.
+ *
+ * Copyright (C) 2013-2017 by the University of California, San Diego.
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation. A copy of the license
+ * agreement is provided in the file named "LICENSE.txt" included with
+ * this software distribution and also available online as
+ * <http://www.gnu.org/licenses/lgpl-3.0-standalone.html>.
+ * ---------------------------------------------------------------------
+ */
+package edu.ucsd.sbrg.escher.util;
+
+import java.text.MessageFormat;
+import java.util.Map;
+import java.util.ResourceBundle;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.sbml.jsbml.util.ResourceManager;
+
+/**
+ * Counts the elements that one stage of a conversion has processed and the
+ * problems it has reported, so that a single summary can be logged instead of
+ * a message for every element.
+ * <p>
+ * Problems are reported with {@link #log(Logger, Level, String, Object...)}
+ * and counted by their message key. Only the first
+ * {@link #DEFAULT_MESSAGE_LIMIT} messages of each key are logged at the
+ * requested level, all further ones only at {@link Level#FINE}, unless they
+ * are more severe than {@link Level#WARNING}. How many messages of each key
+ * were demoted is logged at their original level together with the summary.
+ * Messages are formatted only if they are actually logged. All methods are
+ * thread-safe.
+ *
+ * @author Andreas Dr&auml;ger
+ */
+public class ConversionCounters {
+
+  /**
+   * Localization support.
+   */
+  private static final ResourceBundle bundle = ResourceManager.getBundle("edu.ucsd.sbrg.escher.Messages");
+
+  /**
+   * Number of messages per key that are logged at their original level.
+   */
+  public static final int DEFAULT_MESSAGE_LIMIT = 20;
+
+  /**
+   * The name of the stage, e.g., the converter, for the summary.
+   */
+  private final String stage;
+  /**
+   * Number of processed elements by kind.
+   */
+  private final Map<String, LongAdder> elements = new ConcurrentHashMap<String, LongAdder>();
+  /**
+   * Number of reported problems by message key.
+   */
+  private final Map<String, LongAdder> problems = new ConcurrentHashMap<String, LongAdder>();
+  /**
+   * Number of problems by message key that were only logged at
+   * {@link Level#FINE}.
+   */
+  private final Map<String, LongAdder> suppressed = new ConcurrentHashMap<String, LongAdder>();
+  /**
+   * The highest original level of the suppressed problems by message key.
+   */
+  private final Map<String, Level> suppressedLevels = new ConcurrentHashMap<String, Level>();
+
+
+  /**
+   * @param stage
+   *        the name of the stage for the summary.
+   */
+  public ConversionCounters(String stage) {
+    this.stage = stage;
+  }
+
+
+  /**
+   * @param kind
+   *        e.g., {@code "nodes"}.
+   * @param count
+   *        the number of processed elements of this kind.
+   */
+  public void add(String kind, long count) {
+    elements.computeIfAbsent(kind, k -> new LongAdder()).add(count);
+  }
+
+
+  /**
+   * Counts one processed element.
+   *
+   * @param kind
+   *        e.g., {@code "nodes"}.
+   */
+  public void count(String kind) {
+    add(kind, 1L);
+  }
+
+
+  /**
+   * @param kind
+   * @return the number of processed elements of this kind.
+   */
+  public long getCount(String kind) {
+    LongAdder count = elements.get(kind);
+    return count != null ? count.sum() : 0L;
+  }
+
+
+  /**
+   * @param key
+   * @return the number of problems reported with this message key.
+   */
+  public long getProblemCount(String key) {
+    LongAdder count = problems.get(key);
+    return count != null ? count.sum() : 0L;
+  }
+
+
+  /**
+   * @return the name of the stage.
+   */
+  public String getStage() {
+    return stage;
+  }
+
+
+  /**
+   * Counts a problem and logs the localized message for the given key with
+   * the given arguments.
+   *
+   * @param logger
+   * @param level
+   *        the level at which the first {@link #DEFAULT_MESSAGE_LIMIT}
+   *        messages with this key are logged; all messages above
+   *        {@link Level#WARNING} are logged at this level.
+   * @param key
+   *        a key in {@code edu.ucsd.sbrg.escher.Messages}.
+   * @param arguments
+   */
+  public void log(Logger logger, Level level, String key, Object... arguments) {
+    LongAdder count = problems.computeIfAbsent(key, k -> new LongAdder());
+    count.increment();
+    Level actual = level;
+    if ((level.intValue() <= Level.WARNING.intValue()) && (count.sum() > DEFAULT_MESSAGE_LIMIT)) {
+      actual = Level.FINE;
+      suppressed.computeIfAbsent(key, k -> new LongAdder()).increment();
+      suppressedLevels.merge(key, level, (l1, l2) -> l1.intValue() >= l2.intValue() ? l1 : l2);
+    }
+    // The logger's name is reported as source, not this class.
+    logger.logp(actual, logger.getName(), null, () -> MessageFormat.format(bundle.getString(key), arguments));
+  }
+
+
+  /**
+   * @param key
+   * @return the number of problems with this message key that were only
+   *         logged at {@link Level#FINE}.
+   */
+  public long getSuppressedCount(String key) {
+    LongAdder count = suppressed.get(key);
+    return count != null ? count.sum() : 0L;
+  }
+
+
+  /**
+   * Logs the summary of this stage at level {@link Level#INFO} and, for
+   * every message key whose messages exceeded the limit, the number of
+   * suppressed messages at their original level.
+   *
+   * @param logger
+   */
+  public void logSummary(Logger logger) {
+    logger.logp(Level.INFO, logger.getName(), null, this::toString);
+    for (Map.Entry<String, Level> entry : new TreeMap<String, Level>(suppressedLevels).entrySet()) {
+      String key = entry.getKey();
+      logger.logp(entry.getValue(), logger.getName(), null, () -> MessageFormat.format(
+        bundle.getString("ConversionCounters.suppressed"), stage, getSuppressedCount(key), key));
+    }
+  }
+
+
+  /**
+   * @param counts
+   * @return the counts in alphabetical order, separated by commas.
+   */
+  private static String toString(Map<String, LongAdder> counts) {
+    StringBuilder sb = new StringBuilder();
+    for (Map.Entry<String, LongAdder> entry : new TreeMap<String, LongAdder>(counts).entrySet()) {
+      if (sb.length() > 0) {
+        sb.append(", ");
+      }
+      sb.append(entry.getKey()).append('=').append(entry.getValue().sum());
+    }
+    return sb.toString();
+  }
+
+
+  /* (non-Javadoc)
+   * @see java.lang.Object#toString()
+   */
+  @Override
+  public String toString() {
+    if (problems.isEmpty()) {
+      return MessageFormat.format(bundle.getString("ConversionCounters.summary"), stage, toString(elements));
+    }
+    return MessageFormat.format(bundle.getString("ConversionCounters.summaryWithProblems"), stage,
+      toString(elements), toString(problems));
+  }
+
+}
@@ -57,10 +57,64 @@ public interface EscherIOOptions extends KeyProvider {
             SBFileFilter.createSBGNFileFilter(),
             SBFileFilter.createDirectoryFilter())));
 
+  /**
+   * The number of files that are converted in parallel if the input is a
+   * directory. Zero means one worker per available processor.
+   */
+  Option<Integer> WORKERS = new Option<Integer>("WORKERS", Integer.class, bundle,
+      new Range<Integer>(Integer.class, "{[0,1024]}"), 1);
+
+  /**
+   * If {@code true}, Escher JSON output is written without indentation and
+   * line breaks, which makes files smaller and faster to write.
+   */
+  Option<Boolean> COMPACT_JSON = new Option<Boolean>("COMPACT_JSON", Boolean.class, bundle,
+      Boolean.FALSE);
+
+  /**
+   * If {@code true}, all output files are gzip-compressed and get the
+   * extension {@code .gz}. Compressed input files are always recognized and
+   * decompressed automatically.
+   */
+  Option<Boolean> COMPRESS_OUTPUT = new Option<Boolean>("COMPRESS_OUTPUT", Boolean.class,
+      bundle, Boolean.FALSE);
+
+  /**
+   * If greater than zero, the program does not convert the input, but stays
+   * resident and accepts conversion jobs over HTTP on this port of the
+   * loopback interface.
+   *
+   * @see edu.ucsd.sbrg.escher.ConversionServer
+   */
+  Option<Integer> SERVER_PORT = new Option<Integer>("SERVER_PORT", Integer.class, bundle,
+      new Range<Integer>(Integer.class, "{[0,65535]}"), 0);
+
+  /**
+   * The number of jobs that a server converts at the same time. Zero means
+   * one job per available processor.
+   */
+  Option<Integer> SERVER_WORKERS = new Option<Integer>("SERVER_WORKERS", Integer.class, bundle,
+      new Range<Integer>(Integer.class, "{[0,1024]}"), 1);
+
+  /**
+   * The number of jobs that can wait for a worker of a server. Further jobs
+   * are rejected until a job has been started.
+   */
+  Option<Integer> SERVER_QUEUE_CAPACITY = new Option<Integer>("SERVER_QUEUE_CAPACITY", Integer.class,
+      bundle, new Range<Integer>(Integer.class, "{[0,1000000]}"), 100);
+
+  /**
+   * The number of seconds after its submission when a job of a server is
+   * stopped if it has not finished yet. Zero means no limit.
+   */
+  Option<Integer> JOB_TIMEOUT = new Option<Integer>("JOB_TIMEOUT", Integer.class, bundle,
+      new Range<Integer>(Integer.class, "{[0,2147483647]}"), 0);
+
   /**
    * Definition of input and output data files as well as the format for the output.
    */
   @SuppressWarnings("unchecked")
-  OptionGroup<?> GROUP_IO = new OptionGroup<Object>("GROUP_IO", bundle, INPUT, OUTPUT);
+  OptionGroup<?> GROUP_IO = new OptionGroup<Object>("GROUP_IO", bundle, INPUT, OUTPUT, WORKERS,
+    COMPACT_JSON, COMPRESS_OUTPUT, SERVER_PORT, SERVER_WORKERS, SERVER_QUEUE_CAPACITY, JOB_TIMEOUT);
 
 }
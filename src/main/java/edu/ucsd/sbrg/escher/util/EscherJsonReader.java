@@ -0,0 +1,690 @@
+/* ---------------------------------------------------------------------
+ * This file is part of the program EscherConverter.
+ *
+ * Copyright (C) 2013-2017 by the University of California, San Diego.
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation. A copy of the license
+ * agreement is provided in the file named "LICENSE.txt" included with
+ * this software distribution and also available online as
+ * <http://www.gnu.org/licenses/lgpl-3.0-standalone.html>.
+ * ---------------------------------------------------------------------
+ */
+package edu.ucsd.sbrg.escher.util;
+
+import static java.text.MessageFormat.format;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.ResourceBundle;
+import java.util.logging.Logger;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+
+import de.zbit.util.ResourceManager;
+import edu.ucsd.sbrg.escher.model.AbstractBox;
+import edu.ucsd.sbrg.escher.model.AbstractPosition;
+import edu.ucsd.sbrg.escher.model.Canvas;
+import edu.ucsd.sbrg.escher.model.EscherMap;
+import edu.ucsd.sbrg.escher.model.EscherReaction;
+import edu.ucsd.sbrg.escher.model.Gene;
+import edu.ucsd.sbrg.escher.model.Metabolite;
+import edu.ucsd.sbrg.escher.model.Node;
+import edu.ucsd.sbrg.escher.model.Point;
+import edu.ucsd.sbrg.escher.model.Segment;
+import edu.ucsd.sbrg.escher.model.TextLabel;
+
+/**
+ * Reads Escher JSON documents token by token with Jackson's streaming
+ * {@link JsonParser} and fills the model classes directly, i.e., without
+ * building an intermediate {@link JsonNode} tree first. The result is the same as binding the document with
+ * {@link Utils#getObjectMapper()}: the same setters are called, unknown
+ * properties are skipped, and scalar values are coerced in the same way.
+ * <p>
+ * An Escher document is an array of two objects, the first one containing
+ * the meta-information (identifier, name, description, schema, and homepage),
+ * the second one the actual layout (canvas, nodes, reactions, and text
+ * labels). Any further elements of the array are ignored.
+ * <p>
+ * Repeated identifiers and names of a document share one instance through a
+ * {@link StringPool}, which is created for every document. Hence, a reader
+ * must not be used by several threads at the same time.
+ *
+ * @author Andreas Dr&auml;ger
+ */
+public class EscherJsonReader {
+
+  /**
+   * A {@link Logger} for this class.
+   */
+  private static final Logger logger = Logger.getLogger(EscherJsonReader.class.getName());
+  /**
+   * Localization support.
+   */
+  private static final transient ResourceBundle bundle = ResourceManager.getBundle("edu.ucsd.sbrg.escher.Messages");
+
+  /**
+   * Identifiers and names of the document that is currently read, see
+   * {@link StringPool}.
+   */
+  private StringPool strings;
+
+
+  /**
+   * Parses the given {@link InputStream} into an {@link EscherMap}. The stream
+   * is closed when this method returns. Note that {@link EscherMap#postprocessMap()}
+   * is not called by this method.
+   *
+   * @param stream an Escher JSON document.
+   * @return the {@link EscherMap} described by the document.
+   * @throws IOException if the stream cannot be read, does not contain JSON,
+   *         or lacks the meta-information or layout objects.
+   */
+  public EscherMap read(InputStream stream) throws IOException {
+    return read(Utils.getJsonFactory().createParser(stream));
+  }
+
+
+  /**
+   * Binds an Escher document that has already been parsed into a tree, e.g.,
+   * for validation, so that the input does not have to be read again.
+   *
+   * @param tree an Escher JSON document.
+   * @return the {@link EscherMap} described by the document.
+   * @throws IOException if the tree lacks the meta-information or layout
+   *         objects.
+   * @see #read(InputStream)
+   */
+  public EscherMap read(JsonNode tree) throws IOException {
+    return read(tree.traverse());
+  }
+
+
+  /**
+   * Reads an Escher document from the given parser, which must not have
+   * consumed any tokens yet. The parser is closed when this method returns.
+   *
+   * @param p a parser for an Escher JSON document.
+   * @return the {@link EscherMap} described by the document.
+   * @throws IOException if the document cannot be read, is not JSON, or lacks
+   *         the meta-information or layout objects.
+   */
+  public EscherMap read(JsonParser p) throws IOException {
+    strings = new StringPool();
+    try (JsonParser parser = p) {
+      if (parser.nextToken() != JsonToken.START_ARRAY) {
+        throw missingMetaInfo(parser);
+      }
+      EscherMap map = new EscherMap();
+      if (parser.nextToken() != JsonToken.START_OBJECT) {
+        throw missingMetaInfo(parser);
+      }
+      readMetaInfo(parser, map);
+      if (parser.nextToken() != JsonToken.START_OBJECT) {
+        throw missingMetaInfo(parser);
+      }
+      readLayout(parser, map);
+      // Skip anything that follows the layout object.
+      while (parser.nextToken() != JsonToken.END_ARRAY) {
+        if (parser.getCurrentToken() == null) {
+          throw new JsonParseException(parser, "Unexpected end of input");
+        }
+        parser.skipChildren();
+      }
+      return map;
+    }
+  }
+
+
+  /**
+   * @param parser
+   * @return an exception that indicates a malformed Escher document.
+   */
+  private IOException missingMetaInfo(JsonParser parser) {
+    String message = format(bundle.getString("EscherConverter.missingMetaInfo"));
+    logger.severe(message);
+    return new IOException(message);
+  }
+
+
+  /**
+   * Reads the first object of an Escher document. The parser must be
+   * positioned on its {@link JsonToken#START_OBJECT}.
+   *
+   * @param parser
+   * @param map
+   * @throws IOException
+   */
+  private void readMetaInfo(JsonParser parser, EscherMap map) throws IOException {
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String field = parser.getCurrentName();
+      parser.nextToken();
+      switch (field) {
+      case "map_id":
+        map.setId(readString(parser));
+        break;
+      case "map_name":
+        map.setName(readString(parser));
+        break;
+      case "map_description":
+        map.setDescription(readString(parser));
+        break;
+      case "schema":
+        map.setSchema(readString(parser));
+        break;
+      case "homepage":
+        map.setURL(readString(parser));
+        break;
+      default:
+        parser.skipChildren();
+        break;
+      }
+    }
+  }
+
+
+  /**
+   * Reads the second object of an Escher document. Meta-information that
+   * might also be given in this object is ignored, because the first object
+   * is authoritative.
+   *
+   * @param parser
+   * @param map
+   * @throws IOException
+   */
+  private void readLayout(JsonParser parser, EscherMap map) throws IOException {
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String field = parser.getCurrentName();
+      JsonToken token = parser.nextToken();
+      switch (field) {
+      case "canvas":
+        if (token == JsonToken.VALUE_NULL) {
+          map.setCanvas(null);
+        } else {
+          Canvas canvas = new Canvas();
+          readBox(parser, canvas);
+          map.setCanvas(canvas);
+        }
+        break;
+      case "nodes":
+        if (token != JsonToken.VALUE_NULL) {
+          Map<String, Node> nodes = new LinkedHashMap<>();
+          expect(parser, JsonToken.START_OBJECT);
+          while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String id = parser.getCurrentName();
+            parser.nextToken();
+            nodes.put(strings.intern(id), readNode(parser));
+          }
+          map.setNodes(nodes);
+        }
+        break;
+      case "reactions":
+        if (token != JsonToken.VALUE_NULL) {
+          Map<String, EscherReaction> reactions = new LinkedHashMap<>();
+          expect(parser, JsonToken.START_OBJECT);
+          while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String id = parser.getCurrentName();
+            parser.nextToken();
+            reactions.put(strings.intern(id), readReaction(parser));
+          }
+          map.setReactions(reactions);
+        }
+        break;
+      case "text_labels":
+        if (token != JsonToken.VALUE_NULL) {
+          Map<String, TextLabel> textLabels = new LinkedHashMap<>();
+          expect(parser, JsonToken.START_OBJECT);
+          while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String id = parser.getCurrentName();
+            parser.nextToken();
+            textLabels.put(id, readTextLabel(parser));
+          }
+          map.setTextLabels(textLabels);
+        }
+        break;
+      default:
+        parser.skipChildren();
+        break;
+      }
+    }
+  }
+
+
+  /**
+   * @param parser
+   * @return
+   * @throws IOException
+   */
+  private Node readNode(JsonParser parser) throws IOException {
+    if (parser.getCurrentToken() == JsonToken.VALUE_NULL) {
+      return null;
+    }
+    expect(parser, JsonToken.START_OBJECT);
+    Node node = new Node();
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String field = parser.getCurrentName();
+      parser.nextToken();
+      switch (field) {
+      case "bigg_id":
+        node.setBiggId(readString(parser), strings);
+        break;
+      case "name":
+        node.setName(strings.intern(readString(parser)));
+        break;
+      case "node_type":
+        node.setType(readNodeType(parser));
+        break;
+      case "node_is_primary":
+        node.setPrimary(readBoolean(parser));
+        break;
+      case "label_x":
+        node.setLabelX(readDouble(parser));
+        break;
+      case "label_y":
+        node.setLabelY(readDouble(parser));
+        break;
+      default:
+        readBoxProperty(parser, field, node);
+        break;
+      }
+    }
+    return node;
+  }
+
+
+  /**
+   * @param parser
+   * @return
+   * @throws IOException
+   */
+  private Node.Type readNodeType(JsonParser parser) throws IOException {
+    String type = readString(parser);
+    if ((type == null) || type.isEmpty()) {
+      return null;
+    }
+    try {
+      return Node.Type.valueOf(type);
+    } catch (IllegalArgumentException exc) {
+      throw new JsonParseException(parser, "Unknown node type '" + type + "'");
+    }
+  }
+
+
+  /**
+   * @param parser
+   * @return
+   * @throws IOException
+   */
+  private EscherReaction readReaction(JsonParser parser) throws IOException {
+    if (parser.getCurrentToken() == JsonToken.VALUE_NULL) {
+      return null;
+    }
+    expect(parser, JsonToken.START_OBJECT);
+    EscherReaction reaction = new EscherReaction();
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String field = parser.getCurrentName();
+      JsonToken token = parser.nextToken();
+      switch (field) {
+      case "bigg_id":
+        reaction.setBiggId(strings.intern(readString(parser)));
+        break;
+      case "name":
+        reaction.setName(strings.intern(readString(parser)));
+        break;
+      case "gene_reaction_rule":
+        reaction.setGeneReactionRule(readString(parser));
+        break;
+      case "reversibility":
+        reaction.setReversibility(readBoolean(parser));
+        break;
+      case "label_x":
+        reaction.setLabelX(readDouble(parser));
+        break;
+      case "label_y":
+        reaction.setLabelY(readDouble(parser));
+        break;
+      case "genes":
+        if (token != JsonToken.VALUE_NULL) {
+          List<Gene> genes = new ArrayList<>();
+          expect(parser, JsonToken.START_ARRAY);
+          while (parser.nextToken() != JsonToken.END_ARRAY) {
+            genes.add(readGene(parser));
+          }
+          reaction.setGeneList(genes);
+        }
+        break;
+      case "metabolites":
+        if (token != JsonToken.VALUE_NULL) {
+          List<Metabolite> metabolites = new ArrayList<>();
+          expect(parser, JsonToken.START_ARRAY);
+          while (parser.nextToken() != JsonToken.END_ARRAY) {
+            metabolites.add(readMetabolite(parser));
+          }
+          reaction.setMetaboliteList(metabolites);
+        }
+        break;
+      case "segments":
+        if (token != JsonToken.VALUE_NULL) {
+          Map<String, Segment> segments = new LinkedHashMap<>();
+          expect(parser, JsonToken.START_OBJECT);
+          while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String id = parser.getCurrentName();
+            parser.nextToken();
+            segments.put(strings.intern(id), readSegment(parser));
+          }
+          reaction.setSegments(segments);
+        }
+        break;
+      default:
+        parser.skipChildren();
+        break;
+      }
+    }
+    return reaction;
+  }
+
+
+  /**
+   * @param parser
+   * @return
+   * @throws IOException
+   */
+  private Gene readGene(JsonParser parser) throws IOException {
+    if (parser.getCurrentToken() == JsonToken.VALUE_NULL) {
+      return null;
+    }
+    expect(parser, JsonToken.START_OBJECT);
+    Gene gene = new Gene();
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String field = parser.getCurrentName();
+      parser.nextToken();
+      switch (field) {
+      case "bigg_id":
+        gene.setId(strings.intern(readString(parser)));
+        break;
+      case "name":
+        gene.setName(strings.intern(readString(parser)));
+        break;
+      default:
+        parser.skipChildren();
+        break;
+      }
+    }
+    return gene;
+  }
+
+
+  /**
+   * @param parser
+   * @return
+   * @throws IOException
+   */
+  private Metabolite readMetabolite(JsonParser parser) throws IOException {
+    if (parser.getCurrentToken() == JsonToken.VALUE_NULL) {
+      return null;
+    }
+    expect(parser, JsonToken.START_OBJECT);
+    Metabolite metabolite = new Metabolite();
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String field = parser.getCurrentName();
+      parser.nextToken();
+      switch (field) {
+      case "bigg_id":
+        metabolite.setId(strings.intern(readString(parser)));
+        break;
+      case "coefficient":
+        metabolite.setCoefficient(readDouble(parser));
+        break;
+      default:
+        parser.skipChildren();
+        break;
+      }
+    }
+    return metabolite;
+  }
+
+
+  /**
+   * @param parser
+   * @return
+   * @throws IOException
+   */
+  private Segment readSegment(JsonParser parser) throws IOException {
+    if (parser.getCurrentToken() == JsonToken.VALUE_NULL) {
+      return null;
+    }
+    expect(parser, JsonToken.START_OBJECT);
+    Segment segment = new Segment();
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String field = parser.getCurrentName();
+      parser.nextToken();
+      switch (field) {
+      case "from_node_id":
+        segment.setFromNodeId(strings.intern(readString(parser)));
+        break;
+      case "to_node_id":
+        segment.setToNodeId(strings.intern(readString(parser)));
+        break;
+      case "b1":
+        segment.setBasePoint1(readPoint(parser));
+        break;
+      case "b2":
+        segment.setBasePoint2(readPoint(parser));
+        break;
+      default:
+        parser.skipChildren();
+        break;
+      }
+    }
+    return segment;
+  }
+
+
+  /**
+   * @param parser
+   * @return
+   * @throws IOException
+   */
+  private Point readPoint(JsonParser parser) throws IOException {
+    if (parser.getCurrentToken() == JsonToken.VALUE_NULL) {
+      return null;
+    }
+    expect(parser, JsonToken.START_OBJECT);
+    Point point = new Point();
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String field = parser.getCurrentName();
+      parser.nextToken();
+      readPositionProperty(parser, field, point);
+    }
+    return point;
+  }
+
+
+  /**
+   * @param parser
+   * @return
+   * @throws IOException
+   */
+  private TextLabel readTextLabel(JsonParser parser) throws IOException {
+    if (parser.getCurrentToken() == JsonToken.VALUE_NULL) {
+      return null;
+    }
+    expect(parser, JsonToken.START_OBJECT);
+    TextLabel textLabel = new TextLabel();
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String field = parser.getCurrentName();
+      parser.nextToken();
+      if (field.equals("text")) {
+        textLabel.setText(readString(parser));
+      } else {
+        readBoxProperty(parser, field, textLabel);
+      }
+    }
+    return textLabel;
+  }
+
+
+  /**
+   * Reads all properties of a box, i.e., its position and its dimensions.
+   *
+   * @param parser
+   * @param box
+   * @throws IOException
+   */
+  private void readBox(JsonParser parser, AbstractBox box) throws IOException {
+    expect(parser, JsonToken.START_OBJECT);
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String field = parser.getCurrentName();
+      parser.nextToken();
+      readBoxProperty(parser, field, box);
+    }
+  }
+
+
+  /**
+   * Reads the value of the given field if it belongs to an {@link AbstractBox}
+   * and skips it otherwise.
+   *
+   * @param parser
+   * @param field
+   * @param box
+   * @throws IOException
+   */
+  private void readBoxProperty(JsonParser parser, String field, AbstractBox box)
+      throws IOException {
+    switch (field) {
+    case "width":
+      box.setWidth(readDouble(parser));
+      break;
+    case "height":
+      box.setHeight(readDouble(parser));
+      break;
+    default:
+      readPositionProperty(parser, field, box);
+      break;
+    }
+  }
+
+
+  /**
+   * Reads the value of the given field if it belongs to an
+   * {@link AbstractPosition} and skips it otherwise.
+   *
+   * @param parser
+   * @param field
+   * @param position
+   * @throws IOException
+   */
+  private void readPositionProperty(JsonParser parser, String field,
+    AbstractPosition position) throws IOException {
+    switch (field) {
+    case "x":
+      position.setX(readDouble(parser));
+      break;
+    case "y":
+      position.setY(readDouble(parser));
+      break;
+    default:
+      parser.skipChildren();
+      break;
+    }
+  }
+
+
+  /**
+   * @param parser
+   * @param expected
+   * @throws JsonParseException if the current token is not the expected one.
+   */
+  private void expect(JsonParser parser, JsonToken expected) throws JsonParseException {
+    if (parser.getCurrentToken() != expected) {
+      throw new JsonParseException(parser,
+        "Expected " + expected + ", but found " + parser.getCurrentToken());
+    }
+  }
+
+
+  /**
+   * @param parser
+   * @return the current scalar value as a {@link String} or {@code null}.
+   * @throws IOException
+   */
+  private String readString(JsonParser parser) throws IOException {
+    JsonToken token = parser.getCurrentToken();
+    if (token == JsonToken.VALUE_NULL) {
+      return null;
+    }
+    if (!token.isScalarValue()) {
+      throw new JsonParseException(parser, "Expected a text value, but found " + token);
+    }
+    return parser.getValueAsString();
+  }
+
+
+  /**
+   * @param parser
+   * @return the current value as a {@link Double} or {@code null}.
+   * @throws IOException
+   */
+  private Double readDouble(JsonParser parser) throws IOException {
+    JsonToken token = parser.getCurrentToken();
+    if (token == JsonToken.VALUE_NULL) {
+      return null;
+    }
+    if (token.isNumeric()) {
+      return parser.getDoubleValue();
+    }
+    if (token == JsonToken.VALUE_STRING) {
+      String text = parser.getText().trim();
+      if (text.isEmpty()) {
+        return null;
+      }
+      try {
+        return Double.valueOf(text);
+      } catch (NumberFormatException exc) {
+        throw new JsonParseException(parser, "Not a number: '" + text + "'");
+      }
+    }
+    throw new JsonParseException(parser, "Expected a number, but found " + token);
+  }
+
+
+  /**
+   * @param parser
+   * @return the current value as a {@link Boolean} or {@code null}.
+   * @throws IOException
+   */
+  private Boolean readBoolean(JsonParser parser) throws IOException {
+    JsonToken token = parser.getCurrentToken();
+    switch (token) {
+    case VALUE_NULL:
+      return null;
+    case VALUE_TRUE:
+      return Boolean.TRUE;
+    case VALUE_FALSE:
+      return Boolean.FALSE;
+    case VALUE_NUMBER_INT:
+      return parser.getIntValue() != 0;
+    case VALUE_STRING:
+      String text = parser.getText().trim();
+      if (text.isEmpty()) {
+        return null;
+      }
+      if (text.equals("true") || text.equals("false")) {
+        return Boolean.valueOf(text);
+      }
+      throw new JsonParseException(parser, "Not a boolean: '" + text + "'");
+    default:
+      throw new JsonParseException(parser, "Expected a boolean, but found " + token);
+    }
+  }
+
+}
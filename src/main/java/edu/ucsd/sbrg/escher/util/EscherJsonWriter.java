@@ -0,0 +1,390 @@
+/* ---------------------------------------------------------------------
+ * This file is part of the program EscherConverter.
+ *
+ * Copyright (C) 2013-2017 by the University of California, San Diego.
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation. A copy of the license
+ * agreement is provided in the file named "LICENSE.txt" included with
+ * this software distribution and also available online as
+ * <http://www.gnu.org/licenses/lgpl-3.0-standalone.html>.
+ * ---------------------------------------------------------------------
+ */
+package edu.ucsd.sbrg.escher.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import edu.ucsd.sbrg.escher.model.AbstractBox;
+import edu.ucsd.sbrg.escher.model.AbstractPosition;
+import edu.ucsd.sbrg.escher.model.EscherMap;
+import edu.ucsd.sbrg.escher.model.EscherReaction;
+import edu.ucsd.sbrg.escher.model.Gene;
+import edu.ucsd.sbrg.escher.model.Metabolite;
+import edu.ucsd.sbrg.escher.model.Node;
+import edu.ucsd.sbrg.escher.model.Point;
+import edu.ucsd.sbrg.escher.model.Segment;
+import edu.ucsd.sbrg.escher.model.TextLabel;
+
+/**
+ * Writes an {@link EscherMap} as Escher JSON document through Jackson's
+ * streaming {@link JsonGenerator}. The meta-information is written as the
+ * first element of the document directly from the map, i.e., in contrast to
+ * serializing a list of two maps, the given map is not modified and can be
+ * written several times, also concurrently.
+ * <p>
+ * In its default mode, this writer produces exactly the same output as
+ * {@link Utils#getObjectWriter()}, i.e., the same order of properties,
+ * omitted {@code null} values, and indentation. In compact mode, all
+ * whitespace is omitted.
+ *
+ * @author Andreas Dr&auml;ger
+ */
+public class EscherJsonWriter {
+
+  /**
+   * Whether to omit indentation and line breaks.
+   */
+  private boolean compact;
+
+
+  /**
+   * Creates a writer for indented output.
+   */
+  public EscherJsonWriter() {
+    this(false);
+  }
+
+
+  /**
+   * @param compact whether to omit indentation and line breaks.
+   */
+  public EscherJsonWriter(boolean compact) {
+    this.compact = compact;
+  }
+
+
+  /**
+   * @return {@code true} if output is written without indentation and line
+   *         breaks.
+   */
+  public boolean isCompact() {
+    return compact;
+  }
+
+
+  /**
+   * Writes the given map to the given file. As in Escher, the name of the
+   * file becomes the name of the map in the output. If the name ends with
+   * {@value Compression#GZIP_EXTENSION}, the output is compressed and this
+   * extension is not part of the map name.
+   *
+   * @param map the map to be written.
+   * @param output the target file.
+   * @throws IOException if the file cannot be written.
+   */
+  public void write(EscherMap map, File output) throws IOException {
+    try (OutputStream stream = Compression.openOutput(output)) {
+      write(map, Compression.removeCompressedExtension(output).getName(), stream);
+    }
+  }
+
+
+  /**
+   * Writes the given map to the given stream, which is not closed by this
+   * method.
+   *
+   * @param map the map to be written.
+   * @param mapName the name of the map in the output.
+   * @param stream the target.
+   * @throws IOException if the stream cannot be written.
+   */
+  public void write(EscherMap map, String mapName, OutputStream stream) throws IOException {
+    JsonGenerator generator = Utils.getJsonFactory().createGenerator(stream, JsonEncoding.UTF8);
+    generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    try {
+      write(map, mapName, generator);
+    } finally {
+      generator.close();
+    }
+  }
+
+
+  /**
+   * @param map
+   * @param mapName
+   * @param generator
+   * @throws IOException
+   */
+  private void write(EscherMap map, String mapName, JsonGenerator generator) throws IOException {
+    if (!compact) {
+      generator.useDefaultPrettyPrinter();
+    }
+    generator.writeStartArray();
+
+    // Meta-info. Empty collections are written, because they are never null in a map.
+    generator.writeStartObject();
+    generator.writeObjectFieldStart("nodes");
+    generator.writeEndObject();
+    generator.writeObjectFieldStart("reactions");
+    generator.writeEndObject();
+    writeString(generator, "schema", map.getSchema());
+    writeString(generator, "map_description", map.getDescription());
+    writeString(generator, "map_id", map.getId());
+    writeString(generator, "map_name", mapName);
+    generator.writeObjectFieldStart("text_labels");
+    generator.writeEndObject();
+    writeString(generator, "homepage", map.getURL());
+    generator.writeEndObject();
+
+    // Layout map (nodes, reactions, text labels and canvas info).
+    generator.writeStartObject();
+    if (map.isSetCanvas()) {
+      generator.writeFieldName("canvas");
+      generator.writeStartObject();
+      writeBox(generator, map.getCanvas());
+      generator.writeEndObject();
+    }
+    if (map.getNodes() != null) {
+      generator.writeObjectFieldStart("nodes");
+      for (Map.Entry<String, Node> entry : map.getNodes().entrySet()) {
+        if (entry.getValue() != null) {
+          generator.writeFieldName(entry.getKey());
+          writeNode(generator, entry.getValue());
+        }
+      }
+      generator.writeEndObject();
+    }
+    if (map.getReactions() != null) {
+      generator.writeObjectFieldStart("reactions");
+      for (Map.Entry<String, EscherReaction> entry : map.getReactions().entrySet()) {
+        if (entry.getValue() != null) {
+          generator.writeFieldName(entry.getKey());
+          writeReaction(generator, entry.getValue());
+        }
+      }
+      generator.writeEndObject();
+    }
+    if (map.getTextLabels() != null) {
+      generator.writeObjectFieldStart("text_labels");
+      for (Map.Entry<String, TextLabel> entry : map.getTextLabels().entrySet()) {
+        if (entry.getValue() != null) {
+          generator.writeFieldName(entry.getKey());
+          generator.writeStartObject();
+          writeBox(generator, entry.getValue());
+          writeString(generator, "text", entry.getValue().getText());
+          generator.writeEndObject();
+        }
+      }
+      generator.writeEndObject();
+    }
+    generator.writeEndObject();
+
+    generator.writeEndArray();
+  }
+
+
+  /**
+   * @param generator
+   * @param node
+   * @throws IOException
+   */
+  private void writeNode(JsonGenerator generator, Node node) throws IOException {
+    generator.writeStartObject();
+    writeBox(generator, node);
+    writeString(generator, "name", node.getName());
+    writeString(generator, "bigg_id", node.getBiggId());
+    writeNumber(generator, "label_x", node.labelX());
+    writeNumber(generator, "label_y", node.labelY());
+    if (node.getType() != null) {
+      generator.writeStringField("node_type", node.getType().name());
+    }
+    writeBoolean(generator, "node_is_primary", node.isPrimary());
+    generator.writeEndObject();
+  }
+
+
+  /**
+   * @param generator
+   * @param reaction
+   * @throws IOException
+   */
+  private void writeReaction(JsonGenerator generator, EscherReaction reaction) throws IOException {
+    generator.writeStartObject();
+    writeString(generator, "name", reaction.getName());
+    writeBoolean(generator, "reversibility", reaction.getReversibility());
+    Map<String, Segment> segments = reaction.getSegments();
+    if (segments != null) {
+      generator.writeObjectFieldStart("segments");
+      for (Map.Entry<String, Segment> entry : segments.entrySet()) {
+        if (entry.getValue() != null) {
+          generator.writeFieldName(entry.getKey());
+          writeSegment(generator, entry.getValue());
+        }
+      }
+      generator.writeEndObject();
+    }
+    writeString(generator, "bigg_id", reaction.getBiggId());
+    writeString(generator, "gene_reaction_rule", reaction.getGeneReactionRule());
+    List<Gene> genes = reaction.getGeneList();
+    if (genes != null) {
+      generator.writeArrayFieldStart("genes");
+      for (Gene gene : genes) {
+        if (gene == null) {
+          generator.writeNull();
+        } else {
+          generator.writeStartObject();
+          writeString(generator, "name", gene.getName());
+          writeString(generator, "bigg_id", gene.getId());
+          generator.writeEndObject();
+        }
+      }
+      generator.writeEndArray();
+    }
+    writeNumber(generator, "label_x", reaction.labelX());
+    writeNumber(generator, "label_y", reaction.labelY());
+    List<Metabolite> metabolites = reaction.getMetaboliteList();
+    if (metabolites != null) {
+      generator.writeArrayFieldStart("metabolites");
+      for (Metabolite metabolite : metabolites) {
+        if (metabolite == null) {
+          generator.writeNull();
+        } else {
+          generator.writeStartObject();
+          writeNumber(generator, "coefficient", metabolite.getCoefficient());
+          writeString(generator, "bigg_id", metabolite.getId());
+          generator.writeEndObject();
+        }
+      }
+      generator.writeEndArray();
+    }
+    generator.writeEndObject();
+  }
+
+
+  /**
+   * Base points are always written, also if they are {@code null}.
+   *
+   * @param generator
+   * @param segment
+   * @throws IOException
+   */
+  private void writeSegment(JsonGenerator generator, Segment segment) throws IOException {
+    generator.writeStartObject();
+    writeString(generator, "from_node_id", segment.getFromNodeId());
+    writeString(generator, "to_node_id", segment.getToNodeId());
+    writePoint(generator, "b1", segment.getBasePoint1());
+    writePoint(generator, "b2", segment.getBasePoint2());
+    generator.writeEndObject();
+  }
+
+
+  /**
+   * @param generator
+   * @param field
+   * @param point
+   * @throws IOException
+   */
+  private void writePoint(JsonGenerator generator, String field, Point point) throws IOException {
+    generator.writeFieldName(field);
+    if (point == null) {
+      generator.writeNull();
+    } else {
+      generator.writeStartObject();
+      writePosition(generator, point);
+      generator.writeEndObject();
+    }
+  }
+
+
+  /**
+   * @param generator
+   * @param box
+   * @throws IOException
+   */
+  private void writeBox(JsonGenerator generator, AbstractBox box) throws IOException {
+    writePosition(generator, box);
+    writeNumber(generator, "height", box.height());
+    writeNumber(generator, "width", box.width());
+  }
+
+
+  /**
+   * @param generator
+   * @param position
+   * @throws IOException
+   */
+  private void writePosition(JsonGenerator generator, AbstractPosition position) throws IOException {
+    writeNumber(generator, "x", position.x());
+    writeNumber(generator, "y", position.y());
+  }
+
+
+  /**
+   * Writes the given field unless its value is {@code null}.
+   *
+   * @param generator
+   * @param field
+   * @param value
+   * @throws IOException
+   */
+  private void writeString(JsonGenerator generator, String field, String value) throws IOException {
+    if (value != null) {
+      generator.writeStringField(field, value);
+    }
+  }
+
+
+  /**
+   * Writes the given field unless its value is {@code null}.
+   *
+   * @param generator
+   * @param field
+   * @param value
+   * @throws IOException
+   */
+  private void writeNumber(JsonGenerator generator, String field, Double value) throws IOException {
+    if (value != null) {
+      generator.writeNumberField(field, value.doubleValue());
+    }
+  }
+
+
+  /**
+   * Writes the given field unless its value is {@link Double#NaN}, which
+   * stands for an unset coordinate or size.
+   *
+   * @param generator
+   * @param field
+   * @param value
+   * @throws IOException
+   */
+  private void writeNumber(JsonGenerator generator, String field, double value) throws IOException {
+    if (!Double.isNaN(value)) {
+      generator.writeNumberField(field, value);
+    }
+  }
+
+
+  /**
+   * Writes the given field unless its value is {@code null}.
+   *
+   * @param generator
+   * @param field
+   * @param value
+   * @throws IOException
+   */
+  private void writeBoolean(JsonGenerator generator, String field, Boolean value) throws IOException {
+    if (value != null) {
+      generator.writeBooleanField(field, value.booleanValue());
+    }
+  }
+
+}
@@ -14,6 +14,7 @@
  */
 package edu.ucsd.sbrg.escher.util;
 
+import de.zbit.io.filefilter.SBFileFilter;
 import de.zbit.util.objectwrapper.ValuePairUncomparable;
 import de.zbit.util.prefs.KeyProvider;
 import de.zbit.util.prefs.Option;
@@ -21,6 +22,7 @@ import de.zbit.util.prefs.OptionGroup;
 import de.zbit.util.prefs.Range;
 import org.sbml.jsbml.util.ResourceManager;
 
+import java.io.File;
 import java.util.ResourceBundle;
 
 /**
@@ -119,6 +121,13 @@ public interface EscherOptions extends KeyProvider {
    */
   Option<Boolean> IGNORE_VALIDATION = new Option<>("IGNORE_VALIDATION", Boolean.class, bundle, Boolean.FALSE);
 
+  /**
+   * A custom JSON schema against which Escher input files are validated
+   * instead of the default Escher schema.
+   */
+  Option<File> ESCHER_SCHEMA = new Option<File>("ESCHER_SCHEMA", File.class, bundle,
+      new Range<File>(File.class, SBFileFilter.createJSONFileFilter()));
+
   /**
    * This value is used when no width has been defined for the canvas. Since
    * the width attribute is mandatory for the layout, a default value must be
@@ -263,6 +272,14 @@ public interface EscherOptions extends KeyProvider {
   Option<Double> SECONDARY_NODE_RATIO = new Option<Double>("SECONDARY_NODE_RATIO",
       Double.class, bundle, new Range<Double>(Double.class, "{[0,1]}"), 2d / 3d);
 
+  /**
+   * The number of threads that process the reactions of a single map during
+   * its conversion. The result is the same for any number of threads. Zero
+   * means one thread per available processor, which is also the maximum.
+   */
+  Option<Integer> THREADS = new Option<Integer>("THREADS", Integer.class, bundle,
+      new Range<Integer>(Integer.class, "{[0,1024]}"), 1);
+
   //TODO: include styles (color etc.)
   /* *
    * These options allow you to customize the appearance of network elements.
@@ -276,7 +293,7 @@ public interface EscherOptions extends KeyProvider {
   OptionGroup<?> GROUP_LAYOUT = new OptionGroup<Object>("GROUP_LAYOUT", bundle, CANVAS_DEFAULT_HEIGHT,
       CANVAS_DEFAULT_WIDTH, LABEL_HEIGHT, LABEL_WIDTH, NODE_DEPTH,
       NODE_LABEL_HEIGHT, PRIMARY_NODE_HEIGHT, PRIMARY_NODE_WIDTH,
-      REACTION_LABEL_HEIGHT, REACTION_NODE_RATIO, SECONDARY_NODE_RATIO, Z);
+      REACTION_LABEL_HEIGHT, REACTION_NODE_RATIO, SECONDARY_NODE_RATIO, THREADS, Z);
 
   /**
    * Here you can influence how elements in the layout are called or
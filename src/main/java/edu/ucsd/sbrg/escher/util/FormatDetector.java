@@ -0,0 +1,331 @@
+/* ---------------------------------------------------------------------
+ * This file is part of the program EscherConverter.
+ *
+ * Copyright (C) 2013-2017 by the University of California, San Diego.
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation. A copy of the license
+ * agreement is provided in the file named "LICENSE.txt" included with
+ * this software distribution and also available online as
+ * <http://www.gnu.org/licenses/lgpl-3.0-standalone.html>.
+ * ---------------------------------------------------------------------
+ */
+package edu.ucsd.sbrg.escher.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.logging.Logger;
+import java.util.zip.GZIPInputStream;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import edu.ucsd.sbrg.escher.util.EscherOptions.InputFormat;
+
+/**
+ * Determines the format of a document from its first bytes, independent of
+ * any file name. Only the first {@value #HEADER_SIZE} bytes of the
+ * (decompressed) content are read, which is enough to recognize Escher JSON
+ * documents, SBML documents together with their level and version, and
+ * SBGN-ML documents together with their language. Files of other formats
+ * can thus be skipped without reading them completely.
+ *
+ * @author Andreas Dr&auml;ger
+ */
+public class FormatDetector {
+
+  /**
+   * The result of a detection.
+   *
+   * @author Andreas Dr&auml;ger
+   */
+  public static class Result {
+
+    /**
+     * The detected format or {@code null}.
+     */
+    private InputFormat format;
+    /**
+     * Language of an SBGN-ML map.
+     */
+    private String      language;
+    /**
+     * SBML level.
+     */
+    private int         level   = -1;
+    /**
+     * Namespace of the root element of an XML document.
+     */
+    private String      namespace;
+    /**
+     * SBML version.
+     */
+    private int         version = -1;
+
+
+    /**
+     * @return the format of the document or {@code null} if it is not
+     *         supported.
+     */
+    public InputFormat getFormat() {
+      return format;
+    }
+
+
+    /**
+     * @return the language of an SBGN-ML map, e.g.,
+     *         {@code process description}, or {@code null} if undefined.
+     */
+    public String getLanguage() {
+      return language;
+    }
+
+
+    /**
+     * @return the level of an SBML document or -1 if undefined.
+     */
+    public int getLevel() {
+      return level;
+    }
+
+
+    /**
+     * @return the namespace of the root element of an XML document or
+     *         {@code null}.
+     */
+    public String getNamespace() {
+      return namespace;
+    }
+
+
+    /**
+     * @return the version of an SBML document or -1 if undefined.
+     */
+    public int getVersion() {
+      return version;
+    }
+
+
+    /**
+     * @return {@code true} if the format could be detected.
+     */
+    public boolean isSupported() {
+      return format != null;
+    }
+
+
+    /* (non-Javadoc)
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+      StringBuilder builder = new StringBuilder();
+      builder.append(getClass().getSimpleName());
+      builder.append(" [format=");
+      builder.append(format);
+      builder.append(", level=");
+      builder.append(level);
+      builder.append(", version=");
+      builder.append(version);
+      builder.append(", language=");
+      builder.append(language);
+      builder.append(", namespace=");
+      builder.append(namespace);
+      builder.append("]");
+      return builder.toString();
+    }
+
+  }
+
+  /**
+   * Number of bytes at the beginning of a document that are inspected.
+   */
+  public static final int HEADER_SIZE = 8192;
+  /**
+   * A {@link Logger} for this class.
+   */
+  private static final Logger logger = Logger.getLogger(FormatDetector.class.getName());
+  /**
+   * Thread-safe once configured. External entities are not resolved, because
+   * the header may be truncated anyway.
+   */
+  private static final XMLInputFactory xmlInputFactory = createXMLInputFactory();
+
+
+  /**
+   * @return
+   */
+  private static XMLInputFactory createXMLInputFactory() {
+    XMLInputFactory factory = XMLInputFactory.newInstance();
+    factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+    factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+    return factory;
+  }
+
+
+  /**
+   * Detects the format of the given file, which may be gzip-compressed.
+   *
+   * @param file
+   * @return the result of the detection, never {@code null}.
+   * @throws IOException if the file cannot be read.
+   */
+  public static Result detect(File file) throws IOException {
+    if (!file.isFile()) {
+      return new Result();
+    }
+    return detect(Compression.readHeader(file, HEADER_SIZE));
+  }
+
+
+  /**
+   * Detects the format of the given stream. If the stream supports
+   * {@link InputStream#mark(int)}, it may be gzip-compressed and it is reset
+   * to its current position afterwards, so that it can be read again.
+   * Otherwise, the first bytes are consumed.
+   *
+   * @param stream
+   * @return the result of the detection, never {@code null}.
+   * @throws IOException if the stream cannot be read.
+   */
+  public static Result detect(InputStream stream) throws IOException {
+    boolean reset = stream.markSupported();
+    if (reset) {
+      // Generous limit, because the compressed header can be larger than its content.
+      stream.mark(HEADER_SIZE * 8);
+    }
+    try {
+      // The streams are not closed, because this would close the given stream.
+      InputStream content = stream;
+      if (reset && Compression.isCompressed(stream)) {
+        // The check has replaced the mark at the same position.
+        stream.mark(HEADER_SIZE * 8);
+        content = new GZIPInputStream(stream, 512);
+      }
+      byte[] header = new byte[HEADER_SIZE];
+      int count = 0;
+      int read;
+      while ((count < HEADER_SIZE)
+          && ((read = content.read(header, count, HEADER_SIZE - count)) >= 0)) {
+        count += read;
+      }
+      return detect(Arrays.copyOf(header, count));
+    } finally {
+      if (reset) {
+        stream.reset();
+      }
+    }
+  }
+
+
+  /**
+   * Detects the format from the given bytes of uncompressed content.
+   *
+   * @param header the first bytes of a document.
+   * @return the result of the detection, never {@code null}.
+   */
+  public static Result detect(byte[] header) {
+    Result result = new Result();
+    int start = skipWhitespace(header);
+    if (start >= header.length) {
+      return result;
+    }
+    if (header[start] == '[') {
+      // Escher maps are arrays, other JSON documents, e.g., COBRA models, are objects.
+      result.format = InputFormat.Escher;
+    } else if (header[start] == '<') {
+      detectXML(header, result);
+    }
+    return result;
+  }
+
+
+  /**
+   * Reads the root element of an XML document and, in case of SBGN-ML, its
+   * first child.
+   *
+   * @param header
+   * @param result
+   */
+  private static void detectXML(byte[] header, Result result) {
+    XMLStreamReader reader = null;
+    try {
+      reader = xmlInputFactory.createXMLStreamReader(new ByteArrayInputStream(header));
+      while (reader.hasNext()) {
+        if (reader.next() != XMLStreamConstants.START_ELEMENT) {
+          continue;
+        }
+        String name = reader.getLocalName();
+        if (result.format == null) {
+          // Root element.
+          result.namespace = reader.getNamespaceURI();
+          if (name.equals("sbml")) {
+            result.format = InputFormat.SBML;
+            result.level = parseInt(reader.getAttributeValue(null, "level"));
+            result.version = parseInt(reader.getAttributeValue(null, "version"));
+            return;
+          } else if (name.equals("sbgn")) {
+            result.format = InputFormat.SBGN;
+          } else {
+            return;
+          }
+        } else if (name.equals("map")) {
+          result.language = reader.getAttributeValue(null, "language");
+          return;
+        }
+      }
+    } catch (XMLStreamException exc) {
+      // The header ends within the document or is not XML at all.
+      logger.finest(exc.getLocalizedMessage());
+    } finally {
+      if (reader != null) {
+        try {
+          reader.close();
+        } catch (XMLStreamException exc) {
+          logger.finest(exc.getLocalizedMessage());
+        }
+      }
+    }
+  }
+
+
+  /**
+   * @param value
+   * @return the number or -1 if the value is not a number.
+   */
+  private static int parseInt(String value) {
+    if (value != null) {
+      try {
+        return Integer.parseInt(value.trim());
+      } catch (NumberFormatException exc) {
+        logger.finest(exc.getLocalizedMessage());
+      }
+    }
+    return -1;
+  }
+
+
+  /**
+   * @param header
+   * @return the index of the first byte that is neither whitespace nor part
+   *         of a UTF-8 byte order mark.
+   */
+  private static int skipWhitespace(byte[] header) {
+    int i = 0;
+    if ((header.length >= 3) && ((header[0] & 0xff) == 0xef) && ((header[1] & 0xff) == 0xbb)
+        && ((header[2] & 0xff) == 0xbf)) {
+      i = 3;
+    }
+    while ((i < header.length) && Character.isWhitespace(header[i])) {
+      i++;
+    }
+    return i;
+  }
+
+}
@@ -0,0 +1,120 @@
+/* ---------------------------------------------------------------------
+ * This file is part of the program EscherConverter.
+ *
+ * Copyright (C) 2013-2017 by the University of California, San Diego.
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation. A copy of the license
+ * agreement is provided in the file named "LICENSE.txt" included with
+ * this software distribution and also available online as
+ * <http://www.gnu.org/licenses/lgpl-3.0-standalone.html>.
+ * ---------------------------------------------------------------------
+ */
+package edu.ucsd.sbrg.escher.util;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Creates unique identifiers by appending a number to a given prefix. For
+ * every prefix, the allocator remembers the last number it has used, so that
+ * the next free identifier is usually found with a single look-up, no matter
+ * how many identifiers with the same prefix already exist. Numbers are
+ * assigned in ascending order, i.e., the result is the same as when trying
+ * one number after another, starting at one.
+ * <p>
+ * Identifiers are unique among all identifiers returned by the allocator and
+ * all identifiers that are in use according to the predicate given to the
+ * constructor, e.g., those of a document. All methods are thread-safe, but
+ * the order of the identifiers then depends on the order of the calls.
+ *
+ * @author Andreas Dr&auml;ger
+ */
+public class IdAllocator {
+
+  /**
+   * Separator between an identifier and its number in
+   * {@link #createId(String)}.
+   */
+  public static final String SEPARATOR = "_";
+
+  /**
+   * All identifiers returned so far.
+   */
+  private final Set<String>          allocated = new HashSet<String>();
+  /**
+   * The last number used for each prefix.
+   */
+  private final Map<String, Integer> counters  = new HashMap<String, Integer>();
+  /**
+   * Identifiers that are in use without having been created by this
+   * allocator.
+   */
+  private final Predicate<String>    inUse;
+
+
+  /**
+   * Creates an allocator for identifiers that are not used elsewhere.
+   */
+  public IdAllocator() {
+    this(id -> false);
+  }
+
+
+  /**
+   * @param inUse
+   *        decides if an identifier that has not been created by this
+   *        allocator is already taken.
+   */
+  public IdAllocator(Predicate<String> inUse) {
+    this.inUse = inUse;
+  }
+
+
+  /**
+   * @param id
+   * @return the given identifier if it is still free, otherwise the first
+   *         free identifier of the form {@code id_1}, {@code id_2}, etc.
+   */
+  public synchronized String createId(String id) {
+    if (isFree(id)) {
+      allocated.add(id);
+      return id;
+    }
+    return createNumberedId(id + SEPARATOR);
+  }
+
+
+  /**
+   * @param prefix
+   * @return the first free identifier of the form {@code prefix1},
+   *         {@code prefix2}, etc.
+   */
+  public synchronized String createNumberedId(String prefix) {
+    Integer last = counters.get(prefix);
+    int number = last == null ? 1 : last.intValue() + 1;
+    String id = prefix + number;
+    while (!isFree(id)) {
+      number++;
+      id = prefix + number;
+    }
+    counters.put(prefix, number);
+    allocated.add(id);
+    return id;
+  }
+
+
+  /**
+   * @param id
+   * @return {@code true} if the given identifier has neither been returned
+   *         by this allocator nor is in use otherwise.
+   */
+  public synchronized boolean isFree(String id) {
+    return !allocated.contains(id) && !inUse.test(id);
+  }
+
+}
@@ -0,0 +1,86 @@
+/* ---------------------------------------------------------------------
+ * This file is part of the program EscherConverter.
+ *
+ * Copyright (C) 2013-2017 by the University of California, San Diego.
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation. A copy of the license
+ * agreement is provided in the file named "LICENSE.txt" included with
+ * this software distribution and also available online as
+ * <http://www.gnu.org/licenses/lgpl-3.0-standalone.html>.
+ * ---------------------------------------------------------------------
+ */
+package edu.ucsd.sbrg.escher.util;
+
+import java.util.function.Supplier;
+
+/**
+ * Remembers what the current thread works on, e.g., a conversion job, so that
+ * log handlers can attribute messages to it. Threads that are created while a
+ * context is set inherit it. Threads that are shared by several contexts, such
+ * as the workers of a fork/join pool, must {@link #remove()} the inherited
+ * context when they start and run each piece of work
+ * {@link #callWith(Object, Supplier) with} the context of whoever submitted
+ * it; otherwise, they would attribute messages to the wrong context and keep
+ * it reachable for as long as they live.
+ *
+ * @author Andreas Dr&auml;ger
+ */
+public class LogContext {
+
+  /**
+   * The context of the current thread.
+   */
+  private static final InheritableThreadLocal<Object> current = new InheritableThreadLocal<Object>();
+
+
+  /**
+   * Runs the given supplier with the given context and restores the previous
+   * context of the current thread afterwards.
+   *
+   * @param context
+   *        may be {@code null}.
+   * @param supplier
+   * @return the result of the supplier.
+   */
+  public static <T> T callWith(Object context, Supplier<T> supplier) {
+    Object previous = current.get();
+    current.set(context);
+    try {
+      return supplier.get();
+    } finally {
+      if (previous != null) {
+        current.set(previous);
+      } else {
+        current.remove();
+      }
+    }
+  }
+
+
+  /**
+   * @return the context of the current thread or {@code null}.
+   */
+  public static Object get() {
+    return current.get();
+  }
+
+
+  /**
+   * Clears the context of the current thread.
+   */
+  public static void remove() {
+    current.remove();
+  }
+
+
+  /**
+   * @param context
+   *        the context of the current thread and of all threads it creates.
+   */
+  public static void set(Object context) {
+    current.set(context);
+  }
+
+}
@@ -0,0 +1,62 @@
+/* ---------------------------------------------------------------------
+ * This file is part of the program EscherConverter.
+ *
+ * Copyright (C) 2013-2017 by the University of California, San Diego.
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation. A copy of the license
+ * agreement is provided in the file named "LICENSE.txt" included with
+ * this software distribution and also available online as
+ * <http://www.gnu.org/licenses/lgpl-3.0-standalone.html>.
+ * ---------------------------------------------------------------------
+ */
+package edu.ucsd.sbrg.escher.util;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Keeps one instance of every distinct {@link String} that is read while
+ * parsing a single document. Identifiers such as {@code atp_c} or the
+ * compartment code {@code c} occur in thousands of nodes, metabolites and
+ * segments of a map; routing them through a pool makes all of these elements
+ * share the same instance.
+ * <p>
+ * In contrast to {@link String#intern()}, a pool only lives as long as the
+ * parse session that uses it, so that nothing remains in memory after the
+ * parsed map has been released. A pool is not thread-safe.
+ *
+ * @author Andreas Dr&auml;ger
+ */
+public class StringPool {
+
+  /**
+   * Every distinct string mapped to itself.
+   */
+  private final Map<String, String> strings = new HashMap<String, String>();
+
+
+  /**
+   * @param string
+   *        may be {@code null}.
+   * @return the instance in this pool that equals the given string, which is
+   *         the given string itself if the pool did not contain it yet.
+   */
+  public String intern(String string) {
+    if (string == null) {
+      return null;
+    }
+    String pooled = strings.putIfAbsent(string, string);
+    return pooled != null ? pooled : string;
+  }
+
+
+  /**
+   * @return the number of distinct strings in this pool.
+   */
+  public int size() {
+    return strings.size();
+  }
+
+}
@@ -20,10 +20,13 @@ import java.util.logging.Logger;
 import com.fasterxml.jackson.annotation.JsonAutoDetect;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.MapperFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.github.fge.jackson.JsonLoader;
 import com.github.fge.jsonschema.core.exceptions.ProcessingException;
@@ -31,6 +34,7 @@ import com.github.fge.jsonschema.main.JsonSchema;
 import com.github.fge.jsonschema.main.JsonSchemaFactory;
 
 import de.zbit.util.ResourceManager;
+import edu.ucsd.sbrg.escher.model.EscherMap;
 
 /**
  * Utility methods.
@@ -44,19 +48,43 @@ public class Utils {
    * Default values.
    */
   private static final transient ResourceBundle bundle = ResourceManager.getBundle("Strings");
+  /**
+   * Process-wide mapper from which {@link #reader} and {@link #writer} are
+   * derived. It must never be handed out or reconfigured, so that Jackson's
+   * serializer and deserializer caches can be shared by all conversions.
+   */
+  private static final ObjectMapper sharedMapper = getObjectMapper();
+  /**
+   * Immutable and thread-safe reader for {@link EscherMap} objects.
+   */
+  private static final ObjectReader reader = sharedMapper.reader(EscherMap.class);
+  /**
+   * Immutable and thread-safe writer using the settings of
+   * {@link #getObjectMapper()}.
+   */
+  private static final ObjectWriter writer = sharedMapper.writer();
+  /**
+   * The compiled meta-schema, see {@link #jsonSchemaSchema()}.
+   */
+  private static volatile JsonSchema metaSchema;
 
 
   /**
-   * Get the schema validation schema (meta-schema) file.
+   * Get the schema validation schema (meta-schema) file. It is loaded and compiled on the first
+   * call only.
    *
    * @return The {@code JSON Schema}.
    * @throws IOException Thrown if error in accessing the file.
    * @throws ProcessingException Thrown if problem in parsing JSON.
    */
   public static JsonSchema jsonSchemaSchema() throws IOException, ProcessingException {
-    JsonNode jsonNode = JsonLoader.fromResource(bundle.getString("meta_schema_file"));
-
-    return JsonSchemaFactory.byDefault().getJsonSchema(jsonNode);
+    JsonSchema schema = metaSchema;
+    if (schema == null) {
+      JsonNode jsonNode = JsonLoader.fromResource(bundle.getString("meta_schema_file"));
+      schema = JsonSchemaFactory.byDefault().getJsonSchema(jsonNode);
+      metaSchema = schema;
+    }
+    return schema;
   }
 
 
@@ -76,7 +104,9 @@ public class Utils {
 
   /**
    * Get the pre-configured {@link ObjectMapper} for (de)serialization. Necessary settings needed
-   * are set for our use case.
+   * are set for our use case. Every call creates a new instance, which callers may reconfigure.
+   * If no changes to the configuration are needed, use {@link #getObjectReader()} and
+   * {@link #getObjectWriter()} instead, which avoid introspecting the model classes again.
    *
    * @return The {@code object mapper}.
    */
@@ -100,4 +130,38 @@ public class Utils {
     return objectMapper;
   }
 
+
+  /**
+   * Get the shared reader for {@link EscherMap} objects. It is configured like
+   * {@link #getObjectMapper()}, immutable and can safely be used from several threads.
+   * Use {@link ObjectReader#withType(Class)} to read other types.
+   *
+   * @return The shared {@code object reader}.
+   */
+  public static ObjectReader getObjectReader() {
+    return reader;
+  }
+
+
+  /**
+   * Get the shared writer. It is configured like {@link #getObjectMapper()}, immutable
+   * and can safely be used from several threads. Derive differently configured writers
+   * through its {@code with}/{@code without} methods.
+   *
+   * @return The shared {@code object writer}.
+   */
+  public static ObjectWriter getObjectWriter() {
+    return writer;
+  }
+
+
+  /**
+   * Get the shared {@link JsonFactory} for streaming parsers and generators.
+   *
+   * @return The {@code JSON factory}.
+   */
+  public static JsonFactory getJsonFactory() {
+    return sharedMapper.getFactory();
+  }
+
 }
@@ -20,24 +20,36 @@ import com.github.fge.jsonschema.core.report.ProcessingMessage;
 import com.github.fge.jsonschema.core.report.ProcessingReport;
 import com.github.fge.jsonschema.main.JsonSchema;
 import com.github.fge.jsonschema.main.JsonSchemaFactory;
-import com.github.fge.jsonschema.main.JsonValidator;
 import de.zbit.util.ResourceManager;
+import edu.ucsd.sbrg.sbgn.SBGNIO;
+import edu.ucsd.sbrg.sbgn.SBGNSchematron;
 import org.jdom.JDOMException;
 import org.sbgn.ConvertMilestone1to2;
-import org.sbgn.SbgnUtil;
+import org.sbgn.Language;
 import org.sbgn.bindings.Sbgn;
-import org.sbgn.schematron.Issue;
-import org.sbgn.schematron.SchematronValidator;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
 import org.xml.sax.SAXException;
 
-import javax.xml.bind.JAXBException;
-import javax.xml.bind.UnmarshalException;
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.transform.TransformerException;
+import javax.xml.transform.dom.DOMSource;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.ResourceBundle;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
@@ -48,6 +60,32 @@ import java.util.logging.Logger;
  */
 public class Validator {
 
+  /**
+   * A validator for a schema file and the version of the file it has been
+   * created from.
+   */
+  private static final class SchemaFile {
+
+    /**
+     * The time of the last modification of the file when it was read.
+     */
+    private final long      lastModified;
+    /**
+     * The validator for the schema in the file.
+     */
+    private final Validator validator;
+
+
+    /**
+     * @param lastModified
+     * @param validator
+     */
+    private SchemaFile(long lastModified, Validator validator) {
+      this.lastModified = lastModified;
+      this.validator = validator;
+    }
+  }
+
   /**
    * Default values.
    */
@@ -61,14 +99,37 @@ public class Validator {
    */
   private static final           Logger logger           = Logger.getLogger(Validator.class.getName());
   /**
-   * JSON Validator to validate Escher JSON files.
+   * The number of compiled schemas that {@link #schemaRegistry} keeps.
+   */
+  private static final int SCHEMA_REGISTRY_LIMIT = 16;
+  /**
+   * Process-wide registry of the most recently used compiled schemas, keyed
+   * by the schema itself. Compiled schemas are immutable and can be shared
+   * among threads. Older schemas are forgotten, so that the registry does not
+   * grow with every modification of a schema file.
    */
-  private static final           JsonValidator JSON_VALIDATOR = JsonSchemaFactory.byDefault().getValidator();
+  private static final Map<JsonNode, JsonSchema> schemaRegistry = Collections.synchronizedMap(
+    new LinkedHashMap<JsonNode, JsonSchema>(SCHEMA_REGISTRY_LIMIT, 0.75f, true) {
+
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<JsonNode, JsonSchema> eldest) {
+        return size() > SCHEMA_REGISTRY_LIMIT;
+      }
+    });
+  /**
+   * Validators for schema files, keyed by the canonical path of the file.
+   */
+  private static final Map<String, SchemaFile> fileRegistry = new ConcurrentHashMap<String, SchemaFile>();
+  /**
+   * Validator for the default Escher schema, created on first use.
+   */
+  private static volatile Validator defaultValidator;
   /**
    * JSON Schema to validate against.
    */
-  private JsonSchema          escherSchema;
-  private SchematronValidator schematronValidator;
+  private volatile JsonSchema escherSchema;
 
 
   /**
@@ -76,6 +137,7 @@ public class Validator {
    *
    * @throws IOException See {@link Utils#defaultEscherSchema()}.
    * @throws ProcessingException See {@link Utils#defaultEscherSchema()}.
+   * @see #getDefault()
    */
   public Validator() throws IOException, ProcessingException {
     this(Utils.defaultEscherSchema());
@@ -83,19 +145,52 @@ public class Validator {
 
 
   /**
-   * Constructor. Takes a custom schema to validate Escher against.
+   * Constructor. Takes a custom schema to validate Escher against. The schema
+   * is only checked and compiled if it is not yet in the registry of compiled
+   * schemas.
    *
    * @param jsonNode The {@code JSON Schema}.
    * @throws IOException See {@link Utils#jsonSchemaSchema()}.
    * @throws ProcessingException See {@link Utils#jsonSchemaSchema()}.
    */
   public Validator(JsonNode jsonNode) throws IOException, ProcessingException {
-    // TODO: Check if schema is valid.
-    ProcessingReport report = Utils.jsonSchemaSchema().validate(jsonNode);
+    escherSchema = compile(jsonNode, true);
+  }
+
 
-    if (report.isSuccess()) {
+  /**
+   * @param escherSchema The compiled schema or {@code null} for the default
+   *        schema, which is then compiled on first use.
+   */
+  private Validator(JsonSchema escherSchema) {
+    this.escherSchema = escherSchema;
+  }
+
+
+  /**
+   * Returns the compiled form of the given schema from the registry and
+   * compiles it only if it is not yet known.
+   *
+   * @param jsonNode The {@code JSON Schema}.
+   * @param check whether the schema has to be validated against the
+   *        meta-schema first.
+   * @return the compiled schema.
+   * @throws IOException See {@link Utils#jsonSchemaSchema()}.
+   * @throws ProcessingException See {@link Utils#jsonSchemaSchema()}.
+   * @throws IllegalArgumentException if the schema is invalid.
+   */
+  private static JsonSchema compile(JsonNode jsonNode, boolean check) throws IOException, ProcessingException {
+    JsonSchema schema = schemaRegistry.get(jsonNode);
+    if (schema != null) {
+      return schema;
+    }
+    // Loading and applying the meta-schema takes longer than compiling the
+    // schema itself, which matters for short-lived command-line runs.
+    if (!check || Utils.jsonSchemaSchema().validate(jsonNode).isSuccess()) {
       logger.fine(messages.getString("JSONSchemaValid"));
-      escherSchema = JsonSchemaFactory.byDefault().getJsonSchema(jsonNode);
+      schema = JsonSchemaFactory.byDefault().getJsonSchema(jsonNode);
+      JsonSchema previous = schemaRegistry.putIfAbsent(jsonNode.deepCopy(), schema);
+      return previous != null ? previous : schema;
     }
     else {
       logger.fine(messages.getString("JSONSchemaInvalid"));
@@ -104,6 +199,55 @@ public class Validator {
   }
 
 
+  /**
+   * Returns the shared validator for the default Escher schema (v1.0.0),
+   * which is loaded and compiled only once per process. Since this schema is
+   * part of the program, it is not checked against the meta-schema. It is
+   * compiled only when the first Escher document is validated, so that
+   * validating SBML or SBGN-ML documents does not require the schema at all.
+   *
+   * @return the default validator.
+   * @throws IOException See {@link Utils#defaultEscherSchema()}.
+   * @throws ProcessingException See {@link Utils#defaultEscherSchema()}.
+   */
+  public static Validator getDefault() throws IOException, ProcessingException {
+    Validator validator = defaultValidator;
+    if (validator == null) {
+      synchronized (Validator.class) {
+        validator = defaultValidator;
+        if (validator == null) {
+          validator = new Validator((JsonSchema) null);
+          defaultValidator = validator;
+        }
+      }
+    }
+    return validator;
+  }
+
+
+  /**
+   * Returns a shared validator for the schema in the given file. The file is
+   * read and compiled again only if it has been modified since the last
+   * call.
+   *
+   * @param schemaFile A file containing a custom {@code JSON Schema}.
+   * @return a validator for the given schema.
+   * @throws IOException Thrown if problems in accessing {@code schemaFile}.
+   * @throws ProcessingException See {@link Utils#jsonSchemaSchema()}.
+   */
+  public static Validator forSchema(File schemaFile) throws IOException, ProcessingException {
+    String path = schemaFile.getCanonicalPath();
+    long lastModified = schemaFile.lastModified();
+    SchemaFile entry = fileRegistry.get(path);
+    if ((entry == null) || (entry.lastModified != lastModified)) {
+      // Replaces the validator for an older version of the file.
+      entry = new SchemaFile(lastModified, new Validator(JsonLoader.fromFile(schemaFile)));
+      fileRegistry.put(path, entry);
+    }
+    return entry.validator;
+  }
+
+
   /**
    * Validates an Escher JSON file.
    *
@@ -112,9 +256,23 @@ public class Validator {
    * @throws IOException Thrown if problems in accessing {@code file}.
    */
   public boolean validateEscher(File file) throws IOException {
-    JsonNode node = JsonLoader.fromFile(file);
+    return validateEscher(readEscherTree(file));
+  }
+
+
+  /**
+   * Validates an Escher JSON document that has already been parsed into a tree. Use this
+   * method with {@link #readEscherTree(File)} in order to read the input only once for
+   * validation and conversion.
+   *
+   * @param node The {@code JSON} tree of an Escher document.
+   * @return True if valid, false otherwise.
+   * @throws IOException Thrown if the default schema cannot be read, see
+   *         {@link Utils#defaultEscherSchema()}.
+   */
+  public boolean validateEscher(JsonNode node) throws IOException {
     try {
-      ProcessingReport report = escherSchema.validate(node);
+      ProcessingReport report = getEscherSchema().validate(node);
       return report.isSuccess();
     } catch (ProcessingException e) {
       logger.warning(messages.getString("EscherValidationFail"));
@@ -124,51 +282,128 @@ public class Validator {
 
 
   /**
-   * Validates an SBGN-ML XML file.
+   * @return the schema to validate Escher documents against.
+   * @throws IOException See {@link Utils#defaultEscherSchema()}.
+   * @throws ProcessingException See {@link Utils#defaultEscherSchema()}.
+   */
+  private JsonSchema getEscherSchema() throws IOException, ProcessingException {
+    JsonSchema schema = escherSchema;
+    if (schema == null) {
+      // Only the default validator compiles its schema on demand.
+      schema = compile(Utils.defaultEscherSchema(), false);
+      escherSchema = schema;
+    }
+    return schema;
+  }
+
+
+  /**
+   * Reads an Escher JSON file into a tree that can be validated with
+   * {@link #validateEscher(JsonNode)} and afterwards be bound to an
+   * {@link edu.ucsd.sbrg.escher.model.EscherMap}. The file may be gzip-compressed.
+   *
+   * @param file The input {@code file}.
+   * @return The {@code JSON} tree.
+   * @throws IOException Thrown if problems in accessing or parsing {@code file}.
+   */
+  public static JsonNode readEscherTree(File file) throws IOException {
+    try (Reader reader = new InputStreamReader(Compression.openInput(file), StandardCharsets.UTF_8)) {
+      return JsonLoader.fromReader(reader);
+    }
+  }
+
+
+  /**
+   * Validates an SBGN-ML XML file, which may be gzip-compressed.
    *
    * @param file The input {@code file}.
    * @return True if valid, false otherwise.
    * @throws IOException Thrown if problems in accessing {@code file}.
+   * @see #validateSbgnml(Document)
    */
   public boolean validateSbgnml(File file) throws IOException {
     try {
-      Sbgn document = SbgnUtil.readFromFile(file);
+      return validateSbgnml(readSbgnDocument(file));
+    } catch (SAXException | ParserConfigurationException e) {
+      logger.log(Level.WARNING, messages.getString("SBGNReadFail") + ": " + e.getMessage(), e);
+    }
+    return false;
+  }
 
-      if (document.getMap().getLanguage() == null || !document.getMap().getLanguage().equals
-          ("process description")) {
-        logger.warning(messages.getString("SBGNLanguageUnspecified"));
-        return false;
-      }
-    } catch (UnmarshalException e) {
-      // TODO: Check if this exception is caused due to milestone mismatch and return false if the file is not a valid SBGN file at all.
-      try {
-        // If parsing fails, try converting from milestone 1 to 2 first.
-        logger.warning(messages.getString("ConvertM1toM2"));
-        ConvertMilestone1to2.main(new String[] {file.getAbsolutePath(), file.getAbsolutePath()});
-      } catch (JDOMException e1) {
-        logger.severe(messages.getString("ConvertM1toM2Fail"));
-        e1.printStackTrace();
-      }
-    } catch (JAXBException e) {
+
+  /**
+   * Validates an SBGN-ML document that has already been parsed into a DOM tree. Use this
+   * method with {@link #readSbgnDocument(File)} in order to read the input only once for
+   * validation and conversion. The Schematron rules of libSBGN are compiled only once per
+   * process, see {@link SBGNSchematron}.
+   *
+   * @param document The DOM tree of an SBGN-ML document.
+   * @return True if valid, false otherwise.
+   */
+  public boolean validateSbgnml(Document document) {
+    Element root = document.getDocumentElement();
+    if (!"sbgn".equals(root.getLocalName()) || !SBGNIO.NAMESPACE.equals(root.getNamespaceURI())) {
       logger.warning(messages.getString("SBGNReadFail"));
-      e.printStackTrace();
+      return false;
+    }
+    NodeList maps = root.getElementsByTagNameNS(SBGNIO.NAMESPACE, "map");
+    String language = maps.getLength() > 0 ? ((Element) maps.item(0)).getAttribute("language") : null;
+    if (!Language.PD.getName().equals(language)) {
+      logger.warning(messages.getString("SBGNLanguageUnspecified"));
       return false;
     }
     try {
-      SchematronValidator.setSvrlDump(true);
-      List<Issue> issues = SchematronValidator.validate(file);
-
-      if (issues == null || issues.isEmpty()) {
-        return true;
+      List<String> failures = SBGNSchematron.validate(new DOMSource(document, document.getDocumentURI()), Language.PD);
+      for (String failure : failures) {
+        logger.fine(failure);
       }
-    } catch (TransformerException | SAXException | ParserConfigurationException e) {
-      logger.warning(messages.getString("SBGNValidationFail"));
-      e.printStackTrace();
+      return failures.isEmpty();
+    } catch (TransformerException e) {
+      logger.log(Level.WARNING, messages.getString("SBGNValidationFail"), e);
     }
     return false;
   }
 
 
+  /**
+   * Reads an SBGN-ML file into a DOM tree that can be validated with
+   * {@link #validateSbgnml(Document)} and afterwards be bound to an {@link Sbgn} document with
+   * {@link SBGNIO#read(org.w3c.dom.Node)}. The file may be gzip-compressed. A file of
+   * milestone 1 is converted to milestone 2 in a temporary copy; the file itself is never
+   * modified.
+   *
+   * @param file The input {@code file}.
+   * @return The DOM tree.
+   * @throws IOException Thrown if problems in accessing {@code file}.
+   * @throws SAXException Thrown if {@code file} does not contain well-formed XML, or if it
+   *         cannot be converted from milestone 1 to milestone 2.
+   * @throws ParserConfigurationException See {@link SBGNIO#readDocument(File)}.
+   */
+  public static Document readSbgnDocument(File file)
+      throws IOException, SAXException, ParserConfigurationException {
+    Document document = SBGNIO.readDocument(file);
+    Element root = document.getDocumentElement();
+    if ("sbgn".equals(root.getLocalName()) && !SBGNIO.NAMESPACE.equals(root.getNamespaceURI())) {
+      // TODO: Check if this exception is caused due to milestone mismatch and return false if the file is not a valid SBGN file at all.
+      logger.warning(messages.getString("ConvertM1toM2"));
+      File temp = File.createTempFile("sbgn", ".sbgn");
+      try {
+        try (InputStream stream = Compression.openInput(file)) {
+          Files.copy(stream, temp.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        ConvertMilestone1to2.convert(temp, temp);
+        document = SBGNIO.readDocument(temp);
+      } catch (JDOMException e) {
+        // The unconverted tree would only fail validation without telling why.
+        throw new SAXException(messages.getString("ConvertM1toM2Fail") + ": " + e.getMessage(), e);
+      } finally {
+        temp.delete();
+      }
+    }
+    return document;
+  }
+
+
   /**
    * Validates an SBGN-ML XML file.
    *
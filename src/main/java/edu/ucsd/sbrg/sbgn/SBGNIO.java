@@ -0,0 +1,245 @@
+/* ---------------------------------------------------------------------
+ * This file is part of the program EscherConverter.
+ *
+ * Copyright (C) 2013-2017 by the University of California, San Diego.
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation. A copy of the license
+ * agreement is provided in the file named "LICENSE.txt" included with
+ * this software distribution and also available online as
+ * <http://www.gnu.org/licenses/lgpl-3.0-standalone.html>.
+ * ---------------------------------------------------------------------
+ */
+package edu.ucsd.sbrg.sbgn;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.bind.annotation.XmlSchema;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.sbgn.SbgnUtil;
+import org.sbgn.bindings.Sbgn;
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+import org.xml.sax.SAXException;
+
+import edu.ucsd.sbrg.escher.util.Compression;
+
+/**
+ * Reads and writes SBGN-ML documents. In contrast to {@link SbgnUtil}, which
+ * creates a new {@link JAXBContext} for every document, all documents are
+ * read and written with one shared context, which is created on first use.
+ * Since {@link Unmarshaller}s and {@link Marshaller}s must not be used by
+ * several threads at the same time, every thread keeps its own instances and
+ * reuses them for all further documents. Hence, all methods can be called
+ * from several threads at the same time, e.g., in batch mode.
+ * <p>
+ * A document that has to be validated before it is converted can be parsed
+ * only once with {@link #readDocument(File)}; the same DOM tree can then be
+ * validated and bound with {@link #read(Node)}.
+ *
+ * @author Andreas Dr&auml;ger
+ */
+public class SBGNIO {
+
+  /**
+   * The package of the JAXB bindings of SBGN-ML.
+   */
+  private static final String BINDINGS = Sbgn.class.getPackage().getName();
+  /**
+   * Namespace of the SBGN-ML milestone that can be read.
+   */
+  public static final String NAMESPACE = Sbgn.class.getPackage().getAnnotation(XmlSchema.class).namespace();
+
+  /**
+   * The shared context, see {@link #getContext()}.
+   */
+  private static volatile JAXBContext context;
+  /**
+   * The unmarshaller of each thread.
+   */
+  private static final ThreadLocal<Unmarshaller> unmarshaller = new ThreadLocal<Unmarshaller>();
+  /**
+   * The marshaller of each thread.
+   */
+  private static final ThreadLocal<Marshaller> marshaller = new ThreadLocal<Marshaller>();
+  /**
+   * The DOM parser of each thread.
+   */
+  private static final ThreadLocal<DocumentBuilder> documentBuilder = new ThreadLocal<DocumentBuilder>();
+
+
+  /**
+   * Utility class, no instances.
+   */
+  private SBGNIO() {
+  }
+
+
+  /**
+   * Returns the context for the SBGN-ML bindings, which is created only once
+   * per process. It is thread-safe.
+   *
+   * @return the shared context.
+   * @throws JAXBException if the context cannot be created.
+   */
+  public static JAXBContext getContext() throws JAXBException {
+    JAXBContext ctx = context;
+    if (ctx == null) {
+      synchronized (SBGNIO.class) {
+        ctx = context;
+        if (ctx == null) {
+          ctx = JAXBContext.newInstance(BINDINGS);
+          context = ctx;
+        }
+      }
+    }
+    return ctx;
+  }
+
+
+  /**
+   * @return the unmarshaller of the current thread.
+   * @throws JAXBException
+   */
+  private static Unmarshaller getUnmarshaller() throws JAXBException {
+    Unmarshaller u = unmarshaller.get();
+    if (u == null) {
+      u = getContext().createUnmarshaller();
+      unmarshaller.set(u);
+    }
+    return u;
+  }
+
+
+  /**
+   * @return the marshaller of the current thread, which writes formatted
+   *         output like {@link SbgnUtil#writeToFile(Sbgn, File)}.
+   * @throws JAXBException
+   */
+  private static Marshaller getMarshaller() throws JAXBException {
+    Marshaller m = marshaller.get();
+    if (m == null) {
+      m = getContext().createMarshaller();
+      m.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
+      marshaller.set(m);
+    }
+    return m;
+  }
+
+
+  /**
+   * @return the namespace-aware DOM parser of the current thread.
+   * @throws ParserConfigurationException
+   */
+  private static DocumentBuilder getDocumentBuilder() throws ParserConfigurationException {
+    DocumentBuilder builder = documentBuilder.get();
+    if (builder == null) {
+      DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+      factory.setNamespaceAware(true);
+      builder = factory.newDocumentBuilder();
+      documentBuilder.set(builder);
+    }
+    return builder;
+  }
+
+
+  /**
+   * Parses an XML file, which may be gzip-compressed, without binding it.
+   *
+   * @param file
+   * @return the DOM tree of the file.
+   * @throws IOException if the file cannot be read.
+   * @throws SAXException if the file does not contain well-formed XML.
+   * @throws ParserConfigurationException
+   */
+  public static Document readDocument(File file) throws IOException, SAXException, ParserConfigurationException {
+    try (InputStream stream = Compression.openInput(file)) {
+      DocumentBuilder builder = getDocumentBuilder();
+      try {
+        return builder.parse(stream, file.toURI().toString());
+      } finally {
+        builder.reset();
+      }
+    }
+  }
+
+
+  /**
+   * Binds a DOM tree that has already been parsed, e.g., with
+   * {@link #readDocument(File)}.
+   *
+   * @param node a document or its {@code sbgn} element.
+   * @return the document.
+   * @throws JAXBException if the tree does not contain SBGN-ML.
+   */
+  public static Sbgn read(Node node) throws JAXBException {
+    return (Sbgn) getUnmarshaller().unmarshal(node);
+  }
+
+
+  /**
+   * Reads an SBGN-ML document, which may be gzip-compressed.
+   *
+   * @param file
+   * @return the document.
+   * @throws JAXBException if the file does not contain SBGN-ML.
+   * @throws IOException if the file cannot be read.
+   */
+  public static Sbgn read(File file) throws JAXBException, IOException {
+    try (InputStream stream = Compression.openInput(file)) {
+      return read(stream);
+    }
+  }
+
+
+  /**
+   * Reads an SBGN-ML document from the given stream, which is not closed.
+   *
+   * @param stream must not be compressed.
+   * @return the document.
+   * @throws JAXBException if the stream does not contain SBGN-ML.
+   */
+  public static Sbgn read(InputStream stream) throws JAXBException {
+    return (Sbgn) getUnmarshaller().unmarshal(stream);
+  }
+
+
+  /**
+   * Writes an SBGN-ML document to a file, which is gzip-compressed if its
+   * name ends with {@value Compression#GZIP_EXTENSION}.
+   *
+   * @param sbgn
+   * @param file
+   * @throws JAXBException if the document cannot be serialized.
+   * @throws IOException if the file cannot be written.
+   */
+  public static void write(Sbgn sbgn, File file) throws JAXBException, IOException {
+    try (OutputStream stream = Compression.openOutput(file)) {
+      write(sbgn, stream);
+    }
+  }
+
+
+  /**
+   * Writes an SBGN-ML document to the given stream, which is not closed.
+   *
+   * @param sbgn
+   * @param stream
+   * @throws JAXBException if the document cannot be serialized.
+   */
+  public static void write(Sbgn sbgn, OutputStream stream) throws JAXBException {
+    getMarshaller().marshal(sbgn, stream);
+  }
+
+}
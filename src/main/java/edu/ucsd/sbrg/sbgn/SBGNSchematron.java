@@ -0,0 +1,211 @@
+/* ---------------------------------------------------------------------
+ * This file is part of the program EscherConverter.
+ *
+ * Copyright (C) 2013-2017 by the University of California, San Diego.
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation. A copy of the license
+ * agreement is provided in the file named "LICENSE.txt" included with
+ * this software distribution and also available online as
+ * <http://www.gnu.org/licenses/lgpl-3.0-standalone.html>.
+ * ---------------------------------------------------------------------
+ */
+package edu.ucsd.sbrg.sbgn;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.xml.transform.Source;
+import javax.xml.transform.Templates;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.sax.SAXResult;
+import javax.xml.transform.sax.SAXTransformerFactory;
+import javax.xml.transform.sax.TransformerHandler;
+import javax.xml.transform.stream.StreamResult;
+import javax.xml.transform.stream.StreamSource;
+
+import org.sbgn.Language;
+import org.sbgn.schematron.SchematronValidator;
+import org.xml.sax.Attributes;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Checks SBGN-ML documents against the Schematron rules of libSBGN, with the
+ * same result as {@link SchematronValidator}. The latter translates the rules
+ * into an XSLT stylesheet again for every document, parses the document
+ * twice and writes the report to a string and optionally to a temporary
+ * file. Here, the stylesheet of each language is compiled only once per
+ * process, documents can be given as a DOM tree that has already been parsed,
+ * and the report is evaluated while it is being generated.
+ *
+ * @author Andreas Dr&auml;ger
+ */
+public class SBGNSchematron {
+
+  /**
+   * Namespace of the Schematron Validation Report Language.
+   */
+  private static final String SVRL_NAMESPACE = "http://purl.oclc.org/dsdl/svrl";
+
+  /**
+   * The compiled rules by language.
+   */
+  private static final Map<Language, Templates> rules = new ConcurrentHashMap<Language, Templates>();
+  /**
+   * libSBGN requires Saxon for XSLT 2.0; it is used directly in order not to
+   * change the default {@link TransformerFactory} of the whole program.
+   */
+  private static final SAXTransformerFactory factory = new net.sf.saxon.TransformerFactoryImpl();
+
+  /**
+   * Collects the failed assertions of a validation report, which are the
+   * issues that {@link SchematronValidator} reports.
+   */
+  private static class FailedAssertions extends DefaultHandler {
+
+    /**
+     * One description per failed assertion.
+     */
+    private final List<String> failures = new ArrayList<String>();
+    /**
+     * The text of the current element.
+     */
+    private final StringBuilder text = new StringBuilder();
+    /**
+     * The rule of the current assertion or {@code null} outside of an
+     * assertion.
+     */
+    private String rule;
+    /**
+     * The message of the current assertion.
+     */
+    private String message;
+
+
+    /* (non-Javadoc)
+     * @see org.xml.sax.helpers.DefaultHandler#startElement(java.lang.String, java.lang.String, java.lang.String, org.xml.sax.Attributes)
+     */
+    @Override
+    public void startElement(String uri, String localName, String qName, Attributes attributes) {
+      if (SVRL_NAMESPACE.equals(uri) && "failed-assert".equals(localName)) {
+        rule = String.valueOf(attributes.getValue("id"));
+        message = null;
+      }
+      text.setLength(0);
+    }
+
+
+    /* (non-Javadoc)
+     * @see org.xml.sax.helpers.DefaultHandler#characters(char[], int, int)
+     */
+    @Override
+    public void characters(char[] ch, int start, int length) {
+      text.append(ch, start, length);
+    }
+
+
+    /* (non-Javadoc)
+     * @see org.xml.sax.helpers.DefaultHandler#endElement(java.lang.String, java.lang.String, java.lang.String)
+     */
+    @Override
+    public void endElement(String uri, String localName, String qName) {
+      if ((rule == null) || !SVRL_NAMESPACE.equals(uri)) {
+        return;
+      }
+      if ("text".equals(localName) && (message == null)) {
+        message = text.toString().trim();
+      } else if ("failed-assert".equals(localName)) {
+        failures.add(rule + ": " + message);
+        rule = null;
+      }
+    }
+
+  }
+
+
+  /**
+   * Utility class, no instances.
+   */
+  private SBGNSchematron() {
+  }
+
+
+  /**
+   * Returns the compiled rules for the given language, which are compiled
+   * only on the first call for each language.
+   *
+   * @param language
+   * @return the rules as an XSLT stylesheet that writes a validation report.
+   * @throws TransformerException if the rules cannot be compiled.
+   */
+  public static Templates getRules(Language language) throws TransformerException {
+    Templates templates = rules.get(language);
+    if (templates == null) {
+      synchronized (rules) {
+        templates = rules.get(language);
+        if (templates == null) {
+          templates = compile(language);
+          rules.put(language, templates);
+        }
+      }
+    }
+    return templates;
+  }
+
+
+  /**
+   * @param language
+   * @return the compiled rules.
+   * @throws TransformerException
+   */
+  private static Templates compile(Language language) throws TransformerException {
+    StringWriter stylesheet = new StringWriter();
+    factory.newTransformer(new StreamSource(resource("/iso_svrl_for_xslt2.xsl"))).transform(
+      new StreamSource(resource("/sbgn_" + language.name().toLowerCase() + ".sch")),
+      new StreamResult(stylesheet));
+    return factory.newTemplates(new StreamSource(new StringReader(stylesheet.toString())));
+  }
+
+
+  /**
+   * @param name
+   * @return the URL of the given resource of libSBGN.
+   * @throws TransformerException if there is no such resource.
+   */
+  private static String resource(String name) throws TransformerException {
+    URL url = SchematronValidator.class.getResource(name);
+    if (url == null) {
+      throw new TransformerException(name);
+    }
+    return url.toExternalForm();
+  }
+
+
+  /**
+   * Validates a document against the rules of the given language.
+   *
+   * @param document e.g., a {@link javax.xml.transform.dom.DOMSource}.
+   * @param language
+   * @return the rule and message of each failed assertion; the document is
+   *         valid if this list is empty.
+   * @throws TransformerException if the document cannot be validated.
+   */
+  public static List<String> validate(Source document, Language language) throws TransformerException {
+    FailedAssertions report = new FailedAssertions();
+    // Saxon navigates a DOM tree through wrappers, which makes the lookups of
+    // the rules along the descendant axis very slow. Hence, the document is
+    // passed as events from which Saxon builds its own tree.
+    TransformerHandler handler = factory.newTransformerHandler(getRules(language));
+    handler.setResult(new SAXResult(report));
+    factory.newTransformer().transform(document, new SAXResult(handler));
+    return report.failures;
+  }
+
+}
@@ -16,6 +16,7 @@ package edu.ucsd.sbrg.sbgn;
 import de.zbit.graph.io.def.SBGNProperties.ArcType;
 import de.zbit.graph.io.def.SBGNProperties.GlyphOrientation;
 import de.zbit.graph.io.def.SBGNProperties.GlyphType;
+import edu.ucsd.sbrg.escher.util.IdAllocator;
 import org.sbgn.bindings.*;
 import org.sbgn.bindings.Arc.End;
 import org.sbgn.bindings.Arc.Next;
@@ -31,13 +32,17 @@ import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 import java.io.IOException;
 import java.text.MessageFormat;
-import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * A helper class that facilitates the creation of SBGN map objects. This class
  * wraps an instance of {@link ObjectFactory}, which is used to create all the
  * elements. For this reason, the individual methods are not static, because
  * they all rely on one specific {@link ObjectFactory}.
+ * <p>
+ * The builder keeps track of the identifiers of all elements created by it.
+ * Elements can be created from several threads at the same time, because
+ * identifiers are registered atomically.
  *
  * @author Andreas Dr&auml;ger
  */
@@ -82,7 +87,14 @@ public class SBGNbuilder {
   }
 
 
+  /**
+   * All elements created by this builder by their identifier.
+   */
   private java.util.Map<String, SBGNBase> id2element;
+  /**
+   * Creates unique identifiers, see {@link #createUniqueId(String)}.
+   */
+  private IdAllocator                     idAllocator;
   /**
    *
    */
@@ -95,7 +107,8 @@ public class SBGNbuilder {
   public SBGNbuilder() {
     super();
     objectFactory = new ObjectFactory();
-    id2element = new HashMap<String, SBGNBase>();
+    id2element = new ConcurrentHashMap<String, SBGNBase>();
+    idAllocator = new IdAllocator(id -> id2element.containsKey(id));
   }
 
 
@@ -104,11 +117,10 @@ public class SBGNbuilder {
    * @param base
    */
   private void checkId(String id, SBGNBase base) {
-    if (id2element.containsKey(id)) {
+    if (id2element.putIfAbsent(id, base) != null) {
       throw new IllegalArgumentException(
         MessageFormat.format("Duplicate id ''{0}''", id));
     }
-    id2element.put(id, base);
   }
 
 
@@ -207,9 +219,6 @@ public class SBGNbuilder {
    */
   public Glyph createGlyph(String id, GlyphType type) {
     Glyph glyph = objectFactory.createGlyph();
-    if(id2element.containsKey(id)) {
-
-    }
     checkId(id, glyph);
     glyph.setId(id);
     glyph.setClazz(type.toString());
@@ -519,6 +528,20 @@ public class SBGNbuilder {
   }
 
 
+  /**
+   * Returns an identifier that is neither used by any element of this
+   * builder nor has been returned before. Repeated calls with the same
+   * identifier take constant time, see {@link IdAllocator}.
+   *
+   * @param id the desired identifier.
+   * @return {@code id} if it is still free, otherwise {@code id} followed by
+   *         an underscore and the smallest free number.
+   */
+  public String createUniqueId(String id) {
+    return idAllocator.createId(id);
+  }
+
+
   /**
    * @return
    */
@@ -0,0 +1,148 @@
+/* ---------------------------------------------------------------------
+ * This file is part of the program EscherConverter.
+ *
+ * Copyright (C) 2013-2017 by the University of California, San Diego.
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation. A copy of the license
+ * agreement is provided in the file named "LICENSE.txt" included with
+ * this software distribution and also available online as
+ * <http://www.gnu.org/licenses/lgpl-3.0-standalone.html>.
+ * ---------------------------------------------------------------------
+ */
+package edu.ucsd.sbrg.escher;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.junit.After;
+import org.junit.Test;
+
+import de.zbit.util.prefs.SBProperties;
+import edu.ucsd.sbrg.escher.ConversionJob.State;
+import edu.ucsd.sbrg.escher.util.EscherIOOptions;
+
+/**
+ * Checks the queue, cancellation and deadlines of a
+ * {@link ConversionScheduler} with jobs that block until they are released.
+ *
+ * @author Andreas Dr&auml;ger
+ */
+public class ConversionSchedulerTest {
+
+  /**
+   * Released to let all jobs finish.
+   */
+  private final CountDownLatch release = new CountDownLatch(1);
+
+  private final ConversionScheduler scheduler = new ConversionScheduler(new EscherConverter() {
+    @Override
+    public BatchResult process(SBProperties properties) throws IOException {
+      try {
+        release.await();
+      } catch (InterruptedException exc) {
+        throw new InterruptedIOException();
+      }
+      return new BatchResult();
+    }
+  }, 1, 1);
+
+
+  @After
+  public void shutdown() {
+    release.countDown();
+    scheduler.shutdown();
+  }
+
+
+  /**
+   * @param state
+   * @param job
+   * @throws InterruptedException
+   */
+  private static void awaitState(State state, ConversionJob job) throws InterruptedException {
+    for (int i = 0; (i < 200) && (job.getState() != state); i++) {
+      Thread.sleep(25);
+    }
+    assertEquals(state, job.getState());
+  }
+
+
+  @Test
+  public void rejectsJobsWhenQueueIsFull() throws InterruptedException {
+    ConversionJob running = scheduler.submit(new SBProperties());
+    awaitState(State.RUNNING, running);
+    ConversionJob queued = scheduler.submit(new SBProperties());
+    assertEquals(1, scheduler.getActiveCount());
+    assertEquals(1, scheduler.getQueuedCount());
+    try {
+      scheduler.submit(new SBProperties());
+      fail();
+    } catch (RejectedExecutionException exc) {
+      assertEquals(1, scheduler.getRejectedCount());
+    }
+
+    assertTrue(scheduler.cancel(queued.getId()));
+    assertEquals(State.CANCELLED, queued.getState());
+    assertEquals(0, scheduler.getQueuedCount());
+    // The place of the cancelled job is free again.
+    ConversionJob next = scheduler.submit(new SBProperties());
+
+    release.countDown();
+    awaitState(State.DONE, running);
+    awaitState(State.DONE, next);
+    assertEquals(State.CANCELLED, queued.getState());
+    assertFalse(scheduler.cancel(running.getId()));
+  }
+
+
+  @Test
+  public void stopsJobsAfterTimeout() throws InterruptedException {
+    SBProperties properties = new SBProperties();
+    properties.put(EscherIOOptions.JOB_TIMEOUT, "1");
+    ConversionJob job = scheduler.submit(properties);
+    awaitState(State.TIMED_OUT, job);
+    for (int i = 0; (i < 200) && (scheduler.getActiveCount() > 0); i++) {
+      Thread.sleep(25);
+    }
+    assertEquals(0, scheduler.getActiveCount());
+  }
+
+
+
+  @Test
+  public void forgetsOldFinishedJobs() throws InterruptedException {
+    ConversionScheduler limited = new ConversionScheduler(new EscherConverter() {
+      @Override
+      public BatchResult process(SBProperties properties) {
+        return new BatchResult();
+      }
+    }, 1, 1, 2);
+    try {
+      ConversionJob jobs[] = new ConversionJob[3];
+      for (int i = 0; i < jobs.length; i++) {
+        jobs[i] = limited.submit(new SBProperties());
+        awaitState(State.DONE, jobs[i]);
+      }
+      for (int i = 0; (i < 200) && (limited.getJob(jobs[0].getId()) != null); i++) {
+        Thread.sleep(25);
+      }
+      assertNull(limited.getJob(jobs[0].getId()));
+      assertEquals(jobs[1], limited.getJob(jobs[1].getId()));
+      assertEquals(jobs[2], limited.getJob(jobs[2].getId()));
+      assertEquals(3, limited.getSubmittedCount());
+    } finally {
+      limited.shutdown();
+    }
+  }
+
+}
@@ -0,0 +1,260 @@
+/* ---------------------------------------------------------------------
+ * This file is part of the program EscherConverter.
+ *
+ * Copyright (C) 2013-2017 by the University of California, San Diego.
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation. A copy of the license
+ * agreement is provided in the file named "LICENSE.txt" included with
+ * this software distribution and also available online as
+ * <http://www.gnu.org/licenses/lgpl-3.0-standalone.html>.
+ * ---------------------------------------------------------------------
+ */
+package edu.ucsd.sbrg.escher;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import de.zbit.util.prefs.SBProperties;
+import edu.ucsd.sbrg.escher.util.EscherIOOptions;
+
+/**
+ * Submits jobs to a {@link ConversionServer} over HTTP.
+ *
+ * @author Andreas Dr&auml;ger
+ */
+public class ConversionServerTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private ConversionServer server;
+  private ObjectMapper     mapper = new ObjectMapper();
+
+
+  @Before
+  public void startServer() throws IOException {
+    SBProperties properties = new SBProperties();
+    // Two jobs can run at the same time.
+    properties.setProperty(EscherIOOptions.SERVER_WORKERS.toString(), "2");
+    server = new ConversionServer(new EscherConverter(), properties, 0);
+    server.start();
+  }
+
+
+  @After
+  public void stopServer() {
+    server.stop();
+  }
+
+
+  /**
+   * @param method
+   * @param path
+   * @param body can be {@code null}.
+   * @return the connection after the request has been sent.
+   * @throws IOException
+   */
+  private HttpURLConnection request(String method, String path, String body) throws IOException {
+    return request(method, path, body, "application/json");
+  }
+
+
+  /**
+   * @param method
+   * @param path
+   * @param body can be {@code null}.
+   * @param contentType can be {@code null}.
+   * @return the connection after the request has been sent.
+   * @throws IOException
+   */
+  private HttpURLConnection request(String method, String path, String body, String contentType)
+      throws IOException {
+    URL url = new URL("http", "localhost", server.getPort(), path);
+    HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+    connection.setRequestMethod(method);
+    if (contentType != null) {
+      connection.setRequestProperty("Content-Type", contentType);
+    }
+    if (body != null) {
+      connection.setDoOutput(true);
+      try (OutputStream out = connection.getOutputStream()) {
+        out.write(body.getBytes(StandardCharsets.UTF_8));
+      }
+    }
+    return connection;
+  }
+
+
+  /**
+   * Sends a request with an {@code Origin} header like a browser does, which
+   * {@link HttpURLConnection} does not allow.
+   *
+   * @param method
+   * @param path
+   * @param origin
+   * @return the status code of the response.
+   * @throws IOException
+   */
+  private int requestFromOrigin(String method, String path, String origin) throws IOException {
+    try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort())) {
+      String body = "[]";
+      OutputStream out = socket.getOutputStream();
+      out.write((method + ' ' + path + " HTTP/1.1\r\nHost: localhost\r\nOrigin: " + origin
+          + "\r\nContent-Type: application/json\r\nContent-Length: " + body.length()
+          + "\r\nConnection: close\r\n\r\n" + body).getBytes(StandardCharsets.US_ASCII));
+      out.flush();
+      BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+      // e.g., HTTP/1.1 403 Forbidden
+      return Integer.parseInt(in.readLine().split(" ")[1]);
+    }
+  }
+
+
+  /**
+   * @param connection
+   * @return the JSON response.
+   * @throws IOException
+   */
+  private JsonNode read(HttpURLConnection connection) throws IOException {
+    try (InputStream in = connection.getResponseCode() < 400 ? connection.getInputStream()
+        : connection.getErrorStream()) {
+      return mapper.readTree(in);
+    }
+  }
+
+
+  /**
+   * @param name
+   * @param reactions
+   * @return an Escher map whose reactions lack a midmarker, so that the
+   *         conversion of each reaction to SBGN logs a warning about it.
+   * @throws IOException
+   */
+  private File writeMapWithoutMidmarkers(String name, int reactions) throws IOException {
+    StringBuilder json = new StringBuilder();
+    json.append("[{\"map_name\": \"").append(name).append("\"}, {\"canvas\": ");
+    json.append("{\"x\": 0, \"y\": 0, \"width\": 100, \"height\": 100}, \"nodes\": {}, \"reactions\": {");
+    for (int i = 0; i < reactions; i++) {
+      json.append(i > 0 ? ", " : "").append('"').append(name).append(i).append("\": {\"bigg_id\": \"");
+      json.append(name).append(i).append("\", \"metabolites\": [], \"segments\": {}}");
+    }
+    json.append("}, \"text_labels\": {}}]");
+    File file = folder.newFile(name + ".escher.json");
+    Files.write(file.toPath(), json.toString().getBytes(StandardCharsets.UTF_8));
+    return file;
+  }
+
+
+  @Test
+  public void convertsSubmittedJob() throws IOException, InterruptedException {
+    File output = new File(folder.getRoot(), "e_coli_core_metabolism.sbml.xml");
+    String arguments[] = {"--input=data/e_coli_core_metabolism.escher.json",
+        "--output=" + output.getAbsolutePath(), "--format=SBML"};
+    HttpURLConnection connection = request("POST", "/jobs", mapper.writeValueAsString(arguments));
+    assertEquals(202, connection.getResponseCode());
+    String id = read(connection).get("id").asText();
+    assertEquals("/jobs/" + id, connection.getHeaderField("Location"));
+
+    while (!server.getScheduler().getJob(id).isFinished()) {
+      Thread.sleep(50);
+    }
+    JsonNode status = read(request("GET", "/jobs/" + id, null));
+    assertEquals("DONE", status.get("state").asText());
+    assertEquals(1, status.get("converted").asInt());
+    assertEquals(0, status.get("failed").asInt());
+    assertTrue(output.length() > 0);
+    assertEquals(409, request("DELETE", "/jobs/" + id, null).getResponseCode());
+
+    JsonNode metrics = read(request("GET", "/status", null));
+    assertEquals(0, metrics.get("queued").asInt());
+    assertEquals(1, metrics.get("submitted").asInt());
+  }
+
+
+  @Test
+  public void rejectsInvalidJobs() throws IOException {
+    HttpURLConnection connection = request("POST", "/jobs", "[\"--input=map.json\", \"--no-such-option=1\"]");
+    assertEquals(400, connection.getResponseCode());
+    assertTrue(read(connection).get("error").asText().contains("--no-such-option"));
+    assertEquals(400, request("POST", "/jobs", "[\"--output=map.xml\"]").getResponseCode());
+    assertEquals(400, request("POST", "/jobs", "[\"--input=a\", \"--output=b\", \"--workers=-1\"]").getResponseCode());
+    assertEquals(400, request("POST", "/jobs", "null").getResponseCode());
+    assertEquals(400, request("POST", "/jobs", "[\"--input=a\", null]").getResponseCode());
+    assertEquals(404, request("GET", "/jobs/42", null).getResponseCode());
+  }
+
+
+
+  @Test
+  public void rejectsRequestsFromWebPages() throws IOException {
+    String arguments = "[\"--input=a\", \"--output=b\"]";
+    HttpURLConnection connection = request("POST", "/jobs", arguments, "text/plain");
+    assertEquals(415, connection.getResponseCode());
+    assertTrue(read(connection).get("error").asText().contains("text/plain"));
+    assertEquals(415, request("POST", "/shutdown", null, "application/x-www-form-urlencoded").getResponseCode());
+    assertEquals(403, requestFromOrigin("POST", "/jobs", "http://example.org"));
+    assertEquals(403, requestFromOrigin("DELETE", "/jobs/1", "http://example.org"));
+    assertEquals(403, requestFromOrigin("POST", "/shutdown", "null"));
+    assertEquals(200, requestFromOrigin("GET", "/status", "http://example.org"));
+    assertEquals(0, server.getScheduler().getSubmittedCount());
+    assertEquals(202, request("POST", "/jobs", arguments, "application/json; charset=UTF-8").getResponseCode());
+  }
+
+
+  @Test
+  public void writesMessagesOfParallelTasksToLogOfTheirJob() throws IOException, InterruptedException {
+    String names[] = {"alpha", "beta"};
+    int reactions = 20;
+    String ids[] = new String[names.length];
+    for (int i = 0; i < names.length; i++) {
+      File input = writeMapWithoutMidmarkers(names[i], reactions);
+      String arguments[] = {"--input=" + input.getAbsolutePath(),
+          "--output=" + new File(folder.getRoot(), names[i] + ".sbgn").getAbsolutePath(),
+          "--format=SBGN", "--ignore-validation=true", "--threads=4",
+          "--log-file=" + new File(folder.getRoot(), names[i] + ".log").getAbsolutePath()};
+      HttpURLConnection connection = request("POST", "/jobs", mapper.writeValueAsString(arguments));
+      assertEquals(202, connection.getResponseCode());
+      ids[i] = read(connection).get("id").asText();
+    }
+    for (String id : ids) {
+      while (!server.getScheduler().getJob(id).isFinished()) {
+        Thread.sleep(50);
+      }
+      assertEquals(ConversionJob.State.DONE, server.getScheduler().getJob(id).getState());
+    }
+    for (int i = 0; i < names.length; i++) {
+      String log = new String(Files.readAllBytes(new File(folder.getRoot(), names[i] + ".log").toPath()),
+        StandardCharsets.UTF_8);
+      for (int j = 0; j < reactions; j++) {
+        assertTrue(log, log.contains("[id=" + names[i] + j + ","));
+      }
+      assertFalse(log, log.contains("[id=" + names[1 - i]));
+    }
+  }
+
+}
@@ -20,16 +20,26 @@ import static org.junit.Assert.assertTrue;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Map;
 
 import org.json.simple.parser.ParseException;
 import org.junit.BeforeClass;
+import org.junit.Rule;
 import org.junit.Test;
 import org.junit.experimental.runners.Enclosed;
+import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 
 import com.fasterxml.jackson.core.JsonParseException;
 
+import de.zbit.util.prefs.SBPreferences;
+import de.zbit.util.prefs.SBProperties;
+
 import edu.ucsd.sbrg.escher.model.EscherMap;
 import edu.ucsd.sbrg.escher.model.EscherReaction;
 import edu.ucsd.sbrg.escher.model.Gene;
@@ -269,4 +279,85 @@ public class EscherConverterTest {
     }
 
   }
+
+  public static class BatchProcessingTests {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void convertsDirectoryWithSeveralWorkers() throws IOException {
+      File input = folder.newFolder("input");
+      Files.copy(Paths.get("data/mapk_cascade.sbgn.xml"), input.toPath().resolve("mapk_cascade.sbgn.xml"));
+      Files.copy(Paths.get("data/glycolysis.sbgn.xml"), input.toPath().resolve("glycolysis.sbgn.xml"));
+      // Invalid according to the Escher schema, hence not converted.
+      Files.copy(Paths.get("data/mapk_cascade.escher.json"), input.toPath().resolve("mapk_cascade.escher.json"));
+      Files.write(input.toPath().resolve("notes.txt"), "no map".getBytes(StandardCharsets.UTF_8));
+      File output = folder.newFolder("output");
+
+      EscherConverter converter = new EscherConverter();
+      SBProperties properties = SBPreferences.analyzeCommandLineArguments(
+        converter.getCmdLineOptions(), new String[] {"--input=" + input.getAbsolutePath(),
+          "--output=" + output.getAbsolutePath(), "--format=Escher", "--workers=3"});
+      BatchResult result = converter.process(properties);
+
+      assertEquals("failure - converted count", 2, result.getConvertedCount());
+      assertEquals("failure - failure count", 1, result.getFailureCount());
+      assertEquals("failure - skipped count", 1, result.getSkippedCount());
+      assertEquals("failure - wrong skipped file", "notes.txt", result.getSkipped().get(0).getName());
+      assertTrue("failure - wrong failed file",
+        result.getFailed().containsKey(new File(input, "mapk_cascade.escher.json")));
+    }
+
+
+    @Test
+    public void reportsMapsThatAreNotWritten() throws IOException {
+      EscherMap first = new EscherMap();
+      first.setId("first");
+      EscherMap second = new EscherMap();
+      second.setId("second");
+      File output = folder.newFolder("output");
+      assertFalse("failure - no map", EscherConverter.writeEscherJson(Collections.<EscherMap>emptyList(), output));
+      assertFalse("failure - several maps in a file",
+        EscherConverter.writeEscherJson(Arrays.asList(first, second), folder.newFile("map.json")));
+      // A directory is in the way of the second file.
+      assertTrue(new File(output, "second.json").mkdir());
+      assertFalse("failure - unwritable file", EscherConverter.writeEscherJson(Arrays.asList(first, second), output));
+      assertTrue("failure - first map not written", new File(output, "first.json").length() > 0);
+      assertTrue("failure - writable files", EscherConverter.writeEscherJson(Arrays.asList(first),
+        new File(output, "single.json")));
+    }
+
+
+    @Test
+    public void completesStartedFilesIfInterrupted() throws IOException {
+      File input = folder.newFolder("input");
+      for (String name : new String[] {"e_coli_core_metabolism", "iJO1366.central.metabolism",
+          "RECON1_amino_acid_metabolism"}) {
+        Files.copy(Paths.get("data/" + name + ".escher.json"), input.toPath().resolve(name + ".escher.json"));
+      }
+      File output = folder.newFolder("output");
+
+      EscherConverter converter = new EscherConverter();
+      SBProperties properties = SBPreferences.analyzeCommandLineArguments(
+        converter.getCmdLineOptions(), new String[] {"--input=" + input.getAbsolutePath(),
+          "--output=" + output.getAbsolutePath(), "--format=SBML", "--workers=2", "--threads=4"});
+      BatchResult result;
+      Thread.currentThread().interrupt();
+      try {
+        result = converter.process(properties);
+      } finally {
+        assertTrue("failure - interruption lost", Thread.interrupted());
+      }
+
+      // Files that have been started are completed, the others are not converted at all.
+      assertEquals("failure - failure count", 0, result.getFailureCount());
+      // The batch only returns once its workers are idle, so every converted
+      // file has been written, and nothing is written afterwards. The output
+      // directory mirrors the input directory.
+      String files[] = new File(output, "input").list();
+      assertEquals("failure - output files", result.getConvertedCount(), files != null ? files.length : 0);
+    }
+
+  }
 }
@@ -17,19 +17,29 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.github.fge.jackson.JsonLoader;
 import com.github.fge.jsonschema.core.exceptions.ProcessingException;
 
+import edu.ucsd.sbrg.escher.util.Utils;
 import edu.ucsd.sbrg.escher.util.Validator;
+import edu.ucsd.sbrg.sbgn.SBGNIO;
 import junitparams.JUnitParamsRunner;
 import junitparams.Parameters;
 import org.junit.Before;
 import org.junit.Ignore;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
+import org.w3c.dom.Document;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -38,6 +48,9 @@ import static org.junit.Assert.assertTrue;
 @RunWith(JUnitParamsRunner.class)
 public class ValidationTest {
 
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
   public Validator validator;
   public File      file;
 
@@ -65,6 +78,42 @@ public class ValidationTest {
   }
 
 
+  /**
+   * The default schema is not checked at run time, see {@link Validator#getDefault()}.
+   */
+  @Test
+  public void defaultSchemaIsValid() throws IOException, ProcessingException {
+    assertTrue("failure - shipped schema violates the meta-schema",
+      Utils.jsonSchemaSchema().validate(Utils.defaultEscherSchema()).isSuccess());
+  }
+
+
+  @Test
+  public void reusesCompiledSchemas() throws IOException, ProcessingException {
+    assertSame("failure - default validator created twice", Validator.getDefault(),
+      Validator.getDefault());
+
+    file = new File("data/cobra_json_schema.json");
+    validator = Validator.forSchema(file);
+    assertSame("failure - custom schema compiled twice", validator, Validator.forSchema(file));
+    assertTrue("failure - shared validator failing on valid JSON",
+      Validator.getDefault().validateEscher(new File("data/e_coli_core_metabolism.escher.json")));
+  }
+
+
+  @Test
+  public void replacesValidatorOfModifiedSchemaFile() throws IOException, ProcessingException {
+    file = folder.newFile("schema.json");
+    Files.copy(new File("data/cobra_json_schema.json").toPath(), file.toPath(),
+      StandardCopyOption.REPLACE_EXISTING);
+    validator = Validator.forSchema(file);
+    assertTrue(file.setLastModified(file.lastModified() - 10000L));
+    Validator modified = Validator.forSchema(file);
+    assertNotSame("failure - modified schema not read again", validator, modified);
+    assertSame("failure - modified schema compiled twice", modified, Validator.forSchema(file));
+  }
+
+
   @Test
   @Parameters({
     "data/mapk_cascade.escher.json|false",
@@ -97,7 +146,20 @@ public class ValidationTest {
   }
 
 
-  @Ignore("See Validator.java#136.")
+  @Test
+  public void readsOlderMilestoneWithoutModifyingFile() throws Exception {
+    file = new File("data/insulin.sbgn.xml");
+    byte[] content = Files.readAllBytes(file.toPath());
+    Document document = Validator.readSbgnDocument(file);
+
+    assertEquals("failure - milestone 1 not converted", SBGNIO.NAMESPACE,
+      document.getDocumentElement().getNamespaceURI());
+    assertArrayEquals("failure - input file modified", content, Files.readAllBytes(file.toPath()));
+    assertFalse("failure - converted document not bound",
+      SBGNIO.read(document).getMap().getGlyph().isEmpty());
+  }
+
+
   @Test
   public void failsOnInvalidSbgnDocument() throws IOException, ProcessingException {
     validator = new Validator();
@@ -0,0 +1,72 @@
+/* ---------------------------------------------------------------------
+ * This file is part of the program EscherConverter.
+ *
+ * Copyright (C) 2013-2017 by the University of California, San Diego.
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation. A copy of the license
+ * agreement is provided in the file named "LICENSE.txt" included with
+ * this software distribution and also available online as
+ * <http://www.gnu.org/licenses/lgpl-3.0-standalone.html>.
+ * ---------------------------------------------------------------------
+ */
+package edu.ucsd.sbrg.escher.converter;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+
+import javax.xml.bind.JAXBException;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.sbgn.bindings.Sbgn;
+
+import de.zbit.util.prefs.SBPreferences;
+import de.zbit.util.prefs.SBProperties;
+import edu.ucsd.sbrg.escher.EscherConverter;
+import junitparams.JUnitParamsRunner;
+import junitparams.Parameters;
+
+/**
+ * Checks that building the glyphs of a map on several threads yields the
+ * same SBGN-ML document as building them one after another.
+ *
+ * @author Andreas Dr&auml;ger
+ */
+@RunWith(JUnitParamsRunner.class)
+public class Escher2SBGNTest {
+
+  /**
+   * @param path
+   * @param threads
+   * @return the SBGN-ML document.
+   * @throws IOException
+   * @throws JAXBException
+   */
+  private byte[] convert(String path, int threads) throws IOException, JAXBException {
+    // All other options keep their default value.
+    SBProperties properties = SBPreferences.analyzeCommandLineArguments(
+      new EscherConverter().getCmdLineOptions(), new String[] {"--threads=" + threads});
+    Sbgn sbgn = EscherConverter.convert(EscherConverter.parseEscherJson(new File(path)),
+      Sbgn.class, properties);
+    ByteArrayOutputStream stream = new ByteArrayOutputStream();
+    EscherConverter.writeSBGNML(sbgn, stream);
+    return stream.toByteArray();
+  }
+
+
+  @Test
+  @Parameters({
+    "data/e_coli_core_metabolism.escher.json",
+    "data/glycolysis.escher.json",
+    "data/mapk_cascade.escher.json"
+  })
+  public void yieldsSameDocumentOnSeveralThreads(String path) throws IOException, JAXBException {
+    assertArrayEquals("failure - documents differ", convert(path, 1), convert(path, 4));
+  }
+
+}
@@ -0,0 +1,130 @@
+/* ---------------------------------------------------------------------
+ * This file is part of the program EscherConverter.
+ *
+ * Copyright (C) 2013-2017 by the University of California, San Diego.
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation. A copy of the license
+ * agreement is provided in the file named "LICENSE.txt" included with
+ * this software distribution and also available online as
+ * <http://www.gnu.org/licenses/lgpl-3.0-standalone.html>.
+ * ---------------------------------------------------------------------
+ */
+package edu.ucsd.sbrg.escher.converter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.sbml.jsbml.SBMLDocument;
+import org.sbml.jsbml.SBMLWriter;
+import org.sbml.jsbml.ext.layout.ReactionGlyph;
+
+import de.zbit.util.prefs.SBPreferences;
+import de.zbit.util.prefs.SBProperties;
+import edu.ucsd.sbrg.escher.EscherConverter;
+import edu.ucsd.sbrg.escher.model.EscherMap;
+import junitparams.JUnitParamsRunner;
+import junitparams.Parameters;
+
+/**
+ * Checks that converting the reactions of a map on several threads yields
+ * the same SBML document as converting them one after another, and that
+ * markers on long chains of segments are converted.
+ *
+ * @author Andreas Dr&auml;ger
+ */
+@RunWith(JUnitParamsRunner.class)
+public class Escher2SBMLTest {
+
+  /**
+   * @param path
+   * @param threads
+   * @return the SBML document as a string.
+   * @throws IOException
+   * @throws XMLStreamException
+   */
+  private String convert(String path, int threads) throws IOException, XMLStreamException {
+    SBMLDocument doc = convert(EscherConverter.parseEscherJson(new File(path)), threads);
+    return new SBMLWriter().writeSBMLToString(doc);
+  }
+
+
+  /**
+   * @param map
+   * @param threads
+   * @return the SBML document.
+   */
+  private SBMLDocument convert(EscherMap map, int threads) {
+    // All other options keep their default value.
+    SBProperties properties = SBPreferences.analyzeCommandLineArguments(
+      new EscherConverter().getCmdLineOptions(), new String[] {"--threads=" + threads});
+    return EscherConverter.convert(map, SBMLDocument.class, properties);
+  }
+
+
+  @Test
+  @Parameters({
+    "data/glycolysis.escher.json",
+    "data/mapk_cascade.escher.json",
+    "data/TestMap_vcard.escher.json"
+  })
+  public void yieldsSameDocumentOnSeveralThreads(String path)
+      throws IOException, XMLStreamException {
+    assertEquals("failure - documents differ", convert(path, 1), convert(path, 4));
+  }
+
+
+  /**
+   * Reaction {@code 1} converts {@code a_c} into {@code b_c}. Metabolite
+   * {@code a_c} is linked to the midmarker only through a chain of
+   * {@code length} multimarkers, and the first segment of the midmarker leads
+   * to a multimarker without further segments.
+   *
+   * @param length
+   * @return the Escher JSON document.
+   */
+  private static String chain(int length) {
+    StringBuilder nodes = new StringBuilder();
+    StringBuilder segments = new StringBuilder();
+    nodes.append("\"a\": {\"node_type\": \"metabolite\", \"x\": 0, \"y\": 0, \"bigg_id\": \"a_c\", \"node_is_primary\": true},");
+    nodes.append("\"b\": {\"node_type\": \"metabolite\", \"x\": 0, \"y\": 20, \"bigg_id\": \"b_c\", \"node_is_primary\": true},");
+    nodes.append("\"mid\": {\"node_type\": \"midmarker\", \"x\": 0, \"y\": 10},");
+    nodes.append("\"end\": {\"node_type\": \"multimarker\", \"x\": 10, \"y\": 10}");
+    segments.append("\"s0\": {\"from_node_id\": \"mid\", \"to_node_id\": \"end\"},");
+    segments.append("\"sb\": {\"from_node_id\": \"mid\", \"to_node_id\": \"b\"}");
+    String previous = "mid";
+    for (int i = 1; i <= length; i++) {
+      nodes.append(",\"m").append(i).append("\": {\"node_type\": \"multimarker\", \"x\": 0, \"y\": 0}");
+      segments.append(",\"s").append(i).append("\": {\"from_node_id\": \"m").append(i)
+      .append("\", \"to_node_id\": \"").append(previous).append("\"}");
+      previous = "m" + i;
+    }
+    segments.append(",\"sa\": {\"from_node_id\": \"a\", \"to_node_id\": \"").append(previous).append("\"}");
+    return "[{\"map_name\": \"chain\"}, {\"canvas\": {\"x\": -10, \"y\": -10, \"width\": 40, \"height\": 40}, "
+        + "\"nodes\": {" + nodes + "}, "
+        + "\"reactions\": {\"1\": {\"name\": \"R\", \"bigg_id\": \"R\", \"reversibility\": false, "
+        + "\"metabolites\": [{\"coefficient\": -1, \"bigg_id\": \"a_c\"}, {\"coefficient\": 1, \"bigg_id\": \"b_c\"}], "
+        + "\"segments\": {" + segments + "}}}}]";
+  }
+
+
+  @Test(timeout = 60000)
+  @Parameters({"1", "10000"})
+  public void convertsMarkersOnLongChains(int length) throws IOException {
+    EscherMap map = EscherConverter.parseEscherJson(
+      new ByteArrayInputStream(chain(length).getBytes(StandardCharsets.UTF_8)));
+    SBMLDocument doc = convert(map, 1);
+    assertTrue("failure - no reaction glyph", doc.getModel().findNamedSBase("R_1") instanceof ReactionGlyph);
+  }
+
+}
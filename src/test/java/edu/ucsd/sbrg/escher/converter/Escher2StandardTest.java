@@ -0,0 +1,186 @@
+/* ---------------------------------------------------------------------
+ * This file is part of the program EscherConverter.
+ *
+ * Copyright (C) 2013-2017 by the University of California, San Diego.
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation. A copy of the license
+ * agreement is provided in the file named "LICENSE.txt" included with
+ * this software distribution and also available online as
+ * <http://www.gnu.org/licenses/lgpl-3.0-standalone.html>.
+ * ---------------------------------------------------------------------
+ */
+package edu.ucsd.sbrg.escher.converter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import edu.ucsd.sbrg.escher.EscherConverter;
+import edu.ucsd.sbrg.escher.model.EscherMap;
+
+/**
+ * Checks how the segments of a reaction are chained to curves from every
+ * metabolite to the midmarker.
+ *
+ * @author Andreas Dr&auml;ger
+ */
+public class Escher2StandardTest {
+
+  /**
+   * Reaction {@code 1} converts {@code a_c} (node {@code 2}) into {@code b_c}
+   * (node {@code 3}). Both sides consist of chains of multimarkers
+   * ({@code 11}, {@code 12} and {@code 21}, {@code 22}) around the midmarker
+   * {@code 10}. Segments {@code s3} and {@code s4} are given in the opposite
+   * direction.
+   */
+  private static final String MAP = "[{\"map_name\": \"chain\"}, {"
+      + "\"nodes\": {"
+      + "\"2\": {\"node_type\": \"metabolite\", \"x\": 0, \"y\": 0, \"bigg_id\": \"a_c\", \"node_is_primary\": true},"
+      + "\"3\": {\"node_type\": \"metabolite\", \"x\": 100, \"y\": 0, \"bigg_id\": \"b_c\", \"node_is_primary\": true},"
+      + "\"10\": {\"node_type\": \"midmarker\", \"x\": 50, \"y\": 0},"
+      + "\"11\": {\"node_type\": \"multimarker\", \"x\": 40, \"y\": 0},"
+      + "\"12\": {\"node_type\": \"multimarker\", \"x\": 30, \"y\": 0},"
+      + "\"21\": {\"node_type\": \"multimarker\", \"x\": 60, \"y\": 0},"
+      + "\"22\": {\"node_type\": \"multimarker\", \"x\": 70, \"y\": 0}"
+      + "},"
+      + "\"reactions\": {\"1\": {\"name\": \"R\", \"bigg_id\": \"R\", \"reversibility\": false,"
+      + "\"metabolites\": [{\"coefficient\": -1, \"bigg_id\": \"a_c\"}, {\"coefficient\": 1, \"bigg_id\": \"b_c\"}],"
+      + "\"segments\": {"
+      + "\"s1\": {\"from_node_id\": \"2\", \"to_node_id\": \"12\"},"
+      + "\"s2\": {\"from_node_id\": \"12\", \"to_node_id\": \"11\"},"
+      + "\"s3\": {\"from_node_id\": \"10\", \"to_node_id\": \"11\"},"
+      + "\"s4\": {\"from_node_id\": \"21\", \"to_node_id\": \"10\"},"
+      + "\"s5\": {\"from_node_id\": \"21\", \"to_node_id\": \"22\"},"
+      + "\"s6\": {\"from_node_id\": \"22\", \"to_node_id\": \"3\"}"
+      + "}}}}]";
+
+  /**
+   * Reaction {@code 1} converts {@code a_c} (node {@code 2}) and {@code c_c}
+   * (node {@code 4}) into {@code b_c} (node {@code 3}). The curves of both
+   * reactants meet at multimarker {@code 11} before the midmarker {@code 10}.
+   * The curve of {@code c_c} passes multimarker {@code 12}, whose segment
+   * {@code s2} is listed before {@code s3}, the segment to the midmarker.
+   */
+  private static final String BRANCHING_MAP = "[{\"map_name\": \"branch\"}, {"
+      + "\"nodes\": {"
+      + "\"2\": {\"node_type\": \"metabolite\", \"x\": 0, \"y\": 0, \"bigg_id\": \"a_c\", \"node_is_primary\": true},"
+      + "\"3\": {\"node_type\": \"metabolite\", \"x\": 100, \"y\": 0, \"bigg_id\": \"b_c\", \"node_is_primary\": true},"
+      + "\"4\": {\"node_type\": \"metabolite\", \"x\": 0, \"y\": 50, \"bigg_id\": \"c_c\", \"node_is_primary\": false},"
+      + "\"10\": {\"node_type\": \"midmarker\", \"x\": 50, \"y\": 0},"
+      + "\"11\": {\"node_type\": \"multimarker\", \"x\": 40, \"y\": 0},"
+      + "\"12\": {\"node_type\": \"multimarker\", \"x\": 30, \"y\": 30}"
+      + "},"
+      + "\"reactions\": {\"1\": {\"name\": \"R\", \"bigg_id\": \"R\", \"reversibility\": false,"
+      + "\"metabolites\": [{\"coefficient\": -1, \"bigg_id\": \"a_c\"}, {\"coefficient\": -1, \"bigg_id\": \"c_c\"},"
+      + " {\"coefficient\": 1, \"bigg_id\": \"b_c\"}],"
+      + "\"segments\": {"
+      + "\"s1\": {\"from_node_id\": \"2\", \"to_node_id\": \"11\"},"
+      + "\"s2\": {\"from_node_id\": \"12\", \"to_node_id\": \"11\"},"
+      + "\"s3\": {\"from_node_id\": \"11\", \"to_node_id\": \"10\"},"
+      + "\"s4\": {\"from_node_id\": \"4\", \"to_node_id\": \"12\"},"
+      + "\"s5\": {\"from_node_id\": \"10\", \"to_node_id\": \"3\"}"
+      + "}}}}]";
+
+
+  /**
+   * @param json
+   * @return the pre-processed map.
+   * @throws IOException
+   */
+  private EscherMap preprocess(String json) throws IOException {
+    EscherMap map = EscherConverter.parseEscherJson(
+      new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+    new Escher2SBML().preprocessDataStructure(map);
+    return map;
+  }
+
+
+  @Test
+  public void chainsAllMultimarkers() throws IOException {
+    EscherMap map = preprocess(MAP);
+    assertEquals(Arrays.asList("s1", "s2", "s3"), map.getConnectedSegments("2", "1"));
+    assertEquals(Arrays.asList("s4", "s5", "s6"), map.getConnectedSegments("3", "1"));
+    // Oriented from the reactant to the product.
+    assertEquals("11", map.getReaction("1").getSegment("s3").getFromNodeId());
+    assertEquals("10", map.getReaction("1").getSegment("s4").getFromNodeId());
+  }
+
+
+  @Test
+  public void doesNotFollowBranchesOfSharedMultimarkers() throws IOException {
+    EscherMap map = preprocess(BRANCHING_MAP);
+    assertEquals(Arrays.asList("s1", "s3"), map.getConnectedSegments("2", "1"));
+    assertEquals(Arrays.asList("s4", "s2", "s3"), map.getConnectedSegments("4", "1"));
+    assertEquals(Arrays.asList("s5"), map.getConnectedSegments("3", "1"));
+    // The segment of the other branch keeps its orientation.
+    assertEquals("12", map.getReaction("1").getSegment("s2").getFromNodeId());
+    assertEquals("11", map.getReaction("1").getSegment("s3").getFromNodeId());
+  }
+
+  @Test(timeout = 10000)
+  public void stopsIfNoSegmentAttaches() throws IOException {
+    EscherMap map = preprocess(MAP.replace("\"s2\": {\"from_node_id\": \"12\", \"to_node_id\": \"11\"},",
+      ""));
+    assertEquals(Arrays.asList("s1"), map.getConnectedSegments("2", "1"));
+    assertEquals(Arrays.asList("s4", "s5", "s6"), map.getConnectedSegments("3", "1"));
+  }
+
+
+
+  @Test
+  public void rethrowsExceptionsOfParallelTasks() {
+    Escher2SBML converter = new Escher2SBML();
+    converter.setThreads(4);
+    IllegalArgumentException exc = new IllegalArgumentException("2");
+    try {
+      converter.computeAll(Arrays.asList(1, 2, 3), i -> {
+        if (i == 2) {
+          throw exc;
+        }
+        return i;
+      });
+      fail();
+    } catch (IllegalArgumentException thrown) {
+      assertSame(exc, thrown);
+    }
+    assertEquals(Arrays.asList(1, 2, 3), converter.computeAll(Arrays.asList(1, 2, 3), i -> i));
+  }
+
+
+  @Test
+  public void limitsParallelismOfEachCall() {
+    Escher2SBML converter = new Escher2SBML();
+    converter.setThreads(2);
+    AtomicInteger running = new AtomicInteger();
+    AtomicInteger maximum = new AtomicInteger();
+    List<Integer> elements = new ArrayList<Integer>();
+    for (int i = 0; i < 20; i++) {
+      elements.add(i);
+    }
+    assertEquals(elements, converter.computeAll(elements, i -> {
+      maximum.accumulateAndGet(running.incrementAndGet(), Math::max);
+      try {
+        Thread.sleep(5);
+      } catch (InterruptedException exc) {
+        Thread.currentThread().interrupt();
+      }
+      running.decrementAndGet();
+      return i;
+    }));
+    assertTrue(Integer.toString(maximum.get()), maximum.get() <= 2);
+  }
+
+}
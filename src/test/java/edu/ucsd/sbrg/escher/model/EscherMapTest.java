@@ -0,0 +1,107 @@
+/* ---------------------------------------------------------------------
+ * This file is part of the program EscherConverter.
+ *
+ * Copyright (C) 2013-2017 by the University of California, San Diego.
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation. A copy of the license
+ * agreement is provided in the file named "LICENSE.txt" included with
+ * this software distribution and also available online as
+ * <http://www.gnu.org/licenses/lgpl-3.0-standalone.html>.
+ * ---------------------------------------------------------------------
+ */
+package edu.ucsd.sbrg.escher.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import org.junit.Test;
+
+import edu.ucsd.sbrg.escher.EscherConverter;
+
+/**
+ * Checks the indexes that {@link EscherMap#postprocessMap()} creates.
+ *
+ * @author Andreas Dr&auml;ger
+ */
+public class EscherMapTest {
+
+  /**
+   * Reactions {@code 1} and {@code 2} both use {@code atp_c}, which is drawn
+   * twice (nodes {@code 2} and {@code 4}). Segment {@code s5} refers to the
+   * missing node {@code 99}.
+   */
+  private static final String MAP = "[{\"map_name\": \"index\"}, {"
+      + "\"nodes\": {"
+      + "\"2\": {\"node_type\": \"metabolite\", \"x\": 0, \"y\": 0, \"bigg_id\": \"atp_c\", \"node_is_primary\": false},"
+      + "\"3\": {\"node_type\": \"metabolite\", \"x\": 100, \"y\": 0, \"bigg_id\": \"adp_c\", \"node_is_primary\": false},"
+      + "\"4\": {\"node_type\": \"metabolite\", \"x\": 0, \"y\": 100, \"bigg_id\": \"atp_c\", \"node_is_primary\": false},"
+      + "\"10\": {\"node_type\": \"midmarker\", \"x\": 50, \"y\": 0},"
+      + "\"20\": {\"node_type\": \"midmarker\", \"x\": 50, \"y\": 100}"
+      + "},"
+      + "\"reactions\": {"
+      + "\"1\": {\"name\": \"R1\", \"bigg_id\": \"R1\", \"reversibility\": false,"
+      + "\"metabolites\": [{\"coefficient\": -1, \"bigg_id\": \"atp_c\"}, {\"coefficient\": 1, \"bigg_id\": \"adp_c\"}],"
+      + "\"segments\": {"
+      + "\"s1\": {\"from_node_id\": \"2\", \"to_node_id\": \"10\"},"
+      + "\"s2\": {\"from_node_id\": \"10\", \"to_node_id\": \"3\"}"
+      + "}},"
+      + "\"2\": {\"name\": \"R2\", \"bigg_id\": \"R2\", \"reversibility\": false,"
+      + "\"metabolites\": [{\"coefficient\": -1, \"bigg_id\": \"atp_c\"}, {\"coefficient\": 1, \"bigg_id\": \"adp_c\"}],"
+      + "\"segments\": {"
+      + "\"s3\": {\"from_node_id\": \"4\", \"to_node_id\": \"20\"},"
+      + "\"s4\": {\"from_node_id\": \"20\", \"to_node_id\": \"3\"},"
+      + "\"s5\": {\"from_node_id\": \"20\", \"to_node_id\": \"99\"}"
+      + "}}}}]";
+
+
+  /**
+   * @return the parsed and post-processed map.
+   * @throws IOException
+   */
+  private EscherMap parse() throws IOException {
+    return EscherConverter.parseEscherJson(
+      new ByteArrayInputStream(MAP.getBytes(StandardCharsets.UTF_8)));
+  }
+
+
+  @Test
+  public void indexesMidmarkers() throws IOException {
+    EscherMap map = parse();
+    assertEquals("10", map.getMidmarker("1").getId());
+    assertEquals("20", map.getMidmarker("2").getId());
+    assertEquals(map.getMidmarker("2"), map.getReaction("2").findMidmarker(map));
+    assertNull(map.getMidmarker("3"));
+  }
+
+
+  @Test
+  public void indexesNodesOfMetabolitesInReactions() throws IOException {
+    EscherMap map = parse();
+    assertEquals(Collections.singleton(map.getNode("2")), map.getNodes("1", "atp_c"));
+    assertEquals(Collections.singleton(map.getNode("4")), map.getNodes("2", "atp_c"));
+    assertEquals(Collections.singleton(map.getNode("3")), map.getNodes("2", "adp_c"));
+    assertTrue(map.getNodes("1", "nad_c").isEmpty());
+    assertEquals(2, map.getNodesCount("atp_c"));
+    assertEquals("4", map.getReaction("2").getMetabolite("atp_c").getNodeRefId());
+  }
+
+
+  @Test
+  public void indexesReactionsOfNodes() throws IOException {
+    EscherMap map = parse();
+    assertEquals(new HashSet<String>(Arrays.asList("1", "2")), map.getReactionIds("3"));
+    assertEquals(Collections.singleton("2"), map.getReactionIds("20"));
+    assertTrue(map.getReactionIds("99").isEmpty());
+  }
+
+}
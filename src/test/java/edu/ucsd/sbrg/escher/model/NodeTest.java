@@ -50,4 +50,47 @@ public class NodeTest {
     }
 
   }
+
+
+  /**
+   * Coordinates are stored as primitive values, but must still be unset by
+   * default and after setting them to {@code null}.
+   */
+  @Test
+  public void testUnsetCoordinates() {
+    Node node = new Node();
+    assertFalse(node.isSetX());
+    assertNull(node.getLabelY());
+    node.setX(0d);
+    node.setLabelY(-1.5);
+    assertTrue(node.isSetX());
+    assertEquals(Double.valueOf(-1.5), node.getLabelY());
+    Node clone = node.clone();
+    assertEquals(Double.valueOf(0d), clone.getX());
+    assertFalse(clone.isSetY());
+    assertFalse(clone.isSetLabelX());
+    node.setX(null);
+    assertFalse(node.isSetX());
+    assertNull(node.getX());
+  }
+
+
+  /**
+   * The primitive accessors return the same values as the getters, but
+   * {@link Double#NaN} instead of {@code null}.
+   */
+  @Test
+  public void testPrimitiveAccessors() {
+    Node node = new Node();
+    assertTrue(Double.isNaN(node.x()));
+    assertTrue(Double.isNaN(node.width()));
+    assertTrue(Double.isNaN(node.labelX()));
+    node.setY(12.5);
+    node.setHeight(30d);
+    node.setLabelY(-1.5);
+    assertEquals(12.5, node.y(), 0d);
+    assertEquals(30d, node.height(), 0d);
+    assertEquals(-1.5, node.labelY(), 0d);
+  }
+
 }
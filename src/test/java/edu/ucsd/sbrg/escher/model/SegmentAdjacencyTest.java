@@ -0,0 +1,80 @@
+/* ---------------------------------------------------------------------
+ * This file is part of the program EscherConverter.
+ *
+ * Copyright (C) 2013-2017 by the University of California, San Diego.
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation. A copy of the license
+ * agreement is provided in the file named "LICENSE.txt" included with
+ * this software distribution and also available online as
+ * <http://www.gnu.org/licenses/lgpl-3.0-standalone.html>.
+ * ---------------------------------------------------------------------
+ */
+package edu.ucsd.sbrg.escher.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+/**
+ * Checks that the connected segments are grouped by node and reaction
+ * without changing their order.
+ *
+ * @author Andreas Dr&auml;ger
+ */
+public class SegmentAdjacencyTest {
+
+  /**
+   * @return segments of two reactions, added in an unsorted order.
+   */
+  private static SegmentAdjacency adjacency() {
+    SegmentAdjacency.Builder builder = new SegmentAdjacency.Builder(
+      Arrays.asList("n3", "n1", "n2"), Arrays.asList("r2", "r1"));
+    builder.add("n2", "r2", Arrays.asList("s9", "s7"));
+    builder.add("n1", "r1", Arrays.asList("s3", "s1", "s2"));
+    builder.add("n2", "r1", Arrays.asList("s4"));
+    builder.add("n2", "r2", Arrays.asList("s8"));
+    return builder.build();
+  }
+
+
+  @Test
+  public void keepsOrderOfSegments() {
+    SegmentAdjacency adjacency = adjacency();
+    assertEquals(Arrays.asList("s3", "s1", "s2"), adjacency.getSegmentIds("n1", "r1"));
+    assertEquals(Arrays.asList("s4"), adjacency.getSegmentIds("n2", "r1"));
+    assertEquals(Arrays.asList("s9", "s7", "s8"), adjacency.getSegmentIds("n2", "r2"));
+  }
+
+
+  @Test
+  public void countsReactionsOfNodes() {
+    SegmentAdjacency adjacency = adjacency();
+    assertEquals(1, adjacency.getReactionCount("n1"));
+    assertEquals(2, adjacency.getReactionCount("n2"));
+    assertEquals(0, adjacency.getReactionCount("n3"));
+    assertEquals(0, adjacency.getReactionCount("unknown"));
+    int node = adjacency.indexOf("n2");
+    assertEquals(4, adjacency.getSegmentCount(node));
+    assertEquals("r1", adjacency.getReactionId(node, 0));
+    assertEquals("s4", adjacency.getSegmentId(node, 0));
+    assertEquals("r2", adjacency.getReactionId(node, 3));
+    assertEquals("s8", adjacency.getSegmentId(node, 3));
+  }
+
+
+  @Test
+  public void returnsNullWithoutSegments() {
+    SegmentAdjacency adjacency = adjacency();
+    assertNull(adjacency.getSegmentIds("n3", "r1"));
+    assertNull(adjacency.getSegmentIds("n1", "r2"));
+    assertNull(adjacency.getSegmentIds("unknown", "r1"));
+    assertTrue(adjacency.indexOf("unknown") < 0);
+  }
+
+}
@@ -0,0 +1,96 @@
+/* ---------------------------------------------------------------------
+ * This file is part of the program EscherConverter.
+ *
+ * Copyright (C) 2013-2017 by the University of California, San Diego.
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation. A copy of the license
+ * agreement is provided in the file named "LICENSE.txt" included with
+ * this software distribution and also available online as
+ * <http://www.gnu.org/licenses/lgpl-3.0-standalone.html>.
+ * ---------------------------------------------------------------------
+ */
+package edu.ucsd.sbrg.escher.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.github.fge.jsonschema.core.exceptions.ProcessingException;
+
+import edu.ucsd.sbrg.escher.EscherConverter;
+import edu.ucsd.sbrg.escher.model.EscherMap;
+
+/**
+ * Checks that gzip-compressed files are read and written transparently.
+ *
+ * @author Andreas Dr&auml;ger
+ */
+public class CompressionTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+
+  @Test
+  public void recognizesCompressedContent() throws IOException {
+    File plain = new File("data/glycolysis.escher.json");
+    File compressed = new File(folder.getRoot(), "glycolysis.json.gz");
+    try (OutputStream stream = Compression.openOutput(compressed)) {
+      Files.copy(plain.toPath(), stream);
+    }
+    // The name does not tell that the content is compressed.
+    File renamed = new File(folder.getRoot(), "glycolysis.json");
+    assertTrue(compressed.renameTo(renamed));
+    compressed = renamed;
+
+    assertFalse("failure - plain file considered compressed", Compression.isCompressed(plain));
+    assertTrue("failure - compressed file not recognized", Compression.isCompressed(compressed));
+    byte[] expected;
+    try (InputStream stream = Files.newInputStream(plain.toPath())) {
+      expected = new byte[64];
+      assertEquals(64, stream.read(expected));
+    }
+    assertArrayEquals("failure - header differs", expected, Compression.readHeader(compressed, 64));
+  }
+
+
+  @Test
+  public void writesAndReadsCompressedEscherJson() throws IOException {
+    EscherMap map = EscherConverter.parseEscherJson(new File("data/e_coli_core_metabolism.escher.json"));
+    File output = folder.newFile("e_coli.json.gz");
+    EscherConverter.writeEscherJson(map, output);
+
+    assertTrue("failure - output not compressed", Compression.isCompressed(output));
+    EscherMap copy = EscherConverter.parseEscherJson(output);
+    assertEquals("failure - map name contains compression extension", "e_coli.json",
+      copy.getName());
+    assertEquals("failure - nodes differ", map.getNodes(), copy.getNodes());
+    assertEquals("failure - reactions differ", map.getReactions(), copy.getReactions());
+  }
+
+
+  @Test
+  public void validatesCompressedEscherJson() throws IOException, ProcessingException {
+    File compressed = folder.newFile("e_coli_core_metabolism.escher.json.gz");
+    try (OutputStream stream = Compression.openOutput(compressed)) {
+      Files.copy(new File("data/e_coli_core_metabolism.escher.json").toPath(), stream);
+    }
+
+    assertTrue("failure - compressed input is invalid",
+      Validator.getDefault().validateEscher(compressed));
+  }
+
+}
@@ -0,0 +1,98 @@
+/* ---------------------------------------------------------------------
+ * This file is part of the program EscherConverter.
+ *
+ * Copyright (C) 2013-2017 by the University of California, San Diego.
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation. A copy of the license
+ * agreement is provided in the file named "LICENSE.txt" included with
+ * this software distribution and also available online as
+ * <http://www.gnu.org/licenses/lgpl-3.0-standalone.html>.
+ * ---------------------------------------------------------------------
+ */
+package edu.ucsd.sbrg.escher.util;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import org.junit.Test;
+
+/**
+ * Checks that problems are counted completely, but only logged at their
+ * level up to the limit.
+ *
+ * @author Andreas Dr&auml;ger
+ */
+public class ConversionCountersTest {
+
+  /**
+   * @param logger
+   * @return the records published to the given logger from now on.
+   */
+  private static List<LogRecord> record(Logger logger) {
+    logger.setUseParentHandlers(false);
+    logger.setLevel(Level.WARNING);
+    List<LogRecord> records = new ArrayList<LogRecord>();
+    logger.addHandler(new Handler() {
+      @Override
+      public void publish(LogRecord record) {
+        records.add(record);
+      }
+      @Override
+      public void flush() {
+      }
+      @Override
+      public void close() {
+      }
+    });
+    return records;
+  }
+
+
+  @Test
+  public void limitsMessagesPerKey() {
+    Logger logger = Logger.getAnonymousLogger();
+    List<LogRecord> records = record(logger);
+    ConversionCounters counters = new ConversionCounters("test");
+    int n = ConversionCounters.DEFAULT_MESSAGE_LIMIT + 5;
+    for (int i = 0; i < n; i++) {
+      counters.log(logger, Level.WARNING, "Escher2SBML.undefinedID", i);
+    }
+    counters.add("nodes", 3);
+    counters.count("nodes");
+    assertEquals(ConversionCounters.DEFAULT_MESSAGE_LIMIT, records.size());
+    assertEquals("No id defined for 0.", records.get(0).getMessage());
+    assertEquals(n, counters.getProblemCount("Escher2SBML.undefinedID"));
+    assertEquals(5, counters.getSuppressedCount("Escher2SBML.undefinedID"));
+    assertEquals(4, counters.getCount("nodes"));
+    assertEquals("test: nodes=4; problems: Escher2SBML.undefinedID=" + n + ".", counters.toString());
+    records.clear();
+    counters.logSummary(logger);
+    assertEquals(1, records.size());
+    assertEquals(Level.WARNING, records.get(0).getLevel());
+    assertEquals("test: 5 further messages of kind Escher2SBML.undefinedID were only logged at level FINE.",
+      records.get(0).getMessage());
+  }
+
+
+  @Test
+  public void logsAllSevereMessages() {
+    Logger logger = Logger.getAnonymousLogger();
+    List<LogRecord> records = record(logger);
+    ConversionCounters counters = new ConversionCounters("test");
+    int n = ConversionCounters.DEFAULT_MESSAGE_LIMIT + 5;
+    for (int i = 0; i < n; i++) {
+      counters.log(logger, Level.SEVERE, "Escher2SBML.undefinedID", i);
+    }
+    assertEquals(n, records.size());
+    assertEquals(0, counters.getSuppressedCount("Escher2SBML.undefinedID"));
+  }
+
+}
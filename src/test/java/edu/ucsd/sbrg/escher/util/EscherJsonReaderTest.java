@@ -0,0 +1,173 @@
+/* ---------------------------------------------------------------------
+ * This file is part of the program EscherConverter.
+ *
+ * Copyright (C) 2013-2017 by the University of California, San Diego.
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation. A copy of the license
+ * agreement is provided in the file named "LICENSE.txt" included with
+ * this software distribution and also available online as
+ * <http://www.gnu.org/licenses/lgpl-3.0-standalone.html>.
+ * ---------------------------------------------------------------------
+ */
+package edu.ucsd.sbrg.escher.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import edu.ucsd.sbrg.escher.model.EscherMap;
+import edu.ucsd.sbrg.escher.model.EscherReaction;
+import edu.ucsd.sbrg.escher.model.Node;
+import junitparams.JUnitParamsRunner;
+import junitparams.Parameters;
+
+/**
+ * Checks that the streaming reader yields the same maps as binding the
+ * document tree with Jackson's {@link ObjectMapper}.
+ *
+ * @author Andreas Dr&auml;ger
+ */
+@RunWith(JUnitParamsRunner.class)
+public class EscherJsonReaderTest {
+
+  /**
+   * Reads the given file the way it was done before the streaming reader
+   * existed, i.e., by binding both elements of the JSON tree.
+   *
+   * @param path
+   * @return
+   * @throws IOException
+   */
+  private EscherMap readTree(String path) throws IOException {
+    ObjectMapper objectMapper = Utils.getObjectMapper();
+    try (InputStream stream = new FileInputStream(path)) {
+      JsonNode escherJson = objectMapper.readTree(stream);
+      EscherMap meta = objectMapper.treeToValue(escherJson.get(0), EscherMap.class);
+      EscherMap map = objectMapper.treeToValue(escherJson.get(1), EscherMap.class);
+      map.setId(meta.getId());
+      map.setName(meta.getName());
+      map.setDescription(meta.getDescription());
+      map.setSchema(meta.getSchema());
+      map.setURL(meta.getURL());
+      map.postprocessMap();
+      return map;
+    }
+  }
+
+
+  @Test
+  @Parameters({
+    "data/e_coli_core_metabolism.escher.json",
+    "data/iJO1366.central.metabolism.escher.json",
+    "data/RECON1_amino_acid_metabolism.escher.json",
+    "data/iMM904_central_metabolism.escher.json",
+    "data/glycolysis.escher.json"
+  })
+  public void yieldsSameMapAsTreeBinding(String path) throws IOException {
+    EscherMap expected = readTree(path);
+    EscherMap actual;
+    try (InputStream stream = new FileInputStream(path)) {
+      actual = new EscherJsonReader().read(stream);
+    }
+    actual.postprocessMap();
+
+    assertEquals("failure - map id differs", expected.getId(), actual.getId());
+    assertEquals("failure - map name differs", expected.getName(), actual.getName());
+    assertEquals("failure - description differs", expected.getDescription(),
+      actual.getDescription());
+    assertEquals("failure - schema differs", expected.getSchema(), actual.getSchema());
+    assertEquals("failure - homepage differs", expected.getURL(), actual.getURL());
+    assertEquals("failure - canvas differs", expected.getCanvas(), actual.getCanvas());
+    assertEquals("failure - node count differs", expected.getNodesCount(),
+      actual.getNodesCount());
+    for (Node node : expected.getNodes().values()) {
+      assertEquals("failure - node " + node.getId() + " differs", node,
+        actual.getNode(node.getId()));
+    }
+    assertEquals("failure - reaction count differs", expected.getReactionCount(),
+      actual.getReactionCount());
+    for (EscherReaction reaction : expected.getReactions().values()) {
+      EscherReaction other = actual.getReaction(reaction.getId());
+      assertEquals("failure - reaction " + reaction.getId() + " differs", reaction, other);
+      assertEquals("failure - genes of " + reaction.getId() + " differ", reaction.getGenes(),
+        other.getGenes());
+      assertEquals("failure - rule of " + reaction.getId() + " differs",
+        reaction.getGeneReactionRule(), other.getGeneReactionRule());
+    }
+    assertEquals("failure - text labels differ", expected.getTextLabels(),
+      actual.getTextLabels());
+    assertEquals("failure - compartments differ", expected.compartments(),
+      actual.compartments());
+    assertEquals("failure - maps differ", expected, actual);
+  }
+
+
+  @Test
+  @Parameters({
+    "data/e_coli_core_metabolism.escher.json",
+    "data/glycolysis.escher.json"
+  })
+  public void bindsValidatedTree(String path) throws IOException {
+    JsonNode tree = Validator.readEscherTree(new File(path));
+    EscherMap fromTree = new EscherJsonReader().read(tree);
+    fromTree.postprocessMap();
+    EscherMap fromStream;
+    try (InputStream stream = new FileInputStream(path)) {
+      fromStream = new EscherJsonReader().read(stream);
+    }
+    fromStream.postprocessMap();
+
+    assertEquals("failure - map name differs", fromStream.getName(), fromTree.getName());
+    assertEquals("failure - nodes differ", fromStream.getNodes(), fromTree.getNodes());
+    assertEquals("failure - reactions differ", fromStream.getReactions(), fromTree.getReactions());
+    assertEquals("failure - maps differ", fromStream, fromTree);
+  }
+
+
+  @Test(expected = IOException.class)
+  public void failsOnMissingLayout() throws IOException {
+    String json = "[{\"map_name\": \"test\"}]";
+    new EscherJsonReader().read(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+  }
+
+
+  @Test(expected = JsonParseException.class)
+  public void failsOnTruncatedDocument() throws IOException {
+    String json = "[{\"map_name\": \"test\"}, {\"nodes\": {\"1\": {\"x\": 1.0";
+    new EscherJsonReader().read(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+  }
+
+
+  @Test
+  public void sharesRepeatedIdentifiers() throws IOException {
+    String json = "[{\"map_name\": \"test\"}, {\"nodes\": {"
+        + "\"1\": {\"node_type\": \"metabolite\", \"bigg_id\": \"atp_c\", \"name\": \"ATP\"},"
+        + "\"2\": {\"node_type\": \"metabolite\", \"bigg_id\": \"atp_c\", \"name\": \"ATP\"}},"
+        + "\"reactions\": {\"3\": {\"bigg_id\": \"R\", \"metabolites\": [{\"bigg_id\": \"atp_c\", \"coefficient\": -1}],"
+        + "\"segments\": {\"0\": {\"from_node_id\": \"1\", \"to_node_id\": \"2\"}}}}}]";
+    EscherMap map = new EscherJsonReader().read(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+    Node first = map.getNode("1"), second = map.getNode("2");
+    assertSame(first.getBiggId(), second.getBiggId());
+    assertSame(first.getName(), second.getName());
+    assertSame(first.getCompartment(), second.getCompartment());
+    EscherReaction reaction = map.getReaction("3");
+    assertSame(first.getBiggId(), reaction.getMetabolite("atp_c").getId());
+    assertSame(first.getId(), reaction.getSegment("0").getFromNodeId());
+  }
+
+}
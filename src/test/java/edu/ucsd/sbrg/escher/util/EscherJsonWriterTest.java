@@ -0,0 +1,119 @@
+/* ---------------------------------------------------------------------
+ * This file is part of the program EscherConverter.
+ *
+ * Copyright (C) 2013-2017 by the University of California, San Diego.
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation. A copy of the license
+ * agreement is provided in the file named "LICENSE.txt" included with
+ * this software distribution and also available online as
+ * <http://www.gnu.org/licenses/lgpl-3.0-standalone.html>.
+ * ---------------------------------------------------------------------
+ */
+package edu.ucsd.sbrg.escher.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import edu.ucsd.sbrg.escher.model.EscherMap;
+import junitparams.JUnitParamsRunner;
+import junitparams.Parameters;
+
+/**
+ * Checks that the streaming writer produces the same documents as
+ * serializing meta-information and map with Jackson's data binding.
+ *
+ * @author Andreas Dr&auml;ger
+ */
+@RunWith(JUnitParamsRunner.class)
+public class EscherJsonWriterTest {
+
+  /**
+   * @param path
+   * @return
+   * @throws IOException
+   */
+  private EscherMap read(String path) throws IOException {
+    try (InputStream stream = new FileInputStream(path)) {
+      return new EscherJsonReader().read(stream);
+    }
+  }
+
+
+  /**
+   * Serializes the given map the way it was done before the streaming writer
+   * existed, i.e., by moving the meta-information into a separate map.
+   *
+   * @param map
+   * @param mapName
+   * @return
+   * @throws IOException
+   */
+  private byte[] writeTree(EscherMap map, String mapName) throws IOException {
+    List<EscherMap> mapList = new ArrayList<>(2);
+    mapList.add(new EscherMap());
+    mapList.get(0).setId(map.getId());
+    mapList.get(0).setDescription(map.getDescription());
+    mapList.get(0).setName(mapName);
+    mapList.get(0).setSchema(map.getSchema());
+    mapList.get(0).setURL(map.getURL());
+    map.setId(null);
+    map.setName(null);
+    map.setDescription(null);
+    map.setSchema(null);
+    map.setURL(null);
+    mapList.add(map);
+    return Utils.getObjectWriter().writeValueAsBytes(mapList);
+  }
+
+
+  @Test
+  @Parameters({
+    "data/e_coli_core_metabolism.escher.json",
+    "data/RECON1_amino_acid_metabolism.escher.json",
+    "data/glycolysis.escher.json"
+  })
+  public void yieldsSameDocumentAsTreeBinding(String path) throws IOException {
+    ByteArrayOutputStream actual = new ByteArrayOutputStream();
+    new EscherJsonWriter().write(read(path), "map.json", actual);
+    byte[] expected = writeTree(read(path), "map.json");
+
+    assertArrayEquals("failure - documents differ", expected, actual.toByteArray());
+  }
+
+
+  @Test
+  @Parameters({
+    "data/e_coli_core_metabolism.escher.json",
+    "data/glycolysis.escher.json"
+  })
+  public void writesCompactDocumentWithoutModifyingMap(String path) throws IOException {
+    EscherMap map = read(path);
+    String id = map.getId();
+    String name = map.getName();
+    ByteArrayOutputStream stream = new ByteArrayOutputStream();
+    new EscherJsonWriter(true).write(map, name, stream);
+    String json = new String(stream.toByteArray(), StandardCharsets.UTF_8);
+
+    assertFalse("failure - compact output contains line breaks", json.contains("\n"));
+    assertEquals("failure - map id has been modified", id, map.getId());
+    assertEquals("failure - map name has been modified", name, map.getName());
+    EscherMap copy = new EscherJsonReader().read(new ByteArrayInputStream(stream.toByteArray()));
+    assertEquals("failure - maps differ", map, copy);
+  }
+
+}
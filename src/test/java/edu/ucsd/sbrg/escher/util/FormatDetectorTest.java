@@ -0,0 +1,104 @@
+/* ---------------------------------------------------------------------
+ * This file is part of the program EscherConverter.
+ *
+ * Copyright (C) 2013-2017 by the University of California, San Diego.
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation. A copy of the license
+ * agreement is provided in the file named "LICENSE.txt" included with
+ * this software distribution and also available online as
+ * <http://www.gnu.org/licenses/lgpl-3.0-standalone.html>.
+ * ---------------------------------------------------------------------
+ */
+package edu.ucsd.sbrg.escher.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import edu.ucsd.sbrg.escher.EscherConverter;
+import edu.ucsd.sbrg.escher.model.EscherMap;
+import edu.ucsd.sbrg.escher.util.EscherOptions.InputFormat;
+import junitparams.JUnitParamsRunner;
+import junitparams.Parameters;
+
+/**
+ * Checks the detection of formats from the content of files.
+ *
+ * @author Andreas Dr&auml;ger
+ */
+@RunWith(JUnitParamsRunner.class)
+public class FormatDetectorTest {
+
+  @Test
+  @Parameters({
+    "data/e_coli_core_metabolism.escher.json, Escher",
+    "data/e_coli_core_metabolism.escher.json6C61796F7574.json, Escher",
+    "data/e_coli_core_metabolism.sbml.xml, SBML",
+    "data/e_coli_core_metabolism.sbgn.xml, SBGN",
+    "data/insulin.sbgn.xml, SBGN"
+  })
+  public void detectsFormat(String path, InputFormat format) throws IOException {
+    assertEquals("failure - wrong format", format, FormatDetector.detect(new File(path)).getFormat());
+  }
+
+
+  @Test
+  @Parameters({
+    "data/example1.escher.json",
+    "data/e_coli_core.escher.json",
+    "data/sbml-l2v1.xsd"
+  })
+  public void rejectsUnsupportedContent(String path) throws IOException {
+    // Empty files, COBRA models and XML Schemas are no input for the converter.
+    assertFalse("failure - format detected", FormatDetector.detect(new File(path)).isSupported());
+  }
+
+
+  @Test
+  @Parameters({
+    "data/example1.sbml.xml, 2, 1",
+    "data/e_coli_core.sbml.xml, 3, 1"
+  })
+  public void detectsSBMLLevelAndVersion(String path, int level, int version) throws IOException {
+    FormatDetector.Result result = FormatDetector.detect(new File(path));
+    assertEquals("failure - wrong level", level, result.getLevel());
+    assertEquals("failure - wrong version", version, result.getVersion());
+  }
+
+
+  @Test
+  public void detectsSBGNLanguage() throws IOException {
+    assertEquals("failure - wrong language", "process description",
+      FormatDetector.detect(new File("data/glycolysis.sbgn.xml")).getLanguage());
+    // Milestone 1 documents have no language attribute.
+    FormatDetector.Result result = FormatDetector.detect(new File("data/insulin.sbgn.xml"));
+    assertNull("failure - language found", result.getLanguage());
+    assertEquals("failure - wrong namespace", "http://sbgn.org/libsbgn/pd/0.1",
+      result.getNamespace());
+  }
+
+
+  @Test
+  public void resetsStream() throws IOException {
+    try (InputStream stream = new BufferedInputStream(
+      new FileInputStream("data/glycolysis.escher.json"))) {
+      assertEquals("failure - wrong format", InputFormat.Escher,
+        FormatDetector.detect(stream).getFormat());
+      EscherMap map = EscherConverter.parseEscherJson(stream);
+      assertEquals("failure - map not read from the beginning", "glycolysis.escher.json",
+        map.getName());
+    }
+  }
+
+}
@@ -0,0 +1,55 @@
+/* ---------------------------------------------------------------------
+ * This file is part of the program EscherConverter.
+ *
+ * Copyright (C) 2013-2017 by the University of California, San Diego.
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation. A copy of the license
+ * agreement is provided in the file named "LICENSE.txt" included with
+ * this software distribution and also available online as
+ * <http://www.gnu.org/licenses/lgpl-3.0-standalone.html>.
+ * ---------------------------------------------------------------------
+ */
+package edu.ucsd.sbrg.escher.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * Checks that identifiers are unique and numbered like before.
+ *
+ * @author Andreas Dr&auml;ger
+ */
+public class IdAllocatorTest {
+
+  @Test
+  public void numbersRepeatedIds() {
+    IdAllocator ids = new IdAllocator();
+    assertEquals("a", ids.createId("a"));
+    assertEquals("a_1", ids.createId("a"));
+    assertEquals("a_2", ids.createId("a"));
+    assertEquals("b", ids.createId("b"));
+    assertEquals("TG_1", ids.createNumberedId("TG_"));
+    assertEquals("TG_2", ids.createNumberedId("TG_"));
+  }
+
+
+  @Test
+  public void skipsIdsInUse() {
+    Set<String> document = new HashSet<String>(Arrays.asList("a", "a_1", "a_3", "TG_2"));
+    IdAllocator ids = new IdAllocator(document::contains);
+    assertEquals("a_2", ids.createId("a"));
+    assertEquals("a_4", ids.createId("a"));
+    assertEquals("TG_1", ids.createNumberedId("TG_"));
+    assertEquals("TG_3", ids.createNumberedId("TG_"));
+    assertFalse(ids.isFree("TG_3"));
+  }
+
+}
@@ -0,0 +1,71 @@
+/* ---------------------------------------------------------------------
+ * This file is part of the program EscherConverter.
+ *
+ * Copyright (C) 2013-2017 by the University of California, San Diego.
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation. A copy of the license
+ * agreement is provided in the file named "LICENSE.txt" included with
+ * this software distribution and also available online as
+ * <http://www.gnu.org/licenses/lgpl-3.0-standalone.html>.
+ * ---------------------------------------------------------------------
+ */
+package edu.ucsd.sbrg.sbgn;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sbgn.bindings.Sbgn;
+
+/**
+ * @author Andreas Dr&auml;ger
+ */
+public class SBGNIOTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+
+  @Test
+  public void writesWhatItReads() throws Exception {
+    Sbgn sbgn = SBGNIO.read(new File("data/mapk_cascade.sbgn.xml"));
+    File output = folder.newFile("mapk_cascade.sbgn.xml.gz");
+    SBGNIO.write(sbgn, output);
+    Sbgn copy = SBGNIO.read(output);
+    assertEquals(sbgn.getMap().getGlyph().size(), copy.getMap().getGlyph().size());
+    assertEquals(sbgn.getMap().getArc().size(), copy.getMap().getArc().size());
+    assertSame(SBGNIO.getContext(), SBGNIO.getContext());
+  }
+
+
+  @Test
+  public void readsInParallel() throws Exception {
+    final File file = new File("data/glycolysis.sbgn.xml");
+    int expected = SBGNIO.read(file).getMap().getGlyph().size();
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<Sbgn>> results = new ArrayList<Future<Sbgn>>();
+      for (int i = 0; i < 16; i++) {
+        results.add(executor.submit((Callable<Sbgn>) () -> SBGNIO.read(file)));
+      }
+      for (Future<Sbgn> result : results) {
+        assertEquals(expected, result.get().getMap().getGlyph().size());
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+}